@@ -1,16 +1,33 @@
 package de.hpi.akka_tutorial;
 
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
 import com.beust.jcommander.Parameters;
+import de.hpi.akka_tutorial.benchmark.Benchmark;
+import de.hpi.akka_tutorial.benchmark.DispatcherBenchmark;
+import de.hpi.akka_tutorial.benchmark.MasterMailboxBenchmark;
+import de.hpi.akka_tutorial.benchmark.MessagingBenchmark;
+import de.hpi.akka_tutorial.benchmark.PrimeIndexBenchmark;
+import de.hpi.akka_tutorial.benchmark.RecoveryBenchmark;
+import de.hpi.akka_tutorial.benchmark.ReplicationBenchmark;
+import de.hpi.akka_tutorial.benchmark.SerializationBenchmark;
+import de.hpi.akka_tutorial.benchmark.SubmissionBenchmark;
+import de.hpi.akka_tutorial.benchmark.TransportBenchmark;
 import de.hpi.akka_tutorial.remote.Calculator;
+import de.hpi.akka_tutorial.remote.actors.Master;
+import de.hpi.akka_tutorial.remote.actors.PrimeIndex;
+import de.hpi.akka_tutorial.remote.actors.WorkloadDriver;
 import de.hpi.akka_tutorial.remote.actors.scheduling.ReactiveSchedulingStrategy;
 import de.hpi.akka_tutorial.remote.actors.scheduling.RoundRobinSchedulingStrategy;
 import de.hpi.akka_tutorial.remote.actors.scheduling.SchedulingStrategy;
+import de.hpi.akka_tutorial.util.AkkaUtils;
 
 public class Main {
 
@@ -19,9 +36,13 @@ public class Main {
     	// Parse the command-line args.
         MasterCommand masterCommand = new MasterCommand();
         SlaveCommand slaveCommand = new SlaveCommand();
+        BenchmarkCommand benchmarkCommand = new BenchmarkCommand();
+        IndexCommand indexCommand = new IndexCommand();
         JCommander jCommander = JCommander.newBuilder()
                 .addCommand("master", masterCommand)
                 .addCommand("slave", slaveCommand)
+                .addCommand("benchmark", benchmarkCommand)
+                .addCommand("index", indexCommand)
                 .build();
 
         try {
@@ -39,6 +60,12 @@ public class Main {
                 case "slave":
                     startSlave(slaveCommand);
                     break;
+                case "benchmark":
+                    runBenchmark(benchmarkCommand);
+                    break;
+                case "index":
+                    buildIndex(indexCommand);
+                    break;
                 default:
                     throw new AssertionError();
 
@@ -73,7 +100,30 @@ public class Main {
             default:
                 throw new ParameterException(String.format("Unknown scheduling strategy: %s", masterCommand.schedulingStrategy));
         }
-        Calculator.runMaster(masterCommand.host, masterCommand.port, schedulingStrategyFactory, masterCommand.numLocalWorkers);
+        WorkloadDriver.Settings workload = null;
+        if (masterCommand.workloadFile != null) {
+            try {
+                workload = new WorkloadDriver.Settings(WorkloadDriver.readWorkload(Paths.get(masterCommand.workloadFile)),
+                        masterCommand.rate, masterCommand.concurrency, Paths.get(masterCommand.resultsFile),
+                        TimeUnit.SECONDS.toMillis(masterCommand.startDelay));
+            } catch (IOException | IllegalArgumentException e) {
+                throw new ParameterException(String.format("Invalid workload: %s", e.getMessage()));
+            }
+        }
+        Master.PoolSettings workerPool = Master.PoolSettings.fixed(masterCommand.numLocalWorkers);
+        if (masterCommand.minWorkers >= 0 || masterCommand.maxWorkers >= 0) {
+            int minWorkers = Math.max(0, masterCommand.minWorkers);
+            int maxWorkers = masterCommand.maxWorkers >= 0 ? masterCommand.maxWorkers : Math.max(minWorkers, Runtime.getRuntime().availableProcessors());
+            if (minWorkers < 1 && !(schedulingStrategyFactory instanceof ReactiveSchedulingStrategy.Factory))
+                throw new ParameterException("Only the reactive scheduler can cope with an empty worker pool.");
+            try {
+                workerPool = new Master.PoolSettings(Math.min(Math.max(masterCommand.numLocalWorkers, minWorkers), maxWorkers), minWorkers, maxWorkers,
+                        Master.PoolSettings.DEFAULT_INTERVAL_MILLIS, Master.PoolSettings.DEFAULT_SCALE_DOWN_DELAY_MILLIS);
+            } catch (IllegalArgumentException e) {
+                throw new ParameterException(String.format("Invalid worker pool: %s", e.getMessage()));
+            }
+        }
+        Calculator.runMaster(masterCommand.host, masterCommand.port, masterCommand.getTransport(), schedulingStrategyFactory, workerPool, masterCommand.numListeners, workload, masterCommand.primeIndexFile);
     }
 
     /**
@@ -82,7 +132,83 @@ public class Main {
      * @param slaveCommand defines the parameters of the slave
      */
     private static void startSlave(SlaveCommand slaveCommand) {
-        Calculator.runSlave(slaveCommand.host, slaveCommand.port, slaveCommand.getMasterHost(), slaveCommand.getMasterPort());
+        Calculator.runSlave(slaveCommand.host, slaveCommand.port, slaveCommand.getTransport(), slaveCommand.getMasterHost(), slaveCommand.getMasterPort(), slaveCommand.primeIndexFile);
+    }
+
+    /**
+     * Run a benchmark.
+     *
+     * @param benchmarkCommand defines the parameters of the benchmark
+     */
+    private static void runBenchmark(BenchmarkCommand benchmarkCommand) throws ParameterException {
+        Benchmark benchmark;
+        switch (benchmarkCommand.benchmark) {
+            case MasterMailboxBenchmark.NAME:
+                benchmark = new MasterMailboxBenchmark(benchmarkCommand.runs,
+                        benchmarkCommand.getSize(MasterMailboxBenchmark.DEFAULT_FLOOD_SIZE));
+                break;
+            case TransportBenchmark.NAME:
+                benchmark = new TransportBenchmark(benchmarkCommand.runs,
+                        benchmarkCommand.getSize(TransportBenchmark.DEFAULT_NUM_BATCHES));
+                break;
+            case SerializationBenchmark.NAME:
+                benchmark = new SerializationBenchmark(benchmarkCommand.runs,
+                        benchmarkCommand.getSize(SerializationBenchmark.DEFAULT_NUM_ROUND_TRIPS));
+                break;
+            case MessagingBenchmark.NAME:
+                benchmark = new MessagingBenchmark(benchmarkCommand.runs,
+                        benchmarkCommand.getSize(MessagingBenchmark.DEFAULT_NUM_ROUND_TRIPS));
+                break;
+            case ReplicationBenchmark.NAME:
+                benchmark = new ReplicationBenchmark(benchmarkCommand.runs,
+                        benchmarkCommand.getSize(ReplicationBenchmark.DEFAULT_NUM_WRITES));
+                break;
+            case RecoveryBenchmark.NAME:
+                benchmark = new RecoveryBenchmark(benchmarkCommand.runs,
+                        benchmarkCommand.getSize(RecoveryBenchmark.DEFAULT_NUM_KEYS));
+                break;
+            case DispatcherBenchmark.NAME:
+                benchmark = new DispatcherBenchmark(benchmarkCommand.runs,
+                        benchmarkCommand.getSize(DispatcherBenchmark.DEFAULT_NUM_PROBES));
+                break;
+            case PrimeIndexBenchmark.NAME:
+                benchmark = new PrimeIndexBenchmark(benchmarkCommand.runs,
+                        benchmarkCommand.getSize(PrimeIndexBenchmark.DEFAULT_RANGE_SIZE));
+                break;
+            case SubmissionBenchmark.NAME:
+                benchmark = new SubmissionBenchmark(benchmarkCommand.runs,
+                        benchmarkCommand.getSize(SubmissionBenchmark.DEFAULT_NUM_QUERIES));
+                break;
+            default:
+                throw new ParameterException(String.format("Unknown benchmark: %s", benchmarkCommand.benchmark));
+        }
+        try {
+            benchmark.run(System.out);
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(-1);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Build a prime index.
+     *
+     * @param indexCommand defines the parameters of the index
+     */
+    private static void buildIndex(IndexCommand indexCommand) throws ParameterException {
+        if (indexCommand.limit < 1 || indexCommand.blockSize < 1)
+            throw new ParameterException("The limit and the block size must be positive.");
+        try {
+            long start = System.nanoTime();
+            PrimeIndex.build(Paths.get(indexCommand.output), indexCommand.limit, indexCommand.blockSize);
+            PrimeIndex index = PrimeIndex.open(Paths.get(indexCommand.output));
+            System.out.printf("Indexed %,d primes up to %,d in %,d blocks of %,d bytes in %,.1f s.%n", index.getNumPrimes(),
+                    index.getLimit(), index.getNumBlocks(), index.getBlockSize(), (System.nanoTime() - start) / 1e9);
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace();
+            System.exit(-1);
+        }
     }
 
     /**
@@ -104,11 +230,59 @@ public class Main {
         @Parameter(names = {"-w", "--workers"}, description = "number of workers to start locally")
         int numLocalWorkers = 0;
 
+        /**
+         * Defines the lower bound of an elastic local worker pool.
+         */
+        @Parameter(names = {"--min-workers"}, description = "least number of local workers of an elastic pool (default: 0 if --max-workers is given)")
+        int minWorkers = -1;
+
+        /**
+         * Defines the upper bound of an elastic local worker pool.
+         */
+        @Parameter(names = {"--max-workers"}, description = "largest number of local workers of an elastic pool (default: number of cores if --min-workers is given)")
+        int maxWorkers = -1;
+
         /**
          * Defines the scheduling strategy to be used in the master.
          */
         @Parameter(names = {"-s", "--scheduler"}, description = "a scheduling strategy (round-robin or reactive)")
         String schedulingStrategy = "reactive";
+
+        /**
+         * Defines the number of listener shards that collect the primes.
+         */
+        @Parameter(names = {"-l", "--listeners"}, description = "number of listener shards that collect the primes")
+        int numListeners = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Defines a workload file to replay instead of reading ranges from the console.
+         */
+        @Parameter(names = {"--workload"}, description = "workload file with lines \"[<offsetMillis>,]<min>,<max>\" to replay instead of reading ranges from the console")
+        String workloadFile = null;
+
+        /**
+         * Defines the open-loop rate at which the workload is offered.
+         */
+        @Parameter(names = {"--rate"}, description = "queries per second to offer in an open loop (0 to use the offsets of the workload file)")
+        double rate = 0;
+
+        /**
+         * Defines the number of queries that are in flight in a closed loop.
+         */
+        @Parameter(names = {"--concurrency"}, description = "queries to keep in flight in a closed loop (0 for an open loop)")
+        int concurrency = 0;
+
+        /**
+         * Defines where the per-query latencies of the workload are written to.
+         */
+        @Parameter(names = {"--results"}, description = "CSV file for the per-query latencies of the workload")
+        String resultsFile = "workload-results.csv";
+
+        /**
+         * Defines how long to wait before the workload starts.
+         */
+        @Parameter(names = {"--start-delay"}, description = "seconds to wait before the workload starts, e.g., for slaves to connect")
+        int startDelay = 0;
     }
 
     /**
@@ -152,6 +326,60 @@ public class Main {
 
     }
 
+    /**
+     * Command to build a prime index.
+     */
+    @Parameters(commandDescription = "build a prime index that workers look primes up in")
+    static class IndexCommand {
+
+        /**
+         * Defines the file to write the index to.
+         */
+        @Parameter(names = {"-o", "--output"}, description = "the index file to write", required = true)
+        String output;
+
+        /**
+         * Defines the largest number that the index covers.
+         */
+        @Parameter(names = {"-l", "--limit"}, description = "the largest number to index")
+        long limit = 10_000_000_000L;
+
+        /**
+         * Defines the number of bitmap bytes per block of the index.
+         */
+        @Parameter(names = {"--block-size"}, description = "bitmap bytes per block; each byte covers 30 numbers")
+        int blockSize = PrimeIndex.DEFAULT_BLOCK_SIZE;
+    }
+
+    /**
+     * Command to run a benchmark.
+     */
+    @Parameters(commandDescription = "run a benchmark")
+    static class BenchmarkCommand {
+
+        /**
+         * Defines the benchmark to run.
+         */
+        @Parameter(names = {"-b", "--benchmark"}, description = "the benchmark to run (" + MasterMailboxBenchmark.NAME + ", " + TransportBenchmark.NAME + ", " + SerializationBenchmark.NAME + ", " + MessagingBenchmark.NAME + ", " + ReplicationBenchmark.NAME + ", " + RecoveryBenchmark.NAME + ", " + DispatcherBenchmark.NAME + ", " + PrimeIndexBenchmark.NAME + ", " + SubmissionBenchmark.NAME + ")", required = true)
+        String benchmark;
+
+        /**
+         * Defines how often the benchmark should repeat its measurements.
+         */
+        @Parameter(names = {"-r", "--runs"}, description = "number of measurement runs")
+        int runs = 5;
+
+        /**
+         * Defines the problem size of the benchmark; its meaning depends on the benchmark.
+         */
+        @Parameter(names = {"-s", "--size"}, description = "problem size of the benchmark (0 for the benchmark's default)")
+        int size = 0;
+
+        int getSize(int defaultSize) {
+            return this.size > 0 ? this.size : defaultSize;
+        }
+    }
+
     /**
      * This class defines shared parameters across masters and slaves.
      */
@@ -185,5 +413,28 @@ public class Main {
          * @return the default port
          */
         abstract int getDefaultPort();
+
+        /**
+         * Defines the remoting transport; masters and slaves must use the same one.
+         */
+        @Parameter(names = {"-t", "--transport"}, description = "remoting transport (classic or artery)")
+        String transport = "artery";
+
+        /**
+         * Defines the prime index that the workers in this actor system look up primes in.
+         */
+        @Parameter(names = {"--prime-index"}, description = "prime index file (see the index command) that the workers of this actor system use")
+        String primeIndexFile = null;
+
+        AkkaUtils.Transport getTransport() {
+            switch (this.transport) {
+                case "classic":
+                    return AkkaUtils.Transport.CLASSIC;
+                case "artery":
+                    return AkkaUtils.Transport.ARTERY;
+                default:
+                    throw new ParameterException(String.format("Unknown transport: %s", this.transport));
+            }
+        }
     }
 }
@@ -0,0 +1,35 @@
+package de.hpi.akka_tutorial.benchmark;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * A benchmark that can be started via the {@code benchmark} command of {@link de.hpi.akka_tutorial.Main}.
+ */
+public interface Benchmark {
+
+	/**
+	 * Run the benchmark and print its results.
+	 *
+	 * @param out the stream to print the results to
+	 * @throws Exception if the benchmark could not be run
+	 */
+	void run(PrintStream out) throws Exception;
+
+	/**
+	 * Print a one-line summary of some measured durations.
+	 *
+	 * @param out the stream to print the summary to
+	 * @param label the label of the measurements
+	 * @param nanos the measured durations in nanoseconds
+	 */
+	static void printSummary(PrintStream out, String label, long[] nanos) {
+		long[] sorted = nanos.clone();
+		Arrays.sort(sorted);
+		out.printf("%-24s min %10.3f ms | median %10.3f ms | max %10.3f ms%n",
+				label,
+				sorted[0] / 1e6,
+				sorted[sorted.length / 2] / 1e6,
+				sorted[sorted.length - 1] / 1e6);
+	}
+}
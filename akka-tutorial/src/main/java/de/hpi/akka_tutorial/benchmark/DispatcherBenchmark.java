@@ -0,0 +1,218 @@
+package de.hpi.akka_tutorial.benchmark;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.pattern.AskTimeoutException;
+import akka.pattern.Patterns;
+import de.hpi.akka_tutorial.remote.actors.ListenerShards;
+import de.hpi.akka_tutorial.remote.actors.Master;
+import de.hpi.akka_tutorial.remote.actors.Worker;
+import de.hpi.akka_tutorial.util.AkkaUtils;
+import scala.concurrent.Await;
+
+/**
+ * Measures how quickly a coordinating actor answers while {@link Worker}s keep every thread of their dispatcher busy.
+ * The benchmark compares the dispatcher topology of {@code base.conf}, which gives the coordinating actors their own
+ * threads, with a topology in which all actors share the default dispatcher as they did before. Latencies are the
+ * round trips of asks from the benchmark thread and are reported as HDR histogram percentiles in microseconds. On a
+ * shared fork-join pool, the busy threads keep picking up their local work, so a probe may not be answered at all;
+ * such a probe ends its run and is reported as starved.
+ */
+public class DispatcherBenchmark implements Benchmark {
+
+	public static final String NAME = "dispatcher";
+
+	public static final int DEFAULT_NUM_PROBES = 2_000;
+
+	// Ranges of this size above this offset take a worker a few milliseconds each
+	private static final long RANGE_OFFSET = 1_000_000_000_000L, RANGE_SIZE = 16;
+
+	// Start more workers than the default dispatcher has threads (at least 8), so that the workers saturate it
+	private static final int NUM_WORKERS = 2 * Math.max(8, Runtime.getRuntime().availableProcessors());
+
+	private static final long PROBE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	// A probe that is not answered within this time counts as starved and ends its run
+	private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(10);
+
+	private static final String BENCHMARK_CONFIG = String.join("\n",
+			"akka.loglevel = WARNING",
+			"akka.log-dead-letters = off");
+
+	// Turn the compute and the coordination dispatcher into aliases of the default dispatcher
+	private static final String SHARED_CONFIG = String.join("\n",
+			AkkaUtils.COMPUTE_DISPATCHER + " = akka.actor.default-dispatcher",
+			AkkaUtils.COORDINATION_DISPATCHER + " = akka.actor.default-dispatcher");
+
+	/**
+	 * Answers every message with the same message, as a stand-in for the master.
+	 */
+	private static class Echo extends AbstractActor {
+
+		@Override
+		public Receive createReceive() {
+			return receiveBuilder()
+					.matchAny(message -> this.getSender().tell(message, this.getSelf()))
+					.build();
+		}
+	}
+
+	/**
+	 * Keeps one worker busy by sending it the next range whenever it completes one.
+	 */
+	private static class Feeder extends AbstractActor {
+
+		private final ActorRef worker;
+
+		private final AtomicLong numCompletedRanges;
+
+		private long nextRangeMin;
+
+		Feeder(final ActorRef worker, final long firstRangeMin, final AtomicLong numCompletedRanges) {
+			this.worker = worker;
+			this.nextRangeMin = firstRangeMin;
+			this.numCompletedRanges = numCompletedRanges;
+		}
+
+		@Override
+		public void preStart() {
+			this.sendNextRange();
+		}
+
+		@Override
+		public Receive createReceive() {
+			return receiveBuilder()
+					.match(Master.CompletionMessage.class, message -> {
+						this.numCompletedRanges.incrementAndGet();
+						this.sendNextRange();
+					})
+					.build();
+		}
+
+		private void sendNextRange() {
+			this.worker.tell(new Worker.ValidationMessage(0, this.nextRangeMin, this.nextRangeMin + RANGE_SIZE - 1), this.getSelf());
+			this.nextRangeMin += RANGE_SIZE;
+		}
+	}
+
+	/**
+	 * Drops the primes of the workers.
+	 */
+	private static class Drain extends AbstractActor {
+
+		@Override
+		public Receive createReceive() {
+			return receiveBuilder()
+					.matchAny(message -> {
+					})
+					.build();
+		}
+	}
+
+	private final int runs;
+
+	private final int numProbes;
+
+	public DispatcherBenchmark(int runs, int numProbes) {
+		this.runs = runs;
+		this.numProbes = numProbes;
+	}
+
+	@Override
+	public void run(PrintStream out) throws Exception {
+		out.printf("Coordinator latency under full load of %d workers with %,d probes per run (%d runs); latencies in microseconds%n",
+				NUM_WORKERS, this.numProbes, this.runs);
+		out.printf("%-24s %10s %10s %10s %10s %10s %10s %14s%n", "topology", "p50", "p90", "p99", "p99.9", "max", "starved", "ranges/s");
+
+		this.run(out, "shared default", ConfigFactory.parseString(SHARED_CONFIG));
+		this.run(out, "dedicated", ConfigFactory.empty());
+	}
+
+	private void run(PrintStream out, String label, Config topology) throws Exception {
+		Histogram latencies = new Histogram(3);
+		long numRanges = 0, nanos = 0;
+		int numStarvedProbes = 0;
+		for (int run = 0; run < this.runs; run++) {
+			AtomicLong numCompletedRanges = new AtomicLong();
+			ActorSystem actorSystem = ActorSystem.create("benchmark", topology
+					.withFallback(ConfigFactory.parseString(BENCHMARK_CONFIG))
+					.withFallback(AkkaUtils.createLocalAkkaConfig()));
+			try {
+				ActorRef drain = actorSystem.actorOf(Props.create(Drain.class).withDispatcher(AkkaUtils.COORDINATION_DISPATCHER));
+				ListenerShards listeners = new ListenerShards(Collections.singletonList(drain));
+				for (int i = 0; i < NUM_WORKERS; i++) {
+					ActorRef worker = actorSystem.actorOf(Worker.props(listeners));
+					actorSystem.actorOf(Props.create(Feeder.class, () -> new Feeder(worker, RANGE_OFFSET, numCompletedRanges))
+							.withDispatcher(AkkaUtils.COORDINATION_DISPATCHER));
+				}
+				ActorRef echo = actorSystem.actorOf(Props.create(Echo.class).withDispatcher(AkkaUtils.COORDINATION_DISPATCHER));
+
+				// Warm up until the workers are busy
+				long startRanges = numCompletedRanges.get(), start = System.nanoTime();
+				boolean isStarved = !this.probe(echo, Math.max(10, this.numProbes / 10), new Histogram(3));
+				if (!isStarved) {
+					startRanges = numCompletedRanges.get();
+					start = System.nanoTime();
+					isStarved = !this.probe(echo, this.numProbes, latencies);
+				}
+				if (isStarved) {
+					latencies.recordValue(PROBE_TIMEOUT.toNanos());
+					numStarvedProbes++;
+				}
+				nanos += System.nanoTime() - start;
+				numRanges += numCompletedRanges.get() - startRanges;
+			} finally {
+				actorSystem.terminate();
+				Await.ready(actorSystem.whenTerminated(), scala.concurrent.duration.Duration.Inf());
+			}
+		}
+
+		out.printf("%-24s %10.1f %10.1f %10.1f %10.1f %10.1f %10d %,14.0f%n",
+				label,
+				latencies.getValueAtPercentile(50) / 1e3,
+				latencies.getValueAtPercentile(90) / 1e3,
+				latencies.getValueAtPercentile(99) / 1e3,
+				latencies.getValueAtPercentile(99.9) / 1e3,
+				latencies.getMaxValue() / 1e3,
+				numStarvedProbes,
+				numRanges / (nanos / 1e9));
+	}
+
+	/**
+	 * @return whether all probes were answered in time
+	 */
+	private boolean probe(ActorRef echo, int numProbes, Histogram latencies) throws Exception {
+		for (int i = 0; i < numProbes; i++) {
+			long start = System.nanoTime();
+			try {
+				Patterns.ask(echo, i, PROBE_TIMEOUT).toCompletableFuture().get();
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof AskTimeoutException)
+					return false;
+				throw e;
+			}
+			long latency = System.nanoTime() - start;
+			latencies.recordValue(latency);
+
+			// Probe at a fixed rate rather than back to back, so that the probes do not add much load
+			long remaining = PROBE_INTERVAL_NANOS - latency;
+			if (remaining > 0)
+				TimeUnit.NANOSECONDS.sleep(remaining);
+		}
+		return true;
+	}
+}
@@ -0,0 +1,214 @@
+package de.hpi.akka_tutorial.benchmark;
+
+import java.io.PrintStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.Terminated;
+import de.hpi.akka_tutorial.remote.actors.ListenerShards;
+import de.hpi.akka_tutorial.remote.actors.Master;
+import de.hpi.akka_tutorial.remote.actors.MasterMailbox;
+import de.hpi.akka_tutorial.remote.actors.scheduling.ReactiveSchedulingStrategy;
+import de.hpi.akka_tutorial.remote.actors.scheduling.SchedulingStrategy;
+import de.hpi.akka_tutorial.util.AkkaUtils;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+/**
+ * Measures how long the {@link Master} needs to react to the termination of a worker, i.e., to hand the worker's
+ * subquery back to its {@link SchedulingStrategy}, while its mailbox is flooded with {@link Master.CompletionMessage}s.
+ * The benchmark compares the default FIFO mailbox with the {@link MasterMailbox}.
+ */
+public class MasterMailboxBenchmark implements Benchmark {
+
+	public static final String NAME = "master-mailbox";
+
+	public static final int DEFAULT_FLOOD_SIZE = 2_000_000;
+
+	/**
+	 * Records the moment at which the master removes a worker from its scheduling strategy.
+	 */
+	private static class InstrumentedSchedulingStrategy implements SchedulingStrategy {
+
+		private final SchedulingStrategy delegate;
+
+		// The first worker that was added to the strategy
+		private final CompletableFuture<ActorRef> addedWorker = new CompletableFuture<>();
+
+		// The System.nanoTime() at which the first worker was removed from the strategy
+		private final CompletableFuture<Long> removedAt = new CompletableFuture<>();
+
+		private InstrumentedSchedulingStrategy(SchedulingStrategy delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void schedule(int taskId, long startNumber, long endNumber) {
+			this.delegate.schedule(taskId, startNumber, endNumber);
+		}
+
+		@Override
+		public void cancel(int taskId) {
+			this.delegate.cancel(taskId);
+		}
+
+		@Override
+		public boolean finished(int taskId, ActorRef worker) {
+			return this.delegate.finished(taskId, worker);
+		}
+
+		@Override
+		public boolean hasTasksInProgress() {
+			return this.delegate.hasTasksInProgress();
+		}
+
+		@Override
+		public boolean isTaskInProgress(int taskId) {
+			return this.delegate.isTaskInProgress(taskId);
+		}
+
+		@Override
+		public void addWorker(ActorRef worker) {
+			this.addedWorker.complete(worker);
+			this.delegate.addWorker(worker);
+		}
+
+		@Override
+		public void addPrimeIndex(ActorRef worker, long limit) {
+			this.delegate.addPrimeIndex(worker, limit);
+		}
+
+		@Override
+		public void retireWorker(ActorRef worker) {
+			this.delegate.retireWorker(worker);
+		}
+
+		@Override
+		public boolean isIdle(ActorRef worker) {
+			return this.delegate.isIdle(worker);
+		}
+
+		@Override
+		public long countPendingSubqueries() {
+			return this.delegate.countPendingSubqueries();
+		}
+
+		@Override
+		public void removeWorker(ActorRef worker) {
+			this.removedAt.complete(System.nanoTime());
+			this.delegate.removeWorker(worker);
+		}
+
+		@Override
+		public int countWorkers() {
+			return this.delegate.countWorkers();
+		}
+	}
+
+	/**
+	 * Records the moment at which a watched actor has terminated.
+	 */
+	private static class TerminationWatcher extends AbstractActor {
+
+		private final ActorRef watchee;
+
+		private final CompletableFuture<Void> isWatching;
+
+		private final CompletableFuture<Long> terminatedAt;
+
+		private TerminationWatcher(ActorRef watchee, CompletableFuture<Void> isWatching, CompletableFuture<Long> terminatedAt) {
+			this.watchee = watchee;
+			this.isWatching = isWatching;
+			this.terminatedAt = terminatedAt;
+		}
+
+		@Override
+		public void preStart() {
+			this.getContext().watch(this.watchee);
+			this.isWatching.complete(null);
+		}
+
+		@Override
+		public Receive createReceive() {
+			return receiveBuilder()
+					.match(Terminated.class, message -> this.terminatedAt.complete(System.nanoTime()))
+					.build();
+		}
+	}
+
+	private final int runs;
+
+	private final int floodSize;
+
+	public MasterMailboxBenchmark(int runs, int floodSize) {
+		this.runs = runs;
+		this.floodSize = floodSize;
+	}
+
+	@Override
+	public void run(PrintStream out) throws Exception {
+		out.printf("Reaction time of the master to a Terminated message behind %,d completion messages (%d runs)%n", this.floodSize, this.runs);
+
+		long[] fifoLatencies = new long[this.runs];
+		long[] priorityLatencies = new long[this.runs];
+		for (int run = 0; run < this.runs; run++) {
+			fifoLatencies[run] = this.measure(false);
+			priorityLatencies[run] = this.measure(true);
+		}
+
+		Benchmark.printSummary(out, "FIFO mailbox", fifoLatencies);
+		Benchmark.printSummary(out, "priority mailbox", priorityLatencies);
+	}
+
+	private long measure(boolean usePriorityMailbox) throws Exception {
+		final Config config = ConfigFactory.parseString("akka.loglevel = WARNING\nakka.log-dead-letters = off")
+				.withFallback(AkkaUtils.createLocalAkkaConfig());
+		final ActorSystem actorSystem = ActorSystem.create("benchmark", config);
+		try {
+			// The deployment configuration assigns the priority mailbox only to actors with the master's default name
+			final String masterName = usePriorityMailbox ? Master.DEFAULT_NAME : "fifo-" + Master.DEFAULT_NAME;
+			final ListenerShards listeners = ListenerShards.create(actorSystem, 1);
+			final AtomicReference<InstrumentedSchedulingStrategy> strategy = new AtomicReference<>();
+			final SchedulingStrategy.Factory strategyFactory = master -> {
+				strategy.set(new InstrumentedSchedulingStrategy(new ReactiveSchedulingStrategy(master)));
+				return strategy.get();
+			};
+			final ActorRef master = actorSystem.actorOf(Master.props(listeners, strategyFactory, 1), masterName);
+
+			// Watch the master's only worker independently of the master
+			final ActorRef victim = waitFor(strategy::get).addedWorker.get(10, TimeUnit.SECONDS);
+			final CompletableFuture<Void> isWatching = new CompletableFuture<>();
+			final CompletableFuture<Long> terminatedAt = new CompletableFuture<>();
+			actorSystem.actorOf(Props.create(TerminationWatcher.class, () -> new TerminationWatcher(victim, isWatching, terminatedAt)));
+			isWatching.get(10, TimeUnit.SECONDS);
+
+			// Flood the master with completion messages of an unknown query, which the master simply ignores
+			for (int i = 0; i < this.floodSize; i++)
+				master.tell(new Master.CompletionMessage(-1, 0, 0), ActorRef.noSender());
+
+			// Let the worker fail and wait for the master to notice
+			actorSystem.stop(victim);
+			long removedAt = strategy.get().removedAt.get(5, TimeUnit.MINUTES);
+			return removedAt - terminatedAt.get(10, TimeUnit.SECONDS);
+		} finally {
+			actorSystem.terminate();
+			Await.ready(actorSystem.whenTerminated(), Duration.Inf());
+		}
+	}
+
+	private static <T> T waitFor(Supplier<T> supplier) throws InterruptedException {
+		T value;
+		while ((value = supplier.get()) == null)
+			Thread.sleep(1);
+		return value;
+	}
+}
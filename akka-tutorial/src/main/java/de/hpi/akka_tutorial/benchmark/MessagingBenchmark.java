@@ -0,0 +1,431 @@
+package de.hpi.akka_tutorial.benchmark;
+
+import java.io.PrintStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.HdrHistogram.Histogram;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.PoisonPill;
+import akka.actor.Props;
+import de.hpi.akka_tutorial.remote.actors.experimental.Forewarder;
+import de.hpi.akka_tutorial.util.AkkaUtils;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+/**
+ * Measures the latency and throughput of plain actor messaging: ping-pong round trips, traversals of a chain of
+ * {@link Forewarder}s, fan-out/fan-in rounds to several workers and ping-pong round trips with payloads from 16 B to
+ * 8 MB. Every scenario runs on several dispatcher configurations, within one actor system and between two actor
+ * systems over loopback remoting with Kryo and with Java serialization. Latencies are taken with
+ * {@link System#nanoTime()} and reported as HDR histogram percentiles in microseconds.
+ */
+public class MessagingBenchmark implements Benchmark {
+
+	public static final String NAME = "messaging";
+
+	public static final int DEFAULT_NUM_ROUND_TRIPS = 2_000;
+
+	// The number of forewarders in the chain scenario
+	private static final int CHAIN_LENGTH = 100;
+
+	// The number of workers and the number of messages per worker and round in the fan-out/fan-in scenario
+	private static final int NUM_FAN_OUT_WORKERS = 8, FAN_OUT_DEPTH = 16;
+
+	// The payload of the probes in all but the size sweep scenario
+	private static final int DEFAULT_PAYLOAD_SIZE = 16;
+
+	// The payload sizes of the size sweep scenario
+	private static final int[] PAYLOAD_SIZES = {16, 256, 4 << 10, 64 << 10, 1 << 20, 8 << 20};
+
+	// The size sweep sends at most this many payload bytes per run, so that large payloads do not take forever
+	private static final long MAX_PAYLOAD_BYTES_PER_RUN = 256L << 20;
+
+	// The dispatchers that the benchmark actors run on (see BENCHMARK_CONFIG)
+	private static final String[] DISPATCHERS = {"fork-join", "fork-join-batching", "thread-pool", "affinity", "pinned"};
+
+	private static final String BENCHMARK_CONFIG = String.join("\n",
+			"akka.loglevel = WARNING",
+			"akka.log-dead-letters = off",
+			"akka.actor.allow-java-serialization = on",
+			"akka.actor.warn-about-java-serializer-usage = off",
+			// Let the largest payloads of the size sweep pass the remoting
+			"akka.remote.artery.advanced {",
+			"  maximum-frame-size = 9MiB",
+			"  buffer-pool-size = 16",
+			"  maximum-large-frame-size = 9MiB",
+			"  large-buffer-pool-size = 4",
+			"}",
+			"benchmark-dispatcher {",
+			"  fork-join { type = Dispatcher, executor = fork-join-executor, throughput = 5 }",
+			"  fork-join-batching { type = Dispatcher, executor = fork-join-executor, throughput = 100 }",
+			"  thread-pool { type = Dispatcher, executor = thread-pool-executor, thread-pool-executor.fixed-pool-size = 4, throughput = 5 }",
+			"  affinity { type = Dispatcher, executor = affinity-pool-executor, throughput = 5 }",
+			"  pinned { type = PinnedDispatcher, executor = thread-pool-executor }",
+			"}");
+
+	/**
+	 * The message that is sent around by all scenarios.
+	 */
+	private static class Probe implements Serializable {
+
+		private static final long serialVersionUID = 5290133296466290117L;
+
+		// The System.nanoTime() at which the probe was sent
+		private long sentNanos;
+
+		private byte[] payload;
+
+		Probe(final long sentNanos, final byte[] payload) {
+			this.sentNanos = sentNanos;
+			this.payload = payload;
+		}
+
+		/**
+		 * For serialization/deserialization only.
+		 */
+		@SuppressWarnings("unused")
+		private Probe() {
+		}
+	}
+
+	/**
+	 * The measurements of one scenario.
+	 */
+	private static class Result {
+
+		// The latencies in nanoseconds
+		private final Histogram latencies = new Histogram(3);
+
+		// The number of messages and the time in which they were sent
+		private long numMessages = 0, nanos = 0;
+
+		void add(Result other) {
+			this.latencies.add(other.latencies);
+			this.numMessages += other.numMessages;
+			this.nanos += other.nanos;
+		}
+	}
+
+	/**
+	 * Answers every message with the same message.
+	 */
+	private static class Echo extends AbstractActor {
+
+		@Override
+		public Receive createReceive() {
+			return receiveBuilder()
+					.matchAny(message -> this.getSender().tell(message, this.getSelf()))
+					.build();
+		}
+	}
+
+	/**
+	 * Sends probes one after another to a target and records the time until each probe comes back, either as an
+	 * answer of an {@link Echo} or at the end of a chain of {@link Forewarder}s.
+	 */
+	private static class Pinger extends AbstractActor {
+
+		private final byte[] payload;
+
+		// The number of unrecorded warm-up probes and of recorded probes
+		private final int numWarmUps, numMeasurements;
+
+		// The number of messages per probe
+		private final int messagesPerProbe;
+
+		private final CompletableFuture<Result> result;
+
+		private final Result measurements = new Result();
+
+		private ActorRef target;
+
+		private int numProbes = 0;
+
+		private long startNanos;
+
+		Pinger(byte[] payload, int numWarmUps, int numMeasurements, int messagesPerProbe, CompletableFuture<Result> result) {
+			this.payload = payload;
+			this.numWarmUps = numWarmUps;
+			this.numMeasurements = numMeasurements;
+			this.messagesPerProbe = messagesPerProbe;
+			this.result = result;
+		}
+
+		@Override
+		public Receive createReceive() {
+			return receiveBuilder()
+					.match(ActorRef.class, target -> {
+						this.target = target;
+						this.send();
+					})
+					.match(Probe.class, this::handle)
+					.build();
+		}
+
+		private void handle(Probe probe) {
+			long now = System.nanoTime();
+			if (this.numProbes > this.numWarmUps)
+				this.measurements.latencies.recordValue(now - probe.sentNanos);
+			if (this.numProbes == this.numWarmUps)
+				this.startNanos = now;
+
+			if (this.numProbes < this.numWarmUps + this.numMeasurements) {
+				this.send();
+			} else {
+				this.measurements.numMessages = (long) this.numMeasurements * this.messagesPerProbe;
+				this.measurements.nanos = now - this.startNanos;
+				this.result.complete(this.measurements);
+			}
+		}
+
+		private void send() {
+			this.numProbes++;
+			this.target.tell(new Probe(System.nanoTime(), this.payload), this.getSelf());
+		}
+	}
+
+	/**
+	 * Sends rounds of probes to several {@link Echo}s and records the time until all answers of a round are back.
+	 */
+	private static class FanOutDriver extends AbstractActor {
+
+		private final List<ActorRef> workers;
+
+		private final int numWarmUps, numMeasurements;
+
+		private final CompletableFuture<Result> result;
+
+		private final Result measurements = new Result();
+
+		private final byte[] payload = new byte[DEFAULT_PAYLOAD_SIZE];
+
+		private int numRounds = 0, numPendingAnswers = 0;
+
+		private long roundStartNanos, startNanos;
+
+		FanOutDriver(List<ActorRef> workers, int numWarmUps, int numMeasurements, CompletableFuture<Result> result) {
+			this.workers = workers;
+			this.numWarmUps = numWarmUps;
+			this.numMeasurements = numMeasurements;
+			this.result = result;
+		}
+
+		@Override
+		public void preStart() {
+			this.startRound();
+		}
+
+		@Override
+		public Receive createReceive() {
+			return receiveBuilder()
+					.match(Probe.class, this::handle)
+					.build();
+		}
+
+		private void handle(Probe probe) {
+			if (--this.numPendingAnswers > 0)
+				return;
+
+			long now = System.nanoTime();
+			if (this.numRounds > this.numWarmUps)
+				this.measurements.latencies.recordValue(now - this.roundStartNanos);
+			if (this.numRounds == this.numWarmUps)
+				this.startNanos = now;
+
+			if (this.numRounds < this.numWarmUps + this.numMeasurements) {
+				this.startRound();
+			} else {
+				this.measurements.numMessages = 2L * this.numMeasurements * this.workers.size() * FAN_OUT_DEPTH;
+				this.measurements.nanos = now - this.startNanos;
+				this.result.complete(this.measurements);
+			}
+		}
+
+		private void startRound() {
+			this.numRounds++;
+			this.roundStartNanos = System.nanoTime();
+			for (int i = 0; i < FAN_OUT_DEPTH; i++)
+				for (ActorRef worker : this.workers)
+					worker.tell(new Probe(this.roundStartNanos, this.payload), this.getSelf());
+			this.numPendingAnswers = this.workers.size() * FAN_OUT_DEPTH;
+		}
+	}
+
+	/**
+	 * One or two actor systems between which the scenarios send their messages.
+	 */
+	private static class Setup implements AutoCloseable {
+
+		private final String name;
+
+		// The system of the measuring actors and the system of their counterparts, which may be the same
+		private final ActorSystem driverSystem, peerSystem;
+
+		// The actors that were created for the current scenario
+		private final List<ActorRef> createdActors = new ArrayList<>();
+
+		private Setup(String name, ActorSystem driverSystem, ActorSystem peerSystem) {
+			this.name = name;
+			this.driverSystem = driverSystem;
+			this.peerSystem = peerSystem;
+		}
+
+		static Setup local() {
+			ActorSystem system = ActorSystem.create("benchmark", ConfigFactory.parseString(BENCHMARK_CONFIG)
+					.withFallback(AkkaUtils.createLocalAkkaConfig()));
+			return new Setup("local", system, system);
+		}
+
+		static Setup loopback(String serializer) {
+			Config config = ConfigFactory.parseString(BENCHMARK_CONFIG + "\nakka.actor.serialization-bindings { \"java.io.Serializable\" = " + serializer + " }")
+					.withFallback(AkkaUtils.createRemoteAkkaConfig("127.0.0.1", 0, AkkaUtils.Transport.ARTERY));
+			return new Setup("loopback/" + serializer, ActorSystem.create("BenchmarkDriverSystem", config), ActorSystem.create("BenchmarkPeerSystem", config));
+		}
+
+		/**
+		 * Create an actor in the given actor system and provide a reference to it that is valid in the other system.
+		 */
+		ActorRef create(ActorSystem owner, Props props, String dispatcher) {
+			ActorRef actor = owner.actorOf(props.withDispatcher("benchmark-dispatcher." + dispatcher));
+			this.createdActors.add(actor);
+			ActorSystem other = owner == this.driverSystem ? this.peerSystem : this.driverSystem;
+			if (other == owner)
+				return actor;
+
+			// Resolve the actor via its remote address, so that messages actually pass the remoting
+			String path = actor.path().toSerializationFormatWithAddress(((ExtendedActorSystem) owner).provider().getDefaultAddress());
+			return ((ExtendedActorSystem) other).provider().resolveActorRef(path);
+		}
+
+		void stopCreatedActors() {
+			for (ActorRef actor : this.createdActors)
+				actor.tell(PoisonPill.getInstance(), ActorRef.noSender());
+			this.createdActors.clear();
+		}
+
+		@Override
+		public void close() throws Exception {
+			this.peerSystem.terminate();
+			this.driverSystem.terminate();
+			Await.ready(this.peerSystem.whenTerminated(), Duration.Inf());
+			Await.ready(this.driverSystem.whenTerminated(), Duration.Inf());
+		}
+	}
+
+	private final int runs;
+
+	private final int numRoundTrips;
+
+	public MessagingBenchmark(int runs, int numRoundTrips) {
+		this.runs = runs;
+		this.numRoundTrips = numRoundTrips;
+	}
+
+	@Override
+	public void run(PrintStream out) throws Exception {
+		out.printf("Actor messaging with %,d round trips per run (%d runs); latencies in microseconds%n", this.numRoundTrips, this.runs);
+		out.printf("%-16s %-20s %-18s %10s %10s %10s %10s %10s %14s%n",
+				"setup", "dispatcher", "scenario", "p50", "p90", "p99", "p99.9", "max", "messages/s");
+
+		this.runSetup(out, Setup.local());
+		this.runSetup(out, Setup.loopback("kryo"));
+		this.runSetup(out, Setup.loopback("java"));
+	}
+
+	private void runSetup(PrintStream out, Setup setup) throws Exception {
+		try (Setup s = setup) {
+			for (String dispatcher : DISPATCHERS) {
+				report(out, s, dispatcher, "ping-pong", this.measure(s, result -> this.pingPong(s, dispatcher, DEFAULT_PAYLOAD_SIZE, this.numRoundTrips, result)));
+				int numTraversals = Math.max(10, this.numRoundTrips / 20);
+				report(out, s, dispatcher, "chain-" + CHAIN_LENGTH, this.measure(s, result -> this.chain(s, dispatcher, numTraversals, result)));
+				int numRounds = Math.max(10, this.numRoundTrips / 10);
+				report(out, s, dispatcher, "fan-out-" + NUM_FAN_OUT_WORKERS + "x" + FAN_OUT_DEPTH, this.measure(s, result -> this.fanOut(s, dispatcher, numRounds, result)));
+				for (int payloadSize : PAYLOAD_SIZES) {
+					int numProbes = (int) Math.max(10, Math.min(this.numRoundTrips, MAX_PAYLOAD_BYTES_PER_RUN / payloadSize));
+					report(out, s, dispatcher, "size-" + formatSize(payloadSize), this.measure(s, result -> this.pingPong(s, dispatcher, payloadSize, numProbes, result)));
+				}
+			}
+		}
+	}
+
+	private Result measure(Setup setup, Function<CompletableFuture<Result>, Void> scenario) throws Exception {
+		Result total = new Result();
+		for (int run = 0; run < this.runs; run++) {
+			CompletableFuture<Result> result = new CompletableFuture<>();
+			scenario.apply(result);
+			try {
+				total.add(result.get(5, TimeUnit.MINUTES));
+			} finally {
+				setup.stopCreatedActors();
+			}
+		}
+		return total;
+	}
+
+	private Void pingPong(Setup setup, String dispatcher, int payloadSize, int numProbes, CompletableFuture<Result> result) {
+		ActorRef echo = setup.create(setup.peerSystem, Props.create(Echo.class), dispatcher);
+		ActorRef pinger = setup.create(setup.driverSystem, Props.create(Pinger.class,
+				() -> new Pinger(new byte[payloadSize], warmUpsFor(numProbes), numProbes, 2, result)), dispatcher);
+		pinger.tell(echo, ActorRef.noSender());
+		return null;
+	}
+
+	private Void chain(Setup setup, String dispatcher, int numTraversals, CompletableFuture<Result> result) {
+		ActorRef pinger = setup.create(setup.driverSystem, Props.create(Pinger.class,
+				() -> new Pinger(new byte[DEFAULT_PAYLOAD_SIZE], warmUpsFor(numTraversals), numTraversals, CHAIN_LENGTH + 1, result)), dispatcher);
+
+		// Build the chain from its end, alternating between the actor systems, so that every hop crosses the remoting
+		ActorRef next = pinger;
+		for (int i = CHAIN_LENGTH - 1; i >= 0; i--) {
+			ActorSystem owner = i % 2 == 0 ? setup.peerSystem : setup.driverSystem;
+			next = setup.create(owner, Forewarder.props(next), dispatcher);
+		}
+		pinger.tell(next, ActorRef.noSender());
+		return null;
+	}
+
+	private Void fanOut(Setup setup, String dispatcher, int numRounds, CompletableFuture<Result> result) {
+		List<ActorRef> workers = new ArrayList<>(NUM_FAN_OUT_WORKERS);
+		for (int i = 0; i < NUM_FAN_OUT_WORKERS; i++)
+			workers.add(setup.create(setup.peerSystem, Props.create(Echo.class), dispatcher));
+		setup.create(setup.driverSystem, Props.create(FanOutDriver.class,
+				() -> new FanOutDriver(workers, warmUpsFor(numRounds), numRounds, result)), dispatcher);
+		return null;
+	}
+
+	private static int warmUpsFor(int numMeasurements) {
+		return Math.max(1, numMeasurements / 10);
+	}
+
+	private static void report(PrintStream out, Setup setup, String dispatcher, String scenario, Result result) {
+		Histogram latencies = result.latencies;
+		out.printf("%-16s %-20s %-18s %10.1f %10.1f %10.1f %10.1f %10.1f %,14.0f%n",
+				setup.name, dispatcher, scenario,
+				latencies.getValueAtPercentile(50) / 1e3,
+				latencies.getValueAtPercentile(90) / 1e3,
+				latencies.getValueAtPercentile(99) / 1e3,
+				latencies.getValueAtPercentile(99.9) / 1e3,
+				latencies.getMaxValue() / 1e3,
+				result.numMessages / (result.nanos / 1e9));
+	}
+
+	private static String formatSize(int bytes) {
+		if (bytes >= 1 << 20)
+			return (bytes >> 20) + "MB";
+		if (bytes >= 1 << 10)
+			return (bytes >> 10) + "KB";
+		return bytes + "B";
+	}
+}
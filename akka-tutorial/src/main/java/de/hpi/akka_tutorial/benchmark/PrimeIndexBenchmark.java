@@ -0,0 +1,131 @@
+package de.hpi.akka_tutorial.benchmark;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.pattern.Patterns;
+import de.hpi.akka_tutorial.remote.actors.ListenerShards;
+import de.hpi.akka_tutorial.remote.actors.Master;
+import de.hpi.akka_tutorial.remote.actors.PrimeIndex;
+import de.hpi.akka_tutorial.remote.actors.Worker;
+import de.hpi.akka_tutorial.remote.actors.scheduling.ReactiveSchedulingStrategy;
+import de.hpi.akka_tutorial.util.AkkaUtils;
+import scala.concurrent.Await;
+
+/**
+ * Measures the latency of range queries whose primes the {@link Worker}s compute with the latency of the same queries
+ * when the workers look the primes up in a {@link PrimeIndex}. The queries lie at the start of the index, at its end
+ * and across its limit, where only part of the range is indexed.
+ */
+public class PrimeIndexBenchmark implements Benchmark {
+
+	public static final String NAME = "prime-index";
+
+	public static final int DEFAULT_RANGE_SIZE = 2_000_000;
+
+	// The largest number of the index; building it takes a few seconds
+	private static final long INDEX_LIMIT = 1_100_000_000L;
+
+	private static final int NUM_WORKERS = 2;
+
+	private static final String BENCHMARK_CONFIG = String.join("\n",
+			"akka.loglevel = WARNING",
+			"akka.log-dead-letters = off");
+
+	/**
+	 * Drops the primes of the workers.
+	 */
+	private static class Drain extends AbstractActor {
+
+		@Override
+		public Receive createReceive() {
+			return receiveBuilder()
+					.matchAny(message -> {
+					})
+					.build();
+		}
+	}
+
+	private final int runs;
+
+	private final int rangeSize;
+
+	public PrimeIndexBenchmark(int runs, int rangeSize) {
+		this.runs = runs;
+		this.rangeSize = rangeSize;
+	}
+
+	@Override
+	public void run(PrintStream out) throws Exception {
+		Path file = Files.createTempFile("prime-index", ".idx");
+		try {
+			long start = System.nanoTime();
+			PrimeIndex.build(file, INDEX_LIMIT, PrimeIndex.DEFAULT_BLOCK_SIZE);
+			out.printf("Built a prime index up to %,d (%,.1f MB) in %,.1f s%n", INDEX_LIMIT, Files.size(file) / 1e6, (System.nanoTime() - start) / 1e9);
+			out.printf("Range queries of %,d numbers with %d workers (%d runs)%n", this.rangeSize, NUM_WORKERS, this.runs);
+
+			long[][] queries = {
+					{1, this.rangeSize},
+					{INDEX_LIMIT - this.rangeSize + 1, INDEX_LIMIT},
+					{INDEX_LIMIT - this.rangeSize / 2 + 1, INDEX_LIMIT + this.rangeSize / 2}
+			};
+			String[] labels = {"start", "end", "across limit"};
+			for (int i = 0; i < queries.length; i++) {
+				long computedPrimes = this.run(out, "computed, " + labels[i], ConfigFactory.empty(), queries[i]);
+				long indexedPrimes = this.run(out, "indexed, " + labels[i], ConfigFactory.empty()
+						.withValue(Worker.PRIME_INDEX_FILE_SETTING, ConfigValueFactory.fromAnyRef(file.toString())), queries[i]);
+				if (computedPrimes != indexedPrimes)
+					throw new IllegalStateException(String.format("Found %d primes with and %d primes without the index.", indexedPrimes, computedPrimes));
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * @return the number of primes in the query range
+	 */
+	private long run(PrintStream out, String label, Config settings, long[] query) throws Exception {
+		ActorSystem actorSystem = ActorSystem.create("benchmark", settings
+				.withFallback(ConfigFactory.parseString(BENCHMARK_CONFIG))
+				.withFallback(AkkaUtils.createLocalAkkaConfig()));
+		try {
+			ActorRef drain = actorSystem.actorOf(Props.create(Drain.class).withDispatcher(AkkaUtils.COORDINATION_DISPATCHER));
+			ListenerShards listeners = new ListenerShards(Collections.singletonList(drain));
+			ActorRef master = actorSystem.actorOf(Master.props(listeners, new ReactiveSchedulingStrategy.Factory(), NUM_WORKERS), Master.DEFAULT_NAME);
+
+			// A small warm-up query lets the workers register their index with the master
+			this.query(master, 1, 1_000);
+
+			long numPrimes = 0;
+			long[] durations = new long[this.runs];
+			for (int run = 0; run < this.runs; run++) {
+				long start = System.nanoTime();
+				numPrimes = this.query(master, query[0], query[1]);
+				durations[run] = System.nanoTime() - start;
+			}
+			Benchmark.printSummary(out, label, durations);
+			return numPrimes;
+		} finally {
+			actorSystem.terminate();
+			Await.ready(actorSystem.whenTerminated(), scala.concurrent.duration.Duration.Inf());
+		}
+	}
+
+	private long query(ActorRef master, long startNumber, long endNumber) throws Exception {
+		Master.QueryCompletedMessage completed = (Master.QueryCompletedMessage) Patterns
+				.ask(master, new Master.RangeMessage(startNumber, endNumber), Duration.ofMinutes(30)).toCompletableFuture().get();
+		return completed.getNumPrimes();
+	}
+}
@@ -0,0 +1,145 @@
+package de.hpi.akka_tutorial.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.pattern.Patterns;
+import de.hpi.akka_tutorial.remote.actors.experimental.LeaderActor;
+import de.hpi.akka_tutorial.remote.actors.experimental.ReplicaSnapshot;
+import de.hpi.akka_tutorial.remote.actors.experimental.ReplicaStore;
+import de.hpi.akka_tutorial.util.AkkaUtils;
+import scala.concurrent.Await;
+
+/**
+ * Measures how long a {@link LeaderActor} needs to recover its replica from its {@link ReplicaStore}, i.e., the time
+ * from its creation until it answers a first message. The benchmark compares a store that holds the whole dataset in
+ * its write-ahead log with a store that holds a memory-mapped snapshot of the dataset plus a log tail of 1 % of the
+ * keys. Note that replaying the whole log of the default 10 million keys needs a heap of a few GB.
+ */
+public class RecoveryBenchmark implements Benchmark {
+
+	public static final String NAME = "recovery";
+
+	public static final int DEFAULT_NUM_KEYS = 10_000_000;
+
+	private static final ReplicaStore.RecoveryHandler IGNORE = new ReplicaStore.RecoveryHandler() {
+		@Override
+		public void snapshot(ReplicaSnapshot snapshot) {
+		}
+
+		@Override
+		public void entry(int key, String value, int counter, int identifier, long version) {
+		}
+
+		@Override
+		public void received(int origin, long version) {
+		}
+	};
+
+	private final int runs;
+
+	private final int numKeys;
+
+	public RecoveryBenchmark(int runs, int numKeys) {
+		this.runs = runs;
+		this.numKeys = numKeys;
+	}
+
+	@Override
+	public void run(PrintStream out) throws Exception {
+		Path directory = Files.createTempDirectory("leader-recovery");
+		try {
+			int numTailWrites = Math.max(1, this.numKeys / 100);
+			out.printf("Recovery of %,d keys (%d runs)%n", this.numKeys, this.runs);
+
+			Path logOnly = directory.resolve("log-only");
+			this.writeLog(logOnly, 0, this.numKeys);
+			this.run(out, "log only", logOnly);
+
+			Path snapshotAndTail = directory.resolve("snapshot-and-tail");
+			this.writeSnapshot(snapshotAndTail);
+			this.writeLog(snapshotAndTail, this.numKeys, numTailWrites);
+			this.run(out, "snapshot + tail", snapshotAndTail);
+		} finally {
+			try (Stream<Path> files = Files.walk(directory)) {
+				for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator)
+					Files.delete(file);
+			}
+		}
+	}
+
+	private void run(PrintStream out, String label, Path directory) throws Exception {
+		long[] durations = new long[this.runs];
+		for (int run = 0; run < this.runs; run++)
+			durations[run] = this.measure(directory);
+
+		long size;
+		try (Stream<Path> files = Files.list(directory)) {
+			size = files.mapToLong(file -> file.toFile().length()).sum();
+		}
+		Benchmark.printSummary(out, label, durations);
+		out.printf("%-24s %,.1f MB on disk%n", label, size / 1e6);
+	}
+
+	private long measure(Path directory) throws Exception {
+		final ActorSystem actorSystem = ActorSystem.create("benchmark", ConfigFactory.parseString("akka.loglevel = WARNING")
+				.withFallback(AkkaUtils.createLocalAkkaConfig()));
+		try {
+			LeaderActor.Settings settings = new LeaderActor.Settings(LeaderActor.DEFAULT_FLUSH_SIZE, LeaderActor.DEFAULT_FLUSH_INTERVAL_MILLIS,
+					LeaderActor.DEFAULT_ANTI_ENTROPY_INTERVAL_MILLIS, directory.toString(), LeaderActor.DEFAULT_SNAPSHOT_INTERVAL);
+
+			// The leader recovers in preStart(), so the digest is the first thing it can answer
+			long start = System.nanoTime();
+			ActorRef leader = actorSystem.actorOf(LeaderActor.props(0, settings));
+			LeaderActor.DigestResponseMessage digest = (LeaderActor.DigestResponseMessage)
+					Patterns.ask(leader, new LeaderActor.DigestMessage(), Duration.ofMinutes(10)).toCompletableFuture().get();
+			long duration = System.nanoTime() - start;
+
+			if (digest.size != this.numKeys)
+				throw new IllegalStateException(String.format("Recovered %d instead of %d keys.", digest.size, this.numKeys));
+			return duration;
+		} finally {
+			actorSystem.terminate();
+			Await.ready(actorSystem.whenTerminated(), scala.concurrent.duration.Duration.Inf());
+		}
+	}
+
+	/**
+	 * Write a snapshot with one entry per key.
+	 */
+	private void writeSnapshot(Path directory) throws IOException {
+		try (ReplicaStore store = new ReplicaStore(directory, false)) {
+			store.recover(IGNORE);
+			store.writeSnapshot(store.startSnapshot(), this.numKeys, this.numKeys, Collections.emptyMap(), this.numKeys, writer -> {
+				for (int key = 0; key < this.numKeys; key++)
+					writer.write(key, "value" + key, key + 1, 0, key + 1);
+			});
+		}
+	}
+
+	/**
+	 * Log writes of random keys, or of all keys if the number of writes equals the number of keys.
+	 */
+	private void writeLog(Path directory, int startVersion, int numWrites) throws IOException {
+		Random random = new Random(42);
+		try (ReplicaStore store = new ReplicaStore(directory, false)) {
+			store.recover(IGNORE);
+			for (int i = 0; i < numWrites; i++) {
+				int key = numWrites == this.numKeys ? i : random.nextInt(this.numKeys);
+				int version = startVersion + i + 1;
+				store.appendWrite(key, "value" + version, version, 0, version);
+			}
+		}
+	}
+}
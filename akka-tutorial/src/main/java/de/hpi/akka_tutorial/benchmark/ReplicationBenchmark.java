@@ -0,0 +1,186 @@
+package de.hpi.akka_tutorial.benchmark;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.pattern.Patterns;
+import de.hpi.akka_tutorial.remote.actors.experimental.LeaderActor;
+import de.hpi.akka_tutorial.util.AkkaUtils;
+import scala.concurrent.Await;
+
+/**
+ * Measures the write throughput of a group of {@link LeaderActor}s and the time that their replicas need to converge
+ * after the last write. Every leader receives the same share of the writes from its own client. The benchmark
+ * compares the propagation of every single write with batched propagation for 3, 5 and 9 leaders.
+ */
+public class ReplicationBenchmark implements Benchmark {
+
+	public static final String NAME = "replication";
+
+	public static final int DEFAULT_NUM_WRITES = 300_000;
+
+	private static final int[] NUMS_LEADERS = {3, 5, 9};
+
+	// The number of distinct keys that the clients write to
+	private static final int KEY_SPACE = 100_000;
+
+	// The number of unacknowledged writes per client
+	private static final int WINDOW_SIZE = 64;
+
+	private static final long CONVERGENCE_TIMEOUT_MILLIS = 60_000;
+
+	/**
+	 * Writes random keys to one leader and keeps a fixed number of writes in flight.
+	 */
+	private static class Writer extends AbstractActor {
+
+		private final ActorRef leader;
+
+		private final int numWrites;
+
+		private final Random random;
+
+		private final CompletableFuture<Void> done;
+
+		private int numSent = 0, numAcknowledged = 0;
+
+		// The largest counter that the leader returned
+		private int counter = 0;
+
+		Writer(ActorRef leader, int numWrites, long seed, CompletableFuture<Void> done) {
+			this.leader = leader;
+			this.numWrites = numWrites;
+			this.random = new Random(seed);
+			this.done = done;
+		}
+
+		@Override
+		public void preStart() {
+			while (this.numSent < Math.min(WINDOW_SIZE, this.numWrites))
+				this.write();
+		}
+
+		@Override
+		public Receive createReceive() {
+			return receiveBuilder()
+					.match(LeaderActor.WriteResponseMessage.class, this::handle)
+					.build();
+		}
+
+		private void handle(LeaderActor.WriteResponseMessage message) {
+			this.counter = Math.max(this.counter, message.counter);
+			if (++this.numAcknowledged == this.numWrites)
+				this.done.complete(null);
+			else if (this.numSent < this.numWrites)
+				this.write();
+		}
+
+		private void write() {
+			this.leader.tell(new LeaderActor.WriteMessage(this.random.nextInt(KEY_SPACE), "value" + this.numSent, this.counter), this.getSelf());
+			this.numSent++;
+		}
+	}
+
+	private final int runs;
+
+	private final int numWrites;
+
+	public ReplicationBenchmark(int runs, int numWrites) {
+		this.runs = runs;
+		this.numWrites = numWrites;
+	}
+
+	@Override
+	public void run(PrintStream out) throws Exception {
+		LeaderActor.Settings perWrite = new LeaderActor.Settings(1, 0, LeaderActor.DEFAULT_ANTI_ENTROPY_INTERVAL_MILLIS);
+		LeaderActor.Settings batched = new LeaderActor.Settings(LeaderActor.DEFAULT_FLUSH_SIZE,
+				LeaderActor.DEFAULT_FLUSH_INTERVAL_MILLIS, LeaderActor.DEFAULT_ANTI_ENTROPY_INTERVAL_MILLIS);
+
+		out.printf("Replication of %,d writes to %,d keys (%d runs); labels start with the number of leaders%n", this.numWrites, KEY_SPACE, this.runs);
+		for (int numLeaders : NUMS_LEADERS) {
+			this.run(out, numLeaders, "per-write", perWrite);
+			this.run(out, numLeaders, "batched", batched);
+		}
+	}
+
+	private void run(PrintStream out, int numLeaders, String label, LeaderActor.Settings settings) throws Exception {
+		long[] writeNanos = new long[this.runs];
+		long[] convergenceNanos = new long[this.runs];
+		for (int run = 0; run < this.runs; run++) {
+			long[] nanos = this.measure(numLeaders, settings);
+			writeNanos[run] = nanos[0];
+			convergenceNanos[run] = nanos[1];
+		}
+
+		long[] sortedWriteNanos = writeNanos.clone();
+		Arrays.sort(sortedWriteNanos);
+		String prefix = numLeaders + " " + label;
+		Benchmark.printSummary(out, prefix + " writes", writeNanos);
+		Benchmark.printSummary(out, prefix + " converge", convergenceNanos);
+		out.printf("%-24s %,.0f writes/s (median run)%n", prefix, this.numWrites / (sortedWriteNanos[this.runs / 2] / 1e9));
+	}
+
+	/**
+	 * @return the time until all writes were acknowledged and the time from then on until all replicas agreed
+	 */
+	private long[] measure(int numLeaders, LeaderActor.Settings settings) throws Exception {
+		final ActorSystem actorSystem = ActorSystem.create("benchmark", ConfigFactory.parseString("akka.loglevel = WARNING\nakka.log-dead-letters = off")
+				.withFallback(AkkaUtils.createLocalAkkaConfig()));
+		try {
+			List<ActorRef> leaders = new ArrayList<>(numLeaders);
+			for (int identifier = 0; identifier < numLeaders; identifier++)
+				leaders.add(actorSystem.actorOf(LeaderActor.props(identifier, settings)));
+			for (ActorRef leader : leaders)
+				leader.tell(new LeaderActor.LeadersMessage(leaders), ActorRef.noSender());
+
+			List<CompletableFuture<Void>> writers = new ArrayList<>(numLeaders);
+			long start = System.nanoTime();
+			for (int i = 0; i < numLeaders; i++) {
+				CompletableFuture<Void> done = new CompletableFuture<>();
+				ActorRef leader = leaders.get(i);
+				int numWrites = this.numWrites / numLeaders + (i < this.numWrites % numLeaders ? 1 : 0);
+				long seed = i;
+				actorSystem.actorOf(Props.create(Writer.class, () -> new Writer(leader, numWrites, seed, done)));
+				writers.add(done);
+			}
+			CompletableFuture.allOf(writers.toArray(new CompletableFuture[0])).get(CONVERGENCE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+			long written = System.nanoTime();
+
+			// Poll the digests of all replicas until they agree
+			while (!this.haveConverged(leaders)) {
+				if (System.nanoTime() - written > TimeUnit.MILLISECONDS.toNanos(CONVERGENCE_TIMEOUT_MILLIS))
+					throw new IllegalStateException("The replicas did not converge.");
+				Thread.sleep(1);
+			}
+			return new long[] {written - start, System.nanoTime() - written};
+		} finally {
+			actorSystem.terminate();
+			Await.ready(actorSystem.whenTerminated(), scala.concurrent.duration.Duration.Inf());
+		}
+	}
+
+	private boolean haveConverged(List<ActorRef> leaders) throws Exception {
+		LeaderActor.DigestResponseMessage first = null;
+		for (ActorRef leader : leaders) {
+			LeaderActor.DigestResponseMessage digest = (LeaderActor.DigestResponseMessage)
+					Patterns.ask(leader, new LeaderActor.DigestMessage(), Duration.ofSeconds(10)).toCompletableFuture().get();
+			if (first == null)
+				first = digest;
+			else if (first.size != digest.size || first.digest != digest.digest)
+				return false;
+		}
+		return true;
+	}
+}
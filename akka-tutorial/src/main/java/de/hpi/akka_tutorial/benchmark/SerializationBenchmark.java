@@ -0,0 +1,164 @@
+package de.hpi.akka_tutorial.benchmark;
+
+import java.io.NotSerializableException;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.twitter.chill.KryoInstantiator;
+import com.twitter.chill.akka.ActorRefSerializer;
+import com.twitter.chill.akka.AkkaSerializer;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.ActorSystem;
+import akka.actor.Address;
+import akka.actor.ExtendedActorSystem;
+import akka.serialization.JavaSerializer;
+import akka.serialization.Serializer;
+import de.hpi.akka_tutorial.remote.actors.Listener;
+import de.hpi.akka_tutorial.remote.actors.ListenerShards;
+import de.hpi.akka_tutorial.remote.actors.Master;
+import de.hpi.akka_tutorial.remote.actors.Reaper;
+import de.hpi.akka_tutorial.remote.actors.ResultSink;
+import de.hpi.akka_tutorial.remote.actors.Shepherd;
+import de.hpi.akka_tutorial.remote.actors.Slave;
+import de.hpi.akka_tutorial.remote.actors.Worker;
+import de.hpi.akka_tutorial.remote.messages.ShutdownMessage;
+import de.hpi.akka_tutorial.remote.serialization.MessageKryoInstantiator;
+import de.hpi.akka_tutorial.util.AkkaUtils;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+/**
+ * Compares the serialized size and the round-trip time (serialization plus deserialization) of every message type
+ * for Java serialization, Chill's generic Kryo serialization and the registered serializers of the
+ * {@link MessageKryoInstantiator}.
+ */
+public class SerializationBenchmark implements Benchmark {
+
+	public static final String NAME = "serialization";
+
+	public static final int DEFAULT_NUM_ROUND_TRIPS = 100_000;
+
+	// The number of primes in the prime batches, which is the batch size of the workers
+	private static final int BATCH_SIZE = 1000;
+
+	private final int runs;
+
+	private final int numRoundTrips;
+
+	// Prevents the JIT compiler from eliminating the measured round trips
+	private long sink = 0;
+
+	public SerializationBenchmark(int runs, int numRoundTrips) {
+		this.runs = runs;
+		this.numRoundTrips = numRoundTrips;
+	}
+
+	@Override
+	public void run(PrintStream out) throws Exception {
+		// Akka 2.6 refuses to create a Java serializer unless Java serialization is explicitly allowed
+		final Config config = ConfigFactory.parseString("akka.loglevel = WARNING\nakka.log-dead-letters = off\n"
+				+ "akka.actor.allow-java-serialization = on\nakka.actor.warn-about-java-serializer-usage = off")
+				.withFallback(AkkaUtils.createLocalAkkaConfig());
+		final ActorSystem actorSystem = ActorSystem.create("benchmark", config);
+		try {
+			final ExtendedActorSystem system = (ExtendedActorSystem) actorSystem;
+			final Map<String, Serializer> serializers = new LinkedHashMap<>();
+			serializers.put("java", new JavaSerializer(system));
+			serializers.put("kryo", createKryoSerializer(system, new KryoInstantiator()));
+			serializers.put("registered kryo", createKryoSerializer(system, new MessageKryoInstantiator()));
+
+			out.printf("Median time of %,d serialization round trips per message (%d runs)%n", this.numRoundTrips, this.runs);
+			out.printf("%-24s", "message");
+			for (String name : serializers.keySet())
+				out.printf(" | %30s", name);
+			out.println();
+
+			for (Object message : createMessages(actorSystem)) {
+				out.printf("%-24s", message.getClass().getSimpleName());
+				for (Serializer serializer : serializers.values()) {
+					try {
+						int size = serializer.toBinary(message).length;
+						out.printf(" | %,8d bytes %,9.0f ns/op", size, this.measure(serializer, message) / (double) this.numRoundTrips);
+					} catch (Exception e) {
+						// The generic Kryo serialization cannot instantiate classes without a no-arg constructor, e.g., Address
+						out.printf(" | %30s", "failed: " + e.getClass().getSimpleName());
+					}
+				}
+				out.println();
+			}
+		} finally {
+			actorSystem.terminate();
+			Await.ready(actorSystem.whenTerminated(), Duration.Inf());
+		}
+		if (this.sink == 42)
+			out.println();
+	}
+
+	private long measure(Serializer serializer, Object message) throws NotSerializableException {
+
+		// Warm up, so that the measurements do not include the compilation of the serializer
+		this.roundTrips(serializer, message);
+
+		long[] durations = new long[this.runs];
+		for (int run = 0; run < this.runs; run++) {
+			long start = System.nanoTime();
+			this.roundTrips(serializer, message);
+			durations[run] = System.nanoTime() - start;
+		}
+		Arrays.sort(durations);
+		return durations[this.runs / 2];
+	}
+
+	private void roundTrips(Serializer serializer, Object message) throws NotSerializableException {
+		for (int i = 0; i < this.numRoundTrips; i++) {
+			byte[] bytes = serializer.toBinary(message);
+			Object copy = serializer.fromBinary(bytes, message.getClass());
+			this.sink += bytes.length + System.identityHashCode(copy);
+		}
+	}
+
+	private static Serializer createKryoSerializer(final ExtendedActorSystem system, final KryoInstantiator instantiator) {
+		return new AkkaSerializer(system) {
+			@Override
+			public KryoInstantiator kryoInstantiator() {
+				return instantiator.withRegistrar(new ActorRefSerializer(system));
+			}
+		};
+	}
+
+	private static List<Object> createMessages(ActorSystem actorSystem) {
+		List<Long> primes = new ArrayList<>(BATCH_SIZE);
+		for (long number = 1_000_000_000L; primes.size() < BATCH_SIZE; number++)
+			if (BigInteger.valueOf(number).isProbablePrime(20))
+				primes.add(number);
+
+		Address remoteAddress = new Address("akka", "SlaveSystem", "192.168.0.42", 7879);
+		return Arrays.asList(
+				new Worker.ValidationMessage(42, 4_200_000, 4_299_999),
+				new Master.RangeMessage(1, 1_000_000_000L, 42),
+				new Master.QueryCompletedMessage(42, 50_847_534, 4_832_734_823_742L),
+				new Master.CompletionMessage(42, 4_832, 4_832_734_823_742L),
+				new Master.RemoteSystemMessage(remoteAddress),
+				new Listener.PrimesMessage(primes),
+				new Listener.CollectPrimesMessage(42),
+				new Listener.CollectMaxMessage(42),
+				new Listener.CollectedPrimesMessage(42, primes.stream().mapToLong(Long::longValue).toArray()),
+				new Listener.CollectedMaxMessage(42, primes.get(BATCH_SIZE - 1), BATCH_SIZE, primes.stream().mapToLong(Long::longValue).sum()),
+				ListenerShards.create(actorSystem, 8),
+				new Slave.AddressMessage(remoteAddress),
+				new Slave.AcknowledgementMessage(),
+				new Shepherd.SubscriptionMessage(),
+				new Reaper.WatchMeMessage(),
+				new ResultSink.GetListenersMessage(),
+				new ResultSink.LogPrimesMessage(),
+				new ResultSink.LogMaxMessage(),
+				new ShutdownMessage());
+	}
+}
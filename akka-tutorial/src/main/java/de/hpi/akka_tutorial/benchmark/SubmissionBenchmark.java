@@ -0,0 +1,113 @@
+package de.hpi.akka_tutorial.benchmark;
+
+import java.io.PrintStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.HdrHistogram.Histogram;
+
+import com.typesafe.config.ConfigFactory;
+
+import de.hpi.akka_tutorial.remote.PrimeCluster;
+import de.hpi.akka_tutorial.remote.PrimeQuery;
+import de.hpi.akka_tutorial.remote.actors.Master;
+import de.hpi.akka_tutorial.remote.actors.scheduling.ReactiveSchedulingStrategy;
+import de.hpi.akka_tutorial.util.AkkaUtils;
+
+/**
+ * Measures the throughput and the latency of many small range queries that are submitted to an embedded
+ * {@link PrimeCluster} with a bounded number of queries in flight. The {@link PrimeQuery.Mode#PRIMES} queries also
+ * stream their primes back.
+ */
+public class SubmissionBenchmark implements Benchmark {
+
+	public static final String NAME = "submission";
+
+	public static final int DEFAULT_NUM_QUERIES = 20_000;
+
+	// The numbers per query
+	private static final int RANGE_SIZE = 1_000;
+
+	private static final int MAX_QUERIES_IN_FLIGHT = 256;
+
+	private static final int NUM_WORKERS = 2, NUM_LISTENERS = 2;
+
+	private static final String BENCHMARK_CONFIG = String.join("\n",
+			"akka.loglevel = WARNING",
+			"akka.log-dead-letters = off");
+
+	private final int runs;
+
+	private final int numQueries;
+
+	public SubmissionBenchmark(int runs, int numQueries) {
+		this.runs = runs;
+		this.numQueries = numQueries;
+	}
+
+	@Override
+	public void run(PrintStream out) throws Exception {
+		out.printf("%,d queries of %,d numbers with %d workers, %d listeners and up to %d queries in flight (%d runs)%n",
+				this.numQueries, RANGE_SIZE, NUM_WORKERS, NUM_LISTENERS, MAX_QUERIES_IN_FLIGHT, this.runs);
+		out.printf("%-8s %14s %10s %10s %10s %10s%n", "mode", "queries/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+
+		try (PrimeCluster cluster = PrimeCluster.startLocal(ConfigFactory.parseString(BENCHMARK_CONFIG).withFallback(AkkaUtils.createLocalAkkaConfig()),
+				new ReactiveSchedulingStrategy.Factory(), Master.PoolSettings.fixed(NUM_WORKERS), NUM_LISTENERS)) {
+
+			// Warm up the actors and the JIT
+			this.run(cluster, PrimeQuery.Mode.PRIMES, Math.max(1, this.numQueries / 10), new Histogram(3));
+
+			for (PrimeQuery.Mode mode : new PrimeQuery.Mode[] {PrimeQuery.Mode.COUNT, PrimeQuery.Mode.PRIMES}) {
+				for (int run = 0; run < this.runs; run++) {
+					Histogram latencies = new Histogram(3);
+					long nanos = this.run(cluster, mode, this.numQueries, latencies);
+					out.printf("%-8s %,14.0f %10.3f %10.3f %10.3f %10.3f%n", mode,
+							this.numQueries / (nanos / 1e9),
+							latencies.getValueAtPercentile(50) / 1e6,
+							latencies.getValueAtPercentile(90) / 1e6,
+							latencies.getValueAtPercentile(99) / 1e6,
+							latencies.getMaxValue() / 1e6);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Submit the queries one range after another and wait for all of them.
+	 *
+	 * @return the duration of the run in nanoseconds
+	 */
+	private long run(PrimeCluster cluster, PrimeQuery.Mode mode, int numQueries, Histogram latencies) throws Exception {
+		Semaphore inFlight = new Semaphore(MAX_QUERIES_IN_FLIGHT);
+		AtomicLong numPrimes = new AtomicLong();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		long start = System.nanoTime();
+		for (int i = 0; i < numQueries && failure.get() == null; i++) {
+			inFlight.acquire();
+			long startNumber = 1 + (long) i * RANGE_SIZE, queryStart = System.nanoTime();
+			cluster.submit(startNumber, startNumber + RANGE_SIZE - 1, mode)
+					.thenCompose(query -> mode == PrimeQuery.Mode.PRIMES
+							? query.forEachPrime(prime -> numPrimes.incrementAndGet())
+							: query.aggregates().thenAccept(aggregates -> numPrimes.addAndGet(aggregates.getNumPrimes())))
+					.whenComplete((result, cause) -> {
+						if (cause != null)
+							failure.compareAndSet(null, cause);
+						synchronized (latencies) {
+							latencies.recordValue(System.nanoTime() - queryStart);
+						}
+						inFlight.release();
+					});
+		}
+		inFlight.acquire(MAX_QUERIES_IN_FLIGHT);
+		long nanos = System.nanoTime() - start;
+
+		if (failure.get() != null)
+			throw new IllegalStateException("A query failed.", failure.get());
+		if (numPrimes.get() == 0)
+			throw new IllegalStateException("The queries found no primes.");
+		return nanos;
+	}
+}
@@ -0,0 +1,154 @@
+package de.hpi.akka_tutorial.benchmark;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Address;
+import akka.actor.Props;
+import akka.pattern.Patterns;
+import de.hpi.akka_tutorial.remote.actors.Listener;
+import de.hpi.akka_tutorial.remote.actors.ListenerShards;
+import de.hpi.akka_tutorial.remote.actors.ResultSink;
+import de.hpi.akka_tutorial.util.AkkaUtils;
+import scala.concurrent.Await;
+
+/**
+ * Compares the remoting profiles: A "slave" actor system streams result batches over loopback to a {@link Listener}
+ * shard in a "master" actor system while a small message is sent back and forth between both systems every few
+ * milliseconds. The benchmark reports the result throughput and the round-trip times of the small messages, which
+ * stand in for heartbeats and scheduling messages.
+ */
+public class TransportBenchmark implements Benchmark {
+
+	public static final String NAME = "transport";
+
+	public static final int DEFAULT_NUM_BATCHES = 20_000;
+
+	// The number of primes per batch, which is the batch size of the workers
+	private static final int BATCH_SIZE = 1000;
+
+	// The number of batches that may be in flight before the producer waits for the shard to catch up
+	private static final int WINDOW_SIZE = 64;
+
+	// The interval between two small messages
+	private static final long PING_INTERVAL_MILLIS = 5;
+
+	/**
+	 * Answers every message with the same message.
+	 */
+	private static class Ponger extends AbstractActor {
+
+		@Override
+		public Receive createReceive() {
+			return receiveBuilder()
+					.matchAny(message -> this.getSender().tell(message, this.getSelf()))
+					.build();
+		}
+	}
+
+	private final int runs;
+
+	private final int numBatches;
+
+	public TransportBenchmark(int runs, int numBatches) {
+		this.runs = runs;
+		this.numBatches = numBatches;
+	}
+
+	@Override
+	public void run(PrintStream out) throws Exception {
+		out.printf("Streaming %,d batches of %,d primes over loopback (%d runs)%n", this.numBatches, BATCH_SIZE, this.runs);
+
+		for (AkkaUtils.Transport transport : AkkaUtils.Transport.values()) {
+			long[] durations = new long[this.runs];
+			List<Long> roundTripTimes = new ArrayList<>();
+			for (int run = 0; run < this.runs; run++)
+				durations[run] = this.measure(transport, roundTripTimes);
+
+			long[] sortedDurations = durations.clone();
+			Arrays.sort(sortedDurations);
+			double primesPerSecond = (double) this.numBatches * BATCH_SIZE / (sortedDurations[this.runs / 2] / 1e9);
+			Benchmark.printSummary(out, transport + " transfer", durations);
+			Benchmark.printSummary(out, transport + " round trips", roundTripTimes.stream().mapToLong(Long::longValue).toArray());
+			out.printf("%-24s %,.0f primes/s (median run)%n", transport + " throughput", primesPerSecond);
+		}
+	}
+
+	private long measure(AkkaUtils.Transport transport, List<Long> roundTripTimes) throws Exception {
+		final ActorSystem masterSystem = createSystem("BenchmarkMasterSystem", transport);
+		final ActorSystem slaveSystem = createSystem("BenchmarkSlaveSystem", transport);
+		try {
+			// Set up the receiving side in the master system
+			final ActorRef resultSink = masterSystem.actorOf(ResultSink.props(1), ResultSink.DEFAULT_NAME);
+			final ListenerShards localListeners = ResultSink.getListeners(resultSink);
+			masterSystem.actorOf(Props.create(Ponger.class), "ponger");
+
+			// Resolve the remote actors from within the slave system
+			final Address masterAddress = masterSystem.provider().getDefaultAddress();
+			final ActorRef listener = slaveSystem.actorSelection(localListeners.get(0).path().toStringWithAddress(masterAddress))
+					.resolveOne(Duration.ofSeconds(10)).toCompletableFuture().get();
+			final ActorRef ponger = slaveSystem.actorSelection(masterAddress + "/user/ponger")
+					.resolveOne(Duration.ofSeconds(10)).toCompletableFuture().get();
+
+			// Send small messages in the background while the result batches are streamed
+			final AtomicBoolean isStreaming = new AtomicBoolean(true);
+			final Thread pinger = new Thread(() -> {
+				while (isStreaming.get()) {
+					long start = System.nanoTime();
+					try {
+						Patterns.ask(ponger, "ping", Duration.ofSeconds(30)).toCompletableFuture().get();
+						synchronized (roundTripTimes) {
+							roundTripTimes.add(System.nanoTime() - start);
+						}
+						Thread.sleep(PING_INTERVAL_MILLIS);
+					} catch (Exception e) {
+						return;
+					}
+				}
+			});
+
+			// Always send the same primes, so that the listener's set does not grow
+			final List<Long> primes = new ArrayList<>(BATCH_SIZE);
+			for (long i = 0; i < BATCH_SIZE; i++)
+				primes.add(i);
+			final Listener.PrimesMessage batch = new Listener.PrimesMessage(primes);
+
+			pinger.start();
+			long start = System.nanoTime();
+			for (int sent = 0; sent < this.numBatches; sent += WINDOW_SIZE) {
+				for (int i = sent; i < Math.min(sent + WINDOW_SIZE, this.numBatches); i++)
+					listener.tell(batch, ActorRef.noSender());
+
+				// The shard answers a query only after it has stored all batches that were sent before it
+				Patterns.ask(listener, new Listener.CollectMaxMessage(sent), Duration.ofSeconds(60)).toCompletableFuture().get();
+			}
+			long duration = System.nanoTime() - start;
+
+			isStreaming.set(false);
+			pinger.join(TimeUnit.SECONDS.toMillis(30));
+			return duration;
+		} finally {
+			slaveSystem.terminate();
+			masterSystem.terminate();
+			Await.ready(slaveSystem.whenTerminated(), scala.concurrent.duration.Duration.Inf());
+			Await.ready(masterSystem.whenTerminated(), scala.concurrent.duration.Duration.Inf());
+		}
+	}
+
+	private static ActorSystem createSystem(String name, AkkaUtils.Transport transport) {
+		final Config config = ConfigFactory.parseString("akka.loglevel = WARNING\nakka.log-dead-letters = off")
+				.withFallback(AkkaUtils.createRemoteAkkaConfig("127.0.0.1", 0, transport));
+		return ActorSystem.create(name, config);
+	}
+}
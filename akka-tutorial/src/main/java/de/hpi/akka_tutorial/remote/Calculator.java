@@ -4,16 +4,20 @@ import java.util.Scanner;
 import java.util.concurrent.TimeoutException;
 
 import com.typesafe.config.Config;
+import com.typesafe.config.ConfigValueFactory;
 
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
 import akka.actor.Address;
 import akka.actor.PoisonPill;
-import de.hpi.akka_tutorial.remote.actors.Listener;
+import de.hpi.akka_tutorial.remote.actors.ListenerShards;
 import de.hpi.akka_tutorial.remote.actors.Master;
 import de.hpi.akka_tutorial.remote.actors.Reaper;
+import de.hpi.akka_tutorial.remote.actors.ResultSink;
 import de.hpi.akka_tutorial.remote.actors.Shepherd;
 import de.hpi.akka_tutorial.remote.actors.Slave;
+import de.hpi.akka_tutorial.remote.actors.Worker;
+import de.hpi.akka_tutorial.remote.actors.WorkloadDriver;
 import de.hpi.akka_tutorial.remote.actors.scheduling.SchedulingStrategy;
 import de.hpi.akka_tutorial.remote.messages.ShutdownMessage;
 import de.hpi.akka_tutorial.util.AkkaUtils;
@@ -22,37 +26,47 @@ import scala.concurrent.duration.Duration;
 
 public class Calculator {
 
-	private static final String DEFAULT_MASTER_SYSTEM_NAME = "MasterActorSystem";
+	static final String DEFAULT_MASTER_SYSTEM_NAME = "MasterActorSystem";
 	private static final String DEFAULT_SLAVE_SYSTEM_NAME = "SlaveActorSystem";
 
-	public static void runMaster(String host, int port, SchedulingStrategy.Factory schedulingStrategyFactory, int numLocalWorkers) {
+	/**
+	 * Run a master that either reads its ranges from the console or, if a workload is given, replays that workload
+	 * with a {@link WorkloadDriver} and shuts down once the workload has completed.
+	 */
+	public static void runMaster(String host, int port, AkkaUtils.Transport transport, SchedulingStrategy.Factory schedulingStrategyFactory, Master.PoolSettings workerPool, int numListeners, WorkloadDriver.Settings workload, String primeIndexFile) {
 		
 		// Create the ActorSystem
-		final Config config = AkkaUtils.createRemoteAkkaConfig(host, port);
+		final Config config = withPrimeIndex(AkkaUtils.createRemoteAkkaConfig(host, port, transport), primeIndexFile);
 		final ActorSystem actorSystem = ActorSystem.create(DEFAULT_MASTER_SYSTEM_NAME, config);
 
 		// Create the Reaper.
 		actorSystem.actorOf(Reaper.props(), Reaper.DEFAULT_NAME);
 
-		// Create the Listener
-		final ActorRef listener = actorSystem.actorOf(Listener.props(), Listener.DEFAULT_NAME);
+		// Create the ResultSink and its Listener shards
+		final ActorRef resultSink = actorSystem.actorOf(ResultSink.props(numListeners), ResultSink.DEFAULT_NAME);
+		final ListenerShards listeners = ResultSink.getListeners(resultSink);
 
 		// Create the Master
-		final ActorRef master = actorSystem.actorOf(Master.props(listener, schedulingStrategyFactory, numLocalWorkers), Master.DEFAULT_NAME);
+		final ActorRef master = actorSystem.actorOf(Master.props(listeners, schedulingStrategyFactory, workerPool), Master.DEFAULT_NAME);
 
 		// Create the Shepherd
 		final ActorRef shepherd = actorSystem.actorOf(Shepherd.props(master), Shepherd.DEFAULT_NAME);
 
-		// Enter interactive loop
-		Calculator.enterInteractiveLoop(listener, master, shepherd);
-		
-		System.out.println("Stopping...");
+		if (workload == null) {
+			// Enter interactive loop
+			Calculator.enterInteractiveLoop(resultSink, master, shepherd);
+			
+			System.out.println("Stopping...");
+		} else {
+			// Replay the workload; the driver shuts down the master, which in turn shuts down the shepherd
+			actorSystem.actorOf(WorkloadDriver.props(master, workload), WorkloadDriver.DEFAULT_NAME);
+		}
 
 		// Await termination: The termination should be issued by the reaper
 		Calculator.awaitTermination(actorSystem);
 	}
 	
-	private static void enterInteractiveLoop(final ActorRef listener, final ActorRef master, final ActorRef shepherd) {
+	private static void enterInteractiveLoop(final ActorRef resultSink, final ActorRef master, final ActorRef shepherd) {
 		
 		// Read ranges from the console and process them
 		final Scanner scanner = new Scanner(System.in);
@@ -74,17 +88,17 @@ public class Calculator {
 
 			switch (line) {
 				case "all": 
-					listener.tell(new Listener.LogPrimesMessage(), ActorRef.noSender());
+					resultSink.tell(new ResultSink.LogPrimesMessage(), ActorRef.noSender());
 					break;
 				case "max": 
-					listener.tell(new Listener.LogMaxMessage(), ActorRef.noSender());
+					resultSink.tell(new ResultSink.LogMaxMessage(), ActorRef.noSender());
 					break;
 				case "exit":
 					Calculator.shutdown(shepherd, master);
 					scanner.close();
 					return;
 				case "kill":
-					Calculator.kill(listener, master, shepherd);
+					Calculator.kill(resultSink, master, shepherd);
 					scanner.close();
 					return;
 				default:
@@ -102,10 +116,10 @@ public class Calculator {
 		shepherd.tell(new ShutdownMessage(), ActorRef.noSender());
 	}
 	
-	private static void kill(final ActorRef listener, final ActorRef master, final ActorRef shepherd) {
+	private static void kill(final ActorRef resultSink, final ActorRef master, final ActorRef shepherd) {
 		
-		// End the listener
-		listener.tell(PoisonPill.getInstance(), ActorRef.noSender());
+		// End the result sink, which also ends the listener shards
+		resultSink.tell(PoisonPill.getInstance(), ActorRef.noSender());
 
 		// End the master
 		master.tell(PoisonPill.getInstance(), ActorRef.noSender());
@@ -135,6 +149,15 @@ public class Calculator {
 		}
 	}
 	
+	/**
+	 * Let the workers of an actor system look up primes in the given index file, if any.
+	 */
+	static Config withPrimeIndex(final Config config, final String primeIndexFile) {
+		if (primeIndexFile == null)
+			return config;
+		return config.withValue(Worker.PRIME_INDEX_FILE_SETTING, ConfigValueFactory.fromAnyRef(primeIndexFile));
+	}
+
 	public static void awaitTermination(final ActorSystem actorSystem) {
 		try {
 			Await.ready(actorSystem.whenTerminated(), Duration.Inf());
@@ -145,10 +168,10 @@ public class Calculator {
 		System.out.println("ActorSystem terminated!");
 	}
 
-	public static void runSlave(String host, int port, String masterHost, int masterPort) {
+	public static void runSlave(String host, int port, AkkaUtils.Transport transport, String masterHost, int masterPort, String primeIndexFile) {
 
 		// Create the local ActorSystem
-		final Config config = AkkaUtils.createRemoteAkkaConfig(host, port);
+		final Config config = withPrimeIndex(AkkaUtils.createRemoteAkkaConfig(host, port, transport), primeIndexFile);
 		final ActorSystem actorSystem = ActorSystem.create(DEFAULT_SLAVE_SYSTEM_NAME, config);
 		
 		// Create the reaper.
@@ -158,7 +181,7 @@ public class Calculator {
 		final ActorRef slave = actorSystem.actorOf(Slave.props(), Slave.DEFAULT_NAME);
 
 		// Tell the Slave to register the local ActorSystem
-		slave.tell(new Slave.AddressMessage(new Address("akka.tcp", DEFAULT_MASTER_SYSTEM_NAME, masterHost, masterPort)), ActorRef.noSender());
+		slave.tell(new Slave.AddressMessage(new Address(transport.getProtocol(), DEFAULT_MASTER_SYSTEM_NAME, masterHost, masterPort)), ActorRef.noSender());
 		
 		// Await termination: The termination should be issued by the reaper
 		Calculator.awaitTermination(actorSystem);
@@ -0,0 +1,136 @@
+package de.hpi.akka_tutorial.remote;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.typesafe.config.Config;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import de.hpi.akka_tutorial.remote.actors.ListenerShards;
+import de.hpi.akka_tutorial.remote.actors.Master;
+import de.hpi.akka_tutorial.remote.actors.QueryGateway;
+import de.hpi.akka_tutorial.remote.actors.Reaper;
+import de.hpi.akka_tutorial.remote.actors.Shepherd;
+import de.hpi.akka_tutorial.remote.actors.scheduling.ReactiveSchedulingStrategy;
+import de.hpi.akka_tutorial.remote.actors.scheduling.SchedulingStrategy;
+import de.hpi.akka_tutorial.remote.messages.ShutdownMessage;
+import de.hpi.akka_tutorial.util.AkkaUtils;
+import scala.concurrent.Await;
+import scala.concurrent.duration.Duration;
+
+/**
+ * A master actor system that can be embedded into other programs. Any number of threads can submit range queries,
+ * which a {@link QueryGateway} multiplexes onto the one {@link Master}; each query is represented by a
+ * {@link PrimeQuery} handle. The cluster is closed with {@link #close()}, which lets the queries in flight complete.
+ */
+public class PrimeCluster implements AutoCloseable {
+
+	private final ActorSystem actorSystem;
+
+	private final ActorRef gateway;
+
+	// The shepherd that lets slaves join the cluster or null if the cluster is local
+	private final ActorRef shepherd;
+
+	// A helper variable to assign unique correlation IDs to each query
+	private final AtomicInteger nextCorrelationId = new AtomicInteger();
+
+	private volatile boolean isClosed = false;
+
+	/**
+	 * Start a cluster in the local JVM with the reactive scheduling strategy.
+	 *
+	 * @param workerPool the size of the pool of local workers
+	 * @param numListeners the number of listener shards that collect the primes
+	 * @return the running cluster
+	 */
+	public static PrimeCluster startLocal(final Master.PoolSettings workerPool, final int numListeners) {
+		return startLocal(AkkaUtils.createLocalAkkaConfig(), new ReactiveSchedulingStrategy.Factory(), workerPool, numListeners);
+	}
+
+	/**
+	 * Start a cluster in the local JVM.
+	 *
+	 * @param config the configuration of the actor system, e.g., {@link AkkaUtils#createLocalAkkaConfig()} with some overrides
+	 * @param schedulingStrategyFactory defines which {@link SchedulingStrategy} the master uses
+	 * @param workerPool the size of the pool of local workers
+	 * @param numListeners the number of listener shards that collect the primes
+	 * @return the running cluster
+	 */
+	public static PrimeCluster startLocal(final Config config, final SchedulingStrategy.Factory schedulingStrategyFactory, final Master.PoolSettings workerPool, final int numListeners) {
+		return new PrimeCluster(config, schedulingStrategyFactory, workerPool, numListeners, false);
+	}
+
+	/**
+	 * Start a cluster that slaves can join (see {@link Calculator#runSlave}).
+	 *
+	 * @return the running cluster
+	 */
+	public static PrimeCluster startRemote(String host, int port, AkkaUtils.Transport transport, SchedulingStrategy.Factory schedulingStrategyFactory,
+			Master.PoolSettings workerPool, int numListeners, String primeIndexFile) {
+		final Config config = Calculator.withPrimeIndex(AkkaUtils.createRemoteAkkaConfig(host, port, transport), primeIndexFile);
+		return new PrimeCluster(config, schedulingStrategyFactory, workerPool, numListeners, true);
+	}
+
+	private PrimeCluster(final Config config, final SchedulingStrategy.Factory schedulingStrategyFactory, final Master.PoolSettings workerPool,
+			final int numListeners, final boolean isAcceptingSlaves) {
+
+		// Create the ActorSystem and its Reaper
+		this.actorSystem = ActorSystem.create(Calculator.DEFAULT_MASTER_SYSTEM_NAME, config);
+		this.actorSystem.actorOf(Reaper.props(), Reaper.DEFAULT_NAME);
+
+		// Create the Listener shards outside of the ResultSink, so that the primes travel on the same stream as the
+		// completions that follow them rather than on the dedicated stream for large messages; Akka does not promise
+		// this order, though, so the QueryGateway checks the shards' primes against each completion
+		final ListenerShards listeners = ListenerShards.create(this.actorSystem, numListeners);
+
+		// Create the Master, the Shepherd and the gateway for the queries; the gateway stops the shards once it has
+		// checked the primes of the last completed query
+		final ActorRef master = this.actorSystem.actorOf(Master.props(listeners, schedulingStrategyFactory, workerPool, false), Master.DEFAULT_NAME);
+		this.shepherd = isAcceptingSlaves ? this.actorSystem.actorOf(Shepherd.props(master), Shepherd.DEFAULT_NAME) : null;
+		this.gateway = this.actorSystem.actorOf(QueryGateway.props(master, listeners), QueryGateway.DEFAULT_NAME);
+	}
+
+	/**
+	 * Submit a range query.
+	 *
+	 * @param startNumber first number in the range to be checked as prime (inclusive)
+	 * @param endNumber last number in the range to be checked as prime (inclusive)
+	 * @param mode defines what the query provides besides the number and the checksum of the primes
+	 * @return a stage that provides the handle of the query once the master has received it
+	 */
+	public CompletionStage<PrimeQuery> submit(final long startNumber, final long endNumber, final PrimeQuery.Mode mode) {
+		final CompletableFuture<Void> accepted = new CompletableFuture<>();
+		if (this.isClosed) {
+			accepted.completeExceptionally(new IllegalStateException("The cluster has been closed."));
+			return accepted.thenApply(v -> null);
+		}
+
+		final PrimeQuery query = new PrimeQuery(this.gateway, this.nextCorrelationId.getAndIncrement(), startNumber, endNumber, mode);
+		this.gateway.tell(new QueryGateway.SubmitMessage(query.getCorrelationId(), startNumber, endNumber, accepted, query.completed,
+				mode == PrimeQuery.Mode.MAX ? query.max : null), ActorRef.noSender());
+		return accepted.thenApply(v -> query);
+	}
+
+	public ActorSystem getActorSystem() {
+		return this.actorSystem;
+	}
+
+	/**
+	 * Stop accepting queries, let the queries in flight complete and terminate the actor system. The primes of the
+	 * completed queries cannot be streamed anymore afterwards.
+	 */
+	@Override
+	public void close() throws TimeoutException, InterruptedException {
+		if (!this.isClosed) {
+			this.isClosed = true;
+			this.gateway.tell(new ShutdownMessage(), ActorRef.noSender());
+			if (this.shepherd != null)
+				this.shepherd.tell(new ShutdownMessage(), ActorRef.noSender());
+		}
+		Await.ready(this.actorSystem.whenTerminated(), Duration.Inf());
+	}
+}
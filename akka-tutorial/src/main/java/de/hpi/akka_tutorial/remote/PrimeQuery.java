@@ -0,0 +1,278 @@
+package de.hpi.akka_tutorial.remote;
+
+import java.util.NoSuchElementException;
+import java.util.OptionalLong;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.LongConsumer;
+
+import akka.actor.ActorRef;
+import de.hpi.akka_tutorial.remote.actors.ListenerShards;
+import de.hpi.akka_tutorial.remote.actors.Master;
+import de.hpi.akka_tutorial.remote.actors.QueryGateway;
+
+/**
+ * The handle of a range query that was submitted to a {@link PrimeCluster}. It provides the aggregates of the range
+ * once the query is complete, the primes of the range as a stream and the cancellation of the query.
+ */
+public class PrimeQuery {
+
+	/**
+	 * Defines what a query provides besides the number and the checksum of the primes in its range.
+	 */
+	public enum Mode {
+
+		/**
+		 * Only the number and the checksum of the primes.
+		 */
+		COUNT,
+
+		/**
+		 * Also the largest prime of the range.
+		 */
+		MAX,
+
+		/**
+		 * Also the primes of the range, which can be streamed once the query is complete.
+		 */
+		PRIMES
+	}
+
+	/**
+	 * The aggregates of the primes in the range of a completed query.
+	 */
+	public static class Aggregates {
+
+		private final long numPrimes, checksum, elapsedNanos;
+
+		private final OptionalLong max;
+
+		Aggregates(final long numPrimes, final long checksum, final OptionalLong max, final long elapsedNanos) {
+			this.numPrimes = numPrimes;
+			this.checksum = checksum;
+			this.max = max;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		public long getNumPrimes() {
+			return this.numPrimes;
+		}
+
+		/**
+		 * @return the (wrapping) sum of the primes
+		 */
+		public long getChecksum() {
+			return this.checksum;
+		}
+
+		/**
+		 * @return the largest prime of the range; empty if the query did not ask for it or if there is no prime
+		 */
+		public OptionalLong getMax() {
+			return this.max;
+		}
+
+		/**
+		 * @return the time from the submission of the query until its completion
+		 */
+		public long getElapsedNanos() {
+			return this.elapsedNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s[%,d primes, checksum %d, max %s]", this.getClass().getSimpleName(), this.numPrimes, this.checksum, this.max);
+		}
+	}
+
+	private final ActorRef gateway;
+
+	private final int correlationId;
+
+	private final long startNumber, endNumber;
+
+	private final Mode mode;
+
+	private final long submissionNanos = System.nanoTime();
+
+	// The futures that the gateway completes
+	final CompletableFuture<Master.QueryCompletedMessage> completed = new CompletableFuture<>();
+	final CompletableFuture<Long> max;
+
+	// The aggregates that the user waits for; cancelling the query cancels them
+	private final CompletableFuture<Aggregates> aggregates = new CompletableFuture<>();
+
+	PrimeQuery(final ActorRef gateway, final int correlationId, final long startNumber, final long endNumber, final Mode mode) {
+		this.gateway = gateway;
+		this.correlationId = correlationId;
+		this.startNumber = startNumber;
+		this.endNumber = endNumber;
+		this.mode = mode;
+		this.max = mode == Mode.MAX ? new CompletableFuture<>() : CompletableFuture.completedFuture(0L);
+
+		this.completed.thenCombine(this.max, (completed, max) -> new Aggregates(completed.getNumPrimes(), completed.getChecksum(),
+						mode == Mode.MAX && max > 0 ? OptionalLong.of(max) : OptionalLong.empty(), System.nanoTime() - this.submissionNanos))
+				.whenComplete((aggregates, failure) -> {
+					if (failure == null)
+						this.aggregates.complete(aggregates);
+					else
+						this.aggregates.completeExceptionally(failure);
+				});
+	}
+
+	public int getCorrelationId() {
+		return this.correlationId;
+	}
+
+	public long getStartNumber() {
+		return this.startNumber;
+	}
+
+	public long getEndNumber() {
+		return this.endNumber;
+	}
+
+	public Mode getMode() {
+		return this.mode;
+	}
+
+	/**
+	 * Provide the aggregates of the range. They are available once all numbers of the range have been checked.
+	 *
+	 * @return the aggregates; the stage fails with a {@link CancellationException} if the query was cancelled
+	 */
+	public CompletionStage<Aggregates> aggregates() {
+		return this.aggregates;
+	}
+
+	/**
+	 * Cancel the query. The workers stop picking up the remaining parts of its range, but the primes that they have
+	 * found so far still reach the cluster's results.
+	 *
+	 * @return {@code true} if the query was cancelled and {@code false} if it had completed already
+	 */
+	public boolean cancel() {
+		if (!this.aggregates.cancel(false))
+			return false;
+		this.gateway.tell(new QueryGateway.CancelMessage(this.correlationId), ActorRef.noSender());
+		return true;
+	}
+
+	public boolean isCancelled() {
+		return this.aggregates.isCancelled();
+	}
+
+	/**
+	 * Stream the primes of the range in ascending order once the query is complete. The primes are fetched block by
+	 * block from the shards that hold them, one block ahead of the consumer, so the stream needs little memory even
+	 * for large ranges. The consumer is called on a thread of the actor system and should not block.
+	 *
+	 * @param consumer receives the primes
+	 * @return a stage that completes after the last prime
+	 */
+	public CompletionStage<Void> forEachPrime(final LongConsumer consumer) {
+		this.requirePrimes();
+		return this.aggregates.thenCompose(aggregates -> {
+			long firstNumber = this.firstNumber();
+			if (firstNumber > this.endNumber)
+				return CompletableFuture.completedFuture(null);
+			return this.stream(firstNumber, this.fetch(firstNumber), consumer);
+		});
+	}
+
+	private CompletionStage<Void> stream(final long blockStartNumber, final CompletionStage<long[]> block, final LongConsumer consumer) {
+		return block.thenCompose(primes -> {
+			if (this.isCancelled())
+				throw new CancellationException("The query was cancelled.");
+
+			// Request the next block before the consumer works on this one
+			long nextBlockStartNumber = this.nextBlockStartNumber(blockStartNumber);
+			CompletionStage<long[]> nextBlock = nextBlockStartNumber > blockStartNumber ? this.fetch(nextBlockStartNumber) : null;
+
+			for (long prime : primes)
+				consumer.accept(prime);
+			return nextBlock == null ? CompletableFuture.<Void>completedFuture(null) : this.stream(nextBlockStartNumber, nextBlock, consumer);
+		});
+	}
+
+	/**
+	 * Iterate the primes of the range in ascending order. Unlike {@link #forEachPrime(LongConsumer)}, the iterator
+	 * blocks the calling thread until the query is complete and while it waits for the next block of primes.
+	 *
+	 * @return the iterator
+	 */
+	public PrimitiveIterator.OfLong iterator() {
+		this.requirePrimes();
+		return new PrimitiveIterator.OfLong() {
+
+			private long[] primes = new long[0];
+
+			private int nextIndex = 0;
+
+			private long blockStartNumber;
+
+			private CompletableFuture<long[]> nextBlock;
+
+			{
+				PrimeQuery.this.aggregates.join();
+				this.blockStartNumber = PrimeQuery.this.firstNumber();
+				this.nextBlock = this.blockStartNumber <= PrimeQuery.this.endNumber ? PrimeQuery.this.fetch(this.blockStartNumber) : null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				while (this.nextIndex == this.primes.length && this.nextBlock != null) {
+					this.primes = this.nextBlock.join();
+					this.nextIndex = 0;
+					long nextBlockStartNumber = PrimeQuery.this.nextBlockStartNumber(this.blockStartNumber);
+					this.nextBlock = nextBlockStartNumber > this.blockStartNumber ? PrimeQuery.this.fetch(nextBlockStartNumber) : null;
+					this.blockStartNumber = nextBlockStartNumber;
+				}
+				return this.nextIndex < this.primes.length;
+			}
+
+			@Override
+			public long nextLong() {
+				if (!this.hasNext())
+					throw new NoSuchElementException();
+				return this.primes[this.nextIndex++];
+			}
+		};
+	}
+
+	private void requirePrimes() {
+		if (this.mode != Mode.PRIMES)
+			throw new IllegalStateException(String.format("Only %s queries provide their primes.", Mode.PRIMES));
+	}
+
+	/**
+	 * @return the first number of the range that can be prime
+	 */
+	private long firstNumber() {
+		return Math.max(this.startNumber, 2);
+	}
+
+	/**
+	 * @return the last number of the range within the block of the given number
+	 */
+	private long blockEndNumber(final long number) {
+		long blockEndNumber = Math.floorDiv(number, ListenerShards.BLOCK_SIZE) * ListenerShards.BLOCK_SIZE + ListenerShards.BLOCK_SIZE - 1;
+		return blockEndNumber < number ? this.endNumber : Math.min(blockEndNumber, this.endNumber);
+	}
+
+	/**
+	 * @return the first number of the next block or, if the range ends in this block, the given number
+	 */
+	private long nextBlockStartNumber(final long blockStartNumber) {
+		long blockEndNumber = this.blockEndNumber(blockStartNumber);
+		return blockEndNumber < this.endNumber ? blockEndNumber + 1 : blockStartNumber;
+	}
+
+	private CompletableFuture<long[]> fetch(final long blockStartNumber) {
+		CompletableFuture<long[]> primes = new CompletableFuture<>();
+		this.gateway.tell(new QueryGateway.FetchMessage(blockStartNumber, this.blockEndNumber(blockStartNumber), primes), ActorRef.noSender());
+		return primes;
+	}
+}
@@ -1,19 +1,23 @@
 package de.hpi.akka_tutorial.remote.actors;
 
 import java.io.Serializable;
-import java.util.Comparator;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
 
 import akka.actor.AbstractLoggingActor;
 import akka.actor.PoisonPill;
 import akka.actor.Props;
 import de.hpi.akka_tutorial.remote.messages.ShutdownMessage;
+import de.hpi.akka_tutorial.util.AkkaUtils;
 
 /**
- * The listener collects prime numbers and responds to action requests on these primes.
+ * The listener collects prime numbers and responds to action requests on these primes. Usually, several listeners
+ * act as shards of one result sink, each owning the primes of some hash buckets (see {@link ListenerShards}); the
+ * {@link ResultSink} answers queries across all shards.
  */
 public class Listener extends AbstractLoggingActor {
 
@@ -25,11 +29,11 @@ public class Listener extends AbstractLoggingActor {
 	 * @return the {@link Props}
 	 */
 	public static Props props() {
-		return Props.create(Listener.class);
+		return Props.create(Listener.class).withDispatcher(AkkaUtils.COORDINATION_DISPATCHER);
 	}
 
 	/**
-	 * Asks the {@link Listener} to store a given set of primes.
+	 * Asks the {@link Listener} to store a given set of primes. These messages are sent directly by the {@link Worker}s.
 	 */
 	public static class PrimesMessage implements Serializable {
 		
@@ -52,26 +56,262 @@ public class Listener extends AbstractLoggingActor {
 		@SuppressWarnings("unused")
 		private PrimesMessage() {
 		}
+
+		public List<Long> getPrimes() {
+			return this.primes;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) 
+				return false;
+			final PrimesMessage that = (PrimesMessage) o;
+			return Objects.equals(this.primes, that.primes);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(this.primes);
+		}
 	}
 	
 	/**
-	 * Asks the {@link Listener} to log all its primes.
+	 * Asks the {@link Listener} to send all its primes to the sender as part of a scatter/gather query.
 	 */
-	public static class LogPrimesMessage implements Serializable {
+	public static class CollectPrimesMessage implements Serializable {
 		
 		private static final long serialVersionUID = -5646268930296638375L;
+
+		private int queryId;
+
+		public CollectPrimesMessage(final int queryId) {
+			this.queryId = queryId;
+		}
+
+		/**
+		 * For serialization/deserialization only.
+		 */
+		@SuppressWarnings("unused")
+		private CollectPrimesMessage() {
+		}
+
+		public int getQueryId() {
+			return this.queryId;
+		}
 	}
 
 	/**
-	 * Asks the {@link Listener} to log its largest prime.
+	 * Asks the {@link Listener} to send its largest prime to the sender as part of a scatter/gather query.
 	 */
-	public static class LogMaxMessage implements Serializable {
+	public static class CollectMaxMessage implements Serializable {
 
 		private static final long serialVersionUID = 9210465485942285762L;
+
+		private int queryId;
+
+		public CollectMaxMessage(final int queryId) {
+			this.queryId = queryId;
+		}
+
+		/**
+		 * For serialization/deserialization only.
+		 */
+		@SuppressWarnings("unused")
+		private CollectMaxMessage() {
+		}
+
+		public int getQueryId() {
+			return this.queryId;
+		}
+	}
+
+	/**
+	 * Asks the {@link Listener} to send its primes within a range, or only their number, checksum and largest prime, to
+	 * the sender. The {@link Listener} answers with a {@link CollectedPrimesMessage} or a {@link CollectedMaxMessage},
+	 * respectively.
+	 */
+	public static class CollectRangeMessage implements Serializable {
+
+		private static final long serialVersionUID = -3563811370343424934L;
+
+		private int queryId;
+
+		private long startNumber, endNumber;
+
+		private boolean isMaxOnly;
+
+		/**
+		 * Create a new instance.
+		 *
+		 * @param queryId the ID of the query that the answer will carry
+		 * @param startNumber first number of the range (inclusive)
+		 * @param endNumber last number of the range (inclusive)
+		 * @param isMaxOnly whether to send only the largest prime of the range
+		 */
+		public CollectRangeMessage(final int queryId, final long startNumber, final long endNumber, final boolean isMaxOnly) {
+			this.queryId = queryId;
+			this.startNumber = startNumber;
+			this.endNumber = endNumber;
+			this.isMaxOnly = isMaxOnly;
+		}
+
+		/**
+		 * For serialization/deserialization only.
+		 */
+		@SuppressWarnings("unused")
+		private CollectRangeMessage() {
+		}
+
+		public int getQueryId() {
+			return this.queryId;
+		}
+
+		public long getStartNumber() {
+			return this.startNumber;
+		}
+
+		public long getEndNumber() {
+			return this.endNumber;
+		}
+
+		public boolean isMaxOnly() {
+			return this.isMaxOnly;
+		}
+	}
+
+	/**
+	 * Answers a {@link CollectPrimesMessage} with the sorted primes of one {@link Listener} shard.
+	 */
+	public static class CollectedPrimesMessage implements Serializable {
+
+		private static final long serialVersionUID = 3021716935213567340L;
+
+		private int queryId;
+
+		private long[] primes;
+
+		public CollectedPrimesMessage(final int queryId, final long[] primes) {
+			this.queryId = queryId;
+			this.primes = primes;
+		}
+
+		/**
+		 * For serialization/deserialization only.
+		 */
+		@SuppressWarnings("unused")
+		private CollectedPrimesMessage() {
+		}
+
+		public int getQueryId() {
+			return this.queryId;
+		}
+
+		public long[] getPrimes() {
+			return this.primes;
+		}
+	}
+
+	/**
+	 * Answers a {@link CollectMaxMessage} with the largest prime of one {@link Listener} shard or {@code 0} if it has none.
+	 * The number and the checksum of the shard's primes let the receiver check that the shard has received all of them.
+	 */
+	public static class CollectedMaxMessage implements Serializable {
+
+		private static final long serialVersionUID = -4398180163525620947L;
+
+		private int queryId;
+
+		private long max;
+
+		private long numPrimes, checksum;
+
+		public CollectedMaxMessage(final int queryId, final long max, final long numPrimes, final long checksum) {
+			this.queryId = queryId;
+			this.max = max;
+			this.numPrimes = numPrimes;
+			this.checksum = checksum;
+		}
+
+		/**
+		 * For serialization/deserialization only.
+		 */
+		@SuppressWarnings("unused")
+		private CollectedMaxMessage() {
+		}
+
+		public int getQueryId() {
+			return this.queryId;
+		}
+
+		public long getMax() {
+			return this.max;
+		}
+
+		public long getNumPrimes() {
+			return this.numPrimes;
+		}
+
+		public long getChecksum() {
+			return this.checksum;
+		}
+	}
+
+	/**
+	 * The primes of one block of the number space (see {@link ListenerShards#BLOCK_SIZE}) in a primitive array. New
+	 * primes are appended; the block sorts them and drops duplicates only when it is read.
+	 */
+	private static class Block {
+
+		private long[] primes = new long[16];
+
+		private int size = 0;
+
+		private boolean isSorted = true;
+
+		private void add(long prime) {
+			if (this.size == this.primes.length)
+				this.primes = Arrays.copyOf(this.primes, 2 * this.size);
+			if (this.size > 0 && this.primes[this.size - 1] >= prime)
+				this.isSorted = false;
+			this.primes[this.size++] = prime;
+		}
+
+		private void sort() {
+			if (this.isSorted)
+				return;
+			Arrays.sort(this.primes, 0, this.size);
+			int numDistinct = 0;
+			for (int i = 0; i < this.size; i++)
+				if (numDistinct == 0 || this.primes[numDistinct - 1] != this.primes[i])
+					this.primes[numDistinct++] = this.primes[i];
+			this.size = numDistinct;
+			this.isSorted = true;
+		}
+
+		/**
+		 * @return the sorted primes of this block within the range
+		 */
+		private long[] range(long startNumber, long endNumber) {
+			this.sort();
+			int from = this.indexOf(startNumber), to = this.indexOf(endNumber + 1);
+			return Arrays.copyOfRange(this.primes, from, Math.max(from, to));
+		}
+
+		/**
+		 * @return the index of the first prime that is not smaller than the number in the sorted block
+		 */
+		private int indexOf(long number) {
+			int index = Arrays.binarySearch(this.primes, 0, this.size, number);
+			return index < 0 ? -index - 1 : index;
+		}
 	}
 
-	// The set of all prime numbers received by this listener actor
-	private final Set<Long> primes = new HashSet<>();
+	// The prime numbers received by this listener actor, grouped by the blocks that the shard owns
+	private final NavigableMap<Long, Block> blocks = new TreeMap<>();
+
+	// The number of received primes and their checksum, which should match the numbers that the master collects from the workers
+	private long numPrimes = 0, checksum = 0;
 	
 	@Override
 	public void preStart() throws Exception {
@@ -87,38 +327,94 @@ public class Listener extends AbstractLoggingActor {
 		super.postStop();
 		
 		// Log the stop event
-		this.log().info("Stopped {}.", this.getSelf());
+		this.log().info("Stopped {} after {} primes (checksum {}).", this.getSelf(), this.numPrimes, this.checksum);
 	}
 
 	@Override
 	public Receive createReceive() {
 		return receiveBuilder()
 				.match(PrimesMessage.class, this::handle)
-				.match(LogPrimesMessage.class, this::handle)
-				.match(LogMaxMessage.class, this::handle)
+				.match(CollectPrimesMessage.class, this::handle)
+				.match(CollectMaxMessage.class, this::handle)
+				.match(CollectRangeMessage.class, this::handle)
 				.match(ShutdownMessage.class, this::handle)
 				.matchAny(object -> this.log().info(this.getClass().getName() + " received unknown message: " + object.toString()))
 				.build();
 	}
 	
 	private void handle(PrimesMessage message) {
-		this.primes.addAll(message.primes);
+		// The primes of a message usually lie in one block, so the block lookup is repeated only when the block changes
+		long blockIndex = Long.MIN_VALUE;
+		Block block = null;
+		for (long prime : message.primes) {
+			if (Math.floorDiv(prime, ListenerShards.BLOCK_SIZE) != blockIndex) {
+				blockIndex = Math.floorDiv(prime, ListenerShards.BLOCK_SIZE);
+				block = this.blocks.computeIfAbsent(blockIndex, index -> new Block());
+			}
+			block.add(prime);
+			this.checksum += prime;
+		}
+		this.numPrimes += message.primes.size();
 	}
 	
-	private void handle(LogPrimesMessage message) {
-		String primeList = this.primes.stream()
-				.mapToLong(Long::longValue)
-				.sorted()
-				.mapToObj(prime -> String.valueOf(prime))
-				.collect(Collectors.joining(";"));
-		this.log().info(String.format("Primes: %s", primeList));		
-	}
-
-	private void handle(LogMaxMessage message) {
-		Long prime = this.primes.stream()
-				.collect(Collectors.maxBy(Comparator.naturalOrder()))
-				.orElseGet(() -> { return 0L; });
-		this.log().info(String.format("Max prime: %d", prime));		
+	private void handle(CollectPrimesMessage message) {
+		this.getSender().tell(new CollectedPrimesMessage(message.queryId, this.primesOf(Long.MIN_VALUE, Long.MAX_VALUE - 1)), this.getSelf());
+	}
+
+	private void handle(CollectMaxMessage message) {
+		this.getSender().tell(this.aggregate(message.queryId, Long.MIN_VALUE, Long.MAX_VALUE - 1), this.getSelf());
+	}
+
+	private void handle(CollectRangeMessage message) {
+		if (message.startNumber > message.endNumber) {
+			this.getSender().tell(message.isMaxOnly ? new CollectedMaxMessage(message.queryId, 0, 0, 0) : new CollectedPrimesMessage(message.queryId, new long[0]), this.getSelf());
+			return;
+		}
+		if (message.isMaxOnly)
+			this.getSender().tell(this.aggregate(message.queryId, message.startNumber, message.endNumber), this.getSelf());
+		else
+			this.getSender().tell(new CollectedPrimesMessage(message.queryId, this.primesOf(message.startNumber, message.endNumber)), this.getSelf());
+	}
+
+	/**
+	 * @return the sorted primes within the range (inclusive)
+	 */
+	private long[] primesOf(long startNumber, long endNumber) {
+		Map<Long, Block> range = this.blocks.subMap(Math.floorDiv(startNumber, ListenerShards.BLOCK_SIZE), true,
+				Math.floorDiv(endNumber, ListenerShards.BLOCK_SIZE), true);
+		long[][] blockPrimes = new long[range.size()][];
+		int numPrimes = 0, i = 0;
+		for (Block block : range.values()) {
+			blockPrimes[i] = block.range(startNumber, endNumber);
+			numPrimes += blockPrimes[i++].length;
+		}
+
+		long[] sortedPrimes = new long[numPrimes];
+		int offset = 0;
+		for (long[] primes : blockPrimes) {
+			System.arraycopy(primes, 0, sortedPrimes, offset, primes.length);
+			offset += primes.length;
+		}
+		return sortedPrimes;
+	}
+
+	/**
+	 * @return the largest prime within the range (inclusive), or {@code 0} if there is none, and the number and the
+	 *         checksum of the primes within the range
+	 */
+	private CollectedMaxMessage aggregate(int queryId, long startNumber, long endNumber) {
+		Map<Long, Block> range = this.blocks.subMap(Math.floorDiv(startNumber, ListenerShards.BLOCK_SIZE), true,
+				Math.floorDiv(endNumber, ListenerShards.BLOCK_SIZE), true);
+		long max = 0, numPrimes = 0, checksum = 0;
+		for (Block block : range.values()) {
+			block.sort();
+			for (int i = block.indexOf(startNumber), to = block.indexOf(endNumber + 1); i < to; i++) {
+				max = block.primes[i];
+				numPrimes++;
+				checksum += block.primes[i];
+			}
+		}
+		return new CollectedMaxMessage(queryId, max, numPrimes, checksum);
 	}
 
 	private void handle(ShutdownMessage message) {
@@ -0,0 +1,129 @@
+package de.hpi.akka_tutorial.remote.actors;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorRefFactory;
+import akka.routing.ConsistentHash;
+
+/**
+ * The routing table of a sharded result sink: a fixed set of {@link Listener} shards, each of which owns some hash
+ * buckets of the number space. This table is immutable and serializable, so that it can be shipped to (remote)
+ * {@link Worker}s together with their {@link akka.actor.Props}.
+ */
+public class ListenerShards implements Serializable {
+
+	private static final long serialVersionUID = -2419460628553624787L;
+
+	// Numbers are assigned to buckets in contiguous blocks of this size; it matches the subquery size of the reactive scheduler
+	public static final long BLOCK_SIZE = 100_000;
+
+	// The number of hash buckets that are distributed among the shards
+	private static final int NUM_BUCKETS = 1024;
+
+	// The number of virtual nodes per shard on the consistent hashing ring
+	private static final int VIRTUAL_NODES_FACTOR = 16;
+
+	// The listener shards in the order of their shard index
+	private List<ActorRef> shards;
+
+	// A mapping of bucket numbers to shard indices as defined by the consistent hashing ring
+	private int[] bucket2shard;
+
+	/**
+	 * Create a number of {@link Listener} shards.
+	 *
+	 * @param actorRefFactory the {@link ActorRefFactory} in which the shards should be created
+	 * @param numShards the number of shards to create
+	 * @return the routing table for the new shards
+	 */
+	public static ListenerShards create(final ActorRefFactory actorRefFactory, final int numShards) {
+		if (numShards < 1)
+			throw new IllegalArgumentException("At least one listener shard is required.");
+
+		List<ActorRef> shards = new ArrayList<>(numShards);
+		for (int i = 0; i < numShards; i++)
+			shards.add(actorRefFactory.actorOf(Listener.props(), Listener.DEFAULT_NAME + "-" + i));
+		return new ListenerShards(shards);
+	}
+
+	/**
+	 * Construct a new {@link ListenerShards} object.
+	 *
+	 * @param shards the {@link Listener} shards in the order of their shard index
+	 */
+	public ListenerShards(final List<ActorRef> shards) {
+		this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+
+		// Place the shards on a consistent hashing ring and resolve every bucket once, so that routing is a simple array lookup
+		List<Integer> shardIndices = new ArrayList<>(shards.size());
+		for (int i = 0; i < shards.size(); i++)
+			shardIndices.add(i);
+		ConsistentHash<Integer> ring = ConsistentHash.create(shardIndices, VIRTUAL_NODES_FACTOR);
+
+		this.bucket2shard = new int[NUM_BUCKETS];
+		for (int bucket = 0; bucket < NUM_BUCKETS; bucket++)
+			this.bucket2shard[bucket] = ring.nodeFor(String.valueOf(bucket));
+	}
+
+	/**
+	 * For serialization/deserialization only.
+	 */
+	@SuppressWarnings("unused")
+	private ListenerShards() {
+	}
+
+	/**
+	 * Find the index of the shard that owns the given number.
+	 *
+	 * @param number the number to look up
+	 * @return the index of the owning shard
+	 */
+	public int shardOf(final long number) {
+		long block = Math.floorDiv(number, BLOCK_SIZE);
+		int bucket = (int) ((block * 0x9E3779B97F4A7C15L) >>> 54); // Fibonacci hashing into the 2^10 buckets
+		return this.bucket2shard[bucket];
+	}
+
+	/**
+	 * Get the shard with the given index.
+	 *
+	 * @param shardIndex the index of the shard
+	 * @return the shard
+	 */
+	public ActorRef get(final int shardIndex) {
+		return this.shards.get(shardIndex);
+	}
+
+	/**
+	 * Get all shards in the order of their shard index.
+	 *
+	 * @return the shards
+	 */
+	public List<ActorRef> getAll() {
+		return this.shards;
+	}
+
+	/**
+	 * Count the shards.
+	 *
+	 * @return the number of shards
+	 */
+	public int size() {
+		return this.shards.size();
+	}
+
+	/**
+	 * Send a message to all shards.
+	 *
+	 * @param message the message to send
+	 * @param sender the sender of the message
+	 */
+	public void tellAll(final Object message, final ActorRef sender) {
+		for (ActorRef shard : this.shards)
+			shard.tell(message, sender);
+	}
+}
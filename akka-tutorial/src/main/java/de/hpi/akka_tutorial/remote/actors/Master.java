@@ -4,23 +4,31 @@ import static akka.actor.SupervisorStrategy.escalate;
 import static akka.actor.SupervisorStrategy.stop;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import akka.actor.AbstractLoggingActor;
 import akka.actor.ActorRef;
 import akka.actor.Address;
+import akka.actor.Cancellable;
 import akka.actor.Deploy;
 import akka.actor.OneForOneStrategy;
 import akka.actor.PoisonPill;
 import akka.actor.Props;
+import akka.actor.Status;
 import akka.actor.SupervisorStrategy;
 import akka.actor.Terminated;
 import akka.japi.pf.DeciderBuilder;
 import akka.remote.RemoteScope;
 import de.hpi.akka_tutorial.remote.actors.scheduling.SchedulingStrategy;
 import de.hpi.akka_tutorial.remote.messages.ShutdownMessage;
+import de.hpi.akka_tutorial.util.AkkaUtils;
 import scala.concurrent.duration.Duration;
 
 /**
@@ -35,12 +43,87 @@ public class Master extends AbstractLoggingActor {
 	 *
 	 * @return the {@link Props}
 	 */
-	public static Props props(final ActorRef listener, SchedulingStrategy.Factory schedulingStrategyFactory, final int numLocalWorkers) {
-		return Props.create(Master.class, () -> new Master(listener, schedulingStrategyFactory, numLocalWorkers));
+	public static Props props(final ListenerShards listeners, SchedulingStrategy.Factory schedulingStrategyFactory, final int numLocalWorkers) {
+		return props(listeners, schedulingStrategyFactory, PoolSettings.fixed(numLocalWorkers));
 	}
 
 	/**
-	 * Asks the {@link Master} to start the distributed calculation of prime numbers in a given range.
+	 * Create the {@link Props} necessary to instantiate new {@link Master} actors with a possibly elastic pool of
+	 * local workers.
+	 *
+	 * @return the {@link Props}
+	 */
+	public static Props props(final ListenerShards listeners, SchedulingStrategy.Factory schedulingStrategyFactory, final PoolSettings poolSettings) {
+		return props(listeners, schedulingStrategyFactory, poolSettings, true);
+	}
+
+	/**
+	 * Create the {@link Props} necessary to instantiate new {@link Master} actors whose listeners may outlive them,
+	 * e.g., because a {@link QueryGateway} still reads the primes of completed queries from the listeners.
+	 *
+	 * @param isStoppingListeners whether the master stops the listeners when it stops
+	 * @return the {@link Props}
+	 */
+	public static Props props(final ListenerShards listeners, SchedulingStrategy.Factory schedulingStrategyFactory, final PoolSettings poolSettings,
+			final boolean isStoppingListeners) {
+		return Props.create(Master.class, () -> new Master(listeners, schedulingStrategyFactory, poolSettings, isStoppingListeners))
+				.withDispatcher(AkkaUtils.COORDINATION_DISPATCHER);
+	}
+
+	/**
+	 * The size of the pool of local {@link Worker}s. A pool whose bounds differ is elastic: Every interval, the
+	 * {@link Master} adds workers while subqueries wait and no local worker is idle, and it retires the workers that
+	 * have been spare for the whole scale-down delay. A retired worker finishes its current subquery before it stops.
+	 */
+	public static class PoolSettings {
+
+		public static final long DEFAULT_INTERVAL_MILLIS = 1_000, DEFAULT_SCALE_DOWN_DELAY_MILLIS = 10_000;
+
+		private final int numInitialWorkers, minWorkers, maxWorkers;
+
+		private final long intervalMillis, scaleDownDelayMillis;
+
+		/**
+		 * Construct a new {@link PoolSettings} object.
+		 *
+		 * @param numInitialWorkers the number of workers to start with
+		 * @param minWorkers the least number of local workers
+		 * @param maxWorkers the largest number of local workers
+		 * @param intervalMillis the time between two adjustments of the pool size
+		 * @param scaleDownDelayMillis the time for which a worker must be spare before it is retired
+		 */
+		public PoolSettings(final int numInitialWorkers, final int minWorkers, final int maxWorkers, final long intervalMillis, final long scaleDownDelayMillis) {
+			if (minWorkers < 0 || minWorkers > maxWorkers)
+				throw new IllegalArgumentException(String.format("Invalid worker pool bounds [%d, %d].", minWorkers, maxWorkers));
+			if (numInitialWorkers < minWorkers || numInitialWorkers > maxWorkers)
+				throw new IllegalArgumentException(String.format("The initial %d workers are not within [%d, %d].", numInitialWorkers, minWorkers, maxWorkers));
+			if (intervalMillis <= 0 || scaleDownDelayMillis < intervalMillis)
+				throw new IllegalArgumentException("The scale-down delay must be at least one positive interval.");
+			this.numInitialWorkers = numInitialWorkers;
+			this.minWorkers = minWorkers;
+			this.maxWorkers = maxWorkers;
+			this.intervalMillis = intervalMillis;
+			this.scaleDownDelayMillis = scaleDownDelayMillis;
+		}
+
+		/**
+		 * Create the settings of a pool of constant size.
+		 *
+		 * @param numWorkers the number of local workers
+		 * @return the {@link PoolSettings}
+		 */
+		public static PoolSettings fixed(final int numWorkers) {
+			return new PoolSettings(numWorkers, numWorkers, numWorkers, DEFAULT_INTERVAL_MILLIS, DEFAULT_SCALE_DOWN_DELAY_MILLIS);
+		}
+
+		public boolean isElastic() {
+			return this.minWorkers < this.maxWorkers;
+		}
+	}
+
+	/**
+	 * Asks the {@link Master} to start the distributed calculation of prime numbers in a given range. If the message
+	 * has a sender, the {@link Master} answers it with a {@link QueryCompletedMessage} once the range is processed.
 	 */
 	public static class RangeMessage implements Serializable {
 
@@ -48,6 +131,8 @@ public class Master extends AbstractLoggingActor {
 
 		private long startNumber, endNumber;
 
+		private int correlationId;
+
 		/**
 		 * Construct a new {@link RangeMessage} object.
 		 * 
@@ -55,8 +140,20 @@ public class Master extends AbstractLoggingActor {
 		 * @param endNumber last number in the range to be checked as prime (inclusive)
 		 */
 		public RangeMessage(final long startNumber, final long endNumber) {
+			this(startNumber, endNumber, 0);
+		}
+
+		/**
+		 * Construct a new {@link RangeMessage} object.
+		 *
+		 * @param startNumber first number in the range to be checked as prime (inclusive)
+		 * @param endNumber last number in the range to be checked as prime (inclusive)
+		 * @param correlationId an ID chosen by the sender that the {@link QueryCompletedMessage} will carry
+		 */
+		public RangeMessage(final long startNumber, final long endNumber, final int correlationId) {
 			this.startNumber = startNumber;
 			this.endNumber = endNumber;
+			this.correlationId = correlationId;
 		}
 
 		/**
@@ -66,6 +163,18 @@ public class Master extends AbstractLoggingActor {
 		private RangeMessage() {
 		}
 
+		public long getStartNumber() {
+			return this.startNumber;
+		}
+
+		public long getEndNumber() {
+			return this.endNumber;
+		}
+
+		public int getCorrelationId() {
+			return this.correlationId;
+		}
+
 		@Override
 		public String toString() {
 			return String.format("%s[%,d..%,d]", this.getClass().getSimpleName(), this.startNumber, this.endNumber);
@@ -73,36 +182,100 @@ public class Master extends AbstractLoggingActor {
 	}
 
 	/**
-	 * Asks the {@link Master} to process some primes as the answer to a {@link Worker.ValidationMessage}.
+	 * Notifies the sender of a {@link RangeMessage} that all numbers in its range have been checked.
 	 */
-	public static class PrimesMessage implements Serializable {
+	public static class QueryCompletedMessage implements Serializable {
+
+		private static final long serialVersionUID = -2925135329464807410L;
+
+		private int correlationId;
+
+		private long numPrimes;
+
+		private long checksum;
+
+		/**
+		 * Create a new instance.
+		 *
+		 * @param correlationId the correlation ID of the completed {@link RangeMessage}
+		 * @param numPrimes the number of primes that the workers reported for the range
+		 * @param checksum the (wrapping) sum of all primes that the workers reported for the range
+		 */
+		public QueryCompletedMessage(final int correlationId, final long numPrimes, final long checksum) {
+			this.correlationId = correlationId;
+			this.numPrimes = numPrimes;
+			this.checksum = checksum;
+		}
+
+		/**
+		 * For serialization/deserialization only.
+		 */
+		@SuppressWarnings("unused")
+		private QueryCompletedMessage() {
+		}
+
+		public int getCorrelationId() {
+			return this.correlationId;
+		}
+
+		public long getNumPrimes() {
+			return this.numPrimes;
+		}
+
+		public long getChecksum() {
+			return this.checksum;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s[%d: %,d primes, checksum %d]", this.getClass().getSimpleName(), this.correlationId, this.numPrimes, this.checksum);
+		}
+	}
+
+	/**
+	 * Notifies the {@link Master} that a {@link Worker} has completed a {@link Worker.ValidationMessage}. The primes
+	 * themselves are sent directly to the {@link Listener} shards, so this message carries only their number and checksum.
+	 */
+	public static class CompletionMessage implements Serializable {
 
 		private static final long serialVersionUID = 4862570515887001983L;
 
 		private int requestId;
 
-		private List<Long> primes;
+		private long numPrimes;
 
-		private boolean isComplete;
+		private long checksum;
 
 		/**
 		 * Create a new instance.
 		 *
-		 * @param requestId  the ID of the query that is being served
-		 * @param primes     some discovered primes
-		 * @param isComplete whether all primes of the current subquery have been discovered
+		 * @param requestId the ID of the query that is being served
+		 * @param numPrimes the number of primes that the worker discovered in its subquery
+		 * @param checksum  the (wrapping) sum of all primes that the worker discovered in its subquery
 		 */
-		public PrimesMessage(final int requestId, final List<Long> primes, final boolean isComplete) {
+		public CompletionMessage(final int requestId, final long numPrimes, final long checksum) {
 			this.requestId = requestId;
-			this.primes = primes;
-			this.isComplete = isComplete;
+			this.numPrimes = numPrimes;
+			this.checksum = checksum;
 		}
 		
 		/**
 		 * For serialization/deserialization only.
 		 */
 		@SuppressWarnings("unused")
-		private PrimesMessage() {
+		private CompletionMessage() {
+		}
+
+		public int getRequestId() {
+			return this.requestId;
+		}
+
+		public long getNumPrimes() {
+			return this.numPrimes;
+		}
+
+		public long getChecksum() {
+			return this.checksum;
 		}
 
 		@Override
@@ -110,15 +283,51 @@ public class Master extends AbstractLoggingActor {
 			if (this == o) return true;
 			if (o == null || getClass() != o.getClass()) 
 				return false;
-			final PrimesMessage that = (PrimesMessage) o;
+			final CompletionMessage that = (CompletionMessage) o;
 			return this.requestId == that.requestId &&
-					this.isComplete == that.isComplete &&
-					Objects.equals(this.primes, that.primes);
+					this.numPrimes == that.numPrimes &&
+					this.checksum == that.checksum;
 		}
 
 		@Override
 		public int hashCode() {
-			return Objects.hash(this.requestId, this.primes, this.isComplete);
+			return Objects.hash(this.requestId, this.numPrimes, this.checksum);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s[%d: %,d primes, checksum %d]", this.getClass().getSimpleName(), this.requestId, this.numPrimes, this.checksum);
+		}
+	}
+
+	/**
+	 * Asks the {@link Master} to stop working on the range of a {@link RangeMessage} of the same sender. The subqueries
+	 * that workers already process still complete, but the sender is not notified about the completion of the range.
+	 */
+	public static class CancelMessage implements Serializable {
+
+		private static final long serialVersionUID = -6528237164926208946L;
+
+		private int correlationId;
+
+		/**
+		 * Create a new instance.
+		 *
+		 * @param correlationId the correlation ID of the {@link RangeMessage} to cancel
+		 */
+		public CancelMessage(final int correlationId) {
+			this.correlationId = correlationId;
+		}
+
+		/**
+		 * For serialization/deserialization only.
+		 */
+		@SuppressWarnings("unused")
+		private CancelMessage() {
+		}
+
+		public int getCorrelationId() {
+			return this.correlationId;
 		}
 	}
 
@@ -141,6 +350,103 @@ public class Master extends AbstractLoggingActor {
 		@SuppressWarnings("unused")
 		private RemoteSystemMessage() {
 		}
+
+		public Address getRemoteAddress() {
+			return this.remoteAddress;
+		}
+	}
+
+	/**
+	 * Notifies the {@link Master} that a {@link Worker} has a {@link PrimeIndex}, so that the scheduler can route the
+	 * indexed parts of ranges to this worker.
+	 */
+	public static class PrimeIndexMessage implements Serializable {
+
+		private static final long serialVersionUID = 6150983297713263040L;
+
+		private long limit;
+
+		/**
+		 * Create a new instance.
+		 *
+		 * @param limit the largest number that the index of the worker covers
+		 */
+		public PrimeIndexMessage(final long limit) {
+			this.limit = limit;
+		}
+
+		/**
+		 * For serialization/deserialization only.
+		 */
+		@SuppressWarnings("unused")
+		private PrimeIndexMessage() {
+		}
+
+		public long getLimit() {
+			return this.limit;
+		}
+	}
+
+	/**
+	 * Is published on the event stream of the {@link Master}'s actor system whenever its pool of local workers has
+	 * changed, i.e., when the master has added or retired workers or when a local worker has terminated.
+	 */
+	public static class PoolSizeMessage implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int numWorkers;
+
+		private final int numRetiringWorkers;
+
+		/**
+		 * Create a new instance.
+		 *
+		 * @param numWorkers the number of local workers that take new subqueries
+		 * @param numRetiringWorkers the number of retired local workers that have not terminated yet
+		 */
+		public PoolSizeMessage(final int numWorkers, final int numRetiringWorkers) {
+			this.numWorkers = numWorkers;
+			this.numRetiringWorkers = numRetiringWorkers;
+		}
+
+		public int getNumWorkers() {
+			return this.numWorkers;
+		}
+
+		public int getNumRetiringWorkers() {
+			return this.numRetiringWorkers;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s[%d workers, %d retiring]", this.getClass().getSimpleName(), this.numWorkers, this.numRetiringWorkers);
+		}
+	}
+
+	/**
+	 * Reminds the {@link Master} to adjust the size of its elastic worker pool.
+	 */
+	static class AutoscaleMessage implements Serializable {
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * This class remembers who is waiting for the completion of a range query.
+	 */
+	private static class PendingQuery {
+
+		// The sender of the range message and its correlation ID
+		private final ActorRef requester;
+		private final int correlationId;
+
+		// The number of primes and their checksum as reported by the workers for this query
+		private long numPrimes = 0, checksum = 0;
+
+		PendingQuery(final ActorRef requester, final int correlationId) {
+			this.requester = requester;
+			this.correlationId = correlationId;
+		}
 	}
 
 	// The supervisor strategy for the worker actors created by this master actor
@@ -150,8 +456,11 @@ public class Master extends AbstractLoggingActor {
 					.matchAny(o -> escalate())
 					.build());
 
-	// A reference to the listener actor that collects all calculated prime numbers
-	private final ActorRef listener;
+	// The listener shards that collect all calculated prime numbers
+	private final ListenerShards listeners;
+
+	// A flag indicating whether the listeners stop with this actor or someone else stops them
+	private final boolean isStoppingListeners;
 	
 	// The scheduling strategy that splits range messages into smaller tasks and distributes these to the workers
 	private final SchedulingStrategy schedulingStrategy;
@@ -159,34 +468,56 @@ public class Master extends AbstractLoggingActor {
 	// A helper variable to assign unique IDs to each range query
 	private int nextQueryId = 0;
 
+	// The range queries whose senders wait for their completion
+	private final Map<Integer, PendingQuery> queryId2pendingQuery = new HashMap<>();
+
 	// A flag indicating whether this actor is still accepting new range messages
 	private boolean isAcceptingRequests = true;
 
+	// The number of primes and their checksum as reported by the workers; the listeners should end up with the same numbers
+	private long numPrimes = 0, checksum = 0;
+
+	// The bounds of the local worker pool and the timing of its adjustments
+	private final PoolSettings poolSettings;
+
+	// The local workers that take new subqueries
+	private final Set<ActorRef> localWorkers = new HashSet<>();
+
+	// The retired local workers that still finish their current subquery
+	private final Set<ActorRef> drainingWorkers = new HashSet<>();
+
+	// The retired local workers that have been stopped, but whose termination has not arrived yet
+	private final Set<ActorRef> stoppedWorkers = new HashSet<>();
+
+	// The least number of idle local workers in the current scale-down window and the number of intervals left in it
+	private int numSpareWorkers = Integer.MAX_VALUE, numRemainingWindowIntervals;
+
+	// The timer for the next adjustment of an elastic worker pool
+	private Cancellable autoscaleTimer;
+
 	/**
 	 * Construct a new {@link Master} object.
 	 * 
-	 * @param listener a reference to an {@link Listener} actor to send results to
+	 * @param listeners the {@link Listener} shards that the workers send their results to
 	 * @param schedulingStrategyFactory defines which {@link SchedulingStrategy} to use
-	 * @param numLocalWorkers number of workers that this master should start locally
+	 * @param poolSettings the size of the pool of workers that this master starts locally
+	 * @param isStoppingListeners whether the master stops the listeners when it stops
 	 */
-	public Master(final ActorRef listener, SchedulingStrategy.Factory schedulingStrategyFactory, int numLocalWorkers) {
+	public Master(final ListenerShards listeners, SchedulingStrategy.Factory schedulingStrategyFactory, PoolSettings poolSettings,
+			final boolean isStoppingListeners) {
 		
-		// Save the reference to the Listener actor
-		this.listener = listener;
+		// Save the references to the Listener actors
+		this.listeners = listeners;
+		this.isStoppingListeners = isStoppingListeners;
 
 		// Create a scheduling strategy.
 		this.schedulingStrategy = schedulingStrategyFactory.create(this.getSelf());
 		
-		// Start the specified number of local workers
-		for (int i = 0; i < numLocalWorkers; i++) {
-			
-			// Create a new worker
-			ActorRef worker = this.getContext().actorOf(Worker.props());
-			this.schedulingStrategy.addWorker(worker);
-
-			// Add the worker to the watch list and our router
-			this.getContext().watch(worker);
-		}
+		// Start the initial number of local workers
+		this.poolSettings = poolSettings;
+		for (int i = 0; i < poolSettings.numInitialWorkers; i++)
+			this.startLocalWorker();
+		this.resetScaleDownWindow();
 	}
 
 	@Override
@@ -195,17 +526,25 @@ public class Master extends AbstractLoggingActor {
 		
 		// Register at this actor system's reaper
 		Reaper.watchWithDefaultReaper(this);
+
+		// Start adjusting an elastic worker pool
+		if (this.poolSettings.isElastic())
+			this.scheduleAutoscale();
 	}
 
 	@Override
 	public void postStop() throws Exception {
 		super.postStop();
+
+		if (this.autoscaleTimer != null)
+			this.autoscaleTimer.cancel();
 		
-		// If the master has stopped, it can also stop the listener
-		this.listener.tell(PoisonPill.getInstance(), this.getSelf());
+		// If the master has stopped, it can also stop the listeners
+		if (this.isStoppingListeners)
+			this.listeners.tellAll(PoisonPill.getInstance(), this.getSelf());
 		
 		// Log the stop event
-		this.log().info("Stopped {}.", this.getSelf());
+		this.log().info("Stopped {} after {} primes (checksum {}).", this.getSelf(), this.numPrimes, this.checksum);
 	}
 
 	@Override
@@ -217,10 +556,13 @@ public class Master extends AbstractLoggingActor {
 	public Receive createReceive() {
 		return receiveBuilder()
 				.match(RemoteSystemMessage.class, this::handle)
+				.match(PrimeIndexMessage.class, this::handle)
 				.match(RangeMessage.class, this::handle)
-				.match(PrimesMessage.class, this::handle)
+				.match(CancelMessage.class, this::handle)
+				.match(CompletionMessage.class, this::handle)
 				.match(ShutdownMessage.class, this::handle)
 				.match(Terminated.class, this::handle)
+				.match(AutoscaleMessage.class, this::handle)
 				.matchAny(object -> this.log().info(this.getClass().getName() + " received unknown message: " + object.toString()))
 				.build();
 	}
@@ -228,7 +570,7 @@ public class Master extends AbstractLoggingActor {
 	private void handle(RemoteSystemMessage message) {
 
 		// Create a new worker with the given URI
-		ActorRef worker = this.getContext().actorOf(Worker.props().withDeploy(new Deploy(new RemoteScope(message.remoteAddress))));
+		ActorRef worker = this.getContext().actorOf(Worker.props(this.listeners).withDeploy(new Deploy(new RemoteScope(message.remoteAddress))));
 		
 		// Add worker to the scheduler
 		this.schedulingStrategy.addWorker(worker);
@@ -239,17 +581,62 @@ public class Master extends AbstractLoggingActor {
 		this.log().info("New worker: " + worker);
 	}
 
+	private void handle(PrimeIndexMessage message) {
+
+		// Let the scheduler route the indexed parts of ranges to the worker
+		this.schedulingStrategy.addPrimeIndex(this.getSender(), message.limit);
+
+		this.log().info("{} has a prime index up to {}.", this.getSender(), message.limit);
+	}
+
 	private void handle(RangeMessage message) {
 		
 		// Check if we are still accepting requests
 		if (!this.isAcceptingRequests) {
 			this.log().warning("Discarding request {}.", message);
+			if (this.hasRequester())
+				this.getSender().tell(new Status.Failure(new IllegalStateException("Discarded " + message)), this.getSelf());
 			return;
 		}
 
+		// Remember the sender, if any, so that we can notify it about the completion of the query
+		final int queryId = this.nextQueryId++;
+		if (this.hasRequester())
+			this.queryId2pendingQuery.put(queryId, new PendingQuery(this.getSender(), message.correlationId));
+
 		// Schedule the request
-		this.schedulingStrategy.schedule(this.nextQueryId, message.startNumber, message.endNumber);
-		this.nextQueryId++;
+		this.schedulingStrategy.schedule(queryId, message.startNumber, message.endNumber);
+
+		// Grow an elastic worker pool right away rather than let the query wait for the next interval
+		if (this.poolSettings.isElastic())
+			this.scaleUp();
+
+		// An empty range is complete without any work
+		this.notifyIfCompleted(queryId);
+	}
+
+	private void handle(CancelMessage message) {
+
+		// Find the pending query of the sender; queries that have completed already are not cancelled
+		Integer queryId = null;
+		for (Map.Entry<Integer, PendingQuery> entry : this.queryId2pendingQuery.entrySet()) {
+			if (entry.getValue().requester.equals(this.getSender()) && entry.getValue().correlationId == message.correlationId) {
+				queryId = entry.getKey();
+				break;
+			}
+		}
+		if (queryId == null)
+			return;
+
+		// Stop scheduling the query and forget its sender
+		this.queryId2pendingQuery.remove(queryId);
+		this.schedulingStrategy.cancel(queryId);
+		this.log().info("Cancelled query {} of {}.", message.correlationId, this.getSender());
+
+		// Check if work is complete and stop the actor hierarchy if true
+		if (this.hasFinished()) {
+			this.stopSelfAndListeners();
+		}
 	}
 
 	private void handle(ShutdownMessage message) {
@@ -259,25 +646,35 @@ public class Master extends AbstractLoggingActor {
 		
 		// Check if work is complete and stop the actor hierarchy if true
 		if (this.hasFinished()) {
-			this.stopSelfAndListener();
+			this.stopSelfAndListeners();
 		}
 	}
 	
-	private void handle(PrimesMessage message) {
+	private void handle(CompletionMessage message) {
 		
-		// Forward the calculated primes to the listener
-		this.listener.tell(new Listener.PrimesMessage(message.primes), this.getSelf());
+		// Notify the scheduler that the worker has finished its task and ignore the completion if it is stale, because
+		// the subquery has been re-scheduled and is counted when its new worker completes it
+		if (this.schedulingStrategy.finished(message.requestId, this.getSender())) {
+
+			// The primes went directly to the listeners, so we only keep track of their number and checksum
+			this.numPrimes += message.numPrimes;
+			this.checksum += message.checksum;
+
+			// Notify the sender of the query if this was its last task
+			final PendingQuery pendingQuery = this.queryId2pendingQuery.get(message.requestId);
+			if (pendingQuery != null) {
+				pendingQuery.numPrimes += message.numPrimes;
+				pendingQuery.checksum += message.checksum;
+				this.notifyIfCompleted(message.requestId);
+			}
+		}
 
-		// If the worker only returned an intermediate result, no further action is required
-		if (!message.isComplete) 
-			return;
-		
-		// Notify the scheduler that the worker has finished its task
-		this.schedulingStrategy.finished(message.requestId, this.getSender());
+		// Stop the retired workers that have finished their last subquery
+		this.stopDrainedWorkers();
 		
 		// Check if work is complete and stop the actor hierarchy if true
 		if (this.hasFinished()) {
-			this.stopSelfAndListener();
+			this.stopSelfAndListeners();
 		}
 	}
 	
@@ -288,13 +685,132 @@ public class Master extends AbstractLoggingActor {
 		
 		// Remove the sender from the scheduler
 		this.schedulingStrategy.removeWorker(sender);
-		
-		this.log().warning("{} has terminated.", sender);
+		final boolean isRetired = this.stoppedWorkers.remove(sender);
+		final boolean isLocalWorker = this.localWorkers.remove(sender) | this.drainingWorkers.remove(sender) | isRetired;
+
+		if (isRetired)
+			this.log().info("{} has retired.", sender);
+		else
+			this.log().warning("{} has terminated.", sender);
+		if (isLocalWorker)
+			this.publishPoolSize();
 		
 		// Check if work is complete and stop the actor hierarchy if true
 		if (this.hasFinished()) {
-			this.stopSelfAndListener();
+			this.stopSelfAndListeners();
+		}
+	}
+
+	private void handle(AutoscaleMessage message) {
+
+		// Replace failed workers up to the lower bound and add workers if subqueries are waiting
+		if (this.localWorkers.size() < this.poolSettings.minWorkers) {
+			while (this.localWorkers.size() < this.poolSettings.minWorkers)
+				this.startLocalWorker();
+			this.publishPoolSize();
+		}
+		this.scaleUp();
+
+		// Retire the workers that have been spare for the whole window
+		int numIdleWorkers = (int) this.localWorkers.stream().filter(this.schedulingStrategy::isIdle).count();
+		this.numSpareWorkers = Math.min(this.numSpareWorkers, numIdleWorkers);
+		if (--this.numRemainingWindowIntervals <= 0) {
+			int numRetiredWorkers = Math.min(this.numSpareWorkers, this.localWorkers.size() - this.poolSettings.minWorkers);
+			if (numRetiredWorkers > 0)
+				this.scaleDown(numRetiredWorkers);
+			this.resetScaleDownWindow();
 		}
+
+		this.scheduleAutoscale();
+	}
+
+	/**
+	 * Add local workers for the waiting subqueries, as long as no local worker is idle and the pool is not full.
+	 */
+	private void scaleUp() {
+		if (this.localWorkers.stream().anyMatch(this.schedulingStrategy::isIdle))
+			return;
+
+		long numNewWorkers = Math.min(this.schedulingStrategy.countPendingSubqueries(), this.poolSettings.maxWorkers - this.localWorkers.size());
+		if (numNewWorkers <= 0)
+			return;
+
+		for (int i = 0; i < numNewWorkers; i++)
+			this.startLocalWorker();
+		this.log().info("Added {} local workers for waiting subqueries; the pool has {} workers.", numNewWorkers, this.localWorkers.size());
+		this.publishPoolSize();
+
+		// The new workers are not spare
+		this.resetScaleDownWindow();
+	}
+
+	/**
+	 * Retire the given number of local workers, idle ones first. The idle workers stop right away, the busy ones once
+	 * they have finished their current subquery.
+	 */
+	private void scaleDown(int numRetiredWorkers) {
+		List<ActorRef> retiredWorkers = new ArrayList<>(numRetiredWorkers);
+		this.localWorkers.stream().filter(this.schedulingStrategy::isIdle).limit(numRetiredWorkers).forEach(retiredWorkers::add);
+		this.localWorkers.stream().filter(worker -> !this.schedulingStrategy.isIdle(worker)).limit(numRetiredWorkers - retiredWorkers.size()).forEach(retiredWorkers::add);
+
+		for (ActorRef worker : retiredWorkers) {
+			this.schedulingStrategy.retireWorker(worker);
+			this.localWorkers.remove(worker);
+			this.drainingWorkers.add(worker);
+		}
+		this.stopDrainedWorkers();
+		this.log().info("Retired {} spare local workers; the pool has {} workers.", retiredWorkers.size(), this.localWorkers.size());
+		this.publishPoolSize();
+	}
+
+	private void publishPoolSize() {
+		final int numRetiringWorkers = this.drainingWorkers.size() + this.stoppedWorkers.size();
+		this.getContext().getSystem().getEventStream().publish(new PoolSizeMessage(this.localWorkers.size(), numRetiringWorkers));
+	}
+
+	private void startLocalWorker() {
+		ActorRef worker = this.getContext().actorOf(Worker.props(this.listeners));
+		this.schedulingStrategy.addWorker(worker);
+		this.localWorkers.add(worker);
+
+		// Add the worker to the watch list
+		this.getContext().watch(worker);
+	}
+
+	/**
+	 * Stop the retired workers that are idle. They do not hold any subquery, so their termination does not cause the
+	 * scheduler to re-schedule work.
+	 */
+	private void stopDrainedWorkers() {
+		for (ActorRef worker : this.drainingWorkers) {
+			if (this.schedulingStrategy.isIdle(worker) && this.stoppedWorkers.add(worker))
+				this.getContext().stop(worker);
+		}
+		this.drainingWorkers.removeAll(this.stoppedWorkers);
+	}
+
+	private void resetScaleDownWindow() {
+		this.numSpareWorkers = Integer.MAX_VALUE;
+		this.numRemainingWindowIntervals = (int) (this.poolSettings.scaleDownDelayMillis / this.poolSettings.intervalMillis);
+	}
+
+	private void scheduleAutoscale() {
+		this.autoscaleTimer = this.getContext().getSystem().scheduler().scheduleOnce(
+				Duration.create(this.poolSettings.intervalMillis, TimeUnit.MILLISECONDS),
+				this.getSelf(), new AutoscaleMessage(), this.getContext().dispatcher(), this.getSelf());
+	}
+
+	private boolean hasRequester() {
+		return !this.getSender().equals(this.getContext().getSystem().deadLetters());
+	}
+
+	private void notifyIfCompleted(final int queryId) {
+		if (this.schedulingStrategy.isTaskInProgress(queryId))
+			return;
+
+		final PendingQuery pendingQuery = this.queryId2pendingQuery.remove(queryId);
+		if (pendingQuery != null)
+			pendingQuery.requester.tell(new QueryCompletedMessage(pendingQuery.correlationId, pendingQuery.numPrimes, pendingQuery.checksum), this.getSelf());
 	}
 
 	private boolean hasFinished() {
@@ -303,10 +819,11 @@ public class Master extends AbstractLoggingActor {
 		return !this.isAcceptingRequests && (!this.schedulingStrategy.hasTasksInProgress() || this.schedulingStrategy.countWorkers() < 1);
 	}
 
-	private void stopSelfAndListener() {
+	private void stopSelfAndListeners() {
 		
-		// Tell the listener to stop
-		this.listener.tell(new ShutdownMessage(), this.getSelf());
+		// Tell the listeners to stop
+		if (this.isStoppingListeners)
+			this.listeners.tellAll(new ShutdownMessage(), this.getSelf());
 		
 		// Stop self and all child actors by sending a poison pill
 		this.getSelf().tell(PoisonPill.getInstance(), this.getSelf());
@@ -0,0 +1,42 @@
+package de.hpi.akka_tutorial.remote.actors;
+
+import com.typesafe.config.Config;
+
+import akka.actor.ActorSystem;
+import akka.actor.Terminated;
+import akka.dispatch.PriorityGenerator;
+import akka.dispatch.UnboundedStablePriorityMailbox;
+import de.hpi.akka_tutorial.remote.messages.ShutdownMessage;
+
+/**
+ * The mailbox of the {@link Master}: Control messages, i.e., worker failures, new workers and their prime indexes,
+ * overtake scheduling messages, including the adjustments of the worker pool, which in turn overtake the bulk of
+ * {@link Master.CompletionMessage}s. Messages of the same priority keep their FIFO order, so a {@link ShutdownMessage}
+ * never overtakes the {@link Master.RangeMessage}s sent before it.
+ * The mailbox is assigned to the master via the deployment section in {@code akka-tutorial/base.conf}.
+ */
+public class MasterMailbox extends UnboundedStablePriorityMailbox {
+
+	// The priorities of the message classes; lower values are dequeued first
+	private static final int CONTROL_PRIORITY = 0, SCHEDULING_PRIORITY = 1, BULK_PRIORITY = 2;
+
+	/**
+	 * Construct a new {@link MasterMailbox} object. This constructor is called reflectively by Akka.
+	 *
+	 * @param settings the settings of the actor system
+	 * @param config the configuration of this mailbox
+	 */
+	public MasterMailbox(ActorSystem.Settings settings, Config config) {
+		super(new PriorityGenerator() {
+			@Override
+			public int gen(Object message) {
+				if (message instanceof Terminated || message instanceof Master.RemoteSystemMessage || message instanceof Master.PrimeIndexMessage)
+					return CONTROL_PRIORITY;
+				if (message instanceof Master.RangeMessage || message instanceof Master.CancelMessage || message instanceof ShutdownMessage
+						|| message instanceof Master.AutoscaleMessage)
+					return SCHEDULING_PRIORITY;
+				return BULK_PRIORITY;
+			}
+		});
+	}
+}
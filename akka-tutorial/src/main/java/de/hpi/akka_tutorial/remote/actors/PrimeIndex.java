@@ -0,0 +1,261 @@
+package de.hpi.akka_tutorial.remote.actors;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * A read-only, memory-mapped index of all primes up to some limit, which lets {@link Worker}s look primes up instead
+ * of testing every number.
+ * <p>
+ * The index is a wheel-30 bitmap: Each byte stands for 30 consecutive numbers and has one bit for each of the eight
+ * residues that are coprime to 30; 2, 3 and 5 are implicit. The bitmap is stored in blocks of a fixed size behind a
+ * page-sized header, which records the magic number, the format, the block size, the number of blocks, the limit up
+ * to which the index is complete and the number of primes in the index. The limit is all that a scheduler needs to
+ * tell indexed from computed ranges.
+ */
+public class PrimeIndex {
+
+	/**
+	 * The default number of bitmap bytes per block; each block covers 30 times as many numbers.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+	private static final int MAGIC = 0x50524958, FORMAT = 1;
+
+	// The header occupies the first page, so that the blocks are page-aligned, but only its first fields are used:
+	// magic, format, block size, number of blocks, limit, number of primes and a reserved long
+	private static final int HEADER_SIZE = 4096, HEADER_FIELDS_SIZE = 4 + 4 + 4 + 4 + 8 + 8 + 8;
+
+	// The numbers below 30 that are coprime to 30; bit i of a byte stands for the residue RESIDUES[i]
+	private static final int[] RESIDUES = {1, 7, 11, 13, 17, 19, 23, 29};
+
+	// The bit for each residue modulo 30 or -1 if the residue is not coprime to 30
+	private static final int[] RESIDUE_BITS = new int[30];
+
+	static {
+		Arrays.fill(RESIDUE_BITS, -1);
+		for (int bit = 0; bit < RESIDUES.length; bit++)
+			RESIDUE_BITS[RESIDUES[bit]] = bit;
+	}
+
+	// The primes that the wheel cannot represent
+	private static final long[] WHEEL_PRIMES = {2, 3, 5};
+
+	// The size of the memory-mapped chunks of the bitmap
+	private static final int CHUNK_BITS = 30;
+
+	private final MappedByteBuffer[] chunks;
+
+	private final long limit;
+
+	private final int blockSize;
+
+	private final int numBlocks;
+
+	private final long numPrimes;
+
+	private PrimeIndex(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_FIELDS_SIZE);
+			while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+			}
+			header.flip();
+			if (header.remaining() < HEADER_FIELDS_SIZE || header.getInt() != MAGIC || header.getInt() != FORMAT)
+				throw new IOException("Not a prime index: " + file);
+			this.blockSize = header.getInt();
+			this.numBlocks = header.getInt();
+			this.limit = header.getLong();
+			this.numPrimes = header.getLong();
+			header.getLong(); // reserved
+
+			long bitmapSize = (long) this.blockSize * this.numBlocks;
+			if (channel.size() < HEADER_SIZE + bitmapSize)
+				throw new IOException("Truncated prime index: " + file);
+			this.chunks = new MappedByteBuffer[(int) ((bitmapSize + (1L << CHUNK_BITS) - 1) >>> CHUNK_BITS)];
+			for (int i = 0; i < this.chunks.length; i++) {
+				long position = (long) i << CHUNK_BITS;
+				this.chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + position, Math.min(1L << CHUNK_BITS, bitmapSize - position));
+			}
+		}
+	}
+
+	public static PrimeIndex open(Path file) throws IOException {
+		return new PrimeIndex(file);
+	}
+
+	/**
+	 * Write an index of all primes up to the given limit. The blocks are sieved one after another, so the memory
+	 * requirements depend on the block size rather than on the limit. The index appears atomically, i.e., a partial
+	 * index is never visible under the given name.
+	 *
+	 * @param file the file to write the index to
+	 * @param limit the largest number that the index covers
+	 * @param blockSize the number of bitmap bytes per block
+	 */
+	public static void build(Path file, long limit, int blockSize) throws IOException {
+		if (limit < 1 || blockSize < 1)
+			throw new IllegalArgumentException("The limit and the block size must be positive.");
+
+		long numNumbersPerBlock = 30L * blockSize;
+		long numBlocks = (limit + 1 + numNumbersPerBlock - 1) / numNumbersPerBlock;
+		if (numBlocks > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("The limit is too large for the block size.");
+		int[] sievingPrimes = primesUpTo((int) Math.sqrt((double) limit) + 1);
+
+		Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			// The odd numbers of a block that are composite; bit j stands for the number blockStart + 2 j + 1
+			long[] composites = new long[(int) ((numNumbersPerBlock / 2 + 63) >>> 6)];
+			ByteBuffer block = ByteBuffer.allocate(blockSize);
+			long numPrimes = 0;
+			for (long blockIndex = 0; blockIndex < numBlocks; blockIndex++) {
+				long blockStart = blockIndex * numNumbersPerBlock;
+				sieveBlock(blockStart, numNumbersPerBlock, sievingPrimes, composites);
+
+				block.clear();
+				for (int i = 0; i < blockSize; i++) {
+					int bits = 0;
+					for (int bit = 0; bit < RESIDUES.length; bit++) {
+						long number = blockStart + 30L * i + RESIDUES[bit];
+						long odd = (number - blockStart) >>> 1;
+						if (number > 1 && number <= limit && (composites[(int) (odd >>> 6)] & (1L << odd)) == 0) {
+							bits |= 1 << bit;
+							numPrimes++;
+						}
+					}
+					block.put((byte) bits);
+				}
+				block.flip();
+				long position = HEADER_SIZE + blockIndex * blockSize;
+				while (block.hasRemaining())
+					position += channel.write(block, position);
+			}
+			for (long prime : WHEEL_PRIMES)
+				if (prime <= limit)
+					numPrimes++;
+
+			// Write the header last, so that an aborted build does not leave a valid-looking index behind
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(FORMAT).putInt(blockSize).putInt((int) numBlocks).putLong(limit).putLong(numPrimes).putLong(0);
+			header.clear();
+			long position = 0;
+			while (header.hasRemaining())
+				position += channel.write(header, position);
+			channel.force(true);
+		}
+		Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Mark the odd composites in {@code [blockStart, blockStart + numNumbers)}; the block start must be even.
+	 */
+	private static void sieveBlock(long blockStart, long numNumbers, int[] sievingPrimes, long[] composites) {
+		Arrays.fill(composites, 0);
+		long blockEnd = blockStart + numNumbers;
+		// 2, 3 and 5 are never sieved, because the wheel skips their multiples anyway
+		for (int i = 3; i < sievingPrimes.length; i++) {
+			long prime = sievingPrimes[i];
+			long first = Math.max(prime * prime, (blockStart + prime - 1) / prime * prime);
+			if (first >= blockEnd)
+				continue;
+			if ((first & 1) == 0)
+				first += prime;
+			for (long odd = (first - blockStart) >>> 1, end = numNumbers >>> 1; odd < end; odd += prime)
+				composites[(int) (odd >>> 6)] |= 1L << odd;
+		}
+	}
+
+	/**
+	 * @return all primes up to the bound in ascending order
+	 */
+	private static int[] primesUpTo(int bound) {
+		boolean[] isComposite = new boolean[bound + 1];
+		int numPrimes = 0;
+		for (int i = 2; i <= bound; i++) {
+			if (isComposite[i])
+				continue;
+			numPrimes++;
+			for (long multiple = (long) i * i; multiple <= bound; multiple += i)
+				isComposite[(int) multiple] = true;
+		}
+		int[] primes = new int[numPrimes];
+		for (int i = 2, j = 0; i <= bound; i++)
+			if (!isComposite[i])
+				primes[j++] = i;
+		return primes;
+	}
+
+	/**
+	 * @return the largest number that the index covers
+	 */
+	public long getLimit() {
+		return this.limit;
+	}
+
+	public int getBlockSize() {
+		return this.blockSize;
+	}
+
+	public int getNumBlocks() {
+		return this.numBlocks;
+	}
+
+	/**
+	 * @return the number of primes up to the limit
+	 */
+	public long getNumPrimes() {
+		return this.numPrimes;
+	}
+
+	/**
+	 * Pass all primes in the range in ascending order to the consumer. The range must lie within the limit.
+	 *
+	 * @param startNumber first number of the range (inclusive)
+	 * @param endNumber last number of the range (inclusive)
+	 * @param consumer receives the primes
+	 */
+	public void forEachPrime(long startNumber, long endNumber, LongConsumer consumer) {
+		if (endNumber > this.limit)
+			throw new IllegalArgumentException(String.format("The index covers only numbers up to %d.", this.limit));
+
+		for (long prime : WHEEL_PRIMES)
+			if (startNumber <= prime && prime <= endNumber)
+				consumer.accept(prime);
+
+		for (long i = Math.max(0, startNumber) / 30, end = endNumber / 30; i <= end; i++) {
+			int bits = this.chunks[(int) (i >>> CHUNK_BITS)].get((int) (i & ((1 << CHUNK_BITS) - 1))) & 0xFF;
+			while (bits != 0) {
+				int bit = Integer.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+				long number = 30 * i + RESIDUES[bit];
+				if (number > endNumber)
+					break;
+				if (number >= startNumber)
+					consumer.accept(number);
+			}
+		}
+	}
+
+	/**
+	 * @return whether the number is prime; the number must lie within the limit
+	 */
+	public boolean isPrime(long number) {
+		if (number > this.limit)
+			throw new IllegalArgumentException(String.format("The index covers only numbers up to %d.", this.limit));
+		if (number < 7)
+			return number == 2 || number == 3 || number == 5;
+		int bit = RESIDUE_BITS[(int) (number % 30)];
+		if (bit < 0)
+			return false;
+		long i = number / 30;
+		return (this.chunks[(int) (i >>> CHUNK_BITS)].get((int) (i & ((1 << CHUNK_BITS) - 1))) & (1 << bit)) != 0;
+	}
+}
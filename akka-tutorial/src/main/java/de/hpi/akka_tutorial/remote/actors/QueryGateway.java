@@ -0,0 +1,419 @@
+package de.hpi.akka_tutorial.remote.actors;
+
+import java.io.Serializable;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import akka.actor.AbstractLoggingActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.actor.Status;
+import akka.actor.Terminated;
+import de.hpi.akka_tutorial.remote.messages.ShutdownMessage;
+import de.hpi.akka_tutorial.util.AkkaUtils;
+import scala.concurrent.duration.Duration;
+
+/**
+ * The gateway multiplexes the range queries of code that runs outside of the actor system onto one {@link Master}.
+ * Its messages carry the futures that it completes, so they can be sent only within the local actor system. The
+ * futures are completed on the gateway's thread, so their callbacks should not block. The gateway stops the
+ * {@link Listener} shards once the master has stopped and the shards have confirmed the primes of its last queries,
+ * so the master must be created without stopping the shards itself.
+ */
+public class QueryGateway extends AbstractLoggingActor {
+
+	public static final String DEFAULT_NAME = "gateway";
+
+	/**
+	 * Create the {@link Props} necessary to instantiate new {@link QueryGateway} actors.
+	 *
+	 * @param master the {@link Master} that processes the queries
+	 * @param listeners the {@link Listener} shards that collect the primes of the master's workers
+	 * @return the {@link Props}
+	 */
+	public static Props props(final ActorRef master, final ListenerShards listeners) {
+		return Props.create(QueryGateway.class, () -> new QueryGateway(master, listeners)).withDispatcher(AkkaUtils.COORDINATION_DISPATCHER);
+	}
+
+	/**
+	 * Asks the {@link QueryGateway} to pass a range query to the {@link Master}.
+	 */
+	public static class SubmitMessage implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int correlationId;
+
+		private final long startNumber, endNumber;
+
+		private final CompletableFuture<Void> accepted;
+
+		private final CompletableFuture<Master.QueryCompletedMessage> completed;
+
+		private final CompletableFuture<Long> max;
+
+		/**
+		 * Create a new instance.
+		 *
+		 * @param correlationId an ID of the query that is unique among the queries in flight
+		 * @param startNumber first number in the range to be checked as prime (inclusive)
+		 * @param endNumber last number in the range to be checked as prime (inclusive)
+		 * @param accepted is completed once the query has been passed to the master
+		 * @param completed is completed with the number and the checksum of the primes once the query is complete and
+		 *            the shards hold all of its primes
+		 * @param max is completed with the largest prime of the range, or 0 if there is none, after the query is
+		 *            complete; {@code null} if the largest prime is not needed
+		 */
+		public SubmitMessage(final int correlationId, final long startNumber, final long endNumber, final CompletableFuture<Void> accepted,
+				final CompletableFuture<Master.QueryCompletedMessage> completed, final CompletableFuture<Long> max) {
+			this.correlationId = correlationId;
+			this.startNumber = startNumber;
+			this.endNumber = endNumber;
+			this.accepted = accepted;
+			this.completed = completed;
+			this.max = max;
+		}
+	}
+
+	/**
+	 * Asks the {@link QueryGateway} to cancel a submitted query. Its futures are left alone.
+	 */
+	public static class CancelMessage implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int correlationId;
+
+		public CancelMessage(final int correlationId) {
+			this.correlationId = correlationId;
+		}
+	}
+
+	/**
+	 * Asks the {@link QueryGateway} for the primes of a range that lies within one block of the {@link ListenerShards},
+	 * i.e., within one shard.
+	 */
+	public static class FetchMessage implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long startNumber, endNumber;
+
+		private final CompletableFuture<long[]> primes;
+
+		/**
+		 * Create a new instance.
+		 *
+		 * @param startNumber first number of the range (inclusive)
+		 * @param endNumber last number of the range (inclusive)
+		 * @param primes is completed with the sorted primes of the range
+		 */
+		public FetchMessage(final long startNumber, final long endNumber, final CompletableFuture<long[]> primes) {
+			this.startNumber = startNumber;
+			this.endNumber = endNumber;
+			this.primes = primes;
+		}
+	}
+
+	/**
+	 * Asks the {@link QueryGateway} to gather the aggregates of a completed query from the shards once more.
+	 */
+	private static class RetryMessage implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Verification verification;
+
+		RetryMessage(final Verification verification) {
+			this.verification = verification;
+		}
+	}
+
+	/**
+	 * This class collects the number, the checksum and the largest of the primes that the shards report for the range
+	 * of a completed query, so that they can be checked against the numbers that the master reported.
+	 */
+	private static class Verification {
+
+		private final SubmitMessage submission;
+
+		private final Master.QueryCompletedMessage completion;
+
+		private int pendingReplies = 0, numAttempts = 0;
+
+		private long gatheredMax, gatheredNumPrimes, gatheredChecksum;
+
+		Verification(final SubmitMessage submission, final Master.QueryCompletedMessage completion) {
+			this.submission = submission;
+			this.completion = completion;
+		}
+
+		private boolean isConsistent() {
+			return this.gatheredNumPrimes == this.completion.getNumPrimes() && this.gatheredChecksum == this.completion.getChecksum();
+		}
+	}
+
+	// Ask every shard for the aggregates of a range that spans more blocks than this
+	private static final int MAX_GATHERING_BLOCKS = 1_024;
+
+	// The primes of a range may still be on their way to the shards when the master reports the query as complete,
+	// because Akka orders messages only per pair of sender and receiver; so the gateway asks the shards again a few times
+	private static final int MAX_VERIFICATION_ATTEMPTS = 20;
+	private static final long VERIFICATION_RETRY_MILLIS = 50;
+
+	// The master that processes the queries
+	private final ActorRef master;
+
+	// The listener shards that hold the primes
+	private final ListenerShards listeners;
+
+	// The submitted queries that have not completed yet
+	private final Map<Integer, SubmitMessage> correlationId2submission = new HashMap<>();
+
+	// The pending requests to the listener shards by the query ID that the shards' answers carry
+	private final Map<Integer, CompletableFuture<long[]>> requestId2fetch = new HashMap<>();
+	private final Map<Integer, Verification> requestId2verification = new HashMap<>();
+
+	// The completed queries whose primes the shards have not fully confirmed yet
+	private final Set<Verification> verifications = new HashSet<>();
+
+	// A helper variable to assign unique IDs to each request to the listener shards
+	private int nextRequestId = 0;
+
+	// A flag indicating whether this actor is still accepting new queries
+	private boolean isAcceptingQueries = true;
+
+	// A flag indicating whether the master has stopped, so that the gateway stops after the last verification
+	private boolean isMasterStopped = false;
+
+	/**
+	 * Construct a new {@link QueryGateway} object.
+	 *
+	 * @param master the {@link Master} that processes the queries
+	 * @param listeners the {@link Listener} shards that collect the primes of the master's workers
+	 */
+	public QueryGateway(final ActorRef master, final ListenerShards listeners) {
+		this.master = master;
+		this.listeners = listeners;
+	}
+
+	@Override
+	public void preStart() throws Exception {
+		super.preStart();
+
+		// Register at this actor system's reaper
+		Reaper.watchWithDefaultReaper(this);
+
+		// Without the master and the shards, no query can be answered
+		this.getContext().watch(this.master);
+		for (ActorRef listener : this.listeners.getAll())
+			this.getContext().watch(listener);
+	}
+
+	@Override
+	public void postStop() throws Exception {
+		super.postStop();
+
+		// Do not leave anyone waiting
+		this.failAll(new IllegalStateException("The query gateway has stopped."));
+
+		// Log the stop event
+		this.log().info("Stopped {}.", this.getSelf());
+	}
+
+	@Override
+	public Receive createReceive() {
+		return receiveBuilder()
+				.match(SubmitMessage.class, this::handle)
+				.match(CancelMessage.class, this::handle)
+				.match(FetchMessage.class, this::handle)
+				.match(Master.QueryCompletedMessage.class, this::handle)
+				.match(Listener.CollectedPrimesMessage.class, this::handle)
+				.match(Listener.CollectedMaxMessage.class, this::handle)
+				.match(RetryMessage.class, this::handle)
+				.match(Status.Failure.class, this::handle)
+				.match(ShutdownMessage.class, this::handle)
+				.match(Terminated.class, this::handle)
+				.matchAny(object -> this.log().info(this.getClass().getName() + " received unknown message: " + object.toString()))
+				.build();
+	}
+
+	private void handle(SubmitMessage message) {
+
+		// Reject queries that the master would discard
+		if (!this.isAcceptingQueries) {
+			message.accepted.completeExceptionally(new IllegalStateException("The master does not accept any further queries."));
+			return;
+		}
+
+		// Pass the query to the master, which answers it with a QueryCompletedMessage
+		this.correlationId2submission.put(message.correlationId, message);
+		this.master.tell(new Master.RangeMessage(message.startNumber, message.endNumber, message.correlationId), this.getSelf());
+		message.accepted.complete(null);
+	}
+
+	private void handle(CancelMessage message) {
+
+		// Stop the master from working on the query, unless it has completed already
+		if (this.correlationId2submission.remove(message.correlationId) != null)
+			this.master.tell(new Master.CancelMessage(message.correlationId), this.getSelf());
+	}
+
+	private void handle(FetchMessage message) {
+		int requestId = this.nextRequestId++;
+		this.requestId2fetch.put(requestId, message.primes);
+		ActorRef shard = this.listeners.get(this.listeners.shardOf(message.startNumber));
+		shard.tell(new Listener.CollectRangeMessage(requestId, message.startNumber, message.endNumber, false), this.getSelf());
+	}
+
+	private void handle(Master.QueryCompletedMessage message) {
+		SubmitMessage submission = this.correlationId2submission.remove(message.getCorrelationId());
+		if (submission == null)
+			return;
+
+		// The query completes once the shards hold as many primes of the range as the master has counted
+		Verification verification = new Verification(submission, message);
+		this.verifications.add(verification);
+		this.verify(verification);
+	}
+
+	private void handle(Listener.CollectedPrimesMessage message) {
+		CompletableFuture<long[]> fetch = this.requestId2fetch.remove(message.getQueryId());
+		if (fetch != null)
+			fetch.complete(message.getPrimes());
+	}
+
+	private void handle(Listener.CollectedMaxMessage message) {
+		Verification verification = this.requestId2verification.get(message.getQueryId());
+		if (verification == null)
+			return;
+
+		verification.gatheredMax = Math.max(verification.gatheredMax, message.getMax());
+		verification.gatheredNumPrimes += message.getNumPrimes();
+		verification.gatheredChecksum += message.getChecksum();
+		if (--verification.pendingReplies > 0)
+			return;
+
+		this.requestId2verification.remove(message.getQueryId());
+		if (verification.isConsistent()) {
+			this.complete(verification);
+		} else if (++verification.numAttempts < MAX_VERIFICATION_ATTEMPTS) {
+			this.getContext().getSystem().scheduler().scheduleOnce(
+					Duration.create(VERIFICATION_RETRY_MILLIS, TimeUnit.MILLISECONDS),
+					this.getSelf(), new RetryMessage(verification), this.getContext().dispatcher(), this.getSelf());
+		} else {
+			this.log().warning(String.format("The shards hold %d primes with checksum %d in [%d, %d], but the master counted %d primes with checksum %d.",
+					verification.gatheredNumPrimes, verification.gatheredChecksum, verification.submission.startNumber,
+					verification.submission.endNumber, verification.completion.getNumPrimes(), verification.completion.getChecksum()));
+			this.complete(verification);
+		}
+	}
+
+	private void handle(RetryMessage message) {
+		if (this.verifications.contains(message.verification))
+			this.verify(message.verification);
+	}
+
+	private void handle(Status.Failure message) {
+		this.log().warning("The master rejected a query: {}", message.cause().getMessage());
+	}
+
+	private void handle(ShutdownMessage message) {
+
+		// Let the master finish the queries in flight and then stop, which stops this actor and the shards as well
+		this.isAcceptingQueries = false;
+		this.master.tell(message, this.getSelf());
+	}
+
+	private void handle(Terminated message) {
+		if (message.getActor().equals(this.master)) {
+			// The queries in flight cannot complete anymore, but the completed ones still wait for the shards' primes
+			IllegalStateException cause = new IllegalStateException("The master has stopped.");
+			this.correlationId2submission.values().forEach(submission -> fail(submission, cause));
+			this.correlationId2submission.clear();
+			this.isAcceptingQueries = false;
+			this.isMasterStopped = true;
+			this.stopIfDrained();
+		} else {
+			// The primes of a shard are lost
+			this.log().warning("Lost the listener shard {}.", message.getActor());
+			IllegalStateException cause = new IllegalStateException("Lost the listener shard " + message.getActor());
+			this.requestId2fetch.values().forEach(fetch -> fetch.completeExceptionally(cause));
+			this.requestId2fetch.clear();
+			this.verifications.forEach(verification -> fail(verification.submission, cause));
+			this.verifications.clear();
+			this.requestId2verification.clear();
+			this.stopIfDrained();
+		}
+	}
+
+	/**
+	 * Ask the shards that own a part of the query's range for the number, the checksum and the largest of their primes
+	 * in the range.
+	 */
+	private void verify(Verification verification) {
+		long startNumber = verification.submission.startNumber, endNumber = verification.submission.endNumber;
+
+		// Find the owning shards, unless the range is so large that probably every shard owns a part of it
+		BitSet shards = new BitSet(this.listeners.size());
+		if (startNumber > endNumber) {
+			this.complete(verification);
+			return;
+		}
+		long startBlock = Math.floorDiv(startNumber, ListenerShards.BLOCK_SIZE), endBlock = Math.floorDiv(endNumber, ListenerShards.BLOCK_SIZE);
+		if (endBlock - startBlock < MAX_GATHERING_BLOCKS) {
+			for (long block = startBlock; block <= endBlock; block++)
+				shards.set(this.listeners.shardOf(Math.max(startNumber, block * ListenerShards.BLOCK_SIZE)));
+		} else {
+			shards.set(0, this.listeners.size());
+		}
+
+		verification.pendingReplies = shards.cardinality();
+		verification.gatheredMax = verification.gatheredNumPrimes = verification.gatheredChecksum = 0;
+		int requestId = this.nextRequestId++;
+		this.requestId2verification.put(requestId, verification);
+		Listener.CollectRangeMessage request = new Listener.CollectRangeMessage(requestId, startNumber, endNumber, true);
+		shards.stream().forEach(shard -> this.listeners.get(shard).tell(request, this.getSelf()));
+	}
+
+	private void complete(Verification verification) {
+		this.verifications.remove(verification);
+		if (verification.submission.max != null)
+			verification.submission.max.complete(verification.gatheredMax);
+		verification.submission.completed.complete(verification.completion);
+		this.stopIfDrained();
+	}
+
+	/**
+	 * Stop the shards and this actor once the master has stopped and no completed query waits for the shards anymore.
+	 */
+	private void stopIfDrained() {
+		if (!this.isMasterStopped || !this.verifications.isEmpty())
+			return;
+
+		this.log().info("The master has stopped; stopping the gateway and the listener shards.");
+		this.listeners.tellAll(new ShutdownMessage(), this.getSelf());
+		this.getContext().stop(this.getSelf());
+	}
+
+	private void failAll(Throwable cause) {
+		this.correlationId2submission.values().forEach(submission -> fail(submission, cause));
+		this.correlationId2submission.clear();
+		this.requestId2fetch.values().forEach(fetch -> fetch.completeExceptionally(cause));
+		this.requestId2fetch.clear();
+		this.verifications.forEach(verification -> fail(verification.submission, cause));
+		this.verifications.clear();
+		this.requestId2verification.clear();
+	}
+
+	private static void fail(SubmitMessage submission, Throwable cause) {
+		submission.completed.completeExceptionally(cause);
+		if (submission.max != null)
+			submission.max.completeExceptionally(cause);
+	}
+}
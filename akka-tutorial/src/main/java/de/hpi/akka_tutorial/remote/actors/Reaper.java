@@ -10,6 +10,7 @@ import akka.actor.ActorRef;
 import akka.actor.ActorSelection;
 import akka.actor.Props;
 import akka.actor.Terminated;
+import de.hpi.akka_tutorial.util.AkkaUtils;
 
 /**
  * The reaper resides in any actor system and terminates it as soon as all watched actors have terminated.
@@ -24,7 +25,7 @@ public class Reaper extends AbstractLoggingActor {
 	 * @return the {@link Props}
 	 */
 	public static Props props() {
-		return Props.create(Reaper.class);
+		return Props.create(Reaper.class).withDispatcher(AkkaUtils.COORDINATION_DISPATCHER);
 	}
 
 	/**
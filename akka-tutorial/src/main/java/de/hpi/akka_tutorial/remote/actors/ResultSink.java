@@ -0,0 +1,223 @@
+package de.hpi.akka_tutorial.remote.actors;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import akka.actor.AbstractLoggingActor;
+import akka.actor.ActorRef;
+import akka.actor.PoisonPill;
+import akka.actor.Props;
+import akka.actor.Terminated;
+import akka.pattern.Patterns;
+import de.hpi.akka_tutorial.util.AkkaUtils;
+
+/**
+ * The result sink owns a set of {@link Listener} shards and answers queries on the primes that are stored in them.
+ * Every query is scattered to all shards and their partial answers are gathered before the result is logged. Because
+ * the shards are children of the result sink, they share the path prefix {@code /user/resultSink/}, which the Artery
+ * profile routes over its large-message stream.
+ */
+public class ResultSink extends AbstractLoggingActor {
+
+	public static final String DEFAULT_NAME = "resultSink";
+
+	/**
+	 * Create the {@link Props} necessary to instantiate new {@link ResultSink} actors.
+	 *
+	 * @param numListeners the number of {@link Listener} shards to create
+	 * @return the {@link Props}
+	 */
+	public static Props props(final int numListeners) {
+		return Props.create(ResultSink.class, () -> new ResultSink(numListeners)).withDispatcher(AkkaUtils.COORDINATION_DISPATCHER);
+	}
+
+	/**
+	 * Ask a {@link ResultSink} for its {@link Listener} shards and wait for the answer.
+	 *
+	 * @param resultSink the {@link ResultSink} actor
+	 * @return the routing table of the shards
+	 */
+	public static ListenerShards getListeners(final ActorRef resultSink) {
+		try {
+			return (ListenerShards) Patterns.ask(resultSink, new GetListenersMessage(), Duration.ofSeconds(10))
+					.toCompletableFuture()
+					.get();
+		} catch (InterruptedException | ExecutionException e) {
+			throw new IllegalStateException("Could not get the listener shards of " + resultSink, e);
+		}
+	}
+
+	/**
+	 * Asks the {@link ResultSink} to reply with the {@link ListenerShards} of its shards.
+	 */
+	public static class GetListenersMessage implements Serializable {
+
+		private static final long serialVersionUID = 8016271339712316305L;
+	}
+
+	/**
+	 * Asks the {@link ResultSink} to log all primes of all its shards.
+	 */
+	public static class LogPrimesMessage implements Serializable {
+
+		private static final long serialVersionUID = -1287064235458327469L;
+	}
+
+	/**
+	 * Asks the {@link ResultSink} to log the largest prime of all its shards.
+	 */
+	public static class LogMaxMessage implements Serializable {
+
+		private static final long serialVersionUID = 2506640580347466113L;
+	}
+
+	/**
+	 * This class collects the partial answers of the shards for one scatter/gather query.
+	 */
+	private static class Gathering {
+
+		// The number of shards that did not yet answer
+		private int pendingReplies;
+
+		// The sorted primes of all shards that answered so far (only for prime queries)
+		private final List<long[]> primes = new ArrayList<>();
+
+		// The largest prime of all shards that answered so far (only for max queries)
+		private long max = 0;
+
+		Gathering(final int pendingReplies) {
+			this.pendingReplies = pendingReplies;
+		}
+	}
+
+	// The shards that hold the primes
+	private final ListenerShards listeners;
+
+	// The shards that have not terminated yet
+	private final Set<ActorRef> liveListeners = new HashSet<>();
+
+	// The currently running scatter/gather queries by their ID
+	private final Map<Integer, Gathering> queryId2gathering = new HashMap<>();
+
+	// A helper variable to assign unique IDs to each scatter/gather query
+	private int nextQueryId = 0;
+
+	/**
+	 * Construct a new {@link ResultSink} object.
+	 *
+	 * @param numListeners the number of {@link Listener} shards to create
+	 */
+	public ResultSink(final int numListeners) {
+		this.listeners = ListenerShards.create(this.getContext(), numListeners);
+	}
+
+	@Override
+	public void preStart() throws Exception {
+		super.preStart();
+
+		// Register at this actor system's reaper
+		Reaper.watchWithDefaultReaper(this);
+
+		// Watch the shards, because this actor is useless once all of them have terminated
+		for (ActorRef listener : this.listeners.getAll()) {
+			this.liveListeners.add(listener);
+			this.getContext().watch(listener);
+		}
+	}
+
+	@Override
+	public void postStop() throws Exception {
+		super.postStop();
+
+		// Log the stop event
+		this.log().info("Stopped {}.", this.getSelf());
+	}
+
+	@Override
+	public Receive createReceive() {
+		return receiveBuilder()
+				.match(GetListenersMessage.class, this::handle)
+				.match(LogPrimesMessage.class, this::handle)
+				.match(LogMaxMessage.class, this::handle)
+				.match(Listener.CollectedPrimesMessage.class, this::handle)
+				.match(Listener.CollectedMaxMessage.class, this::handle)
+				.match(Terminated.class, this::handle)
+				.matchAny(object -> this.log().info(this.getClass().getName() + " received unknown message: " + object.toString()))
+				.build();
+	}
+
+	private void handle(GetListenersMessage message) {
+		this.getSender().tell(this.listeners, this.getSelf());
+	}
+
+	private void handle(LogPrimesMessage message) {
+		int queryId = this.startGathering();
+		this.listeners.tellAll(new Listener.CollectPrimesMessage(queryId), this.getSelf());
+	}
+
+	private void handle(LogMaxMessage message) {
+		int queryId = this.startGathering();
+		this.listeners.tellAll(new Listener.CollectMaxMessage(queryId), this.getSelf());
+	}
+
+	private void handle(Listener.CollectedPrimesMessage message) {
+		Gathering gathering = this.queryId2gathering.get(message.getQueryId());
+		if (gathering == null)
+			return;
+
+		gathering.primes.add(message.getPrimes());
+		if (--gathering.pendingReplies > 0)
+			return;
+
+		// The shards own disjoint sets of primes, so their sorted answers only need to be merged
+		this.queryId2gathering.remove(message.getQueryId());
+		String primeList = gathering.primes.stream()
+				.flatMapToLong(LongStream::of)
+				.sorted()
+				.mapToObj(String::valueOf)
+				.collect(Collectors.joining(";"));
+		this.log().info(String.format("Primes: %s", primeList));
+	}
+
+	private void handle(Listener.CollectedMaxMessage message) {
+		Gathering gathering = this.queryId2gathering.get(message.getQueryId());
+		if (gathering == null)
+			return;
+
+		gathering.max = Math.max(gathering.max, message.getMax());
+		if (--gathering.pendingReplies > 0)
+			return;
+
+		this.queryId2gathering.remove(message.getQueryId());
+		this.log().info(String.format("Max prime: %d", gathering.max));
+	}
+
+	private void handle(Terminated message) {
+
+		// Forget the terminated shard; any pending query can no longer be answered completely
+		this.liveListeners.remove(message.getActor());
+		if (!this.queryId2gathering.isEmpty()) {
+			this.log().warning("Discarding {} pending queries, because {} has terminated.", this.queryId2gathering.size(), message.getActor());
+			this.queryId2gathering.clear();
+		}
+
+		// Stop once all shards are gone
+		if (this.liveListeners.isEmpty())
+			this.getSelf().tell(PoisonPill.getInstance(), this.getSelf());
+	}
+
+	private int startGathering() {
+		int queryId = this.nextQueryId++;
+		this.queryId2gathering.put(queryId, new Gathering(this.listeners.size()));
+		return queryId;
+	}
+}
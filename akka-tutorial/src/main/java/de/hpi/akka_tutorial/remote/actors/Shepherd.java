@@ -11,6 +11,7 @@ import akka.actor.PoisonPill;
 import akka.actor.Props;
 import akka.actor.Terminated;
 import de.hpi.akka_tutorial.remote.messages.ShutdownMessage;
+import de.hpi.akka_tutorial.util.AkkaUtils;
 
 /**
  * The shepherd lives in the master actor system and waits for slave subscriptions.
@@ -25,7 +26,7 @@ public class Shepherd extends AbstractLoggingActor {
 	 * @return the {@link Props}
 	 */
 	public static Props props(final ActorRef master) {
-		return Props.create(Shepherd.class, () -> new Shepherd(master));
+		return Props.create(Shepherd.class, () -> new Shepherd(master)).withDispatcher(AkkaUtils.COORDINATION_DISPATCHER);
 	}
 	
 	/**
@@ -57,6 +58,9 @@ public class Shepherd extends AbstractLoggingActor {
 		
 		// Register at this actor system's reaper
 		Reaper.watchWithDefaultReaper(this);
+
+		// Watch the master, because slaves are useless once it has stopped
+		this.getContext().watch(this.master);
 	}
 	
 	@Override
@@ -118,6 +122,12 @@ public class Shepherd extends AbstractLoggingActor {
 		
 		// Find the sender of this message
 		final ActorRef sender = this.getSender();
+
+		// Once the master has stopped, e.g., after a workload has completed, shut down just like on request
+		if (sender.equals(this.master)) {
+			this.handle(new ShutdownMessage());
+			return;
+		}
 		
 		// Remove the sender from the slaves list
 		this.slaves.remove(sender);
@@ -10,8 +10,10 @@ import akka.actor.Cancellable;
 import akka.actor.PoisonPill;
 import akka.actor.Props;
 import akka.actor.Scheduler;
+import akka.actor.Terminated;
 import akka.remote.DisassociatedEvent;
 import de.hpi.akka_tutorial.remote.messages.ShutdownMessage;
+import de.hpi.akka_tutorial.util.AkkaUtils;
 import scala.concurrent.ExecutionContextExecutor;
 import scala.concurrent.duration.Duration;
 
@@ -28,7 +30,7 @@ public class Slave extends AbstractLoggingActor {
 	 * @return the {@link Props}
 	 */
 	public static Props props() {
-		return Props.create(Slave.class);
+		return Props.create(Slave.class).withDispatcher(AkkaUtils.COORDINATION_DISPATCHER);
 	}
 
 	/**
@@ -50,6 +52,10 @@ public class Slave extends AbstractLoggingActor {
 		@SuppressWarnings("unused")
 		private AddressMessage() {
 		}
+
+		public Address getAddress() {
+			return this.address;
+		}
 	}
 
 	/**
@@ -90,6 +96,7 @@ public class Slave extends AbstractLoggingActor {
 				.match(AcknowledgementMessage.class, this::handle)
 				.match(ShutdownMessage.class, this::handle)
 				.match(DisassociatedEvent.class, this::handle)
+				.match(Terminated.class, this::handle)
 				.matchAny(object -> this.log().info("Received unknown message: \"{}\" ({})", object, object.getClass()))
 				.build();
 	}
@@ -133,10 +140,20 @@ public class Slave extends AbstractLoggingActor {
 			this.connectSchedule = null;
 		}
 
+		// Watch the shepherd, because Artery does not publish DisassociatedEvents
+		this.getContext().watch(this.getSender());
+
 		// Log the connection success
 		this.log().info("Subscription successfully acknowledged by {}.", this.getSender());
 	}
 
+	private void handle(Terminated message) {
+		
+		// The shepherd has stopped, which means that the master will not send any further work
+		this.log().error("Lost the shepherd {}. Stopping...", message.getActor());
+		this.getContext().stop(this.getSelf());
+	}
+
 	private void handle(DisassociatedEvent event) {
 		
 		// Disassociations are a problem only once we have a running connection, i.e., no connection schedule is active; they do not concern this actor otherwise.
@@ -1,26 +1,40 @@
 package de.hpi.akka_tutorial.remote.actors;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.typesafe.config.Config;
+
 import akka.actor.AbstractLoggingActor;
 import akka.actor.Props;
+import de.hpi.akka_tutorial.util.AkkaUtils;
 
 /**
- * The worker waits tests ranges of numbers for prime numbers.
+ * The worker tests ranges of numbers for prime numbers. If its actor system has a {@link PrimeIndex}, the worker
+ * looks up the primes in the indexed part of a range instead of testing every number.
  */
 public class Worker extends AbstractLoggingActor {
 
 	private static final int MAX_PRIMES_PER_MESSAGE = 1000;
 
+	/**
+	 * The configuration key of the {@link PrimeIndex} file that the workers of an actor system use (see {@code base.conf}).
+	 */
+	public static final String PRIME_INDEX_FILE_SETTING = "akka-tutorial.prime-index";
+
 	/**
 	 * Create the {@link Props} necessary to instantiate new {@link Worker} actors.
 	 *
+	 * @param listeners the {@link Listener} shards that receive the discovered primes
 	 * @return the {@link Props}
 	 */
-	public static Props props() {
-		return Props.create(Worker.class);
+	public static Props props(final ListenerShards listeners) {
+		// Pass the listeners as plain constructor argument (not as lambda) so that the props can be deployed remotely
+		return Props.create(Worker.class, listeners).withDispatcher(AkkaUtils.COMPUTE_DISPATCHER);
 	}
 
 	/**
@@ -53,14 +67,59 @@ public class Worker extends AbstractLoggingActor {
 		@SuppressWarnings("unused")
 		private ValidationMessage() {
 		}
+
+		public int getId() {
+			return this.id;
+		}
+
+		public long getRangeMin() {
+			return this.rangeMin;
+		}
+
+		public long getRangeMax() {
+			return this.rangeMax;
+		}
 	}
 	
+	// The listener shards that collect all calculated prime numbers
+	private final ListenerShards listeners;
+
+	// The index of precomputed primes of this actor system or null if there is none
+	private PrimeIndex primeIndex;
+
+	// The primes of the current validation message that have not yet been sent, one buffer per listener shard
+	private List<List<Long>> primeBuffers;
+
+	// The number of primes and their checksum in the current validation message
+	private long numPrimes, checksum;
+
+	/**
+	 * Construct a new {@link Worker} object.
+	 * 
+	 * @param listeners the {@link Listener} shards to send the discovered primes to
+	 */
+	public Worker(final ListenerShards listeners) {
+		this.listeners = listeners;
+	}
+
 	@Override
 	public void preStart() throws Exception {
 		super.preStart();
 		
 		// Register at this actor system's reaper
 		Reaper.watchWithDefaultReaper(this);
+
+		// Map the prime index of this actor system, if any, and tell the master which numbers it covers
+		Config config = this.getContext().getSystem().settings().config();
+		if (config.hasPath(PRIME_INDEX_FILE_SETTING) && !config.getString(PRIME_INDEX_FILE_SETTING).isEmpty()) {
+			Path file = Paths.get(config.getString(PRIME_INDEX_FILE_SETTING));
+			try {
+				this.primeIndex = PrimeIndex.open(file);
+				this.getContext().getParent().tell(new Master.PrimeIndexMessage(this.primeIndex.getLimit()), this.getSelf());
+			} catch (IOException e) {
+				this.log().warning("Could not open the prime index {}, so all primes are computed: {}", file, e.getMessage());
+			}
+		}
 	}
 
 	@Override
@@ -84,31 +143,32 @@ public class Worker extends AbstractLoggingActor {
 		// Log that we started processing the current task
 		this.log().info("Started discovering primes in [{},{}] ...", message.rangeMin, message.rangeMax);
 
-		// Iterate over the range of numbers and compute the primes
-		List<Long> primeBuffer = new ArrayList<>(MAX_PRIMES_PER_MESSAGE);
-		for (long i = message.rangeMin; i <= message.rangeMax; i++) {
-			if (isPrime(i)) {
-				
-				// Check the buffer size: We must not send too large messages, hence, also reply with intermediate results as necessary
-				if (primeBuffer.size() >= MAX_PRIMES_PER_MESSAGE) {
-					
-					// Create a copy of the elements in the buffer before sending them; never send mutable objects in a message!!!
-					ArrayList<Long> primeBufferCopy = new ArrayList<>(primeBuffer);
-					
-					// Send the intermediate results to the master actor
-					this.getSender().tell(new Master.PrimesMessage(message.id, primeBufferCopy, false), this.getSelf());
-					
-					// Clear the buffer
-					primeBuffer.clear();
-				}
-				
-				// Add the computed prime to the buffer
-				primeBuffer.add(i);
-			}
+		// Every listener shard gets its own buffer
+		this.primeBuffers = new ArrayList<>(this.listeners.size());
+		for (int shard = 0; shard < this.listeners.size(); shard++)
+			this.primeBuffers.add(new ArrayList<>(MAX_PRIMES_PER_MESSAGE));
+		this.numPrimes = 0;
+		this.checksum = 0;
+
+		// Look up the primes in the part of the range that the index covers and compute the primes in the rest
+		long rangeMin = message.rangeMin;
+		if (this.primeIndex != null && rangeMin <= this.primeIndex.getLimit()) {
+			long indexedRangeMax = Math.min(message.rangeMax, this.primeIndex.getLimit());
+			this.primeIndex.forEachPrime(rangeMin, indexedRangeMax, this::add);
+			rangeMin = indexedRangeMax + 1;
 		}
+		for (long i = rangeMin; i <= message.rangeMax; i++)
+			if (isPrime(i))
+				this.add(i);
+
+		// Send the remaining primes to the listener shards
+		for (int shard = 0; shard < this.listeners.size(); shard++)
+			if (!this.primeBuffers.get(shard).isEmpty())
+				this.listeners.get(shard).tell(new Listener.PrimesMessage(this.primeBuffers.get(shard)), this.getSelf());
+		this.primeBuffers = null;
 
-		// Send the primes to the master actor
-		this.getSender().tell(new Master.PrimesMessage(message.id, primeBuffer, true), this.getSelf());
+		// Notify the master about the completion with only a small summary of the results
+		this.getSender().tell(new Master.CompletionMessage(message.id, this.numPrimes, this.checksum), this.getSelf());
 
 		// Asynchronous version: Consider using a dedicated executor service.
 //		ActorRef sender = this.getSender();
@@ -123,12 +183,37 @@ public class Worker extends AbstractLoggingActor {
 //		});
 	}
 
+	private void add(long prime) {
+		
+		// Find the buffer of the listener shard that owns this prime
+		int shard = this.listeners.shardOf(prime);
+		List<Long> primeBuffer = this.primeBuffers.get(shard);
+		
+		// Check the buffer size: We must not send too large messages, hence, also send intermediate results as necessary
+		if (primeBuffer.size() >= MAX_PRIMES_PER_MESSAGE) {
+			
+			// Create a copy of the elements in the buffer before sending them; never send mutable objects in a message!!!
+			ArrayList<Long> primeBufferCopy = new ArrayList<>(primeBuffer);
+			
+			// Send the intermediate results directly to the listener shard; the master does not need them
+			this.listeners.get(shard).tell(new Listener.PrimesMessage(primeBufferCopy), this.getSelf());
+			
+			// Clear the buffer
+			primeBuffer.clear();
+		}
+		
+		// Add the computed prime to the buffer
+		primeBuffer.add(prime);
+		this.numPrimes++;
+		this.checksum += prime;
+	}
+
 	private static boolean isPrime(long n) {
-		if (n == 1)
-			return false;
+		if (n == 1)
+			return false;
 		
 		// Check for the most basic primes
-		if (n == 2 || n == 3)
+		if (n == 2 || n == 3)
 			return true;
 
 		// Check if n is an even number
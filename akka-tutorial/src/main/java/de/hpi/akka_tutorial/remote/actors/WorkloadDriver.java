@@ -0,0 +1,379 @@
+package de.hpi.akka_tutorial.remote.actors;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import akka.actor.AbstractLoggingActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.actor.Status;
+import akka.actor.Terminated;
+import de.hpi.akka_tutorial.remote.messages.ShutdownMessage;
+import de.hpi.akka_tutorial.util.AkkaUtils;
+import scala.concurrent.duration.Duration;
+
+/**
+ * The workload driver replays a list of range queries against the {@link Master} without user interaction. It offers
+ * the queries either in an open loop, i.e., at the submission times of the workload or at a fixed rate regardless of
+ * their completion, or in a closed loop, i.e., with a fixed number of queries in flight. The latency of every query is
+ * appended to a CSV results file. Once all queries have completed, the driver asks the master to shut down.
+ * <p>
+ * In the open loop, the latency of a query is measured from its intended submission time, so that a master that
+ * cannot keep up with the offered load shows up as growing latencies rather than as a lower submission rate.
+ */
+public class WorkloadDriver extends AbstractLoggingActor {
+
+	public static final String DEFAULT_NAME = "workloadDriver";
+
+	/**
+	 * Create the {@link Props} necessary to instantiate new {@link WorkloadDriver} actors.
+	 *
+	 * @param master the {@link Master} to send the queries to
+	 * @param settings defines the workload and how to offer it
+	 * @return the {@link Props}
+	 */
+	public static Props props(final ActorRef master, final Settings settings) {
+		return Props.create(WorkloadDriver.class, () -> new WorkloadDriver(master, settings)).withDispatcher(AkkaUtils.COORDINATION_DISPATCHER);
+	}
+
+	/**
+	 * A range query of a workload.
+	 */
+	public static class Query {
+
+		// The submission time of the query relative to the start of the workload or -1 if the workload has no timestamps
+		private final long offsetMillis;
+
+		private final long startNumber, endNumber;
+
+		public Query(final long offsetMillis, final long startNumber, final long endNumber) {
+			this.offsetMillis = offsetMillis;
+			this.startNumber = startNumber;
+			this.endNumber = endNumber;
+		}
+	}
+
+	/**
+	 * Defines a workload and how the {@link WorkloadDriver} offers it to the {@link Master}.
+	 */
+	public static class Settings {
+
+		private final List<Query> queries;
+
+		// The number of queries per second in the open loop or 0 to use the submission times of the queries
+		private final double rate;
+
+		// The number of queries in flight in the closed loop or 0 for the open loop
+		private final int concurrency;
+
+		private final Path resultsFile;
+
+		private final long startDelayMillis;
+
+		/**
+		 * Construct a new {@link Settings} object.
+		 *
+		 * @param queries the queries of the workload
+		 * @param rate the number of queries per second to offer in the open loop or 0 to use the submission times of the queries
+		 * @param concurrency the number of queries to keep in flight in the closed loop or 0 for the open loop
+		 * @param resultsFile the CSV file to write the per-query latencies to
+		 * @param startDelayMillis the time to wait before the first query is sent, e.g., to let slaves connect
+		 */
+		public Settings(final List<Query> queries, final double rate, final int concurrency, final Path resultsFile, final long startDelayMillis) {
+			if (rate > 0 && concurrency > 0)
+				throw new IllegalArgumentException("A workload is offered either at a rate or with a concurrency, not both.");
+			if (rate <= 0 && concurrency <= 0 && queries.stream().anyMatch(query -> query.offsetMillis < 0))
+				throw new IllegalArgumentException("The workload has no submission times, so it needs a rate or a concurrency.");
+			List<Query> sortedQueries = new ArrayList<>(queries);
+			if (rate <= 0 && concurrency <= 0)
+				sortedQueries.sort(Comparator.comparingLong(query -> query.offsetMillis));
+			this.queries = Collections.unmodifiableList(sortedQueries);
+			this.rate = rate;
+			this.concurrency = concurrency;
+			this.resultsFile = resultsFile;
+			this.startDelayMillis = startDelayMillis;
+		}
+	}
+
+	/**
+	 * Read a workload file. Every line describes one query either as {@code <min>,<max>} or, with a submission time
+	 * in milliseconds relative to the start of the workload, as {@code <offsetMillis>,<min>,<max>}. Empty lines and
+	 * lines starting with {@code #} are ignored.
+	 *
+	 * @param file the workload file
+	 * @return the queries in the order of the file
+	 * @throws IOException if the file could not be read or is malformed
+	 */
+	public static List<Query> readWorkload(final Path file) throws IOException {
+		List<Query> queries = new ArrayList<>();
+		int lineNumber = 0;
+		for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+			lineNumber++;
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+
+			String[] lineSplit = line.split(",");
+			try {
+				if (lineSplit.length == 2)
+					queries.add(new Query(-1, Long.parseLong(lineSplit[0].trim()), Long.parseLong(lineSplit[1].trim())));
+				else if (lineSplit.length == 3)
+					queries.add(new Query(Long.parseLong(lineSplit[0].trim()), Long.parseLong(lineSplit[1].trim()), Long.parseLong(lineSplit[2].trim())));
+				else
+					throw new IOException(String.format("Invalid query format in %s:%d: %s", file, lineNumber, line));
+			} catch (NumberFormatException e) {
+				throw new IOException(String.format("Invalid number format in %s:%d: %s", file, lineNumber, line), e);
+			}
+		}
+		return queries;
+	}
+
+	/**
+	 * Asks the {@link WorkloadDriver} to send the first queries.
+	 */
+	private static class StartMessage implements Serializable {
+
+		private static final long serialVersionUID = 4102547264432932911L;
+	}
+
+	/**
+	 * Asks the {@link WorkloadDriver} to send all open-loop queries whose submission time has come.
+	 */
+	private static class SubmitDueQueriesMessage implements Serializable {
+
+		private static final long serialVersionUID = -3367385426553930290L;
+	}
+
+	// The master that processes the queries
+	private final ActorRef master;
+
+	private final Settings settings;
+
+	// The intended and the actual submission times of the queries relative to the start of the workload
+	private final long[] intendedNanos, sentNanos;
+
+	// The results file
+	private BufferedWriter results;
+
+	// The System.nanoTime() at which the workload started
+	private long startNanos;
+
+	// The index of the next query to send
+	private int nextQuery = 0;
+
+	// The number of queries that are in flight
+	private int numOutstanding = 0;
+
+	// The latencies of all completed queries
+	private final List<Long> latencies = new ArrayList<>();
+
+	/**
+	 * Construct a new {@link WorkloadDriver} object.
+	 *
+	 * @param master the {@link Master} to send the queries to
+	 * @param settings defines the workload and how to offer it
+	 */
+	public WorkloadDriver(final ActorRef master, final Settings settings) {
+		this.master = master;
+		this.settings = settings;
+
+		// Determine the intended submission time of every query
+		this.intendedNanos = new long[settings.queries.size()];
+		this.sentNanos = new long[settings.queries.size()];
+		for (int i = 0; i < this.intendedNanos.length; i++) {
+			if (settings.rate > 0)
+				this.intendedNanos[i] = (long) (i * 1e9 / settings.rate);
+			else if (settings.concurrency <= 0)
+				this.intendedNanos[i] = TimeUnit.MILLISECONDS.toNanos(settings.queries.get(i).offsetMillis);
+		}
+	}
+
+	@Override
+	public void preStart() throws Exception {
+		super.preStart();
+
+		// Register at this actor system's reaper
+		Reaper.watchWithDefaultReaper(this);
+
+		// Without the master, the workload cannot complete
+		this.getContext().watch(this.master);
+
+		this.results = Files.newBufferedWriter(this.settings.resultsFile, StandardCharsets.UTF_8);
+		this.results.write("correlation_id,start_number,end_number,intended_ms,sent_ms,completed_ms,latency_ms,service_ms,num_primes,checksum");
+		this.results.newLine();
+
+		this.getContext().getSystem().scheduler().scheduleOnce(
+				Duration.create(this.settings.startDelayMillis, TimeUnit.MILLISECONDS),
+				this.getSelf(),
+				new StartMessage(),
+				this.getContext().dispatcher(),
+				this.getSelf());
+	}
+
+	@Override
+	public void postStop() throws Exception {
+		super.postStop();
+
+		if (this.results != null)
+			this.results.close();
+
+		// Log the stop event
+		this.log().info("Stopped {}.", this.getSelf());
+	}
+
+	@Override
+	public Receive createReceive() {
+		return receiveBuilder()
+				.match(StartMessage.class, this::handle)
+				.match(SubmitDueQueriesMessage.class, this::handle)
+				.match(Master.QueryCompletedMessage.class, this::handle)
+				.match(Status.Failure.class, this::handle)
+				.match(Terminated.class, this::handle)
+				.matchAny(object -> this.log().info(this.getClass().getName() + " received unknown message: " + object.toString()))
+				.build();
+	}
+
+	private void handle(StartMessage message) {
+		this.log().info("Starting a workload of {} queries.", this.settings.queries.size());
+		this.startNanos = System.nanoTime();
+
+		if (this.settings.concurrency > 0) {
+			// Closed loop: fill the window of queries in flight; every completion sends the next query
+			while (this.nextQuery < this.settings.queries.size() && this.numOutstanding < this.settings.concurrency)
+				this.send(this.elapsedNanos());
+		} else {
+			// Open loop: send the queries at their intended submission times
+			this.handle(new SubmitDueQueriesMessage());
+		}
+
+		this.finishIfDone();
+	}
+
+	private void handle(SubmitDueQueriesMessage message) {
+
+		// Send all queries whose time has come
+		long now = this.elapsedNanos();
+		while (this.nextQuery < this.settings.queries.size() && this.intendedNanos[this.nextQuery] <= now)
+			this.send(now);
+
+		// Wake up again for the next query
+		if (this.nextQuery < this.settings.queries.size()) {
+			this.getContext().getSystem().scheduler().scheduleOnce(
+					Duration.create(this.intendedNanos[this.nextQuery] - now, TimeUnit.NANOSECONDS),
+					this.getSelf(),
+					message,
+					this.getContext().dispatcher(),
+					this.getSelf());
+		}
+	}
+
+	private void handle(Master.QueryCompletedMessage message) {
+		long completedNanos = this.elapsedNanos();
+		int queryIndex = message.getCorrelationId();
+		Query query = this.settings.queries.get(queryIndex);
+		this.numOutstanding--;
+
+		// In the closed loop, the intended submission time is the actual one
+		long intendedNanos = this.settings.concurrency > 0 ? this.sentNanos[queryIndex] : this.intendedNanos[queryIndex];
+		long latency = completedNanos - intendedNanos;
+		this.latencies.add(latency);
+		try {
+			this.results.write(String.format("%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%d,%d",
+					queryIndex, query.startNumber, query.endNumber,
+					intendedNanos / 1e6, this.sentNanos[queryIndex] / 1e6, completedNanos / 1e6,
+					latency / 1e6, (completedNanos - this.sentNanos[queryIndex]) / 1e6,
+					message.getNumPrimes(), message.getChecksum()));
+			this.results.newLine();
+		} catch (IOException e) {
+			this.log().error(e, "Could not write the results file {}; aborting the workload.", this.settings.resultsFile);
+			this.abort(true);
+			return;
+		}
+
+		// Keep the window of the closed loop filled
+		if (this.settings.concurrency > 0 && this.nextQuery < this.settings.queries.size())
+			this.send(completedNanos);
+
+		this.finishIfDone();
+	}
+
+	private void handle(Status.Failure message) {
+
+		// The master rejects queries only once it is shutting down, so the remaining queries will not be processed either
+		this.log().error(message.cause(), "The master rejected a query; aborting the workload.");
+		this.abort(true);
+	}
+
+	private void handle(Terminated message) {
+		this.log().error("The master {} has terminated; aborting the workload.", message.getActor());
+		this.abort(false);
+	}
+
+	private void send(long now) {
+		Query query = this.settings.queries.get(this.nextQuery);
+		this.sentNanos[this.nextQuery] = now;
+		this.master.tell(new Master.RangeMessage(query.startNumber, query.endNumber, this.nextQuery), this.getSelf());
+		this.nextQuery++;
+		this.numOutstanding++;
+	}
+
+	private void finishIfDone() {
+		if (this.nextQuery < this.settings.queries.size() || this.numOutstanding > 0)
+			return;
+
+		this.logSummary();
+
+		// Shut down the master gracefully, just like the interactive exit command does
+		this.master.tell(new ShutdownMessage(), this.getSelf());
+		this.getContext().stop(this.getSelf());
+	}
+
+	/**
+	 * Stop the workload early.
+	 *
+	 * @param isMasterRunning whether the master is still running and must be shut down like after a complete workload
+	 */
+	private void abort(final boolean isMasterRunning) {
+		this.log().warning("{} queries were not sent and {} queries did not complete.",
+				this.settings.queries.size() - this.nextQuery, this.numOutstanding);
+		this.logSummary();
+
+		// Without the driver, no one would ever shut the master down
+		if (isMasterRunning)
+			this.master.tell(new ShutdownMessage(), this.getSelf());
+		this.getContext().stop(this.getSelf());
+	}
+
+	private void logSummary() {
+		if (this.latencies.isEmpty()) {
+			this.log().info("No query completed.");
+			return;
+		}
+
+		long[] sorted = this.latencies.stream().mapToLong(Long::longValue).toArray();
+		Arrays.sort(sorted);
+		double durationSeconds = this.elapsedNanos() / 1e9;
+		this.log().info(String.format("Completed %d queries in %.3f s (%.2f queries/s); latency p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms. Results: %s",
+				sorted.length, durationSeconds, sorted.length / durationSeconds,
+				percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.90) / 1e6, percentile(sorted, 0.99) / 1e6,
+				sorted[sorted.length - 1] / 1e6, this.settings.resultsFile));
+	}
+
+	private long elapsedNanos() {
+		return System.nanoTime() - this.startNanos;
+	}
+
+	private static long percentile(long[] sorted, double fraction) {
+		return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+	}
+}
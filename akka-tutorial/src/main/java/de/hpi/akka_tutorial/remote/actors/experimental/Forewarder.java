@@ -1,69 +1,36 @@
 package de.hpi.akka_tutorial.remote.actors.experimental;
 
-import akka.actor.AbstractLoggingActor;
+import akka.actor.AbstractActor;
 import akka.actor.ActorRef;
-import akka.actor.ActorSystem;
 import akka.actor.Props;
 
-public class Forewarder extends AbstractLoggingActor {
+/**
+ * A forewarder passes every message on to its successor, keeping the original sender. Chains of forewarders are used
+ * by the {@link de.hpi.akka_tutorial.benchmark.MessagingBenchmark} to measure the communication costs of actor hops.
+ */
+public class Forewarder extends AbstractActor {
 
-	private ActorRef child = null;
-	private int n;
-	
-	public Forewarder() {
-		this.node = receiveBuilder()
-				.match(ActorRef.class, ref -> this.child = ref)
-				.match(String.class, s -> {
-					this.n = Integer.valueOf(s);
-					this.getContext().become(this.end);
-				})
-				.match(Long.class, l -> this.child.tell(l + 1, this.self()))
-				.matchAny(object -> this.log().info(this.getClass().getName() + " received unknown message: " + object.toString()))
-				.build();
-		
-		this.end = receiveBuilder()
-				.match(Long.class, l -> this.log().info(String.valueOf(System.currentTimeMillis() - l - this.n)))
-				.matchAny(object -> this.log().info(this.getClass().getName() + " received unknown message: " + object.toString()))
-				.build();
+	/**
+	 * Create the {@link Props} necessary to instantiate new {@link Forewarder} actors.
+	 *
+	 * @param next the actor to pass all messages on to
+	 * @return the {@link Props}
+	 */
+	public static Props props(final ActorRef next) {
+		return Props.create(Forewarder.class, next);
+	}
+
+	// The successor in the chain
+	private final ActorRef next;
+
+	public Forewarder(final ActorRef next) {
+		this.next = next;
 	}
-	
-	private Receive node;
-	
-	private Receive end;
-	
+
 	@Override
 	public Receive createReceive() {
-		return node;
+		return receiveBuilder()
+				.matchAny(message -> this.next.forward(message, this.getContext()))
+				.build();
 	}
-
-	/* Testing code that uses the Forewarder to measure the communication costs of Akka actors. */
-	public static void test(ActorSystem actorSystem) {
-		int hops = 100000;
-		
-		// Setup chain of actors
-		ActorRef first = actorSystem.actorOf(Props.create(Forewarder.class));
-		ActorRef a = first;
-		for (int i = 1; i < hops; i++) {
-			ActorRef b = actorSystem.actorOf(Props.create(Forewarder.class));
-			a.tell(b, ActorRef.noSender());
-			a = b;
-		}
-		a.tell(String.valueOf(hops), ActorRef.noSender());
-		
-		// Wait for setup to be done
-		try {
-			Thread.sleep(5000);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
-		
-		// Send message through
-		first.tell(System.currentTimeMillis(), ActorRef.noSender());
-		
-		// Measure the simple loop time for comparison
-		Long t = System.currentTimeMillis();
-		for (int i = 0; i < hops; i ++)
-			t = t + 1;
-		System.out.println(System.currentTimeMillis() - t - hops);
-	}	
 }
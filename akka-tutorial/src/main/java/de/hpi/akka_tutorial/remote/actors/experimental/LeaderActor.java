@@ -1,21 +1,90 @@
 package de.hpi.akka_tutorial.remote.actors.experimental;
 
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import akka.actor.AbstractLoggingActor;
 import akka.actor.ActorRef;
+import akka.actor.Cancellable;
 import akka.actor.Props;
+import de.hpi.akka_tutorial.util.AkkaUtils;
+import scala.concurrent.duration.Duration;
 
+/**
+ * A leader holds a replica of a key-value store to which every leader accepts writes. Conflicting writes are resolved
+ * via Lamport timestamps, i.e., the write with the larger counter (and then the larger leader identifier) wins.
+ * <p>
+ * Leaders do not propagate every single write. Instead, they log which keys they changed and send the changes to the
+ * other leaders in batches, either once {@link Settings#flushSize} changes have piled up or after
+ * {@link Settings#flushIntervalMillis}. The other leaders acknowledge every batch, and a periodic anti-entropy round
+ * re-sends all changes that have not been acknowledged since the last sync. The leaders must know each other
+ * directly (see {@link LeadersMessage}), because they only exchange the changes that they made themselves.
+ * <p>
+ * If a {@link Settings#persistenceDirectory} is given, the leader also logs all changes to a {@link ReplicaStore} and
+ * recovers its replica from there when it is (re-)started. The log is handed to the operating system whenever the
+ * leader sends its changes to the other leaders, so a crash of the process loses at most the writes of one batch.
+ */
 public class LeaderActor extends AbstractLoggingActor {
 
+	public static final int DEFAULT_FLUSH_SIZE = 256;
+
+	public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 10;
+
+	public static final long DEFAULT_ANTI_ENTROPY_INTERVAL_MILLIS = 1000;
+
+	public static final long DEFAULT_SNAPSHOT_INTERVAL = 1_000_000;
+
 	public static Props props(int identifier) {
-		return Props.create(LeaderActor.class, () -> new LeaderActor(identifier));
+		return props(identifier, new Settings(DEFAULT_FLUSH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_ANTI_ENTROPY_INTERVAL_MILLIS));
 	}
-	
+
+	public static Props props(int identifier, Settings settings) {
+		return Props.create(LeaderActor.class, () -> new LeaderActor(identifier, settings)).withDispatcher(AkkaUtils.COMPUTE_DISPATCHER);
+	}
+
+	/**
+	 * Configures how the leader propagates its writes.
+	 */
+	public static class Settings implements Serializable {
+		private static final long serialVersionUID = -2309186011426713480L;
+		// The number of changes after which the leader sends them to the other leaders without further delay
+		public final int flushSize;
+		// The maximum time that a change waits for further changes before it is sent to the other leaders
+		public final long flushIntervalMillis;
+		// The time between two anti-entropy rounds
+		public final long antiEntropyIntervalMillis;
+		// The directory of the leader's ReplicaStore or null to keep the replica in memory only
+		public final String persistenceDirectory;
+		// The number of logged changes after which the leader writes a new snapshot
+		public final long snapshotInterval;
+		public Settings(int flushSize, long flushIntervalMillis, long antiEntropyIntervalMillis) {
+			this(flushSize, flushIntervalMillis, antiEntropyIntervalMillis, null, DEFAULT_SNAPSHOT_INTERVAL);
+		}
+		public Settings(int flushSize, long flushIntervalMillis, long antiEntropyIntervalMillis, String persistenceDirectory, long snapshotInterval) {
+			if (flushSize < 1)
+				throw new IllegalArgumentException("The flush size must be positive.");
+			if (flushIntervalMillis < 0 || antiEntropyIntervalMillis <= 0)
+				throw new IllegalArgumentException("The flush interval must not be negative and the anti-entropy interval must be positive.");
+			if (snapshotInterval < 1)
+				throw new IllegalArgumentException("The snapshot interval must be positive.");
+			this.flushSize = flushSize;
+			this.flushIntervalMillis = flushIntervalMillis;
+			this.antiEntropyIntervalMillis = antiEntropyIntervalMillis;
+			this.persistenceDirectory = persistenceDirectory;
+			this.snapshotInterval = snapshotInterval;
+		}
+	}
+
 	public static class LamportTimestampedValue implements Serializable {
 		private static final long serialVersionUID = 1L;
 		public String value;
@@ -26,8 +95,23 @@ public class LeaderActor extends AbstractLoggingActor {
 			this.identifier = identifier;
 			this.value = value;
 		}
+		/**
+		 * @return whether this value was written after the other value
+		 */
+		public boolean isNewerThan(LamportTimestampedValue other) {
+			return this.counter > other.counter || (this.counter == other.counter && this.identifier > other.identifier);
+		}
 	}
-	
+
+	public static class LeadersMessage implements Serializable {
+		private static final long serialVersionUID = 1L;
+		// All leaders; the receiving leader ignores itself
+		public List<ActorRef> leaders;
+		public LeadersMessage(List<ActorRef> leaders) {
+			this.leaders = leaders;
+		}
+	}
+
 	public static class ReadMessage implements Serializable {
 		private static final long serialVersionUID = 1L;
 		public int key;
@@ -35,9 +119,10 @@ public class LeaderActor extends AbstractLoggingActor {
 			this.key = key;
 		}
 	}
-	
+
 	public static class ReadResponseMessage implements Serializable {
 		private static final long serialVersionUID = 1L;
+		// The value or null if the key is unknown
 		public String value;
 		public ReadResponseMessage(String value) {
 			this.value = value;
@@ -48,6 +133,7 @@ public class LeaderActor extends AbstractLoggingActor {
 		private static final long serialVersionUID = 1L;
 		public int key;
 		public String value;
+		// The largest counter that the client has seen, so that its write is ordered after everything it has seen
 		public int counter;
 		public WriteMessage(int key, String value, int counter) {
 			this.key = key;
@@ -55,7 +141,7 @@ public class LeaderActor extends AbstractLoggingActor {
 			this.counter = counter;
 		}
 	}
-	
+
 	public static class WriteResponseMessage implements Serializable {
 		private static final long serialVersionUID = 1L;
 		public int counter;
@@ -63,69 +149,376 @@ public class LeaderActor extends AbstractLoggingActor {
 			this.counter = counter;
 		}
 	}
-	
-	public static class PropagationMessage implements Serializable {
+
+	public static class DeltaMessage implements Serializable {
 		private static final long serialVersionUID = 1L;
-		public int key;
-		public LamportTimestampedValue value;
-		public PropagationMessage(int key, LamportTimestampedValue value) {
-			this.key = key;
-			this.value = value;
+		// The identifier of the sending leader and its changes after fromVersion up to and including toVersion
+		public int identifier;
+		public long fromVersion;
+		public long toVersion;
+		public int[] keys;
+		public LamportTimestampedValue[] values;
+		public DeltaMessage(int identifier, long fromVersion, long toVersion, int[] keys, LamportTimestampedValue[] values) {
+			this.identifier = identifier;
+			this.fromVersion = fromVersion;
+			this.toVersion = toVersion;
+			this.keys = keys;
+			this.values = values;
+		}
+	}
+
+	public static class DeltaAckMessage implements Serializable {
+		private static final long serialVersionUID = 1L;
+		// The receiver has got all changes of the sender up to and including this version
+		public long version;
+		public DeltaAckMessage(long version) {
+			this.version = version;
 		}
 	}
-	
-	private final Map<Integer, LamportTimestampedValue> replica = new HashMap<>();
-	private final List<ActorRef> otherLeaders = new ArrayList<>();
+
+	public static class DigestMessage implements Serializable {
+		private static final long serialVersionUID = 1L;
+	}
+
+	public static class DigestResponseMessage implements Serializable {
+		private static final long serialVersionUID = 1L;
+		public int size;
+		// An order-independent hash of the timestamps of all entries; converged replicas have equal digests
+		public long digest;
+		public DigestResponseMessage(int size, long digest) {
+			this.size = size;
+			this.digest = digest;
+		}
+	}
+
+	private static class FlushMessage implements Serializable {
+		private static final long serialVersionUID = 1L;
+	}
+
+	private static class AntiEntropyMessage implements Serializable {
+		private static final long serialVersionUID = 1L;
+	}
+
+	private static class SnapshotCompletedMessage implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private final long sequence;
+		private final Replica.Frozen frozen;
+		private final ReplicaSnapshot snapshot;
+		private final Throwable failure;
+		private SnapshotCompletedMessage(long sequence, Replica.Frozen frozen, ReplicaSnapshot snapshot, Throwable failure) {
+			this.sequence = sequence;
+			this.frozen = frozen;
+			this.snapshot = snapshot;
+			this.failure = failure;
+		}
+	}
+
+	private static class Peer {
+		// This leader's versions that were sent to and acknowledged by the peer
+		private long sentVersion = 0, ackedVersion = 0;
+	}
+
+	private final Replica replica = new Replica();
+	private final Map<ActorRef, Peer> otherLeaders = new LinkedHashMap<>();
+	// The version up to which this leader has received all changes of the leader with the given identifier
+	private final Map<Integer, Long> receivedVersions = new HashMap<>();
 	private final int identifier;
-	
-	public LeaderActor(final int identifier) {
+	private final Settings settings;
+
+	// The Lamport clock, i.e., the largest counter seen so far
+	private int clock = 0;
+
+	// The number of writes that this leader accepted; the n-th write has version n
+	private long version = 0;
+	private long flushedVersion = 0;
+
+	// The keys of the writes after logStart, i.e., changedKeys[i] was written in version logStart + i + 1
+	private int[] changedKeys = new int[1024];
+	private long logStart = 0;
+
+	private boolean isFlushScheduled = false;
+	private Cancellable antiEntropyTimer;
+
+	// The persistent copy of the replica or null
+	private ReplicaStore replicaStore;
+	private boolean isSnapshotInProgress = false;
+
+	public LeaderActor(final int identifier, final Settings settings) {
 		this.identifier = identifier;
+		this.settings = settings;
 	}
-	
-	public void addLeaderRef(ActorRef otherLeader) {
-		this.otherLeaders.add(otherLeader);
+
+	@Override
+	public void preStart() throws Exception {
+		super.preStart();
+		if (this.settings.persistenceDirectory != null)
+			this.recover();
+		this.scheduleAntiEntropy();
+	}
+
+	@Override
+	public void postStop() throws Exception {
+		super.postStop();
+		this.antiEntropyTimer.cancel();
+		if (this.replicaStore != null)
+			this.replicaStore.close();
+	}
+
+	private void recover() throws IOException {
+		long start = System.nanoTime();
+		this.replicaStore = new ReplicaStore(Paths.get(this.settings.persistenceDirectory), false);
+		this.replicaStore.recover(new ReplicaStore.RecoveryHandler() {
+			@Override
+			public void snapshot(ReplicaSnapshot snapshot) {
+				LeaderActor.this.replica.load(snapshot);
+				LeaderActor.this.clock = snapshot.getClock();
+				LeaderActor.this.version = snapshot.getVersion();
+				LeaderActor.this.receivedVersions.putAll(snapshot.getReceivedVersions());
+			}
+
+			@Override
+			public void entry(int key, String value, int counter, int identifier, long version) {
+				// The records are replayed in the order in which they were applied
+				LeaderActor.this.replica.put(key, new Replica.Entry(value, counter, identifier, version));
+				LeaderActor.this.clock = Math.max(LeaderActor.this.clock, counter);
+				LeaderActor.this.version = Math.max(LeaderActor.this.version, version);
+			}
+
+			@Override
+			public void received(int origin, long version) {
+				LeaderActor.this.receivedVersions.merge(origin, version, Math::max);
+			}
+		});
+
+		// The other leaders will ask for changes older than the recovered ones, which are then taken from the replica
+		this.logStart = this.version;
+		this.flushedVersion = this.version;
+		this.log().info("Recovered {} entries up to version {} in {} ms", this.replica.size(), this.version,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
 	}
 
 	@Override
 	public Receive createReceive() {
 		return receiveBuilder()
+				.match(LeadersMessage.class, this::handle)
 				.match(ReadMessage.class, this::handle)
 				.match(WriteMessage.class, this::handle)
-				.match(PropagationMessage.class, this::handle)
+				.match(DeltaMessage.class, this::handle)
+				.match(DeltaAckMessage.class, this::handle)
+				.match(DigestMessage.class, this::handle)
+				.match(FlushMessage.class, this::handle)
+				.match(AntiEntropyMessage.class, this::handle)
+				.match(SnapshotCompletedMessage.class, this::handle)
 				.matchAny(object -> this.log().info("Unknown message: " + object.toString()))
 				.build();
 	}
-	
+
+	private void handle(LeadersMessage message) throws IOException {
+		for (ActorRef leader : message.leaders)
+			if (!leader.equals(this.getSelf()))
+				this.otherLeaders.putIfAbsent(leader, new Peer());
+
+		// New leaders need all of this leader's changes
+		this.flush();
+	}
+
 	private void handle(ReadMessage message) {
-		this.getSender().tell(new ReadResponseMessage(this.replica.get(message.key).value), this.getSelf());
-	}
-	
-	private void handle(WriteMessage message) {
-		LamportTimestampedValue oldValue = this.replica.get(message.key);
-		
-		int counter = (oldValue == null) ? message.counter : Math.max(oldValue.counter, message.counter);
-		counter++;
-		
-		if (oldValue == null || 
-				oldValue.counter < message.counter || 
-				(oldValue.counter == message.counter && oldValue.identifier < this.identifier)) {
-			LamportTimestampedValue newValue = new LamportTimestampedValue(message.value, counter, this.identifier);
-			
-			this.replica.put(message.key, newValue);
-		
-			for (ActorRef otherLeader : this.otherLeaders)
-				otherLeader.tell(new PropagationMessage(message.key, newValue), this.getSelf());
-			this.getSender().tell(new WriteResponseMessage(counter), this.getSelf());
-		}
-	}
-	
-	private void handle(PropagationMessage message) {
-		LamportTimestampedValue oldValue = this.replica.get(message.key);
-		
-		if (oldValue == null || 
-				oldValue.counter < message.value.counter || 
-				(oldValue.counter == message.value.counter && oldValue.identifier < message.value.identifier)) {
-			this.replica.put(message.key, message.value);
+		Replica.Entry entry = this.replica.get(message.key);
+		this.getSender().tell(new ReadResponseMessage(entry == null ? null : entry.value), this.getSelf());
+	}
+
+	private void handle(WriteMessage message) throws IOException {
+		// A write is always newer than everything that this leader has seen
+		this.clock = Math.max(this.clock, message.counter) + 1;
+
+		this.appendToLog(message.key);
+		this.replica.put(message.key, new Replica.Entry(message.value, this.clock, this.identifier, this.version));
+		if (this.replicaStore != null)
+			this.replicaStore.appendWrite(message.key, message.value, this.clock, this.identifier, this.version);
+		this.getSender().tell(new WriteResponseMessage(this.clock), this.getSelf());
+
+		if (this.version - this.flushedVersion >= this.settings.flushSize || this.settings.flushIntervalMillis == 0) {
+			this.flush();
+		} else if (!this.isFlushScheduled) {
+			this.isFlushScheduled = true;
+			this.getContext().getSystem().scheduler().scheduleOnce(
+					Duration.create(this.settings.flushIntervalMillis, TimeUnit.MILLISECONDS),
+					this.getSelf(), new FlushMessage(), this.getContext().dispatcher(), this.getSelf());
 		}
 	}
+
+	private void handle(DeltaMessage message) throws IOException {
+		for (int i = 0; i < message.keys.length; i++) {
+			LamportTimestampedValue value = message.values[i];
+			this.clock = Math.max(this.clock, value.counter);
+
+			Replica.Entry oldEntry = this.replica.get(message.keys[i]);
+			if (oldEntry == null || oldEntry.isOlderThan(value)) {
+				this.replica.put(message.keys[i], new Replica.Entry(value.value, value.counter, value.identifier, 0));
+				if (this.replicaStore != null)
+					this.replicaStore.appendMerge(message.keys[i], value.value, value.counter, value.identifier);
+			}
+		}
+
+		// Only acknowledge gapless changes, so that lost deltas are re-sent by the next anti-entropy round
+		long receivedVersion = this.receivedVersions.getOrDefault(message.identifier, 0L);
+		if (message.fromVersion <= receivedVersion && message.toVersion > receivedVersion) {
+			receivedVersion = message.toVersion;
+			this.receivedVersions.put(message.identifier, receivedVersion);
+			if (this.replicaStore != null)
+				this.replicaStore.appendReceived(message.identifier, receivedVersion);
+		}
+		this.getSender().tell(new DeltaAckMessage(receivedVersion), this.getSelf());
+		this.snapshotIfDue();
+	}
+
+	private void handle(DeltaAckMessage message) {
+		Peer peer = this.otherLeaders.get(this.getSender());
+		if (peer != null)
+			peer.ackedVersion = Math.max(peer.ackedVersion, message.version);
+	}
+
+	private void handle(DigestMessage message) {
+		this.getSender().tell(new DigestResponseMessage(this.replica.size(), this.replica.digest()), this.getSelf());
+	}
+
+	private void handle(FlushMessage message) throws IOException {
+		this.isFlushScheduled = false;
+		this.flush();
+	}
+
+	private void handle(AntiEntropyMessage message) throws IOException {
+		// Re-send everything that a peer did not acknowledge since the last sync
+		for (Map.Entry<ActorRef, Peer> otherLeader : this.otherLeaders.entrySet()) {
+			Peer peer = otherLeader.getValue();
+			if (peer.ackedVersion < this.version) {
+				otherLeader.getKey().tell(this.deltaSince(peer.ackedVersion), this.getSelf());
+				peer.sentVersion = this.version;
+			}
+		}
+		this.scheduleAntiEntropy();
+	}
+
+	private void handle(SnapshotCompletedMessage message) throws IOException {
+		this.isSnapshotInProgress = false;
+		if (message.failure != null) {
+			this.log().error(message.failure, "Could not write snapshot {}", message.sequence);
+			return;
+		}
+
+		// Serve the replica from the new snapshot, so that the older files can go
+		this.replica.rebase(message.frozen, message.snapshot);
+		this.replicaStore.deleteObsoleteFiles(message.sequence);
+	}
+
+	private void flush() throws IOException {
+		// Log the changes before any other leader can acknowledge them
+		if (this.replicaStore != null) {
+			this.replicaStore.flush();
+			this.snapshotIfDue();
+		}
+
+		for (Map.Entry<ActorRef, Peer> otherLeader : this.otherLeaders.entrySet()) {
+			Peer peer = otherLeader.getValue();
+			if (peer.sentVersion < this.version) {
+				otherLeader.getKey().tell(this.deltaSince(peer.sentVersion), this.getSelf());
+				peer.sentVersion = this.version;
+			}
+		}
+		this.flushedVersion = this.version;
+	}
+
+	/**
+	 * Write a snapshot of the replica in the background if enough changes have been logged since the last snapshot.
+	 */
+	private void snapshotIfDue() throws IOException {
+		if (this.replicaStore == null || this.isSnapshotInProgress || this.replicaStore.getNumRecordsSinceSnapshot() < this.settings.snapshotInterval)
+			return;
+
+		long sequence = this.replicaStore.startSnapshot();
+		Replica.Frozen frozen = this.replica.freeze();
+		Map<Integer, Long> receivedVersions = new HashMap<>(this.receivedVersions);
+		int clock = this.clock;
+		long version = this.version;
+		ReplicaStore replicaStore = this.replicaStore;
+
+		this.isSnapshotInProgress = true;
+		ActorRef self = this.getSelf();
+		Executor blockingDispatcher = this.getContext().getSystem().dispatchers().lookup(AkkaUtils.BLOCKING_IO_DISPATCHER);
+		CompletableFuture
+				.supplyAsync(() -> {
+					try {
+						return replicaStore.writeSnapshot(sequence, clock, version, receivedVersions, frozen.size(), frozen::forEach);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}, blockingDispatcher)
+				.whenComplete((snapshot, failure) -> self.tell(new SnapshotCompletedMessage(sequence, frozen, snapshot, failure), ActorRef.noSender()));
+	}
+
+	private void scheduleAntiEntropy() {
+		this.antiEntropyTimer = this.getContext().getSystem().scheduler().scheduleOnce(
+				Duration.create(this.settings.antiEntropyIntervalMillis, TimeUnit.MILLISECONDS),
+				this.getSelf(), new AntiEntropyMessage(), this.getContext().dispatcher(), this.getSelf());
+	}
+
+	private void appendToLog(int key) {
+		int index = (int) (this.version - this.logStart);
+		if (index == this.changedKeys.length) {
+			this.compactLog();
+			index = (int) (this.version - this.logStart);
+			if (index > this.changedKeys.length / 2)
+				this.changedKeys = Arrays.copyOf(this.changedKeys, this.changedKeys.length * 2);
+		}
+		this.changedKeys[index] = key;
+		this.version++;
+	}
+
+	/**
+	 * Drop the log entries that all other leaders have acknowledged.
+	 */
+	private void compactLog() {
+		long minAckedVersion = this.version;
+		for (Peer peer : this.otherLeaders.values())
+			minAckedVersion = Math.min(minAckedVersion, peer.ackedVersion);
+		if (minAckedVersion <= this.logStart)
+			return;
+
+		System.arraycopy(this.changedKeys, (int) (minAckedVersion - this.logStart), this.changedKeys, 0, (int) (this.version - minAckedVersion));
+		this.logStart = minAckedVersion;
+	}
+
+	/**
+	 * Collect the latest values of all keys that this leader wrote after the given version.
+	 */
+	private DeltaMessage deltaSince(long fromVersion) {
+		boolean isCompacted = fromVersion < this.logStart;
+		int maxSize = isCompacted ? this.replica.size() : (int) (this.version - fromVersion);
+		int[] keys = new int[maxSize];
+		LamportTimestampedValue[] values = new LamportTimestampedValue[maxSize];
+		int[] size = {0};
+
+		if (isCompacted) {
+			// The log no longer reaches back to the version, so look at all entries
+			this.replica.forEach((key, entry) -> {
+				if (entry.version > fromVersion) {
+					keys[size[0]] = key;
+					values[size[0]++] = entry.toValue();
+				}
+			});
+		} else {
+			for (long version = fromVersion + 1; version <= this.version; version++) {
+				int key = this.changedKeys[(int) (version - 1 - this.logStart)];
+				Replica.Entry entry = this.replica.get(key);
+
+				// Skip keys that were overwritten later on or by another leader
+				if (entry.version == version) {
+					keys[size[0]] = key;
+					values[size[0]++] = entry.toValue();
+				}
+			}
+		}
+
+		return new DeltaMessage(this.identifier, fromVersion, this.version, Arrays.copyOf(keys, size[0]), Arrays.copyOf(values, size[0]));
+	}
 }
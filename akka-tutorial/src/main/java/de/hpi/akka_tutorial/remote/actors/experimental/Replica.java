@@ -0,0 +1,174 @@
+package de.hpi.akka_tutorial.remote.actors.experimental;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import de.hpi.akka_tutorial.util.IntObjectHashMap;
+
+/**
+ * The replica of a {@link LeaderActor}: a memory-mapped {@link ReplicaSnapshot}, if there is one, overlaid by the
+ * entries that changed since that snapshot was taken.
+ */
+class Replica {
+
+	/**
+	 * An entry of the replica. The fields of the {@link LeaderActor.LamportTimestampedValue} are inlined to save memory.
+	 */
+	static class Entry {
+		final String value;
+		final int counter;
+		final int identifier;
+		// The local version at which this leader wrote the entry or 0 if the entry was written by another leader
+		final long version;
+		Entry(String value, int counter, int identifier, long version) {
+			this.value = value;
+			this.counter = counter;
+			this.identifier = identifier;
+			this.version = version;
+		}
+		boolean isOlderThan(LeaderActor.LamportTimestampedValue value) {
+			return value.counter > this.counter || (value.counter == this.counter && value.identifier > this.identifier);
+		}
+		LeaderActor.LamportTimestampedValue toValue() {
+			return new LeaderActor.LamportTimestampedValue(this.value, this.counter, this.identifier);
+		}
+	}
+
+	/**
+	 * A frozen state of a {@link Replica}, which can be written to a new snapshot while the replica changes further.
+	 */
+	static class Frozen {
+
+		private final ReplicaSnapshot snapshot;
+
+		private final IntObjectHashMap<Entry> changes;
+
+		private final int size;
+
+		private Frozen(ReplicaSnapshot snapshot, IntObjectHashMap<Entry> changes, int size) {
+			this.snapshot = snapshot;
+			this.changes = changes;
+			this.size = size;
+		}
+
+		int size() {
+			return this.size;
+		}
+
+		/**
+		 * Merge the sorted entries of the snapshot with the sorted changes.
+		 */
+		void forEach(ReplicaSnapshot.EntryWriter writer) throws IOException {
+			int[] changedKeys = new int[this.changes.size()];
+			int numChangedKeys = 0;
+			for (IntObjectHashMap.Cursor<Entry> cursor = this.changes.cursor(); cursor.advance(); )
+				changedKeys[numChangedKeys++] = cursor.key();
+			Arrays.sort(changedKeys);
+
+			int snapshotSize = this.snapshot == null ? 0 : this.snapshot.size();
+			int position = 0, changed = 0;
+			while (position < snapshotSize || changed < numChangedKeys) {
+				int snapshotKey = position < snapshotSize ? this.snapshot.keyAt(position) : Integer.MAX_VALUE;
+				if (changed < numChangedKeys && (changedKeys[changed] <= snapshotKey || position == snapshotSize)) {
+					int key = changedKeys[changed++];
+					Entry entry = this.changes.get(key);
+					writer.write(key, entry.value, entry.counter, entry.identifier, entry.version);
+					if (key == snapshotKey && position < snapshotSize)
+						position++;
+				} else {
+					writer.write(snapshotKey, this.snapshot.valueAt(position), this.snapshot.counterAt(position),
+							this.snapshot.identifierAt(position), this.snapshot.versionAt(position));
+					position++;
+				}
+			}
+		}
+	}
+
+	private ReplicaSnapshot snapshot;
+
+	private IntObjectHashMap<Entry> changes = new IntObjectHashMap<>();
+
+	private int size = 0;
+
+	// An order-independent hash of all entries, see ReplicaSnapshot#hash
+	private long digest = 0;
+
+	/**
+	 * Start from a snapshot. The replica must not have any changes yet.
+	 */
+	void load(ReplicaSnapshot snapshot) {
+		if (!this.changes.isEmpty())
+			throw new IllegalStateException("A snapshot can only be loaded into an unchanged replica.");
+		this.snapshot = snapshot;
+		this.size = snapshot.size();
+		this.digest = snapshot.getDigest();
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	long digest() {
+		return this.digest;
+	}
+
+	/**
+	 * @return the entry or {@code null} if the replica does not contain the key
+	 */
+	Entry get(int key) {
+		Entry entry = this.changes.get(key);
+		if (entry != null || this.snapshot == null)
+			return entry;
+
+		int position = this.snapshot.indexOf(key);
+		if (position < 0)
+			return null;
+		return new Entry(this.snapshot.valueAt(position), this.snapshot.counterAt(position),
+				this.snapshot.identifierAt(position), this.snapshot.versionAt(position));
+	}
+
+	void put(int key, Entry entry) {
+		Entry oldEntry = this.get(key);
+		if (oldEntry == null)
+			this.size++;
+		else
+			this.digest -= ReplicaSnapshot.hash(key, oldEntry.counter, oldEntry.identifier);
+		this.digest += ReplicaSnapshot.hash(key, entry.counter, entry.identifier);
+		this.changes.put(key, entry);
+	}
+
+	/**
+	 * Iterate over all entries in no particular order.
+	 */
+	void forEach(IntObjectHashMap.EntryConsumer<Entry> consumer) {
+		if (this.snapshot != null) {
+			for (int position = 0; position < this.snapshot.size(); position++) {
+				int key = this.snapshot.keyAt(position);
+				if (!this.changes.containsKey(key))
+					consumer.accept(key, new Entry(this.snapshot.valueAt(position), this.snapshot.counterAt(position),
+							this.snapshot.identifierAt(position), this.snapshot.versionAt(position)));
+			}
+		}
+		this.changes.forEach(consumer);
+	}
+
+	/**
+	 * The entries are immutable, so a copy of the changes suffices to freeze the current state.
+	 */
+	Frozen freeze() {
+		return new Frozen(this.snapshot, this.changes.copy(), this.size);
+	}
+
+	/**
+	 * Replace the snapshot by a new snapshot of the given frozen state and keep only the changes that happened since.
+	 */
+	void rebase(Frozen frozen, ReplicaSnapshot newSnapshot) {
+		IntObjectHashMap<Entry> newChanges = new IntObjectHashMap<>();
+		this.changes.forEach((key, entry) -> {
+			if (frozen.changes.get(key) != entry)
+				newChanges.put(key, entry);
+		});
+		this.changes = newChanges;
+		this.snapshot = newSnapshot;
+	}
+}
@@ -0,0 +1,286 @@
+package de.hpi.akka_tutorial.remote.actors.experimental;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A memory-mapped snapshot of a replica. Opening a snapshot only reads its header; entries are looked up in the mapped
+ * file when they are needed, so a leader can serve its replica right away instead of loading it first.
+ * <p>
+ * The file starts with a header, followed by an index of fixed-size records that is sorted by key, followed by the
+ * values. Each index record holds the key, the timestamp and the local version of an entry and the file offset of its
+ * value; each value is stored as its UTF-8 length plus one (0 for {@code null}) and its bytes.
+ */
+public class ReplicaSnapshot {
+
+	/**
+	 * Provides the entries of a snapshot in ascending order of their keys.
+	 */
+	@FunctionalInterface
+	public interface EntrySource {
+
+		void forEach(EntryWriter writer) throws IOException;
+	}
+
+	/**
+	 * Receives the entries of a snapshot.
+	 */
+	@FunctionalInterface
+	public interface EntryWriter {
+
+		void write(int key, String value, int counter, int identifier, long version) throws IOException;
+	}
+
+	private static final int MAGIC = 0x4C534E50, FORMAT = 2;
+
+	// key, counter, identifier, version, value offset
+	private static final int INDEX_RECORD_SIZE = 4 + 4 + 4 + 8 + 8;
+
+	// The size of the memory-mapped chunks; records that straddle two chunks are read byte by byte
+	private static final int CHUNK_BITS = 30;
+
+	private static final int BUFFER_SIZE = 64 << 10;
+
+	private final MappedByteBuffer[] chunks;
+
+	private final int clock;
+
+	private final long version;
+
+	private final int size;
+
+	private final long digest;
+
+	private final Map<Integer, Long> receivedVersions;
+
+	// The file offset of the index
+	private final long indexStart;
+
+	private ReplicaSnapshot(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long fileSize = channel.size();
+			this.chunks = new MappedByteBuffer[(int) ((fileSize + (1L << CHUNK_BITS) - 1) >>> CHUNK_BITS)];
+			for (int i = 0; i < this.chunks.length; i++) {
+				long position = (long) i << CHUNK_BITS;
+				this.chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(1L << CHUNK_BITS, fileSize - position));
+			}
+		}
+
+		if (this.chunks.length == 0 || this.getInt(0) != MAGIC || this.getInt(4) != FORMAT)
+			throw new IOException("Not a snapshot: " + file);
+		this.clock = this.getInt(8);
+		this.version = this.getLong(12);
+		this.size = this.getInt(20);
+		this.digest = this.getLong(24);
+		int numReceivedVersions = this.getInt(32);
+		Map<Integer, Long> receivedVersions = new HashMap<>();
+		for (int i = 0; i < numReceivedVersions; i++)
+			receivedVersions.put(this.getInt(36 + i * 12L), this.getLong(40 + i * 12L));
+		this.receivedVersions = Collections.unmodifiableMap(receivedVersions);
+		this.indexStart = 36 + numReceivedVersions * 12L;
+	}
+
+	public static ReplicaSnapshot open(Path file) throws IOException {
+		return new ReplicaSnapshot(file);
+	}
+
+	/**
+	 * Write a snapshot with the given number of entries.
+	 */
+	public static void write(Path file, int clock, long version, Map<Integer, Long> receivedVersions, int size, EntrySource entries) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long indexStart = 36 + receivedVersions.size() * 12L;
+
+			// Write the index and the values in one pass via two buffers at different positions
+			ChannelWriter index = new ChannelWriter(channel, indexStart);
+			ChannelWriter values = new ChannelWriter(channel, indexStart + (long) size * INDEX_RECORD_SIZE);
+			long[] state = {0, Long.MIN_VALUE, 0}; // number of entries, previous key, digest
+			entries.forEach((key, value, counter, identifier, entryVersion) -> {
+				if (key <= state[1])
+					throw new IllegalArgumentException("The keys of a snapshot must be unique and ascending.");
+				if (state[0]++ == size)
+					throw new IllegalArgumentException("The snapshot has more than " + size + " entries.");
+				state[1] = key;
+				state[2] += hash(key, counter, identifier);
+
+				index.ensure(INDEX_RECORD_SIZE).putInt(key).putInt(counter).putInt(identifier).putLong(entryVersion).putLong(values.position());
+				byte[] bytes = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+				ByteBuffer buffer = values.ensure(5 + (bytes == null ? 0 : bytes.length));
+				putVarInt(buffer, bytes == null ? 0 : bytes.length + 1);
+				if (bytes != null)
+					buffer.put(bytes);
+			});
+			if (state[0] != size)
+				throw new IllegalArgumentException("The snapshot has " + state[0] + " instead of " + size + " entries.");
+			index.flush();
+			values.flush();
+
+			ByteBuffer header = ByteBuffer.allocate((int) indexStart);
+			header.putInt(MAGIC).putInt(FORMAT).putInt(clock).putLong(version).putInt(size).putLong(state[2]).putInt(receivedVersions.size());
+			for (Map.Entry<Integer, Long> receivedVersion : receivedVersions.entrySet())
+				header.putInt(receivedVersion.getKey()).putLong(receivedVersion.getValue());
+			header.flip();
+			channel.write(header, 0);
+			channel.force(true);
+		}
+	}
+
+	/**
+	 * @return an order-independent hash of an entry; the sum over all entries is the digest of a replica
+	 */
+	static long hash(int key, int counter, int identifier) {
+		long hash = (((long) key) << 32 | (counter & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L + identifier;
+		return hash ^ (hash >>> 29);
+	}
+
+	public int getClock() {
+		return this.clock;
+	}
+
+	public long getVersion() {
+		return this.version;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public long getDigest() {
+		return this.digest;
+	}
+
+	public Map<Integer, Long> getReceivedVersions() {
+		return this.receivedVersions;
+	}
+
+	/**
+	 * @return the position of the key in the index or -1 if the snapshot does not contain the key
+	 */
+	public int indexOf(int key) {
+		int low = 0, high = this.size - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int middleKey = this.keyAt(middle);
+			if (middleKey < key)
+				low = middle + 1;
+			else if (middleKey > key)
+				high = middle - 1;
+			else
+				return middle;
+		}
+		return -1;
+	}
+
+	public int keyAt(int position) {
+		return this.getInt(this.recordStart(position));
+	}
+
+	public int counterAt(int position) {
+		return this.getInt(this.recordStart(position) + 4);
+	}
+
+	public int identifierAt(int position) {
+		return this.getInt(this.recordStart(position) + 8);
+	}
+
+	public long versionAt(int position) {
+		return this.getLong(this.recordStart(position) + 12);
+	}
+
+	public String valueAt(int position) {
+		long offset = this.getLong(this.recordStart(position) + 20);
+		int length = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = this.getByte(offset++);
+			length |= (b & 0x7F) << shift;
+			if (b >= 0)
+				break;
+		}
+		if (length == 0)
+			return null;
+
+		byte[] bytes = new byte[length - 1];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = this.getByte(offset + i);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private long recordStart(int position) {
+		return this.indexStart + (long) position * INDEX_RECORD_SIZE;
+	}
+
+	private byte getByte(long offset) {
+		return this.chunks[(int) (offset >>> CHUNK_BITS)].get((int) (offset & ((1 << CHUNK_BITS) - 1)));
+	}
+
+	private int getInt(long offset) {
+		int chunkOffset = (int) (offset & ((1 << CHUNK_BITS) - 1));
+		MappedByteBuffer chunk = this.chunks[(int) (offset >>> CHUNK_BITS)];
+		if (chunkOffset + Integer.BYTES <= chunk.limit())
+			return chunk.getInt(chunkOffset);
+		int value = 0;
+		for (int i = 0; i < Integer.BYTES; i++)
+			value = (value << 8) | (this.getByte(offset + i) & 0xFF);
+		return value;
+	}
+
+	private long getLong(long offset) {
+		return ((long) this.getInt(offset) << 32) | (this.getInt(offset + Integer.BYTES) & 0xFFFFFFFFL);
+	}
+
+	private static void putVarInt(ByteBuffer buffer, int value) {
+		while ((value & ~0x7F) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	/**
+	 * Buffers the writes to a channel from some start position on.
+	 */
+	private static class ChannelWriter {
+
+		private final FileChannel channel;
+
+		private long channelPosition;
+
+		private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+		private ChannelWriter(FileChannel channel, long position) {
+			this.channel = channel;
+			this.channelPosition = position;
+		}
+
+		/**
+		 * @return the file position of the next byte that is put into the buffer
+		 */
+		long position() {
+			return this.channelPosition + this.buffer.position();
+		}
+
+		ByteBuffer ensure(int length) throws IOException {
+			if (this.buffer.remaining() < length) {
+				this.flush();
+				if (this.buffer.capacity() < length)
+					this.buffer = ByteBuffer.allocate(length);
+			}
+			return this.buffer;
+		}
+
+		void flush() throws IOException {
+			this.buffer.flip();
+			while (this.buffer.hasRemaining())
+				this.channelPosition += this.channel.write(this.buffer, this.channelPosition);
+			this.buffer.clear();
+		}
+	}
+}
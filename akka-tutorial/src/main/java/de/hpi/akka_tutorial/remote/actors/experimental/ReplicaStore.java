@@ -0,0 +1,357 @@
+package de.hpi.akka_tutorial.remote.actors.experimental;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists the replica of a {@link LeaderActor} in a directory. Every change is appended to a write-ahead log of
+ * compact binary records. From time to time, the whole replica is written to a {@link ReplicaSnapshot} and the log is
+ * started anew, so that a recovery only memory-maps the latest snapshot and replays the log tail that was written
+ * after it.
+ * <p>
+ * The files of the directory are numbered by a sequence: {@code snapshot-<s>.bin} contains the state after all log
+ * segments {@code wal-<t>.log} with {@code t < s}. Snapshots are written to a temporary file and renamed once they are
+ * complete. Log records are varint-encoded; a record that was cut off by a crash ends the replay of its segment.
+ */
+public class ReplicaStore implements AutoCloseable {
+
+	/**
+	 * Receives the recovered state, in the order in which it was written.
+	 */
+	public interface RecoveryHandler {
+
+		/**
+		 * Receives the latest snapshot, if there is one, before any log records.
+		 */
+		void snapshot(ReplicaSnapshot snapshot);
+
+		/**
+		 * @param version the local version of the write or 0 if the entry was written by another leader
+		 */
+		void entry(int key, String value, int counter, int identifier, long version);
+
+		void received(int origin, long version);
+	}
+
+	private static final byte WRITE_RECORD = 1, MERGE_RECORD = 2, RECEIVED_RECORD = 3;
+
+	private static final String SNAPSHOT_PREFIX = "snapshot-", SNAPSHOT_SUFFIX = ".bin", LOG_PREFIX = "wal-", LOG_SUFFIX = ".log";
+
+	// The size of the memory-mapped windows when reading files
+	private static final long MAPPING_WINDOW = 256L << 20;
+
+	private static final int BUFFER_SIZE = 64 << 10;
+
+	private final Path directory;
+
+	// Whether flush() also forces the log to the storage device
+	private final boolean fsync;
+
+	private FileChannel log;
+
+	private long logSequence;
+
+	private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+	private long numRecordsSinceSnapshot = 0;
+
+	public ReplicaStore(Path directory, boolean fsync) throws IOException {
+		this.directory = Files.createDirectories(directory);
+		this.fsync = fsync;
+	}
+
+	/**
+	 * Replay the latest snapshot and the log tail and start a new log segment for the following changes. This method
+	 * must be called once before any changes are appended.
+	 */
+	public void recover(RecoveryHandler handler) throws IOException {
+		long snapshotSequence = -1;
+		for (long sequence : this.sequences(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX))
+			snapshotSequence = sequence;
+		if (snapshotSequence >= 0)
+			handler.snapshot(ReplicaSnapshot.open(this.snapshotFile(snapshotSequence)));
+
+		this.logSequence = Math.max(snapshotSequence, 0);
+		for (long sequence : this.sequences(LOG_PREFIX, LOG_SUFFIX)) {
+			if (sequence < snapshotSequence)
+				continue;
+			this.numRecordsSinceSnapshot += this.replayLog(this.logFile(sequence), handler);
+			this.logSequence = sequence + 1;
+		}
+
+		// Never append to an old segment, because it might end with a partial record
+		this.openLog();
+	}
+
+	public void appendWrite(int key, String value, int counter, int identifier, long version) throws IOException {
+		this.ensureCapacity(1 + 5 + 5 + 5 + 10 + 5 + maxLength(value));
+		this.buffer.put(WRITE_RECORD);
+		putVarLong(this.buffer, zigZag(key));
+		putVarLong(this.buffer, zigZag(counter));
+		putVarLong(this.buffer, zigZag(identifier));
+		putVarLong(this.buffer, version);
+		putString(this.buffer, value);
+		this.numRecordsSinceSnapshot++;
+	}
+
+	public void appendMerge(int key, String value, int counter, int identifier) throws IOException {
+		this.ensureCapacity(1 + 5 + 5 + 5 + 5 + maxLength(value));
+		this.buffer.put(MERGE_RECORD);
+		putVarLong(this.buffer, zigZag(key));
+		putVarLong(this.buffer, zigZag(counter));
+		putVarLong(this.buffer, zigZag(identifier));
+		putString(this.buffer, value);
+		this.numRecordsSinceSnapshot++;
+	}
+
+	public void appendReceived(int origin, long version) throws IOException {
+		this.ensureCapacity(1 + 5 + 10);
+		this.buffer.put(RECEIVED_RECORD);
+		putVarLong(this.buffer, zigZag(origin));
+		putVarLong(this.buffer, version);
+		this.numRecordsSinceSnapshot++;
+	}
+
+	/**
+	 * Hand all appended records to the operating system, so that they survive a crash of the process.
+	 */
+	public void flush() throws IOException {
+		this.buffer.flip();
+		while (this.buffer.hasRemaining())
+			this.log.write(this.buffer);
+		this.buffer.clear();
+		if (this.fsync)
+			this.log.force(false);
+	}
+
+	public long getNumRecordsSinceSnapshot() {
+		return this.numRecordsSinceSnapshot;
+	}
+
+	/**
+	 * Start a new log segment for a snapshot of the current state, which is then to be passed to
+	 * {@link #writeSnapshot(long, int, long, Map, int, ReplicaSnapshot.EntrySource)}.
+	 *
+	 * @return the sequence of the snapshot
+	 */
+	public long startSnapshot() throws IOException {
+		this.flush();
+		this.log.close();
+		this.logSequence++;
+		this.openLog();
+		this.numRecordsSinceSnapshot = 0;
+		return this.logSequence;
+	}
+
+	/**
+	 * Write a snapshot, i.e., the state after all log segments before the given sequence. This method does not touch the
+	 * current log segment, so it may run in parallel to appending changes.
+	 *
+	 * @return the written snapshot
+	 */
+	public ReplicaSnapshot writeSnapshot(long sequence, int clock, long version, Map<Integer, Long> receivedVersions, int size, ReplicaSnapshot.EntrySource entries) throws IOException {
+		Path snapshotFile = this.snapshotFile(sequence);
+		Path temporaryFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+		ReplicaSnapshot.write(temporaryFile, clock, version, receivedVersions, size, entries);
+		Files.move(temporaryFile, snapshotFile, StandardCopyOption.ATOMIC_MOVE);
+		return ReplicaSnapshot.open(snapshotFile);
+	}
+
+	/**
+	 * Delete the snapshots and log segments that the snapshot with the given sequence supersedes.
+	 */
+	public void deleteObsoleteFiles(long sequence) throws IOException {
+		for (long older : this.sequences(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX))
+			if (older < sequence)
+				Files.deleteIfExists(this.snapshotFile(older));
+		for (long older : this.sequences(LOG_PREFIX, LOG_SUFFIX))
+			if (older < sequence)
+				Files.deleteIfExists(this.logFile(older));
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.log != null) {
+			this.flush();
+			this.log.close();
+			this.log = null;
+		}
+	}
+
+	private void openLog() throws IOException {
+		this.log = FileChannel.open(this.logFile(this.logSequence), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	private void ensureCapacity(int length) throws IOException {
+		if (this.buffer.remaining() >= length)
+			return;
+		this.flush();
+		if (this.buffer.capacity() < length)
+			this.buffer = ByteBuffer.allocate(length);
+	}
+
+	/**
+	 * @return the number of replayed records
+	 */
+	private long replayLog(Path file, RecoveryHandler handler) throws IOException {
+		long numRecords = 0;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedReader reader = new MappedReader(channel);
+			while (reader.hasRemaining()) {
+				switch (reader.getByte()) {
+					case WRITE_RECORD: {
+						int key = unZigZag(reader.getVarLong()), counter = unZigZag(reader.getVarLong()), identifier = unZigZag(reader.getVarLong());
+						long version = reader.getVarLong();
+						handler.entry(key, reader.getString(), counter, identifier, version);
+						break;
+					}
+					case MERGE_RECORD: {
+						int key = unZigZag(reader.getVarLong()), counter = unZigZag(reader.getVarLong()), identifier = unZigZag(reader.getVarLong());
+						handler.entry(key, reader.getString(), counter, identifier, 0);
+						break;
+					}
+					case RECEIVED_RECORD:
+						handler.received(unZigZag(reader.getVarLong()), reader.getVarLong());
+						break;
+					default:
+						throw new IOException("Corrupt log record in " + file);
+				}
+				numRecords++;
+			}
+		} catch (BufferUnderflowException e) {
+			// The process died while writing the last record, which therefore was never acknowledged
+		}
+		return numRecords;
+	}
+
+	private List<Long> sequences(String prefix, String suffix) throws IOException {
+		List<Long> sequences = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, prefix + "*" + suffix)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				sequences.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+			}
+		}
+		Collections.sort(sequences);
+		return sequences;
+	}
+
+	private Path snapshotFile(long sequence) {
+		return this.directory.resolve(String.format("%s%016d%s", SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX));
+	}
+
+	private Path logFile(long sequence) {
+		return this.directory.resolve(String.format("%s%016d%s", LOG_PREFIX, sequence, LOG_SUFFIX));
+	}
+
+	private static int maxLength(String value) {
+		return value == null ? 0 : value.length() * 3;
+	}
+
+	private static long zigZag(int value) {
+		return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+	}
+
+	private static int unZigZag(long value) {
+		int n = (int) value;
+		return (n >>> 1) ^ -(n & 1);
+	}
+
+	private static void putVarLong(ByteBuffer buffer, long value) {
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	/**
+	 * Write the length plus one (0 for null) and the UTF-8 bytes.
+	 */
+	private static void putString(ByteBuffer buffer, String value) {
+		if (value == null) {
+			putVarLong(buffer, 0);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		putVarLong(buffer, bytes.length + 1L);
+		buffer.put(bytes);
+	}
+
+	/**
+	 * Reads a file through memory-mapped windows, so that files larger than 2 GB can be read as well.
+	 */
+	private static class MappedReader {
+
+		private final FileChannel channel;
+
+		private final long size;
+
+		// The file position of the current window
+		private long windowStart = 0;
+
+		private MappedByteBuffer window;
+
+		private MappedReader(FileChannel channel) throws IOException {
+			this.channel = channel;
+			this.size = channel.size();
+			this.map(0);
+		}
+
+		boolean hasRemaining() {
+			return this.windowStart + this.window.position() < this.size;
+		}
+
+		byte getByte() throws IOException {
+			this.ensure(1);
+			return this.window.get();
+		}
+
+		long getVarLong() throws IOException {
+			this.ensure(10);
+			long value = 0;
+			for (int shift = 0; ; shift += 7) {
+				byte b = this.window.get();
+				value |= (long) (b & 0x7F) << shift;
+				if (b >= 0)
+					return value;
+			}
+		}
+
+		String getString() throws IOException {
+			int length = (int) this.getVarLong() - 1;
+			if (length < 0)
+				return null;
+			this.ensure(length);
+			byte[] bytes = new byte[length];
+			this.window.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * Move the window, so that it holds at least the given number of bytes or all bytes up to the end of the file.
+		 */
+		private void ensure(int length) throws IOException {
+			if (this.window.remaining() < length && this.windowStart + this.window.limit() < this.size)
+				this.map(this.windowStart + this.window.position());
+		}
+
+		private void map(long position) throws IOException {
+			this.windowStart = position;
+			this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPING_WINDOW, this.size - position));
+		}
+	}
+}
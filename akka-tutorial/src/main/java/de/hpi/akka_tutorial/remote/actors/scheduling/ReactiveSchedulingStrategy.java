@@ -2,11 +2,12 @@ package de.hpi.akka_tutorial.remote.actors.scheduling;
 
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import akka.actor.ActorRef;
@@ -33,6 +34,9 @@ public class ReactiveSchedulingStrategy implements SchedulingStrategy {
 		// Give each worker at most this many numbers at once to check.
 		private final int MAX_SUBQUERY_RANGE_SIZE = 100_000;
 
+		// Give each worker at most this many numbers at once to look up in its prime index.
+		private final int MAX_INDEXED_SUBQUERY_RANGE_SIZE = 1_000_000;
+
 		// The range of values that was not yet scheduled to workers.
 		private long remainingRangeStartNumber, remainingRangeEndNumber;
 
@@ -62,13 +66,8 @@ public class ReactiveSchedulingStrategy implements SchedulingStrategy {
 			Worker.ValidationMessage subquery = this.failedSubqueries.poll();
 			
 			// Create a new subquery if no failed subquery was selected
-			if (subquery == null) {
-				long subqueryRangeSize = Math.min(this.remainingRangeEndNumber - this.remainingRangeStartNumber + 1, MAX_SUBQUERY_RANGE_SIZE);
-				if (subqueryRangeSize > 0) {
-					subquery = new Worker.ValidationMessage(this.id, this.remainingRangeStartNumber, this.remainingRangeStartNumber + subqueryRangeSize - 1);
-					this.remainingRangeStartNumber += subqueryRangeSize;
-				}
-			}
+			if (subquery == null)
+				subquery = this.split(ReactiveSchedulingStrategy.this.worker2indexLimit.getOrDefault(worker, NO_INDEX));
 			
 			// Return false if no work was assigned
 			if (subquery == null) {
@@ -82,6 +81,36 @@ public class ReactiveSchedulingStrategy implements SchedulingStrategy {
 			return true;
 		}
 		
+		/**
+		 * Split a new subquery off the remaining range. The front of the range goes to workers whose index covers it,
+		 * in large subqueries, because looking primes up is cheap. While some worker has an index for the front, the
+		 * workers without an index compute the back of the range and leave the indexed numbers alone.
+		 *
+		 * @param workerIndexLimit the limit of the worker's prime index or {@link #NO_INDEX}
+		 * @return the subquery or {@code null} if there is no suitable work for the worker
+		 */
+		private Worker.ValidationMessage split(long workerIndexLimit) {
+			if (this.remainingRangeStartNumber > this.remainingRangeEndNumber)
+				return null;
+
+			long indexLimit = ReactiveSchedulingStrategy.this.indexLimit;
+			if (workerIndexLimit >= this.remainingRangeStartNumber) {
+				long subqueryRangeSize = Math.min(Math.min(this.remainingRangeEndNumber, workerIndexLimit) - this.remainingRangeStartNumber + 1, MAX_INDEXED_SUBQUERY_RANGE_SIZE);
+				this.remainingRangeStartNumber += subqueryRangeSize;
+				return new Worker.ValidationMessage(this.id, this.remainingRangeStartNumber - subqueryRangeSize, this.remainingRangeStartNumber - 1);
+			}
+			if (indexLimit >= this.remainingRangeStartNumber) {
+				if (this.remainingRangeEndNumber <= indexLimit)
+					return null;
+				long subqueryRangeSize = Math.min(this.remainingRangeEndNumber - indexLimit, MAX_SUBQUERY_RANGE_SIZE);
+				this.remainingRangeEndNumber -= subqueryRangeSize;
+				return new Worker.ValidationMessage(this.id, this.remainingRangeEndNumber + 1, this.remainingRangeEndNumber + subqueryRangeSize);
+			}
+			long subqueryRangeSize = Math.min(this.remainingRangeEndNumber - this.remainingRangeStartNumber + 1, MAX_SUBQUERY_RANGE_SIZE);
+			this.remainingRangeStartNumber += subqueryRangeSize;
+			return new Worker.ValidationMessage(this.id, this.remainingRangeStartNumber - subqueryRangeSize, this.remainingRangeStartNumber - 1);
+		}
+
 		/**
 		 * Handle the failure of a subquery. That is, prepare to re-schedule the failed subquery.
 		 *
@@ -104,6 +133,26 @@ public class ReactiveSchedulingStrategy implements SchedulingStrategy {
 			assert completedTask != null;
 		}
 
+		/**
+		 * Drop the subqueries that have not been assigned to a worker yet.
+		 */
+		void cancel() {
+			// Leave an empty range; the end of the range may be Long.MAX_VALUE, so it cannot simply be passed
+			this.remainingRangeStartNumber = 1;
+			this.remainingRangeEndNumber = 0;
+			this.failedSubqueries.clear();
+		}
+
+		/**
+		 * Estimate the number of subqueries that have not been assigned to a worker yet.
+		 *
+		 * @return the number of failed subqueries plus the number of subqueries that the remaining range splits into
+		 */
+		long countPendingSubqueries() {
+			long remainingRangeSize = Math.max(0, this.remainingRangeEndNumber - this.remainingRangeStartNumber + 1);
+			return this.failedSubqueries.size() + remainingRangeSize / MAX_SUBQUERY_RANGE_SIZE + (remainingRangeSize % MAX_SUBQUERY_RANGE_SIZE == 0 ? 0 : 1);
+		}
+
 		/**
 		 * Check whether this query is complete, i.e., there are no more open or running subqueries.
 		 *
@@ -123,6 +172,18 @@ public class ReactiveSchedulingStrategy implements SchedulingStrategy {
 	// A mapping of known works to their current task
 	private final Map<ActorRef, QueryTracker> worker2tracker = new HashMap<>();
 
+	// The workers that finish their current subquery, but do not get any new ones
+	private final Set<ActorRef> retiredWorkers = new HashSet<>();
+
+	// The marker for workers without a prime index
+	private static final long NO_INDEX = Long.MIN_VALUE;
+
+	// A mapping of the workers that have a prime index to the largest number that their index covers
+	private final Map<ActorRef, Long> worker2indexLimit = new HashMap<>();
+
+	// The largest number that the index of any worker covers
+	private long indexLimit = NO_INDEX;
+
 	// A reference to the actor in whose name we send messages
 	private final ActorRef master;
 
@@ -133,8 +194,10 @@ public class ReactiveSchedulingStrategy implements SchedulingStrategy {
 	@Override
 	public void schedule(final int taskId, final long startNumber, final long endNumber) {
 
-		// Create a new tracker for the query
+		// Create a new tracker for the query; an empty range is complete right away
 		QueryTracker tracker = new QueryTracker(taskId, startNumber, endNumber);
+		if (tracker.isComplete())
+			return;
 		this.queryId2tracker.put(tracker.id, tracker);
 
 		// Assign existing, possible free, workers to the new query
@@ -147,11 +210,32 @@ public class ReactiveSchedulingStrategy implements SchedulingStrategy {
 	}
 
 	@Override
-	public void finished(final int taskId, final ActorRef worker) {
+	public boolean isTaskInProgress(final int taskId) {
+		return this.queryId2tracker.containsKey(taskId);
+	}
+
+	@Override
+	public void cancel(final int taskId) {
+		QueryTracker queryTracker = this.queryId2tracker.get(taskId);
+		if (queryTracker == null)
+			return;
+
+		// The running subqueries still complete; without them, the query is complete right away
+		queryTracker.cancel();
+		if (queryTracker.isComplete())
+			this.queryId2tracker.remove(taskId);
+	}
+
+	@Override
+	public boolean finished(final int taskId, final ActorRef worker) {
 		
 		// Find the query being processed
 		QueryTracker queryTracker = this.queryId2tracker.get(taskId);
 
+		// Ignore the completion if the worker is no longer assigned to this query, because its subquery has already been re-scheduled
+		if (queryTracker == null || this.worker2tracker.get(worker) != queryTracker)
+			return false;
+
 		// Mark the worker as free
 		queryTracker.workCompleted(worker);
 		this.worker2tracker.put(worker, null);
@@ -160,10 +244,11 @@ public class ReactiveSchedulingStrategy implements SchedulingStrategy {
 		if (queryTracker.isComplete()) {
 			// Remove the query tracker
 			this.queryId2tracker.remove(queryTracker.id);
-		} else {
-			// Re-assign the now free worker
-			this.assignSubqueries();
 		}
+
+		// Re-assign the now free worker, possibly to another query
+		this.assignSubqueries();
+		return true;
 	}
 
 	@Override
@@ -176,11 +261,44 @@ public class ReactiveSchedulingStrategy implements SchedulingStrategy {
 		this.assignSubqueries();
 	}
 
+	@Override
+	public void addPrimeIndex(final ActorRef worker, final long limit) {
+
+		// Ignore workers that have already been removed
+		if (!this.worker2tracker.containsKey(worker))
+			return;
+
+		this.worker2indexLimit.put(worker, limit);
+		this.indexLimit = Math.max(this.indexLimit, limit);
+
+		// The worker may now be eligible for indexed subqueries
+		this.assignSubqueries();
+	}
+
+	@Override
+	public void retireWorker(final ActorRef worker) {
+		if (this.worker2tracker.containsKey(worker))
+			this.retiredWorkers.add(worker);
+	}
+
+	@Override
+	public boolean isIdle(final ActorRef worker) {
+		return this.worker2tracker.containsKey(worker) && this.worker2tracker.get(worker) == null;
+	}
+
+	@Override
+	public long countPendingSubqueries() {
+		return this.queryId2tracker.values().stream().mapToLong(QueryTracker::countPendingSubqueries).sum();
+	}
+
 	@Override
 	public void removeWorker(final ActorRef worker) {
 
 		// Remove the worker from the list of workers
 		QueryTracker processedTracker = this.worker2tracker.remove(worker);
+		this.retiredWorkers.remove(worker);
+		if (this.worker2indexLimit.remove(worker) != null)
+			this.indexLimit = this.worker2indexLimit.values().stream().mapToLong(Long::longValue).max().orElse(NO_INDEX);
 
 		// If the worker was processing some subquery, then we need to re-schedule this subquery
 		if (processedTracker != null) {
@@ -193,9 +311,9 @@ public class ReactiveSchedulingStrategy implements SchedulingStrategy {
 
 	private void assignSubqueries() {
 
-		// Collect all currently idle workers
+		// Collect all currently idle workers that still take new subqueries
 		Collection<ActorRef> idleWorkers = this.worker2tracker.entrySet().stream()
-				.filter(e -> e.getValue() == null)
+				.filter(e -> e.getValue() == null && !this.retiredWorkers.contains(e.getKey()))
 				.map(Map.Entry::getKey)
 				.collect(Collectors.toList());
 		
@@ -203,23 +321,19 @@ public class ReactiveSchedulingStrategy implements SchedulingStrategy {
 		if (this.queryId2tracker.isEmpty())
 			return;
 		
-		// Assign idle workers to pending subqueries
-		Iterator<QueryTracker> queryTrackerIterator = this.queryId2tracker.values().iterator();
-		QueryTracker queryTracker = queryTrackerIterator.next();
+		// Assign idle workers to pending subqueries; a query that has no suitable work for a worker without an index
+		// may still have work for a worker with an index, so every worker considers all queries in their order
 		for (ActorRef idleWorker : idleWorkers) {
 			
 			// Find a query tracker that can assign a subquery to this idle worker
-			while (!queryTracker.assignWork(idleWorker, this.master)) {
-				// Check if there is any (further) on-going query
-				if (!queryTrackerIterator.hasNext()) 
-					return;
-				
-				// Select the (next) query tracker
-				queryTracker = queryTrackerIterator.next();
+			for (QueryTracker queryTracker : this.queryId2tracker.values()) {
+				if (queryTracker.assignWork(idleWorker, this.master)) {
+					
+					// Keep track of the assignment
+					this.worker2tracker.put(idleWorker, queryTracker);
+					break;
+				}
 			}
-
-			// Assign the subquery to the worker and keep track of the assignment
-			this.worker2tracker.put(idleWorker, queryTracker);
 		}
 	}
 
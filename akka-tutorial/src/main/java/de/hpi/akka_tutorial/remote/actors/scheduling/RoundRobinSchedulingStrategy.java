@@ -1,7 +1,9 @@
 package de.hpi.akka_tutorial.remote.actors.scheduling;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import akka.actor.ActorRef;
 import akka.routing.RoundRobinRoutingLogic;
@@ -27,6 +29,9 @@ public class RoundRobinSchedulingStrategy implements SchedulingStrategy {
 	// The number of workers currently available for scheduling
 	private int numberOfWorkers = 0;
 	
+	// The workers that have been taken out of the router, but have not been removed yet
+	private final Set<ActorRef> retiredWorkers = new HashSet<>();
+
 	// A map of pending responses for unfinished tasks
 	private Map<Integer, Integer> taskId2numberPendingResponses = new HashMap<>();
 	
@@ -63,10 +68,20 @@ public class RoundRobinSchedulingStrategy implements SchedulingStrategy {
 	}
 
 	@Override
-	public void finished(final int taskId, final ActorRef worker) {
+	public void cancel(final int taskId) {
+		// The subqueries have all been routed to the workers already, so the task completes as usual
+	}
+
+	@Override
+	public boolean finished(final int taskId, final ActorRef worker) {
+		
+		// Ignore completions of unknown tasks
+		final Integer pendingResponses = this.taskId2numberPendingResponses.get(taskId);
+		if (pendingResponses == null)
+			return false;
 		
 		// Decrement the number of pending responses for this task
-		final int newPendingResponses = this.taskId2numberPendingResponses.get(taskId) - 1;
+		final int newPendingResponses = pendingResponses - 1;
 		
 		if (newPendingResponses == 0) {
 			// Task is completed
@@ -75,6 +90,7 @@ public class RoundRobinSchedulingStrategy implements SchedulingStrategy {
 			// Task is still pending
 			this.taskId2numberPendingResponses.put(taskId, newPendingResponses);
 		}
+		return true;
 	}
 
 	@Override
@@ -82,6 +98,11 @@ public class RoundRobinSchedulingStrategy implements SchedulingStrategy {
 		return !this.taskId2numberPendingResponses.isEmpty();
 	}
 
+	@Override
+	public boolean isTaskInProgress(final int taskId) {
+		return this.taskId2numberPendingResponses.containsKey(taskId);
+	}
+
 	@Override
 	public void addWorker(final ActorRef worker) {
 		
@@ -92,8 +113,40 @@ public class RoundRobinSchedulingStrategy implements SchedulingStrategy {
 		this.workerRouter = this.workerRouter.addRoutee(worker);
 	}
 
+	@Override
+	public void addPrimeIndex(final ActorRef worker, final long limit) {
+		// The round robin router splits every range evenly, no matter how cheap a part of the range is
+	}
+
+	@Override
+	public void retireWorker(final ActorRef worker) {
+
+		// Route no further tasks to the worker
+		if (this.retiredWorkers.add(worker)) {
+			this.numberOfWorkers--;
+			this.workerRouter = this.workerRouter.removeRoutee(worker);
+		}
+	}
+
+	@Override
+	public boolean isIdle(final ActorRef worker) {
+		// The tasks are routed up front and their completions are not tracked per worker, so only a scheduler
+		// without pending tasks knows that the worker is idle
+		return !this.hasTasksInProgress();
+	}
+
+	@Override
+	public long countPendingSubqueries() {
+		// All tasks are routed to the workers right away
+		return 0;
+	}
+
 	@Override
 	public void removeWorker(final ActorRef worker) {
+
+		// A retired worker has already left the router
+		if (this.retiredWorkers.remove(worker))
+			return;
 		
 		// Decrement the worker count
 		this.numberOfWorkers--;
@@ -30,12 +30,23 @@ public interface SchedulingStrategy {
 	void schedule(final int taskId, final long startNumber, final long endNumber);
 
 	/**
-	 * Notify the completion of a worker's task.
+	 * Stop scheduling the remaining subqueries of a task. The subqueries that workers already process still complete
+	 * and are reported via {@link #finished(int, ActorRef)}. Unknown tasks must be ignored.
+	 *
+	 * @param taskId the id of the task to cancel
+	 */
+	void cancel(final int taskId);
+
+	/**
+	 * Notify the completion of a worker's task. Completions of unknown tasks or workers must be ignored, because the
+	 * {@link de.hpi.akka_tutorial.remote.actors.MasterMailbox} lets a worker's termination overtake its last completion.
 	 *
 	 * @param taskId the id of the task this worker was working on
 	 * @param worker the reference to the worker who finished the task
+	 * @return {@code true} if the completion was accepted, {@code false} if it was ignored and its results must not be
+	 *         counted
 	 */
-	void finished(final int taskId, final ActorRef worker);
+	boolean finished(final int taskId, final ActorRef worker);
 
 	/**
 	 * Check if there are still any pending tasks.
@@ -44,6 +55,14 @@ public interface SchedulingStrategy {
 	 */
 	boolean hasTasksInProgress();
 
+	/**
+	 * Check if a given task is still pending.
+	 *
+	 * @param taskId the id of the task
+	 * @return {@code true} if the task has been scheduled and is not yet complete
+	 */
+	boolean isTaskInProgress(final int taskId);
+
 	/**
 	 * Add a new {@link Worker} actor.
 	 *
@@ -51,6 +70,38 @@ public interface SchedulingStrategy {
 	 */
 	void addWorker(final ActorRef worker);
 
+	/**
+	 * Notify that a {@link Worker} looks up the primes up to some limit in a
+	 * {@link de.hpi.akka_tutorial.remote.actors.PrimeIndex} instead of computing them. Unknown workers must be ignored.
+	 *
+	 * @param worker the worker actor that has the index
+	 * @param limit the largest number that the index covers
+	 */
+	void addPrimeIndex(final ActorRef worker, final long limit);
+
+	/**
+	 * Stop assigning tasks to a {@link Worker} actor, so that it can be stopped without losing work once it
+	 * {@link #isIdle(ActorRef) is idle}. The worker still counts as a worker until it is removed.
+	 *
+	 * @param worker the worker actor to retire
+	 */
+	void retireWorker(final ActorRef worker);
+
+	/**
+	 * Check if a {@link Worker} actor has no assigned task, i.e., whether its removal would not re-schedule any work.
+	 *
+	 * @param worker the worker actor
+	 * @return {@code true} if the worker is idle
+	 */
+	boolean isIdle(final ActorRef worker);
+
+	/**
+	 * Estimate the number of subqueries that are waiting for a free {@link Worker}.
+	 *
+	 * @return the number of waiting subqueries
+	 */
+	long countPendingSubqueries();
+
 	/**
 	 * Remove a {@link Worker} actor.
 	 *
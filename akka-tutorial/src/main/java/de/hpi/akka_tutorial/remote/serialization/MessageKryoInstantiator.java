@@ -0,0 +1,70 @@
+package de.hpi.akka_tutorial.remote.serialization;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.twitter.chill.KryoInstantiator;
+
+import de.hpi.akka_tutorial.remote.actors.Listener;
+import de.hpi.akka_tutorial.remote.actors.ListenerShards;
+import de.hpi.akka_tutorial.remote.actors.Master;
+import de.hpi.akka_tutorial.remote.actors.Reaper;
+import de.hpi.akka_tutorial.remote.actors.ResultSink;
+import de.hpi.akka_tutorial.remote.actors.Shepherd;
+import de.hpi.akka_tutorial.remote.actors.Slave;
+import de.hpi.akka_tutorial.remote.actors.Worker;
+import de.hpi.akka_tutorial.remote.actors.experimental.LeaderActor;
+import de.hpi.akka_tutorial.remote.messages.ShutdownMessage;
+import de.hpi.akka_tutorial.remote.serialization.MessageSerializers.EmptyMessageSerializer;
+
+/**
+ * Creates {@link Kryo} instances that know all messages of the tutorial: Every message class is registered with a
+ * fixed ID and a hand-written serializer from {@link MessageSerializers}, so that Kryo writes the ID instead of the
+ * class name and no reflection is involved. Other classes are still serialized with Kryo's defaults.
+ * <p>
+ * Chill's {@code ConfiguredAkkaSerializer} picks up this instantiator via the key
+ * {@code com.twitter.chill.config.configuredinstantiator} in the remote profiles and adds the {@code ActorRef}
+ * serializer on top. All actor systems of a cluster must register the same IDs, so never reuse or renumber an ID.
+ */
+public class MessageKryoInstantiator extends KryoInstantiator {
+
+	private static final long serialVersionUID = -3325863946869617853L;
+
+	@Override
+	public Kryo newKryo() {
+		Kryo kryo = super.newKryo();
+
+		// The IDs below 100 are left to Kryo's default registrations
+		kryo.register(Worker.ValidationMessage.class, new MessageSerializers.ValidationMessageSerializer(), 100);
+		kryo.register(Master.RangeMessage.class, new MessageSerializers.RangeMessageSerializer(), 101);
+		kryo.register(Master.CompletionMessage.class, new MessageSerializers.CompletionMessageSerializer(), 102);
+		kryo.register(Master.RemoteSystemMessage.class, new MessageSerializers.RemoteSystemMessageSerializer(), 103);
+		kryo.register(Listener.PrimesMessage.class, new MessageSerializers.PrimesMessageSerializer(), 104);
+		kryo.register(Listener.CollectPrimesMessage.class, new MessageSerializers.CollectPrimesMessageSerializer(), 105);
+		kryo.register(Listener.CollectMaxMessage.class, new MessageSerializers.CollectMaxMessageSerializer(), 106);
+		kryo.register(Listener.CollectedPrimesMessage.class, new MessageSerializers.CollectedPrimesMessageSerializer(), 107);
+		kryo.register(Listener.CollectedMaxMessage.class, new MessageSerializers.CollectedMaxMessageSerializer(), 108);
+		kryo.register(ListenerShards.class, new MessageSerializers.ListenerShardsSerializer(), 109);
+		kryo.register(Slave.AddressMessage.class, new MessageSerializers.AddressMessageSerializer(), 110);
+		kryo.register(Slave.AcknowledgementMessage.class, new EmptyMessageSerializer<>(Slave.AcknowledgementMessage::new), 111);
+		kryo.register(Shepherd.SubscriptionMessage.class, new EmptyMessageSerializer<>(Shepherd.SubscriptionMessage::new), 112);
+		kryo.register(Reaper.WatchMeMessage.class, new EmptyMessageSerializer<>(Reaper.WatchMeMessage::new), 113);
+		kryo.register(ResultSink.GetListenersMessage.class, new EmptyMessageSerializer<>(ResultSink.GetListenersMessage::new), 114);
+		kryo.register(ResultSink.LogPrimesMessage.class, new EmptyMessageSerializer<>(ResultSink.LogPrimesMessage::new), 115);
+		kryo.register(ResultSink.LogMaxMessage.class, new EmptyMessageSerializer<>(ResultSink.LogMaxMessage::new), 116);
+		kryo.register(ShutdownMessage.class, new EmptyMessageSerializer<>(ShutdownMessage::new), 117);
+		kryo.register(Master.QueryCompletedMessage.class, new MessageSerializers.QueryCompletedMessageSerializer(), 118);
+		kryo.register(Master.PrimeIndexMessage.class, new MessageSerializers.PrimeIndexMessageSerializer(), 119);
+		kryo.register(Master.CancelMessage.class, new MessageSerializers.CancelMessageSerializer(), 120);
+		kryo.register(Listener.CollectRangeMessage.class, new MessageSerializers.CollectRangeMessageSerializer(), 121);
+		kryo.register(LeaderActor.LeadersMessage.class, new MessageSerializers.LeadersMessageSerializer(), 122);
+		kryo.register(LeaderActor.ReadMessage.class, new MessageSerializers.ReadMessageSerializer(), 123);
+		kryo.register(LeaderActor.ReadResponseMessage.class, new MessageSerializers.ReadResponseMessageSerializer(), 124);
+		kryo.register(LeaderActor.WriteMessage.class, new MessageSerializers.WriteMessageSerializer(), 125);
+		kryo.register(LeaderActor.WriteResponseMessage.class, new MessageSerializers.WriteResponseMessageSerializer(), 126);
+		kryo.register(LeaderActor.DeltaMessage.class, new MessageSerializers.DeltaMessageSerializer(), 127);
+		kryo.register(LeaderActor.DeltaAckMessage.class, new MessageSerializers.DeltaAckMessageSerializer(), 128);
+		kryo.register(LeaderActor.DigestMessage.class, new EmptyMessageSerializer<>(LeaderActor.DigestMessage::new), 129);
+		kryo.register(LeaderActor.DigestResponseMessage.class, new MessageSerializers.DigestResponseMessageSerializer(), 130);
+
+		return kryo;
+	}
+}
@@ -0,0 +1,457 @@
+package de.hpi.akka_tutorial.remote.serialization;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import akka.actor.ActorRef;
+import akka.actor.Address;
+import de.hpi.akka_tutorial.remote.actors.Listener;
+import de.hpi.akka_tutorial.remote.actors.ListenerShards;
+import de.hpi.akka_tutorial.remote.actors.Master;
+import de.hpi.akka_tutorial.remote.actors.Slave;
+import de.hpi.akka_tutorial.remote.actors.Worker;
+import de.hpi.akka_tutorial.remote.actors.experimental.LeaderActor;
+
+/**
+ * Hand-written Kryo {@link Serializer}s for the messages of the tutorial. They write the fields of a message as
+ * (variable-length) primitives instead of inspecting the message reflectively. Sequences of primes are written as
+ * differences to their predecessors, which are small for the ascending primes that the workers produce.
+ */
+final class MessageSerializers {
+
+	private MessageSerializers() {
+	}
+
+	/**
+	 * Serializes messages without fields by writing nothing at all.
+	 */
+	static class EmptyMessageSerializer<T> extends Serializer<T> {
+
+		private final Supplier<T> factory;
+
+		EmptyMessageSerializer(final Supplier<T> factory) {
+			this.factory = factory;
+		}
+
+		@Override
+		public void write(Kryo kryo, Output output, T message) {
+		}
+
+		@Override
+		public T read(Kryo kryo, Input input, Class<T> type) {
+			return this.factory.get();
+		}
+	}
+
+	static class ValidationMessageSerializer extends Serializer<Worker.ValidationMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, Worker.ValidationMessage message) {
+			output.writeVarInt(message.getId(), true);
+			output.writeVarLong(message.getRangeMin(), true);
+			output.writeVarLong(message.getRangeMax(), true);
+		}
+
+		@Override
+		public Worker.ValidationMessage read(Kryo kryo, Input input, Class<Worker.ValidationMessage> type) {
+			return new Worker.ValidationMessage(input.readVarInt(true), input.readVarLong(true), input.readVarLong(true));
+		}
+	}
+
+	static class RangeMessageSerializer extends Serializer<Master.RangeMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, Master.RangeMessage message) {
+			output.writeVarLong(message.getStartNumber(), true);
+			output.writeVarLong(message.getEndNumber(), true);
+			output.writeVarInt(message.getCorrelationId(), false);
+		}
+
+		@Override
+		public Master.RangeMessage read(Kryo kryo, Input input, Class<Master.RangeMessage> type) {
+			return new Master.RangeMessage(input.readVarLong(true), input.readVarLong(true), input.readVarInt(false));
+		}
+	}
+
+	static class QueryCompletedMessageSerializer extends Serializer<Master.QueryCompletedMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, Master.QueryCompletedMessage message) {
+			output.writeVarInt(message.getCorrelationId(), false);
+			output.writeVarLong(message.getNumPrimes(), true);
+			output.writeLong(message.getChecksum());
+		}
+
+		@Override
+		public Master.QueryCompletedMessage read(Kryo kryo, Input input, Class<Master.QueryCompletedMessage> type) {
+			return new Master.QueryCompletedMessage(input.readVarInt(false), input.readVarLong(true), input.readLong());
+		}
+	}
+
+	static class CompletionMessageSerializer extends Serializer<Master.CompletionMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, Master.CompletionMessage message) {
+			output.writeVarInt(message.getRequestId(), false);
+			output.writeVarLong(message.getNumPrimes(), true);
+			// The checksum wraps around and is therefore uniformly distributed, so it is written with a fixed length
+			output.writeLong(message.getChecksum());
+		}
+
+		@Override
+		public Master.CompletionMessage read(Kryo kryo, Input input, Class<Master.CompletionMessage> type) {
+			return new Master.CompletionMessage(input.readVarInt(false), input.readVarLong(true), input.readLong());
+		}
+	}
+
+	static class PrimeIndexMessageSerializer extends Serializer<Master.PrimeIndexMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, Master.PrimeIndexMessage message) {
+			output.writeVarLong(message.getLimit(), true);
+		}
+
+		@Override
+		public Master.PrimeIndexMessage read(Kryo kryo, Input input, Class<Master.PrimeIndexMessage> type) {
+			return new Master.PrimeIndexMessage(input.readVarLong(true));
+		}
+	}
+
+	static class CancelMessageSerializer extends Serializer<Master.CancelMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, Master.CancelMessage message) {
+			output.writeVarInt(message.getCorrelationId(), false);
+		}
+
+		@Override
+		public Master.CancelMessage read(Kryo kryo, Input input, Class<Master.CancelMessage> type) {
+			return new Master.CancelMessage(input.readVarInt(false));
+		}
+	}
+
+	static class RemoteSystemMessageSerializer extends Serializer<Master.RemoteSystemMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, Master.RemoteSystemMessage message) {
+			writeAddress(output, message.getRemoteAddress());
+		}
+
+		@Override
+		public Master.RemoteSystemMessage read(Kryo kryo, Input input, Class<Master.RemoteSystemMessage> type) {
+			return new Master.RemoteSystemMessage(readAddress(input));
+		}
+	}
+
+	static class AddressMessageSerializer extends Serializer<Slave.AddressMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, Slave.AddressMessage message) {
+			writeAddress(output, message.getAddress());
+		}
+
+		@Override
+		public Slave.AddressMessage read(Kryo kryo, Input input, Class<Slave.AddressMessage> type) {
+			return new Slave.AddressMessage(readAddress(input));
+		}
+	}
+
+	static class PrimesMessageSerializer extends Serializer<Listener.PrimesMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, Listener.PrimesMessage message) {
+			List<Long> primes = message.getPrimes();
+			output.writeVarInt(primes.size(), true);
+			long previous = 0;
+			for (long prime : primes) {
+				output.writeVarLong(prime - previous, false);
+				previous = prime;
+			}
+		}
+
+		@Override
+		public Listener.PrimesMessage read(Kryo kryo, Input input, Class<Listener.PrimesMessage> type) {
+			int size = input.readVarInt(true);
+			List<Long> primes = new ArrayList<>(size);
+			long previous = 0;
+			for (int i = 0; i < size; i++) {
+				previous += input.readVarLong(false);
+				primes.add(previous);
+			}
+			return new Listener.PrimesMessage(primes);
+		}
+	}
+
+	static class CollectPrimesMessageSerializer extends Serializer<Listener.CollectPrimesMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, Listener.CollectPrimesMessage message) {
+			output.writeVarInt(message.getQueryId(), false);
+		}
+
+		@Override
+		public Listener.CollectPrimesMessage read(Kryo kryo, Input input, Class<Listener.CollectPrimesMessage> type) {
+			return new Listener.CollectPrimesMessage(input.readVarInt(false));
+		}
+	}
+
+	static class CollectRangeMessageSerializer extends Serializer<Listener.CollectRangeMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, Listener.CollectRangeMessage message) {
+			output.writeVarInt(message.getQueryId(), false);
+			output.writeVarLong(message.getStartNumber(), true);
+			output.writeVarLong(message.getEndNumber(), true);
+			output.writeBoolean(message.isMaxOnly());
+		}
+
+		@Override
+		public Listener.CollectRangeMessage read(Kryo kryo, Input input, Class<Listener.CollectRangeMessage> type) {
+			return new Listener.CollectRangeMessage(input.readVarInt(false), input.readVarLong(true), input.readVarLong(true), input.readBoolean());
+		}
+	}
+
+	static class CollectMaxMessageSerializer extends Serializer<Listener.CollectMaxMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, Listener.CollectMaxMessage message) {
+			output.writeVarInt(message.getQueryId(), false);
+		}
+
+		@Override
+		public Listener.CollectMaxMessage read(Kryo kryo, Input input, Class<Listener.CollectMaxMessage> type) {
+			return new Listener.CollectMaxMessage(input.readVarInt(false));
+		}
+	}
+
+	static class CollectedPrimesMessageSerializer extends Serializer<Listener.CollectedPrimesMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, Listener.CollectedPrimesMessage message) {
+			output.writeVarInt(message.getQueryId(), false);
+			long[] primes = message.getPrimes();
+			output.writeVarInt(primes.length, true);
+			long previous = 0;
+			for (long prime : primes) {
+				output.writeVarLong(prime - previous, false);
+				previous = prime;
+			}
+		}
+
+		@Override
+		public Listener.CollectedPrimesMessage read(Kryo kryo, Input input, Class<Listener.CollectedPrimesMessage> type) {
+			int queryId = input.readVarInt(false);
+			long[] primes = new long[input.readVarInt(true)];
+			long previous = 0;
+			for (int i = 0; i < primes.length; i++) {
+				previous += input.readVarLong(false);
+				primes[i] = previous;
+			}
+			return new Listener.CollectedPrimesMessage(queryId, primes);
+		}
+	}
+
+	static class CollectedMaxMessageSerializer extends Serializer<Listener.CollectedMaxMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, Listener.CollectedMaxMessage message) {
+			output.writeVarInt(message.getQueryId(), false);
+			output.writeVarLong(message.getMax(), true);
+			output.writeVarLong(message.getNumPrimes(), true);
+			output.writeVarLong(message.getChecksum(), false);
+		}
+
+		@Override
+		public Listener.CollectedMaxMessage read(Kryo kryo, Input input, Class<Listener.CollectedMaxMessage> type) {
+			return new Listener.CollectedMaxMessage(input.readVarInt(false), input.readVarLong(true), input.readVarLong(true), input.readVarLong(false));
+		}
+	}
+
+	/**
+	 * Writes only the shards of a {@link ListenerShards} table; the routing table is rebuilt on deserialization.
+	 */
+	static class ListenerShardsSerializer extends Serializer<ListenerShards> {
+
+		@Override
+		public void write(Kryo kryo, Output output, ListenerShards listeners) {
+			output.writeVarInt(listeners.size(), true);
+			for (ActorRef shard : listeners.getAll())
+				kryo.writeObject(output, shard);
+		}
+
+		@Override
+		public ListenerShards read(Kryo kryo, Input input, Class<ListenerShards> type) {
+			int size = input.readVarInt(true);
+			List<ActorRef> shards = new ArrayList<>(size);
+			for (int i = 0; i < size; i++)
+				shards.add(kryo.readObject(input, ActorRef.class));
+			return new ListenerShards(shards);
+		}
+	}
+
+	static class LeadersMessageSerializer extends Serializer<LeaderActor.LeadersMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, LeaderActor.LeadersMessage message) {
+			output.writeVarInt(message.leaders.size(), true);
+			for (ActorRef leader : message.leaders)
+				kryo.writeObject(output, leader);
+		}
+
+		@Override
+		public LeaderActor.LeadersMessage read(Kryo kryo, Input input, Class<LeaderActor.LeadersMessage> type) {
+			int size = input.readVarInt(true);
+			List<ActorRef> leaders = new ArrayList<>(size);
+			for (int i = 0; i < size; i++)
+				leaders.add(kryo.readObject(input, ActorRef.class));
+			return new LeaderActor.LeadersMessage(leaders);
+		}
+	}
+
+	static class ReadMessageSerializer extends Serializer<LeaderActor.ReadMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, LeaderActor.ReadMessage message) {
+			output.writeVarInt(message.key, false);
+		}
+
+		@Override
+		public LeaderActor.ReadMessage read(Kryo kryo, Input input, Class<LeaderActor.ReadMessage> type) {
+			return new LeaderActor.ReadMessage(input.readVarInt(false));
+		}
+	}
+
+	static class ReadResponseMessageSerializer extends Serializer<LeaderActor.ReadResponseMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, LeaderActor.ReadResponseMessage message) {
+			// Kryo writes null strings as well
+			output.writeString(message.value);
+		}
+
+		@Override
+		public LeaderActor.ReadResponseMessage read(Kryo kryo, Input input, Class<LeaderActor.ReadResponseMessage> type) {
+			return new LeaderActor.ReadResponseMessage(input.readString());
+		}
+	}
+
+	static class WriteMessageSerializer extends Serializer<LeaderActor.WriteMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, LeaderActor.WriteMessage message) {
+			output.writeVarInt(message.key, false);
+			output.writeString(message.value);
+			output.writeVarInt(message.counter, true);
+		}
+
+		@Override
+		public LeaderActor.WriteMessage read(Kryo kryo, Input input, Class<LeaderActor.WriteMessage> type) {
+			return new LeaderActor.WriteMessage(input.readVarInt(false), input.readString(), input.readVarInt(true));
+		}
+	}
+
+	static class WriteResponseMessageSerializer extends Serializer<LeaderActor.WriteResponseMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, LeaderActor.WriteResponseMessage message) {
+			output.writeVarInt(message.counter, true);
+		}
+
+		@Override
+		public LeaderActor.WriteResponseMessage read(Kryo kryo, Input input, Class<LeaderActor.WriteResponseMessage> type) {
+			return new LeaderActor.WriteResponseMessage(input.readVarInt(true));
+		}
+	}
+
+	/**
+	 * Writes the changes of a {@link LeaderActor.DeltaMessage} as the fields of their keys and timestamped values one
+	 * after another, so that the values need no class information.
+	 */
+	static class DeltaMessageSerializer extends Serializer<LeaderActor.DeltaMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, LeaderActor.DeltaMessage message) {
+			output.writeVarInt(message.identifier, true);
+			output.writeVarLong(message.fromVersion, true);
+			output.writeVarLong(message.toVersion, true);
+			output.writeVarInt(message.keys.length, true);
+			for (int i = 0; i < message.keys.length; i++) {
+				LeaderActor.LamportTimestampedValue value = message.values[i];
+				output.writeVarInt(message.keys[i], false);
+				output.writeString(value.value);
+				output.writeVarInt(value.counter, true);
+				output.writeVarInt(value.identifier, true);
+			}
+		}
+
+		@Override
+		public LeaderActor.DeltaMessage read(Kryo kryo, Input input, Class<LeaderActor.DeltaMessage> type) {
+			int identifier = input.readVarInt(true);
+			long fromVersion = input.readVarLong(true);
+			long toVersion = input.readVarLong(true);
+			int size = input.readVarInt(true);
+			int[] keys = new int[size];
+			LeaderActor.LamportTimestampedValue[] values = new LeaderActor.LamportTimestampedValue[size];
+			for (int i = 0; i < size; i++) {
+				keys[i] = input.readVarInt(false);
+				values[i] = new LeaderActor.LamportTimestampedValue(input.readString(), input.readVarInt(true), input.readVarInt(true));
+			}
+			return new LeaderActor.DeltaMessage(identifier, fromVersion, toVersion, keys, values);
+		}
+	}
+
+	static class DeltaAckMessageSerializer extends Serializer<LeaderActor.DeltaAckMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, LeaderActor.DeltaAckMessage message) {
+			output.writeVarLong(message.version, true);
+		}
+
+		@Override
+		public LeaderActor.DeltaAckMessage read(Kryo kryo, Input input, Class<LeaderActor.DeltaAckMessage> type) {
+			return new LeaderActor.DeltaAckMessage(input.readVarLong(true));
+		}
+	}
+
+	static class DigestResponseMessageSerializer extends Serializer<LeaderActor.DigestResponseMessage> {
+
+		@Override
+		public void write(Kryo kryo, Output output, LeaderActor.DigestResponseMessage message) {
+			output.writeVarInt(message.size, true);
+			// The digest is a hash and therefore uniformly distributed, so it is written with a fixed length
+			output.writeLong(message.digest);
+		}
+
+		@Override
+		public LeaderActor.DigestResponseMessage read(Kryo kryo, Input input, Class<LeaderActor.DigestResponseMessage> type) {
+			return new LeaderActor.DigestResponseMessage(input.readVarInt(true), input.readLong());
+		}
+	}
+
+	/**
+	 * Write an {@link Address}. The addresses of remote actor systems always have both a host and a port, local
+	 * addresses have neither.
+	 */
+	private static void writeAddress(Output output, Address address) {
+		output.writeString(address.protocol());
+		output.writeString(address.system());
+		output.writeString(address.getHost().orElse(null));
+		output.writeVarInt(address.getPort().orElse(-1) + 1, true);
+	}
+
+	private static Address readAddress(Input input) {
+		String protocol = input.readString();
+		String system = input.readString();
+		String host = input.readString();
+		int port = input.readVarInt(true) - 1;
+		if (host == null)
+			return new Address(protocol, system);
+		return new Address(protocol, system, host, port);
+	}
+}
@@ -18,6 +18,21 @@ import com.typesafe.config.ConfigFactory;
  */
 public class AkkaUtils {
 
+	/**
+	 * The dispatcher for CPU-bound actors, as configured in {@code base.conf}.
+	 */
+	public static final String COMPUTE_DISPATCHER = "compute-dispatcher";
+
+	/**
+	 * The dispatcher for actors that coordinate the others, as configured in {@code base.conf}.
+	 */
+	public static final String COORDINATION_DISPATCHER = "coordination-dispatcher";
+
+	/**
+	 * The dispatcher for blocking I/O, as configured in {@code base.conf}.
+	 */
+	public static final String BLOCKING_IO_DISPATCHER = "blocking-io-dispatcher";
+
 	/**
 	 * Binding to replace variables in our pimped {@code .conf} files.
 	 */
@@ -35,6 +50,38 @@ public class AkkaUtils {
 		}
 	}
 
+	/**
+	 * The remoting profiles that the tutorial supports.
+	 */
+	public enum Transport {
+
+		/**
+		 * The classic, Netty-based remoting (deprecated since Akka 2.6).
+		 */
+		CLASSIC("akka.tcp", "akka-tutorial/remote.conf"),
+
+		/**
+		 * The Artery remoting over TCP with a dedicated stream for large messages.
+		 */
+		ARTERY("akka", "akka-tutorial/remote-artery.conf");
+
+		private final String protocol, configResource;
+
+		Transport(String protocol, String configResource) {
+			this.protocol = protocol;
+			this.configResource = configResource;
+		}
+
+		/**
+		 * Provide the protocol that addresses of remote actor systems use with this transport.
+		 *
+		 * @return the protocol, e.g., {@code akka.tcp}
+		 */
+		public String getProtocol() {
+			return this.protocol;
+		}
+	}
+
 	/**
 	 * Load a {@link Config}.
 	 *
@@ -58,10 +105,18 @@ public class AkkaUtils {
 	}
 
 
+	public static Config createLocalAkkaConfig() {
+		return loadConfig("akka-tutorial/base.conf");
+	}
+
 	public static Config createRemoteAkkaConfig(String host, int port) {
+		return createRemoteAkkaConfig(host, port, Transport.ARTERY);
+	}
+
+	public static Config createRemoteAkkaConfig(String host, int port, Transport transport) {
 		Config baseConfig = loadConfig("akka-tutorial/base.conf");
 		Config remoteConfig = loadConfig(
-				"akka-tutorial/remote.conf",
+				transport.configResource,
 				new VariableBinding("host", host),
 				new VariableBinding("port", port)
 		);
@@ -0,0 +1,178 @@
+package de.hpi.akka_tutorial.util;
+
+import java.util.Arrays;
+
+/**
+ * A hash map with primitive {@code int} keys and non-{@code null} values. It uses open addressing with linear probing,
+ * so that neither the keys nor the entries need to be boxed. Entries cannot be removed.
+ *
+ * @param <V> the type of the values
+ */
+public class IntObjectHashMap<V> {
+
+	/**
+	 * Receives the entries of an {@link IntObjectHashMap}.
+	 */
+	@FunctionalInterface
+	public interface EntryConsumer<V> {
+
+		void accept(int key, V value);
+	}
+
+	/**
+	 * Iterates over the entries of an {@link IntObjectHashMap}. Other than {@link #forEach(EntryConsumer)}, it lets the
+	 * caller throw checked exceptions.
+	 */
+	public static class Cursor<V> {
+
+		private final IntObjectHashMap<V> map;
+
+		private int slot = -1;
+
+		private Cursor(IntObjectHashMap<V> map) {
+			this.map = map;
+		}
+
+		/**
+		 * @return whether the cursor has moved to another entry
+		 */
+		public boolean advance() {
+			while (++this.slot < this.map.values.length)
+				if (this.map.values[this.slot] != null)
+					return true;
+			return false;
+		}
+
+		public int key() {
+			return this.map.keys[this.slot];
+		}
+
+		@SuppressWarnings("unchecked")
+		public V value() {
+			return (V) this.map.values[this.slot];
+		}
+	}
+
+	private static final float MAX_LOAD_FACTOR = 0.5f;
+
+	private int[] keys;
+
+	// A slot is occupied if and only if its value is not null
+	private Object[] values;
+
+	private int size = 0;
+
+	// The mask to map hashes to slots, i.e., the capacity minus one
+	private int mask;
+
+	public IntObjectHashMap() {
+		this(16);
+	}
+
+	public IntObjectHashMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(2, (int) Math.ceil(expectedSize / MAX_LOAD_FACTOR)) - 1) << 1;
+		this.keys = new int[capacity];
+		this.values = new Object[capacity];
+		this.mask = capacity - 1;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public boolean containsKey(int key) {
+		return this.get(key) != null;
+	}
+
+	/**
+	 * @return the value for the key or {@code null} if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		for (int slot = slot(key, this.mask); this.values[slot] != null; slot = (slot + 1) & this.mask)
+			if (this.keys[slot] == key)
+				return (V) this.values[slot];
+		return null;
+	}
+
+	/**
+	 * @return the value that was previously associated with the key or {@code null} if there was none
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value) {
+		if (value == null)
+			throw new IllegalArgumentException("Null values are not supported.");
+
+		int slot = slot(key, this.mask);
+		for (; this.values[slot] != null; slot = (slot + 1) & this.mask) {
+			if (this.keys[slot] == key) {
+				V oldValue = (V) this.values[slot];
+				this.values[slot] = value;
+				return oldValue;
+			}
+		}
+
+		this.keys[slot] = key;
+		this.values[slot] = value;
+		if (++this.size > this.values.length * MAX_LOAD_FACTOR)
+			this.resize(this.values.length << 1);
+		return null;
+	}
+
+	public void clear() {
+		Arrays.fill(this.values, null);
+		this.size = 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	public void forEach(EntryConsumer<? super V> consumer) {
+		for (int slot = 0; slot < this.values.length; slot++)
+			if (this.values[slot] != null)
+				consumer.accept(this.keys[slot], (V) this.values[slot]);
+	}
+
+	public Cursor<V> cursor() {
+		return new Cursor<>(this);
+	}
+
+	/**
+	 * @return a shallow copy of this map
+	 */
+	public IntObjectHashMap<V> copy() {
+		IntObjectHashMap<V> copy = new IntObjectHashMap<>(0);
+		copy.keys = this.keys.clone();
+		copy.values = this.values.clone();
+		copy.size = this.size;
+		copy.mask = this.mask;
+		return copy;
+	}
+
+	private void resize(int capacity) {
+		int[] oldKeys = this.keys;
+		Object[] oldValues = this.values;
+
+		this.keys = new int[capacity];
+		this.values = new Object[capacity];
+		this.mask = capacity - 1;
+
+		for (int oldSlot = 0; oldSlot < oldValues.length; oldSlot++) {
+			if (oldValues[oldSlot] == null)
+				continue;
+			int slot = slot(oldKeys[oldSlot], this.mask);
+			while (this.values[slot] != null)
+				slot = (slot + 1) & this.mask;
+			this.keys[slot] = oldKeys[oldSlot];
+			this.values[slot] = oldValues[oldSlot];
+		}
+	}
+
+	private static int slot(int key, int mask) {
+		// Spread the bits, because consecutive keys would otherwise form long probe sequences
+		int hash = key * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+}
@@ -0,0 +1,121 @@
+package de.hpi.akka_tutorial.remote;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.hpi.akka_tutorial.remote.actors.Master;
+
+/**
+ * This class contains tests for the embedded {@link PrimeCluster}.
+ */
+public class PrimeClusterTest {
+
+	private PrimeCluster cluster;
+
+	@Before
+	public void setUp() {
+		this.cluster = PrimeCluster.startLocal(Master.PoolSettings.fixed(2), 3);
+	}
+
+	@Test
+	public void shouldAggregatePrimes() throws Exception {
+		PrimeQuery count = this.submit(1, 1_000, PrimeQuery.Mode.COUNT);
+		PrimeQuery max = this.submit(1, 1_000, PrimeQuery.Mode.MAX);
+		PrimeQuery empty = this.submit(24, 28, PrimeQuery.Mode.MAX);
+
+		PrimeQuery.Aggregates countAggregates = count.aggregates().toCompletableFuture().get(10, TimeUnit.SECONDS);
+		assertEquals(168, countAggregates.getNumPrimes());
+		assertEquals(76_127, countAggregates.getChecksum());
+		assertEquals(OptionalLong.empty(), countAggregates.getMax());
+
+		assertEquals(OptionalLong.of(997), max.aggregates().toCompletableFuture().get(10, TimeUnit.SECONDS).getMax());
+		assertEquals(OptionalLong.empty(), empty.aggregates().toCompletableFuture().get(10, TimeUnit.SECONDS).getMax());
+	}
+
+	@Test
+	public void shouldStreamPrimesAcrossShards() throws Exception {
+		// The range spans several blocks and thus several shards
+		long startNumber = 99_990, endNumber = 300_010;
+		List<Long> expectedPrimes = new ArrayList<>();
+		for (long number = startNumber; number <= endNumber; number++)
+			if (isPrime(number))
+				expectedPrimes.add(number);
+
+		PrimeQuery query = this.submit(startNumber, endNumber, PrimeQuery.Mode.PRIMES);
+		List<Long> streamedPrimes = new ArrayList<>();
+		query.forEachPrime(streamedPrimes::add).toCompletableFuture().get(10, TimeUnit.SECONDS);
+		assertEquals(expectedPrimes, streamedPrimes);
+
+		List<Long> iteratedPrimes = new ArrayList<>();
+		for (PrimitiveIterator.OfLong primes = query.iterator(); primes.hasNext(); )
+			iteratedPrimes.add(primes.nextLong());
+		assertEquals(expectedPrimes, iteratedPrimes);
+		assertEquals(expectedPrimes.size(), query.aggregates().toCompletableFuture().get().getNumPrimes());
+	}
+
+	@Test
+	public void shouldCancelQueries() throws Exception {
+		// Large numbers take long to check, so the query is still running when it is cancelled
+		PrimeQuery query = this.submit(10_000_000_000L, 20_000_000_000L, PrimeQuery.Mode.COUNT);
+		assertTrue(query.cancel());
+		assertTrue(query.isCancelled());
+		try {
+			query.aggregates().toCompletableFuture().get(10, TimeUnit.SECONDS);
+		} catch (CancellationException e) {
+			// expected
+		}
+
+		// The workers are free for further queries
+		PrimeQuery nextQuery = this.submit(1, 100, PrimeQuery.Mode.COUNT);
+		assertEquals(25, nextQuery.aggregates().toCompletableFuture().get(10, TimeUnit.SECONDS).getNumPrimes());
+		assertFalse(nextQuery.cancel());
+	}
+
+	@Test
+	public void shouldRejectQueriesAfterClose() throws Exception {
+		PrimeQuery query = this.submit(1, 100_000, PrimeQuery.Mode.COUNT);
+		this.cluster.close();
+
+		// The query in flight completes before the cluster stops
+		assertEquals(9_592, query.aggregates().toCompletableFuture().get(10, TimeUnit.SECONDS).getNumPrimes());
+		CompletableFuture<PrimeQuery> rejected = this.cluster.submit(1, 100, PrimeQuery.Mode.COUNT).toCompletableFuture();
+		try {
+			rejected.get(10, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+			return;
+		}
+		throw new AssertionError("The closed cluster accepted a query.");
+	}
+
+	private PrimeQuery submit(long startNumber, long endNumber, PrimeQuery.Mode mode) throws Exception {
+		return this.cluster.submit(startNumber, endNumber, mode).toCompletableFuture().get(10, TimeUnit.SECONDS);
+	}
+
+	private static boolean isPrime(long n) {
+		for (long i = 2; i * i <= n; i++)
+			if (n % i == 0)
+				return false;
+		return n > 1;
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.cluster.close();
+	}
+
+}
@@ -0,0 +1,69 @@
+package de.hpi.akka_tutorial.remote.actors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+import de.hpi.akka_tutorial.util.AkkaUtils;
+import scala.concurrent.duration.Duration;
+
+/**
+ * This class contains tests for {@link Listener}s.
+ */
+public class ListenerTest {
+
+	private ActorSystem actorSystem;
+
+	@Before
+	public void setUp() {
+		this.actorSystem = ActorSystem.create("test", AkkaUtils.createLocalAkkaConfig());
+	}
+
+	@Test
+	public void shouldAnswerQueriesInSortedOrder() {
+		// The double brackets are important! The inner bracket pair declares an anonymous constructor.
+		new TestKit(this.actorSystem) {{
+			ActorRef listener = actorSystem.actorOf(Listener.props());
+
+			// Send primes of several blocks out of order and with a duplicate.
+			long block = ListenerShards.BLOCK_SIZE;
+			listener.tell(new Listener.PrimesMessage(Arrays.asList(2 * block + 3, 7L, 2L)), this.getRef());
+			listener.tell(new Listener.PrimesMessage(Arrays.asList(block + 1, 5L, 7L, 3L)), this.getRef());
+
+			listener.tell(new Listener.CollectPrimesMessage(0), this.getRef());
+			Listener.CollectedPrimesMessage primes = this.expectMsgClass(Duration.create(3, "secs"), Listener.CollectedPrimesMessage.class);
+			assertArrayEquals(new long[] {2, 3, 5, 7, block + 1, 2 * block + 3}, primes.getPrimes());
+
+			listener.tell(new Listener.CollectMaxMessage(1), this.getRef());
+			assertEquals(2 * block + 3, this.expectMsgClass(Duration.create(3, "secs"), Listener.CollectedMaxMessage.class).getMax());
+
+			// Ranges may start and end within blocks.
+			listener.tell(new Listener.CollectRangeMessage(2, 4, block + 1, false), this.getRef());
+			primes = this.expectMsgClass(Duration.create(3, "secs"), Listener.CollectedPrimesMessage.class);
+			assertArrayEquals(new long[] {5, 7, block + 1}, primes.getPrimes());
+
+			listener.tell(new Listener.CollectRangeMessage(3, 4, 2 * block, true), this.getRef());
+			Listener.CollectedMaxMessage max = this.expectMsgClass(Duration.create(3, "secs"), Listener.CollectedMaxMessage.class);
+			assertEquals(block + 1, max.getMax());
+			assertEquals(3, max.getNumPrimes());
+			assertEquals(5 + 7 + block + 1, max.getChecksum());
+
+			listener.tell(new Listener.CollectRangeMessage(4, 8, block, true), this.getRef());
+			assertEquals(0, this.expectMsgClass(Duration.create(3, "secs"), Listener.CollectedMaxMessage.class).getMax());
+		}};
+	}
+
+	@After
+	public void tearDown() {
+		this.actorSystem.terminate();
+	}
+
+}
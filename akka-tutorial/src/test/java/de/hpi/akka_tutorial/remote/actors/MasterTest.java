@@ -0,0 +1,90 @@
+package de.hpi.akka_tutorial.remote.actors;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+import de.hpi.akka_tutorial.remote.actors.scheduling.ReactiveSchedulingStrategy;
+import de.hpi.akka_tutorial.util.AkkaUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class contains tests for the elastic worker pool of the {@link Master}.
+ */
+public class MasterTest {
+
+	private ActorSystem actorSystem;
+
+	@Before
+	public void setUp() {
+		this.actorSystem = ActorSystem.create("test", AkkaUtils.createLocalAkkaConfig());
+	}
+
+	@Test
+	public void shouldGrowAndShrinkWorkerPool() {
+		// The double brackets are important! The inner bracket pair declares an anonymous constructor.
+		new TestKit(this.actorSystem) {{
+			TestKit listener = new TestKit(actorSystem);
+			ListenerShards listeners = new ListenerShards(Collections.singletonList(listener.getRef()));
+			TestKit pool = subscribeToPoolSize();
+			Master.PoolSettings poolSettings = new Master.PoolSettings(0, 0, 2, 100, 300);
+			ActorRef master = actorSystem.actorOf(Master.props(listeners, new ReactiveSchedulingStrategy.Factory(), poolSettings), Master.DEFAULT_NAME);
+
+			// The empty pool grows for the query, so that the query completes.
+			master.tell(new Master.RangeMessage(1, 1_000_000, 7), this.getRef());
+			Master.QueryCompletedMessage completed = this.expectMsgClass(Duration.ofSeconds(30), Master.QueryCompletedMessage.class);
+			assertEquals(7, completed.getCorrelationId());
+			assertEquals(78_498, completed.getNumPrimes());
+
+			// Once the workers have been spare for the scale-down delay, the pool shrinks back to its lower bound and
+			// the retired workers stop.
+			Master.PoolSizeMessage poolSize;
+			do {
+				poolSize = pool.expectMsgClass(Duration.ofSeconds(5), Master.PoolSizeMessage.class);
+			} while (poolSize.getNumWorkers() > 0 || poolSize.getNumRetiringWorkers() > 0);
+		}};
+	}
+
+	@Test
+	public void shouldKeepWorkerPoolWithinBounds() {
+		// The double brackets are important! The inner bracket pair declares an anonymous constructor.
+		new TestKit(this.actorSystem) {{
+			TestKit listener = new TestKit(actorSystem);
+			ListenerShards listeners = new ListenerShards(Collections.singletonList(listener.getRef()));
+			TestKit pool = subscribeToPoolSize();
+			Master.PoolSettings poolSettings = new Master.PoolSettings(1, 1, 3, 100, 300);
+			actorSystem.actorOf(Master.props(listeners, new ReactiveSchedulingStrategy.Factory(), poolSettings), Master.DEFAULT_NAME)
+					.tell(new Master.RangeMessage(1, 10_000_000, 8), this.getRef());
+
+			// Many waiting subqueries let the pool grow, but not beyond its upper bound.
+			Master.PoolSizeMessage poolSize;
+			do {
+				poolSize = pool.expectMsgClass(Duration.ofSeconds(5), Master.PoolSizeMessage.class);
+				assertTrue(poolSize.toString(), poolSize.getNumWorkers() <= 3);
+			} while (poolSize.getNumWorkers() < 3);
+			this.expectMsgClass(Duration.ofSeconds(60), Master.QueryCompletedMessage.class);
+		}};
+	}
+
+	/**
+	 * Create a probe that receives the {@link Master.PoolSizeMessage}s of the master.
+	 */
+	private TestKit subscribeToPoolSize() {
+		TestKit probe = new TestKit(this.actorSystem);
+		this.actorSystem.getEventStream().subscribe(probe.getRef(), Master.PoolSizeMessage.class);
+		return probe;
+	}
+
+	@After
+	public void tearDown() {
+		TestKit.shutdownActorSystem(this.actorSystem);
+	}
+
+}
@@ -0,0 +1,67 @@
+package de.hpi.akka_tutorial.remote.actors;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This class contains tests for the {@link PrimeIndex}.
+ */
+public class PrimeIndexTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void shouldIndexAllPrimes() throws IOException {
+		// Small blocks make the index span many of them, and the limit ends within the last block
+		File file = new File(this.temporaryFolder.getRoot(), "primes.idx");
+		PrimeIndex.build(file.toPath(), 100_000, 64);
+		PrimeIndex index = PrimeIndex.open(file.toPath());
+
+		assertEquals(100_000, index.getLimit());
+		assertEquals(9_592, index.getNumPrimes());
+		for (long number = 0; number <= index.getLimit(); number++)
+			assertEquals("isPrime(" + number + ")", isPrime(number), index.isPrime(number));
+	}
+
+	@Test
+	public void shouldEnumeratePrimesOfRanges() throws IOException {
+		File file = new File(this.temporaryFolder.getRoot(), "primes.idx");
+		PrimeIndex.build(file.toPath(), 10_007, 16);
+		PrimeIndex index = PrimeIndex.open(file.toPath());
+
+		long[][] ranges = {{1, 10}, {2, 5}, {29, 31}, {479, 481}, {9_900, 10_007}, {10_007, 10_007}, {11, 7}};
+		for (long[] range : ranges) {
+			List<Long> expectedPrimes = new ArrayList<>(), primes = new ArrayList<>();
+			for (long number = range[0]; number <= range[1]; number++)
+				if (isPrime(number))
+					expectedPrimes.add(number);
+			index.forEachPrime(range[0], range[1], primes::add);
+			assertEquals(expectedPrimes, primes);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectRangesBeyondTheLimit() throws IOException {
+		File file = new File(this.temporaryFolder.getRoot(), "primes.idx");
+		PrimeIndex.build(file.toPath(), 1_000, 16);
+		PrimeIndex.open(file.toPath()).forEachPrime(900, 1_001, prime -> {
+		});
+	}
+
+	private static boolean isPrime(long n) {
+		for (long i = 2; i * i <= n; i++)
+			if (n % i == 0)
+				return false;
+		return n > 1;
+	}
+
+}
@@ -3,12 +3,14 @@ package de.hpi.akka_tutorial.remote.actors;
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
 import akka.testkit.javadsl.TestKit;
+import de.hpi.akka_tutorial.util.AkkaUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import scala.concurrent.duration.Duration;
 
 import java.util.Arrays;
+import java.util.Collections;
 
 /**
  * This class contains tests for {@link Worker}s.
@@ -19,20 +21,23 @@ public class WorkerTest {
 
 	@Before
 	public void setUp() {
-		this.actorSystem = ActorSystem.create();
+		this.actorSystem = ActorSystem.create("test", AkkaUtils.createLocalAkkaConfig());
 	}
 
 	@Test
 	public void shouldFindCorrectPrimes() {
 		// The double brackets are important! The inner bracket pair declares an anonymous constructor.
 		new TestKit(this.actorSystem) {{
-			ActorRef worker = actorSystem.actorOf(Worker.props());
+			TestKit listener = new TestKit(actorSystem);
+			ActorRef worker = actorSystem.actorOf(Worker.props(new ListenerShards(Collections.singletonList(listener.getRef()))));
 
 			// Send a message to the worker.
 			worker.tell(new Worker.ValidationMessage(0, 1, 10), this.getRef());
 
-			// Expect the correct response.
-			Master.PrimesMessage expectedMsg = new Master.PrimesMessage(0, Arrays.asList(2L, 3L, 5L, 7L), true);
+			// Expect the primes at the listener and only a summary at the master.
+			Listener.PrimesMessage expectedPrimes = new Listener.PrimesMessage(Arrays.asList(2L, 3L, 5L, 7L));
+			listener.expectMsg(Duration.create(3, "secs"), expectedPrimes);
+			Master.CompletionMessage expectedMsg = new Master.CompletionMessage(0, 4, 17);
 			this.expectMsg(Duration.create(3, "secs"), expectedMsg);
 		}};
 	}
@@ -41,17 +46,56 @@ public class WorkerTest {
 	public void shouldInterpretRangeCorrectly() {
 		// The double brackets are important! The inner bracket pair declares an anonymous constructor.
 		new TestKit(this.actorSystem) {{
-			ActorRef worker = actorSystem.actorOf(Worker.props());
+			TestKit listener = new TestKit(actorSystem);
+			ActorRef worker = actorSystem.actorOf(Worker.props(new ListenerShards(Collections.singletonList(listener.getRef()))));
 
 			// Send a message to the worker.
 			worker.tell(new Worker.ValidationMessage(1, 5, 11), this.getRef());
 
-			// Expect the correct response.
-			Master.PrimesMessage expectedMsg = new Master.PrimesMessage(1, Arrays.asList(5L, 7L, 11L), true);
+			// Expect the primes at the listener and only a summary at the master.
+			Listener.PrimesMessage expectedPrimes = new Listener.PrimesMessage(Arrays.asList(5L, 7L, 11L));
+			listener.expectMsg(Duration.create(3, "secs"), expectedPrimes);
+			Master.CompletionMessage expectedMsg = new Master.CompletionMessage(1, 3, 23);
 			this.expectMsg(Duration.create(3, "secs"), expectedMsg);
 		}};
 	}
 
+	@Test
+	public void shouldRouteBatchesToOwningShards() {
+		// The double brackets are important! The inner bracket pair declares an anonymous constructor.
+		new TestKit(this.actorSystem) {{
+			TestKit shard0 = new TestKit(actorSystem);
+			TestKit shard1 = new TestKit(actorSystem);
+			ListenerShards listeners = new ListenerShards(Arrays.asList(shard0.getRef(), shard1.getRef()));
+			ActorRef worker = actorSystem.actorOf(Worker.props(listeners));
+
+			// Find a block boundary at which the ownership of the number space changes between the two shards.
+			long boundary = ListenerShards.BLOCK_SIZE;
+			while (listeners.shardOf(boundary - 1) == listeners.shardOf(boundary))
+				boundary += ListenerShards.BLOCK_SIZE;
+
+			// Send a message that covers the two primes around the boundary, i.e., primes of both shards.
+			long lowerPrime = boundary - 1, upperPrime = boundary;
+			while (!isPrime(lowerPrime)) lowerPrime--;
+			while (!isPrime(upperPrime)) upperPrime++;
+			worker.tell(new Worker.ValidationMessage(2, lowerPrime, upperPrime), this.getRef());
+
+			// Expect each prime at its owning shard.
+			TestKit lowerShard = listeners.shardOf(lowerPrime) == 0 ? shard0 : shard1;
+			TestKit upperShard = listeners.shardOf(upperPrime) == 0 ? shard0 : shard1;
+			lowerShard.expectMsg(Duration.create(3, "secs"), new Listener.PrimesMessage(Arrays.asList(lowerPrime)));
+			upperShard.expectMsg(Duration.create(3, "secs"), new Listener.PrimesMessage(Arrays.asList(upperPrime)));
+			this.expectMsg(Duration.create(3, "secs"), new Master.CompletionMessage(2, 2, lowerPrime + upperPrime));
+		}};
+	}
+
+	private static boolean isPrime(long n) {
+		for (long i = 2; i * i <= n; i++)
+			if (n % i == 0)
+				return false;
+		return n > 1;
+	}
+
 	@After
 	public void tearDown() {
 		this.actorSystem.terminate();
@@ -0,0 +1,154 @@
+package de.hpi.akka_tutorial.remote.actors.experimental;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+import de.hpi.akka_tutorial.util.AkkaUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import scala.concurrent.duration.Duration;
+
+/**
+ * This class contains tests for the replication among {@link LeaderActor}s.
+ */
+public class LeaderActorTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private ActorSystem actorSystem;
+
+	@Before
+	public void setUp() {
+		this.actorSystem = ActorSystem.create("test", AkkaUtils.createLocalAkkaConfig());
+	}
+
+	@After
+	public void tearDown() {
+		TestKit.shutdownActorSystem(this.actorSystem);
+	}
+
+	@Test
+	public void shouldConvergeAfterBatchedWrites() {
+		// The double brackets are important! The inner bracket pair declares an anonymous constructor.
+		new TestKit(this.actorSystem) {{
+			List<ActorRef> leaders = createLeaders(3, new LeaderActor.Settings(4, 50, 200));
+
+			// Write more keys than fit into one batch, so that both the flush size and the flush interval kick in
+			for (int key = 0; key < 10; key++) {
+				leaders.get(key % leaders.size()).tell(new LeaderActor.WriteMessage(key, "value" + key, 0), this.getRef());
+				this.expectMsgClass(LeaderActor.WriteResponseMessage.class);
+			}
+
+			awaitConvergence(this, leaders, 10);
+			for (ActorRef leader : leaders) {
+				for (int key = 0; key < 10; key++) {
+					leader.tell(new LeaderActor.ReadMessage(key), this.getRef());
+					assertEquals("value" + key, this.expectMsgClass(LeaderActor.ReadResponseMessage.class).value);
+				}
+				leader.tell(new LeaderActor.ReadMessage(10), this.getRef());
+				assertNull(this.expectMsgClass(LeaderActor.ReadResponseMessage.class).value);
+			}
+		}};
+	}
+
+	@Test
+	public void shouldResolveConflictsByLamportTimestamps() {
+		// The double brackets are important! The inner bracket pair declares an anonymous constructor.
+		new TestKit(this.actorSystem) {{
+			List<ActorRef> leaders = createLeaders(3, new LeaderActor.Settings(100, 50, 200));
+
+			// Concurrent writes with the same counter: the leader with the larger identifier wins
+			leaders.get(1).tell(new LeaderActor.WriteMessage(7, "one", 0), this.getRef());
+			int counter = this.expectMsgClass(LeaderActor.WriteResponseMessage.class).counter;
+			leaders.get(2).tell(new LeaderActor.WriteMessage(7, "two", 0), this.getRef());
+			assertEquals(counter, this.expectMsgClass(LeaderActor.WriteResponseMessage.class).counter);
+			awaitConvergence(this, leaders, 1);
+			assertValue(this, leaders, 7, "two");
+
+			// A write that has seen the current value supersedes it, no matter which leader accepts it
+			leaders.get(0).tell(new LeaderActor.WriteMessage(7, "zero", counter), this.getRef());
+			assertTrue(this.expectMsgClass(LeaderActor.WriteResponseMessage.class).counter > counter);
+			awaitConvergence(this, leaders, 1);
+			assertValue(this, leaders, 7, "zero");
+		}};
+	}
+
+	@Test
+	public void shouldRecoverFromSnapshotAndLog() throws Exception {
+		String directory = this.temporaryFolder.newFolder().getPath();
+		LeaderActor.Settings settings = new LeaderActor.Settings(4, 50, 200, directory, 8);
+
+		// The double brackets are important! The inner bracket pair declares an anonymous constructor.
+		new TestKit(this.actorSystem) {{
+			// Write enough changes for a snapshot, overwrite some keys and leave a log tail
+			ActorRef leader = actorSystem.actorOf(LeaderActor.props(0, settings));
+			for (int i = 0; i < 30; i++) {
+				leader.tell(new LeaderActor.WriteMessage(i % 20, "value" + i, 0), this.getRef());
+				this.expectMsgClass(LeaderActor.WriteResponseMessage.class);
+			}
+			leader.tell(new LeaderActor.DigestMessage(), this.getRef());
+			LeaderActor.DigestResponseMessage digest = this.expectMsgClass(LeaderActor.DigestResponseMessage.class);
+			assertEquals(20, digest.size);
+			this.awaitAssert(Duration.create(3, "secs"), () -> {
+				assertTrue(new File(directory).list((dir, name) -> name.startsWith("snapshot-") && name.endsWith(".bin")).length > 0);
+				return null;
+			});
+
+			this.watch(leader);
+			actorSystem.stop(leader);
+			this.expectTerminated(leader);
+
+			ActorRef recoveredLeader = actorSystem.actorOf(LeaderActor.props(0, settings));
+			recoveredLeader.tell(new LeaderActor.DigestMessage(), this.getRef());
+			LeaderActor.DigestResponseMessage recoveredDigest = this.expectMsgClass(LeaderActor.DigestResponseMessage.class);
+			assertEquals(digest.size, recoveredDigest.size);
+			assertEquals(digest.digest, recoveredDigest.digest);
+			for (int key = 0; key < 20; key++)
+				assertValue(this, Collections.singletonList(recoveredLeader), key, "value" + (key < 10 ? key + 20 : key));
+		}};
+	}
+
+	private List<ActorRef> createLeaders(int numLeaders, LeaderActor.Settings settings) {
+		List<ActorRef> leaders = new ArrayList<>(numLeaders);
+		for (int identifier = 0; identifier < numLeaders; identifier++)
+			leaders.add(this.actorSystem.actorOf(LeaderActor.props(identifier, settings)));
+		for (ActorRef leader : leaders)
+			leader.tell(new LeaderActor.LeadersMessage(leaders), ActorRef.noSender());
+		return leaders;
+	}
+
+	private void awaitConvergence(TestKit probe, List<ActorRef> leaders, int expectedSize) {
+		probe.awaitAssert(Duration.create(3, "secs"), () -> {
+			List<LeaderActor.DigestResponseMessage> digests = new ArrayList<>();
+			for (ActorRef leader : leaders) {
+				leader.tell(new LeaderActor.DigestMessage(), probe.getRef());
+				digests.add(probe.expectMsgClass(LeaderActor.DigestResponseMessage.class));
+			}
+			for (LeaderActor.DigestResponseMessage digest : digests) {
+				assertEquals(expectedSize, digest.size);
+				assertEquals(digests.get(0).digest, digest.digest);
+			}
+			return null;
+		});
+	}
+
+	private void assertValue(TestKit probe, List<ActorRef> leaders, int key, String expectedValue) {
+		for (ActorRef leader : leaders) {
+			leader.tell(new LeaderActor.ReadMessage(key), probe.getRef());
+			assertEquals(expectedValue, probe.expectMsgClass(LeaderActor.ReadResponseMessage.class).value);
+		}
+	}
+}
@@ -0,0 +1,212 @@
+package de.hpi.akka_tutorial.remote.serialization;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import akka.actor.Address;
+import akka.actor.ActorSystem;
+import akka.serialization.Serialization;
+import akka.serialization.SerializationExtension;
+import akka.testkit.javadsl.TestKit;
+import de.hpi.akka_tutorial.remote.actors.Listener;
+import de.hpi.akka_tutorial.remote.actors.ListenerShards;
+import de.hpi.akka_tutorial.remote.actors.Master;
+import de.hpi.akka_tutorial.remote.actors.Reaper;
+import de.hpi.akka_tutorial.remote.actors.ResultSink;
+import de.hpi.akka_tutorial.remote.actors.Shepherd;
+import de.hpi.akka_tutorial.remote.actors.Slave;
+import de.hpi.akka_tutorial.remote.actors.Worker;
+import de.hpi.akka_tutorial.remote.actors.experimental.LeaderActor;
+import de.hpi.akka_tutorial.remote.messages.ShutdownMessage;
+import de.hpi.akka_tutorial.util.AkkaUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This class contains tests for the serialization of the tutorial's messages with the {@link MessageKryoInstantiator}.
+ */
+public class MessageSerializationTest {
+
+	private ActorSystem actorSystem;
+
+	private Serialization serialization;
+
+	@Before
+	public void setUp() {
+		this.actorSystem = ActorSystem.create("test", AkkaUtils.createRemoteAkkaConfig("127.0.0.1", 0));
+		this.serialization = SerializationExtension.get(this.actorSystem);
+	}
+
+	@After
+	public void tearDown() {
+		TestKit.shutdownActorSystem(this.actorSystem);
+	}
+
+	@Test
+	public void shouldRoundTripAllMessages() {
+		Address remoteAddress = new Address("akka", "test", "10.0.0.1", 7877);
+		Object[] messages = {
+				new Worker.ValidationMessage(3, 1_000_000, 1_099_999),
+				new Master.RangeMessage(1, Long.MAX_VALUE, 6),
+				new Master.QueryCompletedMessage(6, 42, -17),
+				new Master.CompletionMessage(3, 42, -17),
+				new Master.RemoteSystemMessage(remoteAddress),
+				new Master.PrimeIndexMessage(10_000_000_000L),
+				new Master.CancelMessage(6),
+				new Listener.PrimesMessage(Arrays.asList(2L, 3L, 5L, 7L)),
+				new Listener.CollectPrimesMessage(4),
+				new Listener.CollectMaxMessage(5),
+				new Listener.CollectRangeMessage(6, 1, Long.MAX_VALUE, true),
+				new Listener.CollectedPrimesMessage(4, new long[] {2, 3, 5}),
+				new Listener.CollectedMaxMessage(5, 7, 4, 17),
+				ListenerShards.create(this.actorSystem, 3),
+				new Slave.AddressMessage(remoteAddress),
+				new Slave.AcknowledgementMessage(),
+				new Shepherd.SubscriptionMessage(),
+				new Reaper.WatchMeMessage(),
+				new ResultSink.GetListenersMessage(),
+				new ResultSink.LogPrimesMessage(),
+				new ResultSink.LogMaxMessage(),
+				new ShutdownMessage(),
+				new LeaderActor.LeadersMessage(Arrays.asList(this.actorSystem.deadLetters(), this.actorSystem.deadLetters())),
+				new LeaderActor.ReadMessage(3),
+				new LeaderActor.ReadResponseMessage("value"),
+				new LeaderActor.WriteMessage(3, "value", 7),
+				new LeaderActor.WriteResponseMessage(8),
+				new LeaderActor.DeltaMessage(1, 4, 6, new int[] {3, 5}, new LeaderActor.LamportTimestampedValue[] {
+						new LeaderActor.LamportTimestampedValue("value", 7, 1), new LeaderActor.LamportTimestampedValue("other", 8, 2)}),
+				new LeaderActor.DeltaAckMessage(6),
+				new LeaderActor.DigestMessage(),
+				new LeaderActor.DigestResponseMessage(2, -17)
+		};
+
+		for (Object message : messages) {
+			byte[] bytes = this.serialization.serialize(message).get();
+
+			// Registered classes are written as IDs rather than class names
+			String text = new String(bytes, StandardCharsets.ISO_8859_1);
+			assertFalse(message.getClass().getName() + " was written with its class name", text.contains(message.getClass().getName()));
+
+			// The copy must be of the same class and serialize to exactly the same bytes
+			Object copy = this.serialization.deserialize(bytes, message.getClass()).get();
+			assertEquals(message.getClass(), copy.getClass());
+			assertArrayEquals(message.getClass().getName(), bytes, this.serialization.serialize(copy).get());
+		}
+	}
+
+	@Test
+	public void shouldPreserveFields() {
+		Worker.ValidationMessage validation = this.roundTrip(new Worker.ValidationMessage(3, 1_000_000, 1_099_999));
+		assertEquals(3, validation.getId());
+		assertEquals(1_000_000, validation.getRangeMin());
+		assertEquals(1_099_999, validation.getRangeMax());
+
+		Master.RangeMessage range = this.roundTrip(new Master.RangeMessage(1, Long.MAX_VALUE, -6));
+		assertEquals(1, range.getStartNumber());
+		assertEquals(Long.MAX_VALUE, range.getEndNumber());
+		assertEquals(-6, range.getCorrelationId());
+
+		Master.QueryCompletedMessage queryCompleted = this.roundTrip(new Master.QueryCompletedMessage(6, 42, Long.MIN_VALUE));
+		assertEquals(6, queryCompleted.getCorrelationId());
+		assertEquals(42, queryCompleted.getNumPrimes());
+		assertEquals(Long.MIN_VALUE, queryCompleted.getChecksum());
+
+		Master.CompletionMessage completion = new Master.CompletionMessage(-1, 42, Long.MIN_VALUE + 5);
+		assertEquals(completion, this.roundTrip(completion));
+
+		assertEquals(10_000_000_000L, this.roundTrip(new Master.PrimeIndexMessage(10_000_000_000L)).getLimit());
+
+		// The primes of a batch are delta-encoded, which must work for any order
+		Listener.PrimesMessage primes = new Listener.PrimesMessage(Arrays.asList(7L, 2L, Long.MAX_VALUE, 0L, 11L));
+		assertEquals(primes, this.roundTrip(primes));
+
+		long[] sortedPrimes = {2, 3, 5, 999_999_937};
+		Listener.CollectedPrimesMessage collectedPrimes = this.roundTrip(new Listener.CollectedPrimesMessage(8, sortedPrimes));
+		assertEquals(8, collectedPrimes.getQueryId());
+		assertArrayEquals(sortedPrimes, collectedPrimes.getPrimes());
+
+		Listener.CollectedMaxMessage collectedMax = this.roundTrip(new Listener.CollectedMaxMessage(9, 999_999_937, 4, -17));
+		assertEquals(9, collectedMax.getQueryId());
+		assertEquals(999_999_937, collectedMax.getMax());
+		assertEquals(4, collectedMax.getNumPrimes());
+		assertEquals(-17, collectedMax.getChecksum());
+
+		assertEquals(10, this.roundTrip(new Listener.CollectPrimesMessage(10)).getQueryId());
+		assertEquals(11, this.roundTrip(new Listener.CollectMaxMessage(11)).getQueryId());
+
+		Listener.CollectRangeMessage collectRange = this.roundTrip(new Listener.CollectRangeMessage(12, 99_990, Long.MAX_VALUE, true));
+		assertEquals(12, collectRange.getQueryId());
+		assertEquals(99_990, collectRange.getStartNumber());
+		assertEquals(Long.MAX_VALUE, collectRange.getEndNumber());
+		assertTrue(collectRange.isMaxOnly());
+
+		assertEquals(-6, this.roundTrip(new Master.CancelMessage(-6)).getCorrelationId());
+	}
+
+	@Test
+	public void shouldPreserveLeaderActorFields() {
+		LeaderActor.LeadersMessage leaders = this.roundTrip(new LeaderActor.LeadersMessage(Arrays.asList(this.actorSystem.deadLetters())));
+		assertEquals(Arrays.asList(this.actorSystem.deadLetters()), leaders.leaders);
+
+		assertEquals(-3, this.roundTrip(new LeaderActor.ReadMessage(-3)).key);
+		assertEquals("value", this.roundTrip(new LeaderActor.ReadResponseMessage("value")).value);
+		assertNull(this.roundTrip(new LeaderActor.ReadResponseMessage(null)).value);
+
+		LeaderActor.WriteMessage write = this.roundTrip(new LeaderActor.WriteMessage(-3, "value", 7));
+		assertEquals(-3, write.key);
+		assertEquals("value", write.value);
+		assertEquals(7, write.counter);
+		assertEquals(8, this.roundTrip(new LeaderActor.WriteResponseMessage(8)).counter);
+
+		LeaderActor.DeltaMessage delta = this.roundTrip(new LeaderActor.DeltaMessage(1, 4, 6, new int[] {-3, 5}, new LeaderActor.LamportTimestampedValue[] {
+				new LeaderActor.LamportTimestampedValue("value", 7, 1), new LeaderActor.LamportTimestampedValue(null, 8, 2)}));
+		assertEquals(1, delta.identifier);
+		assertEquals(4, delta.fromVersion);
+		assertEquals(6, delta.toVersion);
+		assertArrayEquals(new int[] {-3, 5}, delta.keys);
+		assertEquals("value", delta.values[0].value);
+		assertEquals(7, delta.values[0].counter);
+		assertEquals(1, delta.values[0].identifier);
+		assertNull(delta.values[1].value);
+		assertEquals(8, delta.values[1].counter);
+		assertEquals(2, delta.values[1].identifier);
+
+		assertEquals(6, this.roundTrip(new LeaderActor.DeltaAckMessage(6)).version);
+		LeaderActor.DigestResponseMessage digest = this.roundTrip(new LeaderActor.DigestResponseMessage(2, Long.MIN_VALUE));
+		assertEquals(2, digest.size);
+		assertEquals(Long.MIN_VALUE, digest.digest);
+	}
+
+	@Test
+	public void shouldPreserveAddresses() {
+		Address remoteAddress = new Address("akka.tcp", "SlaveSystem", "10.0.0.1", 7877);
+		assertEquals(remoteAddress, this.roundTrip(new Master.RemoteSystemMessage(remoteAddress)).getRemoteAddress());
+		assertEquals(remoteAddress, this.roundTrip(new Slave.AddressMessage(remoteAddress)).getAddress());
+
+		Address localAddress = new Address("akka", "MasterSystem");
+		assertEquals(localAddress, this.roundTrip(new Slave.AddressMessage(localAddress)).getAddress());
+	}
+
+	@Test
+	public void shouldPreserveListenerShards() {
+		ListenerShards listeners = ListenerShards.create(this.actorSystem, 4);
+		ListenerShards copy = this.roundTrip(listeners);
+
+		assertEquals(listeners.getAll(), copy.getAll());
+		for (long number = 0; number < 100 * ListenerShards.BLOCK_SIZE; number += ListenerShards.BLOCK_SIZE / 3)
+			assertEquals(listeners.shardOf(number), copy.shardOf(number));
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T roundTrip(T message) {
+		byte[] bytes = this.serialization.serialize(message).get();
+		return (T) this.serialization.deserialize(bytes, message.getClass()).get();
+	}
+}
@@ -6,6 +6,7 @@ import java.util.List;
 
 import akka.actor.AbstractLoggingActor;
 import akka.actor.Props;
+import de.hpi.ddm.configuration.Configuration;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -19,7 +20,7 @@ public class Collector extends AbstractLoggingActor {
 	public static final String DEFAULT_NAME = "collector";
 
 	public static Props props() {
-		return Props.create(Collector.class);
+		return Props.create(Collector.class).withDispatcher(Configuration.COORDINATION_DISPATCHER);
 	}
 
 	////////////////////
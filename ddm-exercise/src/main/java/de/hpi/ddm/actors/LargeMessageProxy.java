@@ -6,6 +6,7 @@ import akka.actor.AbstractLoggingActor;
 import akka.actor.ActorRef;
 import akka.actor.ActorSelection;
 import akka.actor.Props;
+import de.hpi.ddm.configuration.Configuration;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -19,7 +20,7 @@ public class LargeMessageProxy extends AbstractLoggingActor {
 	public static final String DEFAULT_NAME = "largeMessageProxy";
 	
 	public static Props props() {
-		return Props.create(LargeMessageProxy.class);
+		return Props.create(LargeMessageProxy.class).withDispatcher(Configuration.COORDINATION_DISPATCHER);
 	}
 
 	////////////////////
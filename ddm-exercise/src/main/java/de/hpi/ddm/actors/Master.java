@@ -10,6 +10,7 @@ import akka.actor.ActorRef;
 import akka.actor.PoisonPill;
 import akka.actor.Props;
 import akka.actor.Terminated;
+import de.hpi.ddm.configuration.Configuration;
 import de.hpi.ddm.structures.BloomFilter;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -24,7 +25,7 @@ public class Master extends AbstractLoggingActor {
 	public static final String DEFAULT_NAME = "master";
 
 	public static Props props(final ActorRef reader, final ActorRef collector, final BloomFilter welcomeData) {
-		return Props.create(Master.class, () -> new Master(reader, collector, welcomeData));
+		return Props.create(Master.class, () -> new Master(reader, collector, welcomeData)).withDispatcher(Configuration.COORDINATION_DISPATCHER);
 	}
 
 	public Master(final ActorRef reader, final ActorRef collector, final BloomFilter welcomeData) {
@@ -8,6 +8,7 @@ import com.opencsv.CSVReader;
 
 import akka.actor.AbstractLoggingActor;
 import akka.actor.Props;
+import de.hpi.ddm.configuration.Configuration;
 import de.hpi.ddm.singletons.ConfigurationSingleton;
 import de.hpi.ddm.singletons.DatasetDescriptorSingleton;
 import lombok.Data;
@@ -21,7 +22,7 @@ public class Reader extends AbstractLoggingActor {
 	public static final String DEFAULT_NAME = "reader";
 
 	public static Props props() {
-		return Props.create(Reader.class);
+		return Props.create(Reader.class).withDispatcher(Configuration.BLOCKING_IO_DISPATCHER);
 	}
 
 	////////////////////
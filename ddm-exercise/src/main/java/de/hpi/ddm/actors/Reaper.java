@@ -10,6 +10,7 @@ import akka.actor.ActorRef;
 import akka.actor.ActorSelection;
 import akka.actor.Props;
 import akka.actor.Terminated;
+import de.hpi.ddm.configuration.Configuration;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -22,7 +23,7 @@ public class Reaper extends AbstractLoggingActor {
 	public static final String DEFAULT_NAME = "reaper";
 
 	public static Props props() {
-		return Props.create(Reaper.class);
+		return Props.create(Reaper.class).withDispatcher(Configuration.COORDINATION_DISPATCHER);
 	}
 
 	public static void watchWithDefaultReaper(AbstractActor actor) {
@@ -21,6 +21,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import akka.cluster.Member;
 import akka.cluster.MemberStatus;
+import de.hpi.ddm.configuration.Configuration;
 
 public class Worker extends AbstractLoggingActor {
 
@@ -31,7 +32,7 @@ public class Worker extends AbstractLoggingActor {
 	public static final String DEFAULT_NAME = "worker";
 
 	public static Props props() {
-		return Props.create(Worker.class);
+		return Props.create(Worker.class).withDispatcher(Configuration.COMPUTE_DISPATCHER);
 	}
 
 	public Worker() {
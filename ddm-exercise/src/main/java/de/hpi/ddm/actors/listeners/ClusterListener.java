@@ -10,6 +10,7 @@ import akka.cluster.ClusterEvent.MemberRemoved;
 import akka.cluster.ClusterEvent.UnreachableMember;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
+import de.hpi.ddm.configuration.Configuration;
 
 public class ClusterListener extends AbstractActor {
 
@@ -20,7 +21,7 @@ public class ClusterListener extends AbstractActor {
 	public static final String DEFAULT_NAME = "clusterListener";
 
 	public static Props props() {
-		return Props.create(ClusterListener.class);
+		return Props.create(ClusterListener.class).withDispatcher(Configuration.COORDINATION_DISPATCHER);
 	}
 
 	/////////////////
@@ -18,6 +18,10 @@ public class Configuration {
 	public static final int DEFAULT_MASTER_PORT = 7877;
 	public static final int DEFAULT_WORKER_PORT = 7879;
 	
+	public static final String COMPUTE_DISPATCHER = "compute-dispatcher";				// The dispatcher for CPU-bound actors, see application.conf
+	public static final String COORDINATION_DISPATCHER = "coordination-dispatcher";	// The dispatcher for actors that coordinate the others, see application.conf
+	public static final String BLOCKING_IO_DISPATCHER = "blocking-io-dispatcher";		// The dispatcher for actors that block on I/O, see application.conf
+	
 	private String role = MasterSystem.MASTER_ROLE;	// This machine's role in the cluster.
 	
 	private String host = getDefaultHost();			// This machine's host name or IP that we use to bind this application against
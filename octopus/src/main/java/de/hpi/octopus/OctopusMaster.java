@@ -7,6 +7,7 @@ import com.typesafe.config.Config;
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
 import akka.cluster.Cluster;
+import de.hpi.octopus.actors.DatasetStore;
 import de.hpi.octopus.actors.Profiler;
 import de.hpi.octopus.actors.Worker;
 import de.hpi.octopus.actors.listeners.ClusterListener;
@@ -27,6 +28,7 @@ public class OctopusMaster extends OctopusSystem {
 				system.actorOf(ClusterListener.props(), ClusterListener.DEFAULT_NAME);
 			//	system.actorOf(MetricsListener.props(), MetricsListener.DEFAULT_NAME);
 
+				system.actorOf(DatasetStore.props(), DatasetStore.DEFAULT_NAME);
 				system.actorOf(Profiler.props(), Profiler.DEFAULT_NAME);
 				
 				for (int i = 0; i < workers; i++)
@@ -42,12 +44,13 @@ public class OctopusMaster extends OctopusSystem {
 			}
 		});
 		
+		// Every line names an input file, and the profiler works on all of them concurrently
 		final Scanner scanner = new Scanner(System.in);
-		String line = scanner.nextLine();
+		while (scanner.hasNextLine()) {
+			String line = scanner.nextLine().trim();
+			if (!line.isEmpty())
+				system.actorSelection("/user/" + Profiler.DEFAULT_NAME).tell(new Profiler.TaskMessage(line, ',', true), ActorRef.noSender());
+		}
 		scanner.close();
-		
-		int attributes = Integer.parseInt(line);
-		
-		system.actorSelection("/user/" + Profiler.DEFAULT_NAME).tell(new Profiler.TaskMessage(attributes), ActorRef.noSender());
 	}
 }
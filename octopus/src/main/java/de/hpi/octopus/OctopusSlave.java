@@ -4,6 +4,7 @@ import com.typesafe.config.Config;
 
 import akka.actor.ActorSystem;
 import akka.cluster.Cluster;
+import de.hpi.octopus.actors.DatasetStore;
 import de.hpi.octopus.actors.Worker;
 import de.hpi.octopus.actors.listeners.MetricsListener;
 
@@ -22,6 +23,7 @@ public class OctopusSlave extends OctopusSystem {
 			public void run() {
 				//system.actorOf(ClusterListener.props(), ClusterListener.DEFAULT_NAME);
 				system.actorOf(MetricsListener.props(), MetricsListener.DEFAULT_NAME);
+				system.actorOf(DatasetStore.props(), DatasetStore.DEFAULT_NAME);
 
 				for (int i = 0; i < workers; i++)
 					system.actorOf(Worker.props(), Worker.DEFAULT_NAME + i);
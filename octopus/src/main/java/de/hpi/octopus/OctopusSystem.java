@@ -12,6 +12,11 @@ import scala.concurrent.duration.Duration;
 
 public class OctopusSystem {
 
+	// The dispatchers for CPU-bound actors, for actors that coordinate the others and for blocking I/O, see application.conf
+	public static final String COMPUTE_DISPATCHER = "compute-dispatcher";
+	public static final String COORDINATION_DISPATCHER = "coordination-dispatcher";
+	public static final String BLOCKING_IO_DISPATCHER = "blocking-io-dispatcher";
+
 	protected static Config createConfiguration(String actorSystemName, String actorSystemRole, String host, int port, String masterhost, int masterport) {
 		
 		// Create the Config with fallback to the application config
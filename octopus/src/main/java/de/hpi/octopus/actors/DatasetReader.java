@@ -0,0 +1,74 @@
+package de.hpi.octopus.actors;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import akka.actor.AbstractActor;
+import akka.actor.Props;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import de.hpi.octopus.OctopusSystem;
+import de.hpi.octopus.actors.Profiler.DatasetFailedMessage;
+import de.hpi.octopus.actors.Profiler.DatasetLoadedMessage;
+import de.hpi.octopus.structures.Dataset;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Reads and encodes the input files of the tasks on the master, away from the threads of the coordinating actors.
+ */
+public class DatasetReader extends AbstractActor {
+
+	////////////////////////
+	// Actor Construction //
+	////////////////////////
+
+	public static final String DEFAULT_NAME = "datasetReader";
+
+	public static Props props() {
+		return Props.create(DatasetReader.class).withDispatcher(OctopusSystem.BLOCKING_IO_DISPATCHER);
+	}
+
+	////////////////////
+	// Actor Messages //
+	////////////////////
+
+	@Data @AllArgsConstructor @SuppressWarnings("unused")
+	public static class ReadMessage implements Serializable {
+		private static final long serialVersionUID = -4930270128262717263L;
+		private ReadMessage() {}
+		private int taskId;
+		private String inputFile;
+		private char separator;
+		private boolean hasHeader;
+	}
+
+	/////////////////
+	// Actor State //
+	/////////////////
+
+	private final LoggingAdapter log = Logging.getLogger(this.context().system(), this);
+
+	////////////////////
+	// Actor Behavior //
+	////////////////////
+
+	@Override
+	public Receive createReceive() {
+		return receiveBuilder()
+				.match(ReadMessage.class, this::handle)
+				.matchAny(object -> this.log.info("Received unknown message: \"{}\"", object.toString()))
+				.build();
+	}
+
+	private void handle(ReadMessage message) {
+		try {
+			long start = System.currentTimeMillis();
+			Dataset dataset = Dataset.read(message.getInputFile(), message.getSeparator(), message.isHasHeader());
+			this.log.info("Read {} in {} ms", message.getInputFile(), System.currentTimeMillis() - start);
+			this.sender().tell(new DatasetLoadedMessage(message.getTaskId(), dataset), this.self());
+		} catch (IOException e) {
+			this.sender().tell(new DatasetFailedMessage(message.getTaskId(), e.toString()), this.self());
+		}
+	}
+}
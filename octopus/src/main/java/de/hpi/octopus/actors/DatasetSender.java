@@ -0,0 +1,150 @@
+package de.hpi.octopus.actors;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorSelection;
+import akka.actor.Address;
+import akka.actor.Props;
+import akka.actor.ReceiveTimeout;
+import akka.cluster.Cluster;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import de.hpi.octopus.OctopusSystem;
+import de.hpi.octopus.actors.DatasetStore.ChunkMessage;
+import de.hpi.octopus.actors.DatasetStore.HeaderMessage;
+import de.hpi.octopus.actors.Profiler.DatasetTransferredMessage;
+import de.hpi.octopus.structures.Dataset;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import scala.concurrent.duration.Duration;
+
+/**
+ * Ships a dataset column by column to the {@link DatasetStore} of one node. A bounded number of chunks is in flight
+ * at any time, so that large datasets neither flood the remoting queues nor exceed its frame size.
+ */
+public class DatasetSender extends AbstractActor {
+
+	////////////////////////
+	// Actor Construction //
+	////////////////////////
+
+	public static Props props(int datasetId, Dataset dataset, Address node) {
+		return Props.create(DatasetSender.class, () -> new DatasetSender(datasetId, dataset, node)).withDispatcher(OctopusSystem.COORDINATION_DISPATCHER);
+	}
+
+	////////////////////
+	// Actor Messages //
+	////////////////////
+
+	@Data @AllArgsConstructor @SuppressWarnings("unused")
+	public static class AckMessage implements Serializable {
+		private static final long serialVersionUID = 5265380318318914166L;
+		private AckMessage() {}
+		private int datasetId;
+	}
+
+	@Data @AllArgsConstructor @SuppressWarnings("unused")
+	public static class StoredMessage implements Serializable {
+		private static final long serialVersionUID = -1410744227937063424L;
+		private StoredMessage() {}
+		private int datasetId;
+	}
+
+	/////////////////
+	// Actor State //
+	/////////////////
+
+	// The codes per chunk, which keeps each chunk well below the default frame size of the remoting
+	private static final int CHUNK_SIZE = 16 * 1024;
+
+	// The chunks that may be unacknowledged
+	private static final int WINDOW_SIZE = 8;
+
+	// The time without acknowledgements after which the transfer is given up
+	private static final long TIMEOUT_SECONDS = 60;
+
+	private final LoggingAdapter log = Logging.getLogger(this.context().system(), this);
+
+	private final int datasetId;
+	private final Dataset dataset;
+	private final Address node;
+	private final ActorSelection store;
+
+	// The position of the next chunk
+	private int nextAttribute = 0;
+	private int nextOffset = 0;
+
+	private int numUnacknowledgedChunks = 0;
+
+	public DatasetSender(int datasetId, Dataset dataset, Address node) {
+		this.datasetId = datasetId;
+		this.dataset = dataset;
+		this.node = node;
+		this.store = this.context().actorSelection(node + "/user/" + DatasetStore.DEFAULT_NAME);
+	}
+
+	/////////////////////
+	// Actor Lifecycle //
+	/////////////////////
+
+	@Override
+	public void preStart() {
+		this.context().setReceiveTimeout(Duration.create(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+		long masterUid = Cluster.get(this.context().system()).selfUniqueAddress().longUid();
+		this.store.tell(new HeaderMessage(masterUid, this.datasetId, this.dataset.getName(), this.dataset.getAttributeNames(),
+				this.dataset.getCardinalities(), this.dataset.getNumRows()), this.self());
+		this.sendChunks();
+	}
+
+	////////////////////
+	// Actor Behavior //
+	////////////////////
+
+	@Override
+	public Receive createReceive() {
+		return receiveBuilder()
+				.match(AckMessage.class, this::handle)
+				.match(StoredMessage.class, this::handle)
+				.match(ReceiveTimeout.class, this::handle)
+				.matchAny(object -> this.log.info("Received unknown message: \"{}\"", object.toString()))
+				.build();
+	}
+
+	private void handle(AckMessage message) {
+		this.numUnacknowledgedChunks--;
+		this.sendChunks();
+	}
+
+	private void handle(StoredMessage message) {
+		this.finish(true);
+	}
+
+	private void handle(ReceiveTimeout message) {
+		this.log.warning("The transfer of dataset {} to {} timed out", this.dataset.getName(), this.node);
+		this.finish(false);
+	}
+
+	private void sendChunks() {
+		while (this.numUnacknowledgedChunks < WINDOW_SIZE && this.nextAttribute < this.dataset.getNumAttributes()) {
+			int[] column = this.dataset.getColumns()[this.nextAttribute];
+			int end = Math.min(this.nextOffset + CHUNK_SIZE, column.length);
+			this.store.tell(new ChunkMessage(this.datasetId, this.nextAttribute, this.nextOffset, Arrays.copyOfRange(column, this.nextOffset, end)), this.self());
+			this.numUnacknowledgedChunks++;
+
+			this.nextOffset = end;
+			if (this.nextOffset == column.length) {
+				this.nextAttribute++;
+				this.nextOffset = 0;
+			}
+		}
+	}
+
+	private void finish(boolean isStored) {
+		this.context().parent().tell(new DatasetTransferredMessage(this.node, this.datasetId, isStored), this.self());
+		this.context().stop(this.self());
+	}
+}
@@ -0,0 +1,204 @@
+package de.hpi.octopus.actors;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import akka.pattern.Patterns;
+import de.hpi.octopus.OctopusSystem;
+import de.hpi.octopus.actors.DatasetSender.AckMessage;
+import de.hpi.octopus.actors.DatasetSender.StoredMessage;
+import de.hpi.octopus.structures.Dataset;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+public class DatasetStore extends AbstractActor {
+
+	////////////////////////
+	// Actor Construction //
+	////////////////////////
+
+	public static final String DEFAULT_NAME = "datasetStore";
+
+	public static Props props() {
+		return Props.create(DatasetStore.class).withDispatcher(OctopusSystem.COORDINATION_DISPATCHER);
+	}
+
+	////////////////////
+	// Actor Messages //
+	////////////////////
+
+	@Data @AllArgsConstructor @SuppressWarnings("unused")
+	public static class HeaderMessage implements Serializable {
+		private static final long serialVersionUID = 6120937165403370628L;
+		private HeaderMessage() {}
+		private long masterUid;
+		private int datasetId;
+		private String name;
+		private String[] attributeNames;
+		private int[] cardinalities;
+		private int numRows;
+	}
+
+	@Data @AllArgsConstructor @SuppressWarnings("unused")
+	public static class ChunkMessage implements Serializable {
+		private static final long serialVersionUID = -2235870693914787950L;
+		private ChunkMessage() {}
+		private int datasetId;
+		private int attribute;
+		private int offset;
+		private int[] codes;
+	}
+
+	@Data @AllArgsConstructor @SuppressWarnings("unused")
+	public static class ReleaseMessage implements Serializable {
+		private static final long serialVersionUID = 4410385196823624707L;
+		private ReleaseMessage() {}
+		private int datasetId;
+	}
+
+	// Local only: the column PLIs of a received dataset, or null if they could not be built
+	@Data @AllArgsConstructor
+	private static class IndexedMessage {
+		private long masterUid;
+		private int datasetId;
+		private LocalDatasets.StoredDataset dataset;
+	}
+
+	/////////////////
+	// Actor State //
+	/////////////////
+
+	/**
+	 * A dataset that is being received from one sender and the number of its codes that are still missing.
+	 */
+	private static class Transfer {
+
+		private final HeaderMessage header;
+		private final ActorRef sender;
+		private final int[][] columns;
+		private long numMissingCodes;
+
+		private Transfer(HeaderMessage header, ActorRef sender) {
+			this.header = header;
+			this.sender = sender;
+			this.columns = new int[header.getAttributeNames().length][header.getNumRows()];
+			this.numMissingCodes = (long) this.columns.length * header.getNumRows();
+		}
+	}
+
+	private final LoggingAdapter log = Logging.getLogger(this.context().system(), this);
+	private final LocalDatasets localDatasets = LocalDatasets.get(this.context().system());
+
+	// The transfers per dataset, of which several may run at once for concurrent tasks
+	private final Map<Integer, Transfer> transfers = new HashMap<>();
+
+	// The senders of the received datasets whose column PLIs are being built
+	private final Map<Integer, ActorRef> indexings = new HashMap<>();
+
+	// The incarnation of the master whose datasets the node holds, or null before its first dataset
+	private Long masterUid;
+
+	////////////////////
+	// Actor Behavior //
+	////////////////////
+
+	@Override
+	public Receive createReceive() {
+		return receiveBuilder()
+				.match(HeaderMessage.class, this::handle)
+				.match(ChunkMessage.class, this::handle)
+				.match(ReleaseMessage.class, this::handle)
+				.match(IndexedMessage.class, this::handle)
+				.matchAny(object -> this.log.info("Received unknown message: \"{}\"", object.toString()))
+				.build();
+	}
+
+	private void handle(HeaderMessage message) {
+		// A restarted master numbers its datasets from 0 again, so the datasets of an earlier master are stale
+		if (this.masterUid != null && this.masterUid != message.getMasterUid()) {
+			this.log.info("Dropping the datasets of an earlier master.");
+			this.transfers.clear();
+			this.indexings.clear();
+			this.localDatasets.clear();
+		}
+		this.masterUid = message.getMasterUid();
+
+		// A node receives each dataset only once per master
+		if (this.localDatasets.contains(message.getDatasetId())) {
+			this.sender().tell(new StoredMessage(message.getDatasetId()), this.self());
+			return;
+		}
+
+		// The dataset is complete, and the store answers the latest sender once its PLIs are built
+		if (this.indexings.containsKey(message.getDatasetId())) {
+			this.indexings.put(message.getDatasetId(), this.sender());
+			return;
+		}
+
+		// A new header starts the transfer over, e.g., after the sender has lost track of its chunks
+		Transfer transfer = new Transfer(message, this.sender());
+		this.transfers.put(message.getDatasetId(), transfer);
+		this.store(transfer);
+	}
+
+	private void handle(ChunkMessage message) {
+		// Chunks of an earlier sender of the dataset are stale, because a new header has started the transfer over
+		Transfer transfer = this.transfers.get(message.getDatasetId());
+		if (transfer == null || !transfer.sender.equals(this.sender()))
+			return;
+
+		System.arraycopy(message.getCodes(), 0, transfer.columns[message.getAttribute()], message.getOffset(), message.getCodes().length);
+		transfer.numMissingCodes -= message.getCodes().length;
+
+		this.sender().tell(new AckMessage(message.getDatasetId()), this.self());
+		this.store(transfer);
+	}
+
+	private void handle(ReleaseMessage message) {
+		this.transfers.remove(message.getDatasetId());
+		this.indexings.remove(message.getDatasetId());
+		this.localDatasets.remove(message.getDatasetId());
+	}
+
+	private void handle(IndexedMessage message) {
+		// The dataset may have been released or belong to an earlier master whose datasets were dropped
+		if (message.getMasterUid() != this.masterUid)
+			return;
+		ActorRef sender = this.indexings.remove(message.getDatasetId());
+		if (sender == null)
+			return;
+
+		if (message.getDataset() == null) {
+			this.log.error("Could not build the column PLIs of dataset {}", message.getDatasetId());
+			return;
+		}
+
+		Dataset dataset = message.getDataset().getDataset();
+		this.localDatasets.put(message.getDatasetId(), message.getDataset());
+		sender.tell(new StoredMessage(message.getDatasetId()), this.self());
+		this.log.info("Stored dataset {} with {} attributes and {} rows", dataset.getName(), dataset.getNumAttributes(), dataset.getNumRows());
+	}
+
+	private void store(Transfer transfer) {
+		if (transfer.numMissingCodes > 0)
+			return;
+
+		HeaderMessage header = transfer.header;
+		Dataset dataset = new Dataset(header.getName(), header.getAttributeNames(), transfer.columns, header.getCardinalities(), header.getNumRows());
+		this.transfers.remove(header.getDatasetId());
+		this.indexings.put(header.getDatasetId(), transfer.sender);
+
+		// The PLIs take a pass over all values, which runs on the compute dispatcher and not on the coordinating threads
+		CompletableFuture<IndexedMessage> indexed = CompletableFuture
+				.supplyAsync(() -> LocalDatasets.index(dataset), this.context().system().dispatchers().lookup(OctopusSystem.COMPUTE_DISPATCHER))
+				.handle((stored, e) -> new IndexedMessage(header.getMasterUid(), header.getDatasetId(), e == null ? stored : null));
+		Patterns.pipe(indexed, this.context().dispatcher()).to(this.self());
+	}
+}
@@ -0,0 +1,85 @@
+package de.hpi.octopus.actors;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import akka.actor.AbstractExtensionId;
+import akka.actor.ActorSystem;
+import akka.actor.ExtendedActorSystem;
+import akka.actor.Extension;
+import akka.actor.ExtensionIdProvider;
+import de.hpi.octopus.structures.Dataset;
+import de.hpi.octopus.structures.PositionListIndex;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The node-local, read-only datasets that all {@link Worker}s of an actor system share. The {@link DatasetStore}
+ * publishes a dataset here once it has received all of its chunks; a worker reads it when it gets work on it.
+ */
+public class LocalDatasets implements Extension {
+
+	public static final Id ID = new Id();
+
+	public static class Id extends AbstractExtensionId<LocalDatasets> implements ExtensionIdProvider {
+
+		@Override
+		public Id lookup() {
+			return ID;
+		}
+
+		@Override
+		public LocalDatasets createExtension(ExtendedActorSystem system) {
+			return new LocalDatasets();
+		}
+	}
+
+	public static LocalDatasets get(ActorSystem system) {
+		return ID.get(system);
+	}
+
+	/**
+	 * A dataset and the PLIs of its single columns, which are built once per node.
+	 */
+	@Getter @AllArgsConstructor
+	public static class StoredDataset {
+		private final Dataset dataset;
+		private final PositionListIndex[] columnPlis;
+	}
+
+	private final Map<Integer, StoredDataset> datasets = new ConcurrentHashMap<>();
+
+	public StoredDataset get(int datasetId) {
+		return this.datasets.get(datasetId);
+	}
+
+	public boolean contains(int datasetId) {
+		return this.datasets.containsKey(datasetId);
+	}
+
+	/**
+	 * Build the PLIs of a dataset's single columns. This takes a pass over all values, so actors should run it on the
+	 * compute dispatcher rather than on their own threads.
+	 */
+	public static StoredDataset index(Dataset dataset) {
+		PositionListIndex[] columnPlis = new PositionListIndex[dataset.getNumAttributes()];
+		for (int attribute = 0; attribute < columnPlis.length; attribute++)
+			columnPlis[attribute] = PositionListIndex.of(dataset.getColumns()[attribute], dataset.getCardinalities()[attribute]);
+		return new StoredDataset(dataset, columnPlis);
+	}
+
+	/**
+	 * Publish a dataset; the dataset must not change afterwards.
+	 */
+	public void put(int datasetId, StoredDataset dataset) {
+		this.datasets.put(datasetId, dataset);
+	}
+
+	public void remove(int datasetId) {
+		this.datasets.remove(datasetId);
+	}
+
+	public void clear() {
+		this.datasets.clear();
+	}
+}
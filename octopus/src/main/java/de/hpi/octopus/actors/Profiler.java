@@ -1,21 +1,50 @@
 package de.hpi.octopus.actors;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import akka.actor.AbstractActor;
 import akka.actor.ActorRef;
+import akka.actor.Address;
 import akka.actor.Props;
 import akka.actor.Terminated;
+import akka.cluster.Cluster;
+import akka.cluster.metrics.CapacityMetricsSelector;
+import akka.cluster.metrics.ClusterMetricsChanged;
+import akka.cluster.metrics.ClusterMetricsExtension;
+import akka.cluster.metrics.CpuMetricsSelector;
+import akka.cluster.metrics.HeapMetricsSelector;
+import akka.cluster.metrics.MixMetricsSelector;
+import akka.cluster.metrics.SystemLoadAverageMetricsSelector;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
-import de.hpi.octopus.actors.Worker.WorkMessage;
+import akka.pattern.Patterns;
+import de.hpi.octopus.OctopusSystem;
+import de.hpi.octopus.actors.Worker.WorkBatchMessage;
+import de.hpi.octopus.structures.CandidateQueue;
+import de.hpi.octopus.structures.Candidates;
+import de.hpi.octopus.structures.Dataset;
+import de.hpi.octopus.structures.Frontier;
+import de.hpi.octopus.structures.PruningIndex;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import scala.collection.JavaConverters;
 
 public class Profiler extends AbstractActor {
 
@@ -26,7 +55,7 @@ public class Profiler extends AbstractActor {
 	public static final String DEFAULT_NAME = "profiler";
 
 	public static Props props() {
-		return Props.create(Profiler.class);
+		return Props.create(Profiler.class).withDispatcher(OctopusSystem.COORDINATION_DISPATCHER);
 	}
 
 	////////////////////
@@ -42,7 +71,9 @@ public class Profiler extends AbstractActor {
 	public static class TaskMessage implements Serializable {
 		private static final long serialVersionUID = -8330958742629706627L;
 		private TaskMessage() {}
-		private int attributes;
+		private String inputFile;
+		private char separator;
+		private boolean hasHeader;
 	}
 	
 	@Data @AllArgsConstructor @SuppressWarnings("unused")
@@ -50,20 +81,240 @@ public class Profiler extends AbstractActor {
 		private static final long serialVersionUID = -6823011111281387872L;
 		public enum status {MINIMAL, EXTENDABLE, FALSE, FAILED}
 		private CompletionMessage() {}
-		private status result;
+		private status[] results;
+		private long validationTime;
+		private int numSampleRejections;
+	}
+
+	@Data @AllArgsConstructor @SuppressWarnings("unused")
+	public static class SubtreeCompletionMessage implements Serializable {
+		private static final long serialVersionUID = 3358912873395440367L;
+		private SubtreeCompletionMessage() {}
+		private long[] uccs;
+		private long[] nonUccs;
+		private long[] frontier;
+		private int numValidatedCandidates;
+		private long validationTime;
+		private int numSampleRejections;
+	}
+
+	@Data @AllArgsConstructor @SuppressWarnings("unused")
+	public static class DatasetMissingMessage implements Serializable {
+		private static final long serialVersionUID = 7713845962174304125L;
+		private DatasetMissingMessage() {}
+		private int taskId;
+	}
+
+	@Data @AllArgsConstructor @SuppressWarnings("unused")
+	public static class FrontierMessage implements Serializable {
+		private static final long serialVersionUID = -5190386251317470617L;
+		private FrontierMessage() {}
+		private int taskId;
+		private long[] candidates;
+	}
+
+	@Data @AllArgsConstructor @SuppressWarnings("unused")
+	public static class CacheStatisticsMessage implements Serializable {
+		private static final long serialVersionUID = 2912718326358101649L;
+		private CacheStatisticsMessage() {}
+		private int taskId;
+		private long hits;
+		private long misses;
+		private long evictions;
+		private int entries;
+		private long bytes;
+	}
+
+	@Data @AllArgsConstructor @SuppressWarnings("unused")
+	public static class DatasetLoadedMessage implements Serializable {
+		private static final long serialVersionUID = 8457196233604211733L;
+		private DatasetLoadedMessage() {}
+		private int taskId;
+		private Dataset dataset;
+	}
+
+	@Data @AllArgsConstructor @SuppressWarnings("unused")
+	public static class DatasetFailedMessage implements Serializable {
+		private static final long serialVersionUID = 1795624133541018745L;
+		private DatasetFailedMessage() {}
+		private int taskId;
+		private String reason;
+	}
+
+	@Data @AllArgsConstructor @SuppressWarnings("unused")
+	public static class DatasetTransferredMessage implements Serializable {
+		private static final long serialVersionUID = -3012675480402955383L;
+		private DatasetTransferredMessage() {}
+		private Address node;
+		private int datasetId;
+		private boolean isStored;
+	}
+	
+	// Local only: a task's frontier has read spilled candidates back or failed to read or write its spill file
+	@Data @AllArgsConstructor
+	private static class SpillMessage {
+		private int taskId;
 	}
 	
 	/////////////////
 	// Actor State //
 	/////////////////
 	
+	// The weight of the latest batch in a worker's average validation time per candidate
+	private static final double VALIDATION_TIME_SMOOTHING = 0.3;
+	
+	/**
+	 * The state of one profiling task: its dataset, the frontier of its lattice, its pruning index and its progress.
+	 */
+	private static class Task {
+		
+		private final int id;
+		private final TaskMessage message;
+		private final long startTime = System.currentTimeMillis();
+		
+		private Dataset dataset;
+		
+		// The words of an attribute set and of a candidate, which holds two sets
+		private int numWords;
+		private int candidateSize;
+		
+		// The unassigned candidates of the lattice and the number of workers that validate the task's candidates
+		private Frontier unassignedWork;
+		private int numBusyWorkers = 0;
+		
+		// Buffers for the children of a batch's candidates and for the candidate at hand
+		private CandidateQueue firstChildren;
+		private long[] candidate;
+		
+		private PruningIndex index;
+		
+		// The UCCs that have not been sent to the result sink yet
+		private CandidateQueue uccs;
+		
+		private int numUccs = 0;
+		private int numBatches = 0;
+		private int numValidatedCandidates = 0;
+		private int numSampleRejections = 0;
+		
+		// The nodes whose workers can access the task's dataset and the nodes that are receiving it
+		private final Set<Address> readyNodes = new HashSet<>();
+		private final Set<Address> transferringNodes = new HashSet<>();
+		
+		private Task(int id, TaskMessage message) {
+			this.id = id;
+			this.message = message;
+		}
+		
+		private void load(Dataset dataset, int maxFrontierSize, Frontier.Policy policy, File spillDirectory, Executor spillExecutor, Runnable spillListener) {
+			this.dataset = dataset;
+			this.numWords = Candidates.numWordsOf(dataset.getNumAttributes());
+			this.candidateSize = 2 * this.numWords;
+			this.unassignedWork = new Frontier(this.candidateSize, maxFrontierSize, policy, spillDirectory, spillExecutor, spillListener);
+			this.firstChildren = new CandidateQueue(this.candidateSize);
+			this.candidate = new long[this.candidateSize];
+			this.index = new PruningIndex(dataset.getNumAttributes());
+			this.uccs = new CandidateQueue(this.numWords);
+		}
+		
+		private boolean isLoaded() {
+			return this.dataset != null;
+		}
+		
+		/**
+		 * @return whether the task has lost candidates, so that its UCCs are incomplete and its workers get no more work
+		 */
+		private boolean isFailed() {
+			return this.isLoaded() && this.unassignedWork.getNumLostCandidates() > 0;
+		}
+		
+		private boolean isComplete() {
+			return this.isLoaded() && this.numBusyWorkers == 0 && (this.unassignedWork.isEmpty() || this.isFailed());
+		}
+	}
+	
 	private final LoggingAdapter log = Logging.getLogger(getContext().system(), this);
+	private final Cluster cluster = Cluster.get(this.context().system());
+
+	// The running tasks in the order of their arrival; the dataset of each task is stored under the task's id
+	private final Map<Integer, Task> tasks = new LinkedHashMap<>();
+	private int nextTaskId = 0;
 
-	private final Queue<WorkMessage> unassignedWork = new LinkedList<>();
 	private final Queue<ActorRef> idleWorkers = new LinkedList<>();
-	private final Map<ActorRef, WorkMessage> busyWorkers = new HashMap<>();
+	private final Map<ActorRef, WorkBatchMessage> busyWorkers = new HashMap<>();
+	private final Map<Address, Integer> numWorkersPerNode = new HashMap<>();
+
+	// The batches take each worker about the target time, judged by its average validation time per candidate
+	private final long batchTargetTime = this.context().system().settings().config().getDuration("octopus.batch.target-time", TimeUnit.NANOSECONDS);
+	private final int maxBatchSize = this.context().system().settings().config().getInt("octopus.batch.max-size");
+	private final Map<ActorRef, Double> validationTimes = new HashMap<>();
+
+	// The depth of the subtrees that workers traverse on their own, or 0 if they validate single candidates, and the
+	// workers that have been asked to hand back part of their subtrees
+	private final int delegationDepth = this.context().system().settings().config().getInt("octopus.delegation-depth");
+	private final Set<ActorRef> splittingWorkers = new HashSet<>();
+
+	// The unassigned candidates per task that stay in memory, the order in which they are assigned, and where the others
+	// go, or null if they stay in memory, too
+	private final int maxFrontierSize = this.context().system().settings().config().getInt("octopus.frontier.max-size");
+	private final Frontier.Policy frontierPolicy = Frontier.Policy.valueOf(
+			this.context().system().settings().config().getString("octopus.frontier.policy").toUpperCase().replace('-', '_'));
+	private File spillDirectory = new File(this.context().system().settings().config().getString("octopus.frontier.spill-directory"));
+
+	// The capacity of each node between 0 and 1 by its cluster metrics, which decides the share of its workers that may be
+	// busy; null if the profiler ignores the metrics
+	private final CapacityMetricsSelector metricsSelector = metricsSelectorOf(this.context().system().settings().config().getString("octopus.metrics-selector"));
+	private final Map<Address, Double> nodeCapacities = new HashMap<>();
+	private final Map<Address, Integer> numBusyWorkersPerNode = new HashMap<>();
+	private final Map<Address, Integer> maxBusyWorkersPerNode = new HashMap<>();
+
+	// The format of the UCCs and the number of them that the result sink receives at once
+	private final ResultSink.Format resultFormat = ResultSink.Format.valueOf(
+			this.context().system().settings().config().getString("octopus.results.format").toUpperCase());
+	private final int resultBatchSize = this.context().system().settings().config().getInt("octopus.results.batch-size");
+
+	private ActorRef reader;
+	private ActorRef resultSink;
+
+	private static CapacityMetricsSelector metricsSelectorOf(String name) {
+		switch (name) {
+			case "mix": return MixMetricsSelector.getInstance();
+			case "heap": return HeapMetricsSelector.getInstance();
+			case "load": return SystemLoadAverageMetricsSelector.getInstance();
+			case "cpu": return CpuMetricsSelector.getInstance();
+			case "off": return null;
+			default: throw new IllegalArgumentException("Unknown metrics selector: " + name);
+		}
+	}
 
-	private TaskMessage task;
+	/////////////////////
+	// Actor Lifecycle //
+	/////////////////////
+	
+	@Override
+	public void preStart() {
+		this.reader = this.context().actorOf(DatasetReader.props(), DatasetReader.DEFAULT_NAME);
+		if (this.resultFormat != ResultSink.Format.LOG)
+			this.resultSink = this.context().actorOf(ResultSink.props(), ResultSink.DEFAULT_NAME);
+		
+		if (this.metricsSelector != null)
+			ClusterMetricsExtension.get(this.context().system()).subscribe(this.self());
+		
+		// A spill directory that cannot be used would fail the tasks later, when their frontiers outgrow memory
+		try {
+			Files.createDirectories(this.spillDirectory.toPath());
+			if (!Files.isWritable(this.spillDirectory.toPath()))
+				throw new IOException("The directory is not writable");
+		} catch (IOException e) {
+			this.log.warning("Cannot spill frontiers to {}, so they stay in memory: {}", this.spillDirectory, e.getMessage());
+			this.spillDirectory = null;
+		}
+	}
+
+	@Override
+	public void postStop() {
+		if (this.metricsSelector != null)
+			ClusterMetricsExtension.get(this.context().system()).unsubscribe(this.self());
+	}
 
 	////////////////////
 	// Actor Behavior //
@@ -75,104 +326,514 @@ public class Profiler extends AbstractActor {
 				.match(RegistrationMessage.class, this::handle)
 				.match(Terminated.class, this::handle)
 				.match(TaskMessage.class, this::handle)
+				.match(DatasetLoadedMessage.class, this::handle)
+				.match(DatasetFailedMessage.class, this::handle)
+				.match(DatasetTransferredMessage.class, this::handle)
 				.match(CompletionMessage.class, this::handle)
+				.match(SubtreeCompletionMessage.class, this::handle)
+				.match(FrontierMessage.class, this::handle)
+				.match(DatasetMissingMessage.class, this::handle)
+				.match(SpillMessage.class, this::handle)
+				.match(CacheStatisticsMessage.class, this::handle)
+				.match(ClusterMetricsChanged.class, this::handle)
 				.matchAny(object -> this.log.info("Received unknown message: \"{}\"", object.toString()))
 				.build();
 	}
 
 	private void handle(RegistrationMessage message) {
-		this.context().watch(this.sender());
+		ActorRef worker = this.sender();
+		this.context().watch(worker);
+		this.numWorkersPerNode.merge(this.nodeOf(worker), 1, Integer::sum);
+		
+		// A worker on a new node needs the datasets of all running tasks
+		for (Task task : this.tasks.values())
+			if (task.isLoaded())
+				this.transfer(task, this.nodeOf(worker));
 		
-		this.assign(this.sender());
-		this.log.info("Registered {}", this.sender());
+		this.idleWorkers.add(worker);
+		this.dispatch();
+		this.log.info("Registered {}", worker);
 	}
 	
 	private void handle(Terminated message) {
-		this.context().unwatch(message.getActor());
+		ActorRef worker = message.getActor();
+		this.context().unwatch(worker);
+		this.numWorkersPerNode.computeIfPresent(this.nodeOf(worker), (node, numWorkers) -> numWorkers > 1 ? numWorkers - 1 : null);
+		this.validationTimes.remove(worker);
+		this.splittingWorkers.remove(worker);
 		
-		if (!this.idleWorkers.remove(message.getActor())) {
-			WorkMessage work = this.busyWorkers.remove(message.getActor());
-			if (work != null) {
-				this.assign(work);
+		if (!this.idleWorkers.remove(worker)) {
+			WorkBatchMessage batch = this.unassign(worker);
+			if (batch != null) {
+				Task task = this.tasks.get(batch.getTaskId());
+				task.numBusyWorkers--;
+				for (int offset = 0; offset < batch.getCandidates().length; offset += task.candidateSize)
+					task.unassignedWork.add(batch.getCandidates(), offset);
+				this.dispatch();
 			}
-		}		
-		this.log.info("Unregistered {}", message.getActor());
+		}
+		this.log.info("Unregistered {}", worker);
 	}
 	
 	private void handle(TaskMessage message) {
-		if (this.task != null)
-			this.log.error("The profiler actor can process only one task in its current implementation!");
+		Task task = new Task(this.nextTaskId++, message);
+		this.tasks.put(task.id, task);
+		this.reader.tell(new DatasetReader.ReadMessage(task.id, message.getInputFile(), message.getSeparator(), message.isHasHeader()), this.self());
+		this.log.info("Accepted task {} on {}", task.id, message.getInputFile());
+	}
+	
+	private void handle(DatasetLoadedMessage message) {
+		Task task = this.tasks.get(message.getTaskId());
+		ActorRef self = this.self();
+		task.load(message.getDataset(), this.maxFrontierSize, this.frontierPolicy, this.spillDirectory,
+				this.context().system().dispatchers().lookup(OctopusSystem.BLOCKING_IO_DISPATCHER), () -> self.tell(new SpillMessage(task.id), ActorRef.noSender()));
+		this.log.info("Profiling {} in task {} with {} attributes and {} rows", task.dataset.getName(), task.id, task.dataset.getNumAttributes(), task.dataset.getNumRows());
+		if (this.resultSink != null)
+			this.resultSink.tell(new ResultSink.OpenMessage(task.id, task.dataset.getName(), task.dataset.getAttributeNames()), this.self());
+		
+		for (Address node : this.numWorkersPerNode.keySet())
+			this.transfer(task, node);
 		
-		this.task = message;
-		this.assign(new WorkMessage(new int[0], new int[0]));
+		task.unassignedWork.add(new long[task.candidateSize], 0);
+		this.dispatch();
+	}
+	
+	private void handle(DatasetFailedMessage message) {
+		Task task = this.tasks.remove(message.getTaskId());
+		this.log.error("Could not read the input file {} of task {}: {}", task.message.getInputFile(), task.id, message.getReason());
+	}
+	
+	private void handle(DatasetTransferredMessage message) {
+		Task task = this.tasks.get(message.getDatasetId());
+		if (task == null) {
+			// The task has completed while its dataset was on the way
+			if (message.isStored())
+				this.release(message.getDatasetId(), message.getNode());
+			return;
+		}
+		
+		task.transferringNodes.remove(message.getNode());
+		if (message.isStored()) {
+			task.readyNodes.add(message.getNode());
+			this.dispatch();
+		} else if (this.numWorkersPerNode.containsKey(message.getNode())) {
+			// The node's workers are still registered, so the node may just be slow
+			this.transfer(task, message.getNode());
+		}
 	}
 	
 	private void handle(CompletionMessage message) {
 		ActorRef worker = this.sender();
-		WorkMessage work = this.busyWorkers.remove(worker);
-
-		this.log.info("Completed: [{},{}]", Arrays.toString(work.getX()), Arrays.toString(work.getY()));
+		WorkBatchMessage batch = this.unassign(worker);
+		Task task = this.tasks.get(batch.getTaskId());
+		task.numBusyWorkers--;
+		task.numBatches++;
+		int numCandidates = batch.getCandidates().length / task.candidateSize;
+		task.numValidatedCandidates += numCandidates;
+		task.numSampleRejections += message.getNumSampleRejections();
 		
-		switch (message.getResult()) {
-			case MINIMAL: 
-				this.report(work);
-				break;
-			case EXTENDABLE:
-				this.split(work);
-				break;
-			case FALSE:
-				// Ignore
-				break;
-			case FAILED:
-				this.assign(work);
-				break;
+		this.updateValidationTime(worker, message.getValidationTime(), numCandidates);
+		
+		long[] candidates = batch.getCandidates();
+		int numMinimal = 0, numExtendable = 0;
+		for (int i = 0, offset = 0; i < numCandidates; i++, offset += task.candidateSize) {
+			switch (message.getResults()[i]) {
+				case MINIMAL: 
+					this.report(task, candidates, offset);
+					numMinimal++;
+					break;
+				case EXTENDABLE:
+					task.index.addNonUcc(candidates, offset);
+					this.expand(task, candidates, offset);
+					numExtendable++;
+					break;
+				case FALSE:
+					// Ignore
+					break;
+				case FAILED:
+					task.unassignedWork.add(candidates, offset);
+					break;
+			}
 		}
 		
-		this.assign(worker);
+		this.log.info("Completed: task {} with {} candidates, {} minimal and {} extendable", task.id, numCandidates, numMinimal, numExtendable);
+		
+		// The worker has cached the PLIs of the extendable candidates, from which the PLIs of their first children derive,
+		// so these children go to the front of the queue, where the worker finds them if it stays with the task
+		while (!task.firstChildren.isEmpty()) {
+			task.firstChildren.pollLast(task.candidate, 0);
+			task.unassignedWork.addNext(task.candidate, 0);
+		}
+		
+		this.assign(worker, task);
+		this.dispatch();
+		
+		if (task.isComplete())
+			this.complete(task);
+	}
+	
+	private void handle(SubtreeCompletionMessage message) {
+		ActorRef worker = this.sender();
+		WorkBatchMessage batch = this.unassign(worker);
+		Task task = this.tasks.get(batch.getTaskId());
+		task.numBusyWorkers--;
+		task.numBatches++;
+		task.numValidatedCandidates += message.getNumValidatedCandidates();
+		task.numSampleRejections += message.getNumSampleRejections();
+		this.splittingWorkers.remove(worker);
+		
+		int numRoots = batch.getCandidates().length / task.candidateSize;
+		this.updateValidationTime(worker, message.getValidationTime(), numRoots);
+		
+		this.log.info("Completed: task {} with {} subtrees of {} candidates", task.id, numRoots, message.getNumValidatedCandidates());
+		
+		for (int offset = 0; offset < message.getUccs().length; offset += task.numWords)
+			this.report(task, message.getUccs(), offset);
+		for (int offset = 0; offset < message.getNonUccs().length; offset += task.numWords)
+			task.index.addNonUcc(message.getNonUccs(), offset);
+		this.enqueue(task, message.getFrontier());
+		
+		this.assign(worker, task);
+		this.dispatch();
+		
+		if (task.isComplete())
+			this.complete(task);
 	}
 	
-	private void assign(WorkMessage work) {
-		ActorRef worker = this.idleWorkers.poll();
+	private void handle(FrontierMessage message) {
+		this.splittingWorkers.remove(this.sender());
+		
+		Task task = this.tasks.get(message.getTaskId());
+		if (task == null || message.getCandidates().length == 0)
+			return;
 		
-		if (worker == null) {
-			this.unassignedWork.add(work);
+		this.enqueue(task, message.getCandidates());
+		this.dispatch();
+	}
+	
+	private void handle(DatasetMissingMessage message) {
+		ActorRef worker = this.sender();
+		WorkBatchMessage batch = this.unassign(worker);
+		if (batch == null)
 			return;
+		Task task = this.tasks.get(batch.getTaskId());
+		task.numBusyWorkers--;
+		this.splittingWorkers.remove(worker);
+		for (int offset = 0; offset < batch.getCandidates().length; offset += task.candidateSize)
+			task.unassignedWork.add(batch.getCandidates(), offset);
+		
+		// The node has lost the dataset, so its workers get no more work on the task until it has received the dataset again
+		Address node = this.nodeOf(worker);
+		if (task.readyNodes.remove(node)) {
+			this.log.warning("Node {} lacks the dataset of task {}, which is shipped to it again", node, task.id);
+			this.transfer(task, node);
 		}
 		
-		this.busyWorkers.put(worker, work);
-		worker.tell(work, this.self());
+		this.assign(worker, task);
+		this.dispatch();
 	}
 	
-	private void assign(ActorRef worker) {
-		WorkMessage work = this.unassignedWork.poll();
+	private void handle(SpillMessage message) {
+		Task task = this.tasks.get(message.getTaskId());
+		if (task == null)
+			return;
+		
+		IOException error = task.unassignedWork.takeError();
+		if (error != null && task.isFailed())
+			this.log.error("Could not read spilled candidates of task {}, so the task fails: {}", task.id, error.getMessage());
+		else if (error != null)
+			this.log.warning("Could not spill candidates of task {}, so its frontier stays in memory: {}", task.id, error.getMessage());
 		
-		if (work == null) {
+		this.dispatch();
+		if (task.isComplete())
+			this.complete(task);
+	}
+	
+	private void handle(CacheStatisticsMessage message) {
+		long requests = message.getHits() + message.getMisses();
+		this.log.info("PLI cache of {} for task {}: {}", this.sender(), message.getTaskId(), String.format("%d hits, %d misses (%d%% hits), %d evictions, %d entries in %d KB",
+				message.getHits(), message.getMisses(), requests == 0 ? 0 : 100 * message.getHits() / requests,
+				message.getEvictions(), message.getEntries(), message.getBytes() / 1024));
+	}
+	
+	private void handle(ClusterMetricsChanged message) {
+		Map<Address, Object> capacities = JavaConverters.mapAsJavaMapConverter(this.metricsSelector.capacity(message.nodeMetrics())).asJava();
+		capacities.forEach((node, capacity) -> this.nodeCapacities.put(node, (Double) capacity));
+		
+		for (Address node : this.numWorkersPerNode.keySet()) {
+			int maxBusyWorkers = this.maxBusyWorkersOf(node);
+			Integer previous = this.maxBusyWorkersPerNode.put(node, maxBusyWorkers);
+			if (previous == null || previous != maxBusyWorkers)
+				this.log.info("Node {} has a capacity of {}, so {} of its {} workers may be busy", node,
+						String.format("%.2f", this.nodeCapacities.getOrDefault(node, Double.NaN)), maxBusyWorkers, this.numWorkersPerNode.get(node));
+		}
+		
+		this.dispatch();
+	}
+	
+	/**
+	 * Ship the dataset of a task to a node unless the node has it or is receiving it.
+	 */
+	private void transfer(Task task, Address node) {
+		if (task.readyNodes.contains(node) || !task.transferringNodes.add(node))
+			return;
+		
+		if (node.equals(this.cluster.selfAddress())) {
+			// The local workers share the master's copy of the dataset, whose column PLIs are built on the compute dispatcher
+			int datasetId = task.id;
+			Dataset dataset = task.dataset;
+			LocalDatasets localDatasets = LocalDatasets.get(this.context().system());
+			CompletableFuture<DatasetTransferredMessage> indexed = CompletableFuture
+					.supplyAsync(() -> LocalDatasets.index(dataset), this.context().system().dispatchers().lookup(OctopusSystem.COMPUTE_DISPATCHER))
+					.handle((stored, e) -> {
+						if (e != null)
+							return new DatasetTransferredMessage(node, datasetId, false);
+						localDatasets.put(datasetId, stored);
+						return new DatasetTransferredMessage(node, datasetId, true);
+					});
+			Patterns.pipe(indexed, this.context().dispatcher()).to(this.self());
+		} else {
+			this.context().actorOf(DatasetSender.props(task.id, task.dataset, node));
+		}
+	}
+	
+	private void release(int datasetId, Address node) {
+		this.context().actorSelection(node + "/user/" + DatasetStore.DEFAULT_NAME).tell(new DatasetStore.ReleaseMessage(datasetId), this.self());
+	}
+	
+	/**
+	 * Choose the task that a worker serves next, if its node has not reached its share of busy workers: among the tasks with unassigned work whose dataset is on the worker's
+	 * node, the one that the fewest workers serve. So every task gets an equal share of the workers, and the share that
+	 * a task with a narrow frontier cannot use goes to the others. Ties go to the preferred task and then to the oldest.
+	 */
+	private Task selectTask(ActorRef worker, Task preferred) {
+		Address node = this.nodeOf(worker);
+		if (this.numBusyWorkersPerNode.getOrDefault(node, 0) >= this.maxBusyWorkersOf(node))
+			return null;
+		
+		Task selected = null;
+		for (Task task : this.tasks.values()) {
+			if (!task.isLoaded() || task.isFailed() || task.unassignedWork.available() == 0 || !task.readyNodes.contains(node))
+				continue;
+			if (selected == null || task.numBusyWorkers < selected.numBusyWorkers || (task.numBusyWorkers == selected.numBusyWorkers && task == preferred))
+				selected = task;
+		}
+		return selected;
+	}
+	
+	/**
+	 * Give a worker the next candidate of the task it should serve or let it idle if there is none.
+	 * 
+	 * @param preferred the task whose PLIs the worker has cached, or null
+	 */
+	private void assign(ActorRef worker, Task preferred) {
+		Task task = this.selectTask(worker, preferred);
+		if (task == null)
 			this.idleWorkers.add(worker);
+		else
+			this.send(worker, task);
+	}
+	
+	private void enqueue(Task task, long[] candidates) {
+		for (int offset = 0; offset < candidates.length; offset += task.candidateSize)
+			if (!task.index.isDecided(candidates, offset))
+				task.unassignedWork.add(candidates, offset);
+	}
+	
+	/**
+	 * @return the busy workers that a node may have: all of them on the node with the most capacity, a share proportional
+	 *         to their node's capacity on the other nodes, but at least one
+	 */
+	private int maxBusyWorkersOf(Address node) {
+		int numWorkers = this.numWorkersPerNode.getOrDefault(node, 0);
+		Double capacity = this.nodeCapacities.get(node);
+		if (capacity == null)
+			return numWorkers;
+		
+		double maxCapacity = 0;
+		for (Address otherNode : this.numWorkersPerNode.keySet())
+			maxCapacity = Math.max(maxCapacity, this.nodeCapacities.getOrDefault(otherNode, 0.0));
+		if (maxCapacity <= 0)
+			return numWorkers;
+		
+		return Math.max(1, (int) Math.round(numWorkers * capacity / maxCapacity));
+	}
+	
+	/**
+	 * Give the idle workers unassigned work for as long as any of them can take some, starting with the workers on the
+	 * nodes with the most capacity. If workers that may be busy remain idle, ask as many workers that traverse subtrees
+	 * to hand back part of them.
+	 */
+	private void dispatch() {
+		List<ActorRef> workers = new ArrayList<>(this.idleWorkers);
+		workers.sort(Comparator.comparingDouble((ActorRef worker) -> this.nodeCapacities.getOrDefault(this.nodeOf(worker), 1.0)).reversed());
+		for (ActorRef worker : workers) {
+			Task task = this.selectTask(worker, null);
+			if (task != null) {
+				this.idleWorkers.remove(worker);
+				this.send(worker, task);
+			}
+		}
+		
+		if (this.delegationDepth == 0)
 			return;
+		
+		// Only idle workers that could take split-off subtrees count, i.e., workers on nodes that are not throttled and have
+		// the dataset of some task; and only traversals of tasks that such a worker could take are split
+		int numSplitsNeeded = -this.splittingWorkers.size();
+		for (ActorRef worker : this.idleWorkers)
+			for (Task task : this.tasks.values())
+				if (this.canTake(worker, task)) {
+					numSplitsNeeded++;
+					break;
+				}
+		for (Map.Entry<ActorRef, WorkBatchMessage> busyWorker : this.busyWorkers.entrySet()) {
+			if (numSplitsNeeded <= 0)
+				break;
+			ActorRef worker = busyWorker.getKey();
+			Task task = this.tasks.get(busyWorker.getValue().getTaskId());
+			if (this.idleWorkers.stream().noneMatch(idleWorker -> this.canTake(idleWorker, task)))
+				continue;
+			if (this.splittingWorkers.add(worker)) {
+				worker.tell(new Worker.SplitRequestMessage(), this.self());
+				numSplitsNeeded--;
+			}
 		}
+	}
+	
+	/**
+	 * @return whether the worker's node has the task's dataset and may have another busy worker
+	 */
+	private boolean canTake(ActorRef worker, Task task) {
+		Address node = this.nodeOf(worker);
+		return task.readyNodes.contains(node) && this.numBusyWorkersPerNode.getOrDefault(node, 0) < this.maxBusyWorkersOf(node);
+	}
+	
+	private void send(ActorRef worker, Task task) {
+		long[] candidates = new long[this.batchSizeOf(worker, task) * task.candidateSize];
+		for (int offset = 0; offset < candidates.length; offset += task.candidateSize)
+			task.unassignedWork.poll(candidates, offset);
 		
-		this.busyWorkers.put(worker, work);
-		worker.tell(work, this.self());
+		WorkBatchMessage batch = new WorkBatchMessage(task.id, candidates, this.delegationDepth);
+		task.numBusyWorkers++;
+		this.busyWorkers.put(worker, batch);
+		this.numBusyWorkersPerNode.merge(this.nodeOf(worker), 1, Integer::sum);
+		worker.tell(batch, this.self());
 	}
 	
-	private void report(WorkMessage work) {
-		this.log.info("UCC: {}", Arrays.toString(work.getX()));
+	/**
+	 * @return the cluster address of a worker's node, which the address of a local worker lacks
+	 */
+	private Address nodeOf(ActorRef worker) {
+		Address address = worker.path().address();
+		return address.hasLocalScope() ? this.cluster.selfAddress() : address;
 	}
-
-	private void split(WorkMessage work) {
-		int[] x = work.getX();
-		int[] y = work.getY();
+	
+	private WorkBatchMessage unassign(ActorRef worker) {
+		WorkBatchMessage batch = this.busyWorkers.remove(worker);
+		if (batch != null)
+			this.numBusyWorkersPerNode.computeIfPresent(this.nodeOf(worker), (node, numBusyWorkers) -> numBusyWorkers > 1 ? numBusyWorkers - 1 : null);
+		return batch;
+	}
+	
+	private void updateValidationTime(ActorRef worker, long validationTime, int numCandidates) {
+		this.validationTimes.merge(worker, (double) validationTime / numCandidates, (average, latest) -> 
+			(1 - VALIDATION_TIME_SMOOTHING) * average + VALIDATION_TIME_SMOOTHING * latest);
+	}
+	
+	/**
+	 * Size a worker's next batch, so that validating it takes about the target time, the round trip is small in
+	 * comparison, and the worker still leaves the other workers their share of the task's unassigned work.
+	 */
+	private int batchSizeOf(ActorRef worker, Task task) {
+		Double validationTime = this.validationTimes.get(worker);
+		long batchSize = validationTime == null ? 1 : (long) (this.batchTargetTime / Math.max(validationTime, 1));
 		
-		int next = x.length + y.length;
+		int numWorkers = this.idleWorkers.size() + this.busyWorkers.size() + 1;
+		int share = (task.unassignedWork.size() + numWorkers - 1) / numWorkers;
 		
-		if (next < this.task.getAttributes() - 1) {
-			int[] xNew = Arrays.copyOf(x, x.length + 1);
-			xNew[x.length] = next;
-			this.assign(new WorkMessage(xNew, y));
-			
-			int[] yNew = Arrays.copyOf(y, y.length + 1);
-			yNew[y.length] = next;
-			this.assign(new WorkMessage(x, yNew));
+		// Candidates that are being read back from the spill file cannot be assigned yet
+		share = Math.min(share, task.unassignedWork.available());
+		
+		return (int) Math.max(1, Math.min(batchSize, Math.min(share, this.maxBatchSize)));
+	}
+	
+	private void complete(Task task) {
+		this.tasks.remove(task.id);
+		if (this.resultSink != null) {
+			this.flushUccs(task);
+			this.resultSink.tell(new ResultSink.CloseMessage(task.id), this.self());
+		}
+		if (task.isFailed())
+			this.log.error("Failed task {} on {}: it lost {} spilled candidates, so its {} UCCs are incomplete", task.id, task.dataset.getName(),
+					task.unassignedWork.getNumLostCandidates(), task.numUccs);
+		else
+			this.log.info(String.format("Completed task %d on %s in %d ms with %d UCCs; the workers validated %d candidates in %d batches and rejected %d (%.1f%%) on their row samples, the pruning index decided %d, and the frontier peaked at %d and spilled %d to files of at most %d bytes",
+					task.id, task.dataset.getName(), System.currentTimeMillis() - task.startTime, task.numUccs, task.numValidatedCandidates, task.numBatches,
+					task.numSampleRejections, task.numValidatedCandidates == 0 ? 0.0 : 100.0 * task.numSampleRejections / task.numValidatedCandidates,
+					task.index.getNumDecidedCandidates(), task.unassignedWork.getPeakSize(), task.unassignedWork.getNumSpilledCandidates(),
+					task.unassignedWork.getPeakSpillBytes()));
+		LoggingAdapter log = this.log;
+		task.unassignedWork.close().whenComplete((ignored, e) -> {
+			if (e != null)
+				log.warning("Could not delete the spill files of task {}: {}", task.id, e.getCause().getMessage());
+		});
+		
+		// The workers report the statistics of the task's PLI caches before they drop them
+		List<ActorRef> workers = new ArrayList<>(this.idleWorkers);
+		workers.addAll(this.busyWorkers.keySet());
+		for (ActorRef worker : workers) {
+			worker.tell(new Worker.CacheStatisticsRequestMessage(task.id), this.self());
+			worker.tell(new Worker.ReleaseMessage(task.id), this.self());
+		}
+		for (Address node : task.readyNodes)
+			this.release(task.id, node);
+	}
+	
+	private void report(Task task, long[] candidates, int offset) {
+		// A subtree that a worker has lost after handing back part of it is traversed again, which may find a UCC twice
+		if (task.index.isSupersetOfUcc(candidates, offset))
+			return;
+		
+		task.numUccs++;
+		task.index.addUcc(candidates, offset);
+		if (this.resultSink == null) {
+			this.log.info("UCC: {} in task {}", Arrays.toString(Candidates.toAttributes(candidates, offset, task.numWords)), task.id);
+			return;
 		}
+		
+		task.uccs.addLast(candidates, offset);
+		if (task.uccs.size() >= this.resultBatchSize)
+			this.flushUccs(task);
+	}
+	
+	private void flushUccs(Task task) {
+		if (task.uccs.isEmpty())
+			return;
+		
+		this.resultSink.tell(new ResultSink.UccsMessage(task.id, task.uccs.toArray()), this.self());
+		task.uccs.clear();
+	}
+
+	/**
+	 * Queue the children of an extendable candidate that the pruning index cannot decide: x plus the next attribute,
+	 * which goes to the task's first children, and x with the next attribute excluded.
+	 */
+	private void expand(Task task, long[] candidates, int offset) {
+		// The attributes of x and y are exactly the attributes before the next one
+		int next = Candidates.size(candidates, offset, task.candidateSize);
+		if (next >= task.dataset.getNumAttributes())
+			return;
+		
+		long[] child = task.candidate;
+		System.arraycopy(candidates, offset, child, 0, task.candidateSize);
+		Candidates.add(child, 0, next);
+		if (!task.index.isDecided(child, 0))
+			task.firstChildren.addLast(child, 0);
+		
+		Candidates.remove(child, 0, next);
+		Candidates.add(child, task.numWords, next);
+		if (!task.index.isDecided(child, 0))
+			task.unassignedWork.add(child, 0);
 	}
-}
\ No newline at end of file
+}
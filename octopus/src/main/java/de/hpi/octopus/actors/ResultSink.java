@@ -0,0 +1,281 @@
+package de.hpi.octopus.actors;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import akka.actor.AbstractActor;
+import akka.actor.Props;
+import akka.event.Logging;
+import akka.event.LoggingAdapter;
+import de.hpi.octopus.OctopusSystem;
+import de.hpi.octopus.structures.Candidates;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Writes the UCCs of the tasks to one output file per task, away from the threads of the coordinating actors. The
+ * profiler sends the UCCs in batches and closes a task's file when the task completes, which flushes it.
+ * <p>
+ * The binary format suits memory mapping: all numbers are little-endian, and the UCCs are the bitmask words of their
+ * attributes (see {@link Candidates}) at fixed offsets. The file starts with the magic bytes {@code OCTOUCC1}, the
+ * number of attributes (int), the words per UCC (int), the number of UCCs (long), and the offset of the first UCC
+ * (long). The attribute names follow, each as its length (int) and its UTF-8 bytes, padded to a multiple of eight
+ * bytes. UCC i occupies the words at the first UCC's offset plus {@code 8 * i * wordsPerUcc}.
+ * <p>
+ * The CSV format has one line per UCC with the names of its attributes.
+ */
+public class ResultSink extends AbstractActor {
+
+	////////////////////////
+	// Actor Construction //
+	////////////////////////
+
+	public static final String DEFAULT_NAME = "resultSink";
+
+	public static Props props() {
+		return Props.create(ResultSink.class).withDispatcher(OctopusSystem.BLOCKING_IO_DISPATCHER);
+	}
+
+	public enum Format {
+		// Bitmask words in a file that can be memory-mapped
+		BINARY,
+		// One line of attribute names per UCC
+		CSV,
+		// No file; the profiler logs every UCC
+		LOG
+	}
+
+	////////////////////
+	// Actor Messages //
+	////////////////////
+
+	@Data @AllArgsConstructor @SuppressWarnings("unused")
+	public static class OpenMessage implements Serializable {
+		private static final long serialVersionUID = 1726305482916390187L;
+		private OpenMessage() {}
+		private int taskId;
+		private String datasetName;
+		private String[] attributeNames;
+	}
+
+	@Data @AllArgsConstructor @SuppressWarnings("unused")
+	public static class UccsMessage implements Serializable {
+		private static final long serialVersionUID = -3372913564471934722L;
+		private UccsMessage() {}
+		private int taskId;
+		// The bitmask words of the UCCs, one after another
+		private long[] uccs;
+	}
+
+	@Data @AllArgsConstructor @SuppressWarnings("unused")
+	public static class CloseMessage implements Serializable {
+		private static final long serialVersionUID = 8093556047915361826L;
+		private CloseMessage() {}
+		private int taskId;
+	}
+
+	/////////////////
+	// Actor State //
+	/////////////////
+
+	private static final byte[] MAGIC = "OCTOUCC1".getBytes(StandardCharsets.US_ASCII);
+
+	// The position of the number of UCCs in the header of a binary file
+	private static final long NUM_UCCS_POSITION = MAGIC.length + 2 * Integer.BYTES;
+
+	/**
+	 * The output file of one task.
+	 */
+	private static abstract class Output implements Closeable {
+
+		protected final Path path;
+		protected final String[] attributeNames;
+		protected final int numWords;
+		protected long numUccs = 0;
+
+		private Output(Path path, String[] attributeNames) {
+			this.path = path;
+			this.attributeNames = attributeNames;
+			this.numWords = Candidates.numWordsOf(attributeNames.length);
+		}
+
+		protected abstract void write(long[] uccs) throws IOException;
+	}
+
+	private static class BinaryOutput extends Output {
+
+		private final FileChannel file;
+		private ByteBuffer buffer = ByteBuffer.allocate(0).order(ByteOrder.LITTLE_ENDIAN);
+
+		private BinaryOutput(Path path, String[] attributeNames) throws IOException {
+			super(path, attributeNames);
+			this.file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+			byte[][] names = new byte[attributeNames.length][];
+			int headerSize = MAGIC.length + 2 * Integer.BYTES + 2 * Long.BYTES;
+			for (int attribute = 0; attribute < names.length; attribute++) {
+				names[attribute] = attributeNames[attribute].getBytes(StandardCharsets.UTF_8);
+				headerSize += Integer.BYTES + names[attribute].length;
+			}
+			headerSize = (headerSize + Long.BYTES - 1) / Long.BYTES * Long.BYTES;
+
+			ByteBuffer header = ByteBuffer.allocate(headerSize).order(ByteOrder.LITTLE_ENDIAN);
+			header.put(MAGIC).putInt(attributeNames.length).putInt(this.numWords).putLong(0).putLong(headerSize);
+			for (byte[] name : names)
+				header.putInt(name.length).put(name);
+			header.position(headerSize).flip();
+			this.writeFully(header);
+		}
+
+		@Override
+		protected void write(long[] uccs) throws IOException {
+			if (this.buffer.capacity() < Long.BYTES * uccs.length)
+				this.buffer = ByteBuffer.allocate(Long.BYTES * uccs.length).order(ByteOrder.LITTLE_ENDIAN);
+			this.buffer.clear();
+			this.buffer.asLongBuffer().put(uccs);
+			this.buffer.limit(Long.BYTES * uccs.length);
+			this.writeFully(this.buffer);
+			this.numUccs += uccs.length / this.numWords;
+		}
+
+		@Override
+		public void close() throws IOException {
+			// The header counts the UCCs only once they are all written, so a reader can tell a complete file
+			ByteBuffer numUccs = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(0, this.numUccs);
+			this.file.write(numUccs, NUM_UCCS_POSITION);
+			this.file.force(false);
+			this.file.close();
+		}
+
+		private void writeFully(ByteBuffer buffer) throws IOException {
+			while (buffer.hasRemaining())
+				this.file.write(buffer);
+		}
+	}
+
+	private static class CsvOutput extends Output {
+
+		private final BufferedWriter writer;
+
+		private CsvOutput(Path path, String[] attributeNames) throws IOException {
+			super(path, attributeNames);
+			this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+		}
+
+		@Override
+		protected void write(long[] uccs) throws IOException {
+			for (int offset = 0; offset < uccs.length; offset += this.numWords) {
+				String separator = "";
+				for (int attribute = Candidates.nextAttribute(uccs, offset, this.numWords, 0); attribute >= 0;
+						attribute = Candidates.nextAttribute(uccs, offset, this.numWords, attribute + 1)) {
+					this.writer.write(separator);
+					this.writer.write(quote(this.attributeNames[attribute]));
+					separator = ",";
+				}
+				this.writer.newLine();
+				this.numUccs++;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.writer.close();
+		}
+
+		private static String quote(String field) {
+			if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0)
+				return field;
+			return '"' + field.replace("\"", "\"\"") + '"';
+		}
+	}
+
+	private final LoggingAdapter log = Logging.getLogger(this.context().system(), this);
+
+	private final Format format = Format.valueOf(this.context().system().settings().config().getString("octopus.results.format").toUpperCase());
+	private final File directory = new File(this.context().system().settings().config().getString("octopus.results.directory"));
+
+	private final Map<Integer, Output> outputs = new HashMap<>();
+
+	/////////////////////
+	// Actor Lifecycle //
+	/////////////////////
+
+	@Override
+	public void postStop() {
+		for (Map.Entry<Integer, Output> output : this.outputs.entrySet())
+			this.close(output.getKey(), output.getValue());
+		this.outputs.clear();
+	}
+
+	////////////////////
+	// Actor Behavior //
+	////////////////////
+
+	@Override
+	public Receive createReceive() {
+		return receiveBuilder()
+				.match(OpenMessage.class, this::handle)
+				.match(UccsMessage.class, this::handle)
+				.match(CloseMessage.class, this::handle)
+				.matchAny(object -> this.log.info("Received unknown message: \"{}\"", object.toString()))
+				.build();
+	}
+
+	private void handle(OpenMessage message) {
+		String extension = this.format == Format.CSV ? "csv" : "ucc";
+		Path path = new File(this.directory, String.format("%s.task%d.%s", message.getDatasetName(), message.getTaskId(), extension)).toPath();
+		try {
+			Files.createDirectories(this.directory.toPath());
+			Output output = this.format == Format.CSV
+					? new CsvOutput(path, message.getAttributeNames())
+					: new BinaryOutput(path, message.getAttributeNames());
+			this.outputs.put(message.getTaskId(), output);
+		} catch (IOException e) {
+			this.log.error("Could not create the result file {} of task {}: {}", path, message.getTaskId(), e.getMessage());
+		}
+	}
+
+	private void handle(UccsMessage message) {
+		Output output = this.outputs.get(message.getTaskId());
+		if (output == null)
+			return;
+
+		try {
+			output.write(message.getUccs());
+		} catch (IOException e) {
+			this.log.error("Could not write the UCCs of task {} to {}: {}", message.getTaskId(), output.path, e.getMessage());
+			this.close(message.getTaskId(), this.outputs.remove(message.getTaskId()));
+		}
+	}
+
+	private void handle(CloseMessage message) {
+		Output output = this.outputs.remove(message.getTaskId());
+		if (output == null)
+			return;
+
+		if (this.close(message.getTaskId(), output))
+			this.log.info("Wrote {} UCCs of task {} to {}", output.numUccs, message.getTaskId(), output.path);
+	}
+
+	private boolean close(int taskId, Output output) {
+		try {
+			output.close();
+			return true;
+		} catch (IOException e) {
+			this.log.error("Could not close the result file {} of task {}: {}", output.path, taskId, e.getMessage());
+			return false;
+		}
+	}
+}
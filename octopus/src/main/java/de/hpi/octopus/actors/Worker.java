@@ -1,19 +1,36 @@
 package de.hpi.octopus.actors;
 
 import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import akka.actor.AbstractActor;
+import akka.actor.ActorRef;
 import akka.actor.Props;
 import akka.cluster.Cluster;
 import akka.cluster.ClusterEvent.CurrentClusterState;
 import akka.cluster.ClusterEvent.MemberUp;
 import akka.cluster.Member;
 import akka.cluster.MemberStatus;
+import akka.cluster.UniqueAddress;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
 import de.hpi.octopus.OctopusMaster;
+import de.hpi.octopus.OctopusSystem;
+import de.hpi.octopus.actors.Profiler.CacheStatisticsMessage;
 import de.hpi.octopus.actors.Profiler.CompletionMessage;
+import de.hpi.octopus.actors.Profiler.DatasetMissingMessage;
+import de.hpi.octopus.actors.Profiler.FrontierMessage;
 import de.hpi.octopus.actors.Profiler.RegistrationMessage;
+import de.hpi.octopus.actors.Profiler.SubtreeCompletionMessage;
+import de.hpi.octopus.structures.CandidateQueue;
+import de.hpi.octopus.structures.Candidates;
+import de.hpi.octopus.structures.Dataset;
+import de.hpi.octopus.structures.PliCache;
+import de.hpi.octopus.structures.PositionListIndex;
+import de.hpi.octopus.structures.PruningIndex;
+import de.hpi.octopus.structures.RowSample;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
@@ -26,7 +43,7 @@ public class Worker extends AbstractActor {
 	public static final String DEFAULT_NAME = "worker";
 
 	public static Props props() {
-		return Props.create(Worker.class);
+		return Props.create(Worker.class).withDispatcher(OctopusSystem.COMPUTE_DISPATCHER);
 	}
 
 	////////////////////
@@ -34,20 +51,117 @@ public class Worker extends AbstractActor {
 	////////////////////
 	
 	@Data @AllArgsConstructor @SuppressWarnings("unused")
-	public static class WorkMessage implements Serializable {
-		private static final long serialVersionUID = -7643194361868862395L;
-		private WorkMessage() {}
-		private int[] x;
-		private int[] y;
+	public static class WorkBatchMessage implements Serializable {
+		private static final long serialVersionUID = 5927018476431158213L;
+		private WorkBatchMessage() {}
+		private int taskId;
+		private long[] candidates;
+		// The depth of the subtrees below the candidates that the worker traverses on its own, or 0 to validate only the candidates
+		private int depth;
+	}
+
+	@Data @AllArgsConstructor
+	public static class SplitRequestMessage implements Serializable {
+		private static final long serialVersionUID = 6725017473312480183L;
+	}
+
+	@Data @AllArgsConstructor
+	public static class ContinueMessage implements Serializable {
+		private static final long serialVersionUID = -2208337434178301263L;
+	}
+
+	@Data @AllArgsConstructor @SuppressWarnings("unused")
+	public static class CacheStatisticsRequestMessage implements Serializable {
+		private static final long serialVersionUID = -1736507945329165722L;
+		private CacheStatisticsRequestMessage() {}
+		private int taskId;
+	}
+
+	@Data @AllArgsConstructor @SuppressWarnings("unused")
+	public static class ReleaseMessage implements Serializable {
+		private static final long serialVersionUID = 3871409185736262458L;
+		private ReleaseMessage() {}
+		private int taskId;
 	}
 
 	/////////////////
 	// Actor State //
 	/////////////////
 	
+	// The time that a traversal runs before the worker looks at its mailbox again
+	private static final long TRAVERSAL_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+	
+	/**
+	 * The subtrees that the worker traverses: their unvalidated nodes, each followed by a word with its remaining depth,
+	 * the local pruning facts, and the results that go back to the profiler in bulk.
+	 */
+	private static class Traversal {
+		
+		private final int taskId;
+		private final ActorRef profiler;
+		
+		private final int candidateSize;
+		private final CandidateQueue stack;
+		private final long[] node;
+		private final PruningIndex index;
+		
+		private final CandidateQueue uccs;
+		private final CandidateQueue nonUccs;
+		private final CandidateQueue frontier;
+		private int numValidatedCandidates = 0;
+		private long validationTime = 0;
+		private int numSampleRejections = 0;
+		
+		private Traversal(int taskId, ActorRef profiler, int numAttributes) {
+			this.taskId = taskId;
+			this.profiler = profiler;
+			int numWords = Candidates.numWordsOf(numAttributes);
+			this.candidateSize = 2 * numWords;
+			this.stack = new CandidateQueue(this.candidateSize + 1);
+			this.node = new long[this.candidateSize + 1];
+			this.index = new PruningIndex(numAttributes);
+			this.uccs = new CandidateQueue(numWords);
+			this.nonUccs = new CandidateQueue(numWords);
+			this.frontier = new CandidateQueue(this.candidateSize);
+		}
+	}
+	
 	private final LoggingAdapter log = Logging.getLogger(this.context().system(), this);
 	private final Cluster cluster = Cluster.get(this.context().system());
 
+	private final LocalDatasets localDatasets = LocalDatasets.get(this.context().system());
+
+	// The incarnation of the master that this worker has registered with; a new one numbers its tasks from 0 again
+	private UniqueAddress master;
+
+	// The task at hand, its dataset and the PLIs of its single columns, which all workers of this node share
+	private int taskId = -1;
+	private Dataset dataset;
+	private PositionListIndex[] columnPlis;
+
+	// The words of the dataset's attribute sets and buffers for the subsets and the largest superset of a candidate
+	private int numWords;
+	private long[] subset;
+	private long[] superset;
+
+	// The PLIs of the combinations that this worker has validated recently; null if the dataset is too wide for bitmasks
+	private PliCache pliCache;
+
+	// The PLI caches per task, which share the worker's cache size equally
+	private final long pliCacheSize = this.context().system().settings().config().getBytes("octopus.pli-cache-size");
+	private final Map<Integer, PliCache> pliCaches = new HashMap<>();
+
+	// The row samples per task, on which the candidates are checked before all rows, and the candidates they rejected
+	private final int sampleSize = this.context().system().settings().config().getInt("octopus.sample.size");
+	private final RowSample.Policy samplePolicy = RowSample.Policy.valueOf(
+			this.context().system().settings().config().getString("octopus.sample.refresh").toUpperCase());
+	private final int sampleRefreshInterval = this.context().system().settings().config().getInt("octopus.sample.refresh-interval");
+	private final Map<Integer, RowSample> samples = new HashMap<>();
+	private RowSample sample;
+	private int numSampleRejections = 0;
+
+	private Traversal traversal;
+
 	/////////////////////
 	// Actor Lifecycle //
 	/////////////////////
@@ -71,7 +185,11 @@ public class Worker extends AbstractActor {
 		return receiveBuilder()
 				.match(CurrentClusterState.class, this::handle)
 				.match(MemberUp.class, this::handle)
-				.match(WorkMessage.class, this::handle)
+				.match(WorkBatchMessage.class, this::handle)
+				.match(ContinueMessage.class, this::handle)
+				.match(SplitRequestMessage.class, this::handle)
+				.match(CacheStatisticsRequestMessage.class, this::handle)
+				.match(ReleaseMessage.class, this::handle)
 				.matchAny(object -> this.log.info("Received unknown message: \"{}\"", object.toString()))
 				.build();
 	}
@@ -88,40 +206,270 @@ public class Worker extends AbstractActor {
 	}
 
 	private void register(Member member) {
-		if (member.hasRole(OctopusMaster.MASTER_ROLE))
-			this.getContext()
-				.actorSelection(member.address() + "/user/" + Profiler.DEFAULT_NAME)
-				.tell(new RegistrationMessage(), this.self());
+		if (!member.hasRole(OctopusMaster.MASTER_ROLE))
+			return;
+
+		// The state of an earlier master's tasks would be mistaken for that of the new master's tasks with the same ids
+		if (this.master != null && !this.master.equals(member.uniqueAddress())) {
+			this.log.info("Dropping the tasks of an earlier master.");
+			this.taskId = -1;
+			this.dataset = null;
+			this.columnPlis = null;
+			this.pliCache = null;
+			this.pliCaches.clear();
+			this.sample = null;
+			this.samples.clear();
+			this.traversal = null;
+		}
+		this.master = member.uniqueAddress();
+
+		this.getContext()
+			.actorSelection(member.address() + "/user/" + Profiler.DEFAULT_NAME)
+			.tell(new RegistrationMessage(), this.self());
+	}
+
+	private void handle(CacheStatisticsRequestMessage message) {
+		PliCache pliCache = this.pliCaches.get(message.getTaskId());
+		if (pliCache == null)
+			return;
+		
+		this.sender().tell(new CacheStatisticsMessage(message.getTaskId(), pliCache.getHits(), pliCache.getMisses(), pliCache.getEvictions(),
+				pliCache.getNumEntries(), pliCache.getBytes()), this.self());
 	}
 
-	private void handle(WorkMessage message) {
-		long y = 0;
-		for (int i = 0; i < 1000000; i++)
-			if (this.isPrime(i))
-				y = y + i;
+	private void handle(ReleaseMessage message) {
+		if (message.getTaskId() == this.taskId) {
+			this.taskId = -1;
+			this.dataset = null;
+			this.columnPlis = null;
+			this.pliCache = null;
+			this.sample = null;
+		}
+		this.samples.remove(message.getTaskId());
 		
-		this.log.info("done: " + y);
+		if (this.pliCaches.remove(message.getTaskId()) != null)
+			this.divideCacheSize();
+	}
+
+	private void handle(WorkBatchMessage message) {
+		if (!this.select(message.getTaskId())) {
+			this.log.error("Received work on task {}, whose dataset is not stored on this node", message.getTaskId());
+			this.sender().tell(new DatasetMissingMessage(message.getTaskId()), this.self());
+			return;
+		}
 		
-		this.sender().tell(new CompletionMessage(CompletionMessage.status.EXTENDABLE), this.self());
+		if (message.getDepth() > 0) {
+			this.traversal = new Traversal(message.getTaskId(), this.sender(), this.dataset.getNumAttributes());
+			long[] node = this.traversal.node;
+			for (int offset = 0; offset < message.getCandidates().length; offset += this.traversal.candidateSize) {
+				System.arraycopy(message.getCandidates(), offset, node, 0, this.traversal.candidateSize);
+				node[this.traversal.candidateSize] = message.getDepth();
+				this.traversal.stack.addLast(node, 0);
+			}
+			this.traverse();
+			return;
+		}
+		
+		long start = System.nanoTime();
+		this.numSampleRejections = 0;
+		CompletionMessage.status[] results = new CompletionMessage.status[message.getCandidates().length / (2 * this.numWords)];
+		for (int i = 0; i < results.length; i++)
+			results[i] = this.validate(message.getCandidates(), 2 * this.numWords * i);
+		this.sender().tell(new CompletionMessage(results, System.nanoTime() - start, this.numSampleRejections), this.self());
+	}
+	
+	private void handle(ContinueMessage message) {
+		if (this.traversal != null)
+			this.traverse();
 	}
 	
-	private boolean isPrime(long n) {
-		if (n == 1)
-			return false;
+	private void handle(SplitRequestMessage message) {
+		Traversal traversal = this.traversal;
+		if (traversal == null || traversal.stack.size() < 2) {
+			this.sender().tell(new FrontierMessage(traversal == null ? -1 : traversal.taskId, new long[0]), this.self());
+			return;
+		}
 		
-		// Check for the most basic primes
-		if (n == 2 || n == 3)
-			return true;
-
-		// Check if n is an even number
-		if (n % 2 == 0)
+		// The oldest nodes on the stack lie closest to the roots, so they carry the largest subtrees
+		CandidateQueue handedBack = new CandidateQueue(traversal.candidateSize);
+		for (int i = traversal.stack.size() / 2; i > 0; i--) {
+			traversal.stack.pollFirst(traversal.node, 0);
+			handedBack.addLast(traversal.node, 0);
+		}
+		this.sender().tell(new FrontierMessage(traversal.taskId, handedBack.toArray()), this.self());
+	}
+	
+	/**
+	 * Traverse the subtrees depth first for a slice of time and then yield to the mailbox, so that split requests get
+	 * through. Once the subtrees are done, report their UCCs, non-UCCs and the nodes beyond the depth budget in bulk.
+	 */
+	private void traverse() {
+		Traversal traversal = this.traversal;
+		if (!this.select(traversal.taskId)) {
+			// The profiler takes the subtrees back as a whole, because the worker cannot finish them
+			this.log.error("Lost the dataset of task {} during a traversal", traversal.taskId);
+			traversal.profiler.tell(new DatasetMissingMessage(traversal.taskId), this.self());
+			this.traversal = null;
+			return;
+		}
+		
+		long start = System.nanoTime();
+		this.numSampleRejections = 0;
+		long[] node = traversal.node;
+		while (!traversal.stack.isEmpty() && System.nanoTime() - start < TRAVERSAL_SLICE_NANOS) {
+			traversal.stack.pollLast(node, 0);
+			int depth = (int) node[traversal.candidateSize];
+			if (depth == 0) {
+				traversal.frontier.addLast(node, 0);
+				continue;
+			}
+			
+			traversal.numValidatedCandidates++;
+			switch (this.validate(node, 0)) {
+				case MINIMAL:
+					traversal.index.addUcc(node, 0);
+					traversal.uccs.addLast(node, 0);
+					break;
+				case EXTENDABLE:
+					traversal.index.addNonUcc(node, 0);
+					traversal.nonUccs.addLast(node, 0);
+					this.pushChildren(traversal, depth - 1);
+					break;
+				default:
+					break;
+			}
+		}
+		traversal.validationTime += System.nanoTime() - start;
+		traversal.numSampleRejections += this.numSampleRejections;
+		
+		if (!traversal.stack.isEmpty()) {
+			this.self().tell(new ContinueMessage(), this.self());
+			return;
+		}
+		
+		traversal.profiler.tell(new SubtreeCompletionMessage(traversal.uccs.toArray(), traversal.nonUccs.toArray(), traversal.frontier.toArray(),
+				traversal.numValidatedCandidates, traversal.validationTime, traversal.numSampleRejections), this.self());
+		this.traversal = null;
+	}
+	
+	/**
+	 * Push the children of the extendable node in the traversal's buffer that the local pruning facts cannot decide. The
+	 * child that adds the next attribute to x comes last, so that it is validated next, while the PLI of x is cached.
+	 */
+	private void pushChildren(Traversal traversal, int depth) {
+		long[] node = traversal.node;
+		int next = Candidates.size(node, 0, traversal.candidateSize);
+		if (next >= this.dataset.getNumAttributes())
+			return;
+		
+		node[traversal.candidateSize] = depth;
+		Candidates.add(node, this.numWords, next);
+		if (!traversal.index.isDecided(node, 0))
+			traversal.stack.addLast(node, 0);
+		
+		Candidates.remove(node, this.numWords, next);
+		Candidates.add(node, 0, next);
+		if (!traversal.index.isDecided(node, 0))
+			traversal.stack.addLast(node, 0);
+	}
+	
+	/**
+	 * Switch to the dataset and the PLI cache of a task.
+	 * 
+	 * @return false if the task's dataset is not stored on this node
+	 */
+	private boolean select(int taskId) {
+		LocalDatasets.StoredDataset stored = this.localDatasets.get(taskId);
+		if (stored == null)
 			return false;
-
-		// Check the odds
-		for (long i = 3; i * i <= n; i += 2)
-			if (n % i == 0)
-				return false;
 		
+		this.taskId = taskId;
+		this.dataset = stored.getDataset();
+		this.columnPlis = stored.getColumnPlis();
+		this.numWords = Candidates.numWordsOf(this.dataset.getNumAttributes());
+		if (this.subset == null || this.subset.length != this.numWords) {
+			this.subset = new long[this.numWords];
+			this.superset = new long[this.numWords];
+		}
+		this.pliCache = this.pliCaches.get(taskId);
+		if (this.pliCache == null && this.dataset.getNumAttributes() <= Long.SIZE) {
+			this.pliCache = new PliCache(this.dataset, this.columnPlis, this.pliCacheSize);
+			this.pliCaches.put(taskId, this.pliCache);
+			this.divideCacheSize();
+		}
+		this.sample = this.samples.get(taskId);
+		if (this.sample == null && this.sampleSize > 0 && this.sampleSize < this.dataset.getNumRows()) {
+			this.sample = new RowSample(this.dataset, this.sampleSize, this.samplePolicy, this.sampleRefreshInterval);
+			this.samples.put(taskId, this.sample);
+		}
 		return true;
 	}
-}
\ No newline at end of file
+	
+	private void divideCacheSize() {
+		for (PliCache pliCache : this.pliCaches.values())
+			pliCache.setMaxBytes(this.pliCacheSize / this.pliCaches.size());
+	}
+	
+	/**
+	 * Validate the candidate x of a lattice node whose attributes y have been excluded. The candidate is encoded as
+	 * bitmasks (see {@link Candidates}), and x without its largest attribute is known to be non-unique. If the largest
+	 * candidate in the node's subtree has duplicates in the row sample, the node is decided without looking at all rows.
+	 * 
+	 * @return MINIMAL if x is a minimal UCC, EXTENDABLE if x is non-unique but some superset in the node's subtree is
+	 *         unique, and FALSE if x is a non-minimal UCC or no superset in the subtree is unique
+	 */
+	private CompletionMessage.status validate(long[] candidates, int offset) {
+		int y = offset + this.numWords;
+		if (this.sample != null) {
+			// The largest candidate in the subtree adds all attributes that are not in y
+			for (int word = 0; word < this.numWords; word++)
+				this.superset[word] = ~candidates[y + word];
+			for (int attribute = this.columnPlis.length; attribute < Long.SIZE * this.numWords; attribute++)
+				Candidates.remove(this.superset, 0, attribute);
+			if (this.sample.rejects(this.superset, 0)) {
+				this.numSampleRejections++;
+				return CompletionMessage.status.FALSE;
+			}
+		}
+		
+		PositionListIndex pli = this.pliOf(candidates, offset);
+		
+		if (pli.isUnique()) {
+			// x is minimal iff no subset that lacks one attribute is unique; the parent, which lacks the largest one, is not
+			System.arraycopy(candidates, offset, this.subset, 0, this.numWords);
+			int attribute = Candidates.nextAttribute(candidates, offset, this.numWords, 0);
+			for (int next; attribute >= 0 && (next = Candidates.nextAttribute(candidates, offset, this.numWords, attribute + 1)) >= 0; attribute = next) {
+				Candidates.remove(this.subset, 0, attribute);
+				boolean isUnique = this.pliOf(this.subset, 0).isUnique();
+				Candidates.add(this.subset, 0, attribute);
+				if (isUnique)
+					return CompletionMessage.status.FALSE;
+			}
+			return CompletionMessage.status.MINIMAL;
+		}
+		
+		// The largest candidate in the subtree adds all attributes that are neither in x nor in y; if it is not unique, none is
+		for (int attribute = 0; attribute < this.columnPlis.length && !pli.isUnique(); attribute++)
+			if (!Candidates.contains(candidates, offset, attribute) && !Candidates.contains(candidates, y, attribute))
+				pli = pli.intersect(this.dataset.getColumns()[attribute]);
+		
+		if (this.sample != null)
+			this.sample.addWitness(pli);
+		return pli.isUnique() ? CompletionMessage.status.EXTENDABLE : CompletionMessage.status.FALSE;
+	}
+	
+	private PositionListIndex pliOf(long[] attributes, int offset) {
+		if (this.pliCache != null)
+			return this.pliCache.get(attributes[offset]);
+		
+		int attribute = Candidates.nextAttribute(attributes, offset, this.numWords, 0);
+		if (attribute < 0)
+			return PositionListIndex.ofAllRows(this.dataset.getNumRows());
+		
+		PositionListIndex pli = this.columnPlis[attribute];
+		for (attribute = Candidates.nextAttribute(attributes, offset, this.numWords, attribute + 1); attribute >= 0 && !pli.isUnique();
+				attribute = Candidates.nextAttribute(attributes, offset, this.numWords, attribute + 1))
+			pli = pli.intersect(this.dataset.getColumns()[attribute]);
+		return pli;
+	}
+}
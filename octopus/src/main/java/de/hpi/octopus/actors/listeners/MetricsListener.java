@@ -12,6 +12,7 @@ import akka.cluster.metrics.StandardMetrics.Cpu;
 import akka.cluster.metrics.ClusterMetricsExtension;
 import akka.event.Logging;
 import akka.event.LoggingAdapter;
+import de.hpi.octopus.OctopusSystem;
 
 public class MetricsListener extends AbstractActor {
 
@@ -22,7 +23,7 @@ public class MetricsListener extends AbstractActor {
 	public static final String DEFAULT_NAME = "metricsListener";
 
 	public static Props props() {
-		return Props.create(MetricsListener.class);
+		return Props.create(MetricsListener.class).withDispatcher(OctopusSystem.COORDINATION_DISPATCHER);
 	}
 
 	/////////////////
@@ -0,0 +1,103 @@
+package de.hpi.octopus.structures;
+
+/**
+ * A double-ended queue of candidates in a ring buffer of longs. Each candidate takes a fixed number of words (see
+ * {@link Candidates}), which are copied in and out, so the queue allocates only when it grows.
+ */
+public class CandidateQueue {
+
+	private final int candidateSize;
+
+	private long[] buffer;
+
+	// The position of the first candidate and the number of candidates, both counted in candidates
+	private int head = 0;
+	private int size = 0;
+
+	/**
+	 * @param candidateSize the words per candidate
+	 */
+	public CandidateQueue(int candidateSize) {
+		this.candidateSize = candidateSize;
+		this.buffer = new long[16 * candidateSize];
+	}
+
+	public int getCandidateSize() {
+		return this.candidateSize;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	private int capacity() {
+		return this.buffer.length / this.candidateSize;
+	}
+
+	public void addLast(long[] candidates, int offset) {
+		this.ensureCapacity();
+		System.arraycopy(candidates, offset, this.buffer, ((this.head + this.size) % this.capacity()) * this.candidateSize, this.candidateSize);
+		this.size++;
+	}
+
+	public void addFirst(long[] candidates, int offset) {
+		this.ensureCapacity();
+		this.head = (this.head + this.capacity() - 1) % this.capacity();
+		System.arraycopy(candidates, offset, this.buffer, this.head * this.candidateSize, this.candidateSize);
+		this.size++;
+	}
+
+	/**
+	 * Remove the first candidate and copy it to the given position.
+	 */
+	public void pollFirst(long[] candidates, int offset) {
+		if (this.size == 0)
+			throw new IllegalStateException("The queue is empty.");
+		System.arraycopy(this.buffer, this.head * this.candidateSize, candidates, offset, this.candidateSize);
+		this.head = (this.head + 1) % this.capacity();
+		this.size--;
+	}
+
+	/**
+	 * Remove the last candidate and copy it to the given position.
+	 */
+	public void pollLast(long[] candidates, int offset) {
+		if (this.size == 0)
+			throw new IllegalStateException("The queue is empty.");
+		this.size--;
+		System.arraycopy(this.buffer, ((this.head + this.size) % this.capacity()) * this.candidateSize, candidates, offset, this.candidateSize);
+	}
+
+	/**
+	 * @return the candidates from first to last, back to back
+	 */
+	public long[] toArray() {
+		long[] candidates = new long[this.size * this.candidateSize];
+		int numHeadCandidates = Math.min(this.size, this.capacity() - this.head);
+		System.arraycopy(this.buffer, this.head * this.candidateSize, candidates, 0, numHeadCandidates * this.candidateSize);
+		System.arraycopy(this.buffer, 0, candidates, numHeadCandidates * this.candidateSize, (this.size - numHeadCandidates) * this.candidateSize);
+		return candidates;
+	}
+
+	public void clear() {
+		this.head = 0;
+		this.size = 0;
+	}
+
+	private void ensureCapacity() {
+		if (this.size < this.capacity())
+			return;
+
+		// Unroll the ring into a buffer of twice the size
+		long[] buffer = new long[2 * this.buffer.length];
+		int numHeadCandidates = Math.min(this.size, this.capacity() - this.head);
+		System.arraycopy(this.buffer, this.head * this.candidateSize, buffer, 0, numHeadCandidates * this.candidateSize);
+		System.arraycopy(this.buffer, 0, buffer, numHeadCandidates * this.candidateSize, (this.size - numHeadCandidates) * this.candidateSize);
+		this.buffer = buffer;
+		this.head = 0;
+	}
+}
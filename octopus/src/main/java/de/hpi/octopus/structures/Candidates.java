@@ -0,0 +1,75 @@
+package de.hpi.octopus.structures;
+
+/**
+ * The encoding of the candidates, i.e., the nodes (x, y) of the lattice, as bitmasks. An attribute set of a relation
+ * with n attributes takes ceil(n / 64) words, in which attribute a is bit a % 64 of word a / 64. A candidate takes
+ * twice as many words: those of x followed by those of y. Candidates are stored back to back in long arrays, so that
+ * queues and messages hold them without any objects per candidate.
+ */
+public final class Candidates {
+
+	private Candidates() {
+	}
+
+	/**
+	 * @return the words of an attribute set of a relation with the given number of attributes
+	 */
+	public static int numWordsOf(int numAttributes) {
+		return Math.max(1, (numAttributes + Long.SIZE - 1) / Long.SIZE);
+	}
+
+	public static boolean contains(long[] words, int offset, int attribute) {
+		return (words[offset + attribute / Long.SIZE] & (1L << attribute)) != 0;
+	}
+
+	public static void add(long[] words, int offset, int attribute) {
+		words[offset + attribute / Long.SIZE] |= 1L << attribute;
+	}
+
+	public static void remove(long[] words, int offset, int attribute) {
+		words[offset + attribute / Long.SIZE] &= ~(1L << attribute);
+	}
+
+	public static int size(long[] words, int offset, int numWords) {
+		int size = 0;
+		for (int i = 0; i < numWords; i++)
+			size += Long.bitCount(words[offset + i]);
+		return size;
+	}
+
+	/**
+	 * @return the smallest attribute of the set that is at least the given one, or -1 if there is none
+	 */
+	public static int nextAttribute(long[] words, int offset, int numWords, int from) {
+		int i = from / Long.SIZE;
+		if (i >= numWords)
+			return -1;
+		long word = words[offset + i] & (-1L << from);
+		while (word == 0) {
+			if (++i == numWords)
+				return -1;
+			word = words[offset + i];
+		}
+		return i * Long.SIZE + Long.numberOfTrailingZeros(word);
+	}
+
+	/**
+	 * @return whether the first set is a subset of the second one
+	 */
+	public static boolean isSubset(long[] words, int offset, long[] otherWords, int otherOffset, int numWords) {
+		for (int i = 0; i < numWords; i++)
+			if ((words[offset + i] & ~otherWords[otherOffset + i]) != 0)
+				return false;
+		return true;
+	}
+
+	/**
+	 * @return the attributes of the set in ascending order
+	 */
+	public static int[] toAttributes(long[] words, int offset, int numWords) {
+		int[] attributes = new int[size(words, offset, numWords)];
+		for (int attribute = nextAttribute(words, offset, numWords, 0), i = 0; attribute >= 0; attribute = nextAttribute(words, offset, numWords, attribute + 1))
+			attributes[i++] = attribute;
+		return attributes;
+	}
+}
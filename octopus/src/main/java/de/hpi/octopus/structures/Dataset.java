@@ -0,0 +1,157 @@
+package de.hpi.octopus.structures;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+
+/**
+ * A relation whose columns are dictionary-encoded: Each value of a column is replaced by a code in
+ * {@code [0, cardinality)}, so that equal values have equal codes and validations work on primitive arrays only.
+ */
+@Getter
+public class Dataset implements Serializable {
+
+	private static final long serialVersionUID = 2402958497232735134L;
+
+	private String name;
+	private String[] attributeNames;
+	private int[][] columns;
+	private int[] cardinalities;
+	private int numRows;
+
+	private Dataset() {}
+
+	public Dataset(String name, String[] attributeNames, int[][] columns, int[] cardinalities, int numRows) {
+		this.name = name;
+		this.attributeNames = attributeNames;
+		this.columns = columns;
+		this.cardinalities = cardinalities;
+		this.numRows = numRows;
+	}
+
+	public int getNumAttributes() {
+		return this.columns.length;
+	}
+
+	/**
+	 * Read a CSV file and encode its columns. Fields may be quoted with {@code "}; quoted fields may contain the
+	 * separator and doubled quotes, but no line breaks.
+	 *
+	 * @param path the CSV file
+	 * @param separator the field separator
+	 * @param hasHeader whether the first line holds the attribute names
+	 * @return the encoded dataset
+	 */
+	public static Dataset read(String path, char separator, boolean hasHeader) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+			String line = reader.readLine();
+			if (line == null)
+				throw new IOException("The input file " + path + " is empty.");
+
+			String[] firstRecord = parse(line, separator);
+			int numAttributes = firstRecord.length;
+			String[] attributeNames = new String[numAttributes];
+			for (int i = 0; i < numAttributes; i++)
+				attributeNames[i] = hasHeader ? firstRecord[i] : "A" + i;
+
+			List<Map<String, Integer>> dictionaries = new ArrayList<>(numAttributes);
+			IntList[] codes = new IntList[numAttributes];
+			for (int i = 0; i < numAttributes; i++) {
+				dictionaries.add(new HashMap<>());
+				codes[i] = new IntList();
+			}
+
+			int numRows = 0;
+			String[] record = hasHeader ? null : firstRecord;
+			while (true) {
+				if (record == null) {
+					line = reader.readLine();
+					if (line == null)
+						break;
+					if (line.isEmpty())
+						continue;
+					record = parse(line, separator);
+				}
+				if (record.length != numAttributes)
+					throw new IOException(String.format("Line %d of %s has %d instead of %d fields.", numRows + (hasHeader ? 2 : 1), path, record.length, numAttributes));
+
+				for (int i = 0; i < numAttributes; i++) {
+					Map<String, Integer> dictionary = dictionaries.get(i);
+					Integer code = dictionary.get(record[i]);
+					if (code == null) {
+						code = dictionary.size();
+						dictionary.put(record[i], code);
+					}
+					codes[i].add(code);
+				}
+				numRows++;
+				record = null;
+			}
+
+			int[][] columns = new int[numAttributes][];
+			int[] cardinalities = new int[numAttributes];
+			for (int i = 0; i < numAttributes; i++) {
+				columns[i] = codes[i].toArray();
+				cardinalities[i] = dictionaries.get(i).size();
+			}
+			return new Dataset(Paths.get(path).getFileName().toString(), attributeNames, columns, cardinalities, numRows);
+		}
+	}
+
+	private static String[] parse(String line, char separator) {
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean isQuoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (isQuoted) {
+				if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else if (c == '"') {
+					isQuoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				isQuoted = true;
+			} else if (c == separator) {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		return fields.toArray(new String[fields.size()]);
+	}
+
+	/**
+	 * A growable list of primitive ints.
+	 */
+	private static class IntList {
+
+		private int[] values = new int[1024];
+		private int size = 0;
+
+		void add(int value) {
+			if (this.size == this.values.length)
+				this.values = Arrays.copyOf(this.values, this.size * 2);
+			this.values[this.size++] = value;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(this.values, this.size);
+		}
+	}
+}
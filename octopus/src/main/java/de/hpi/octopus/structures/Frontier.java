@@ -0,0 +1,437 @@
+package de.hpi.octopus.structures;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import lombok.Getter;
+
+/**
+ * The unassigned candidates of a lattice (see {@link Candidates}) with a bounded number of them in memory. The excess
+ * goes to spill files in chunks of their bitmask form, in the policy's order: breadth-first, the newest candidates
+ * queue up in the files behind the older ones in memory, and the chunks come back first in, first out; depth-first, the
+ * oldest candidates go to the file, and the chunks come back last in, first out. So the candidates are handed out in
+ * the same order as without spilling.
+ * <p>
+ * Depth-first, the chunks form a stack in one file, and a new chunk overwrites the ones that have been read back.
+ * Breadth-first, the chunks are appended to a segment file until it is full and then to a new one, and a segment is
+ * deleted once all of its chunks have been read back. So the files hold about as many candidates as are spilled rather
+ * than all candidates that have ever been spilled.
+ * <p>
+ * The files are read and written on the given executor, one operation after another, so that the caller never waits
+ * for the disk. A chunk is read back once few candidates are left in memory, and only these can be polled until the read
+ * completes. The frontier notifies the caller when a read completes or an operation fails. A chunk that could not be
+ * written stays in memory, and spilling stops; a chunk that could not be read is lost.
+ */
+public class Frontier {
+
+	public enum Policy {
+		// Hand out the oldest candidates first, which validates the lattice level by level
+		BREADTH_FIRST,
+		// Hand out the newest candidates first, which keeps the frontier as small as the depth of the lattice allows
+		DEPTH_FIRST
+	}
+
+	/**
+	 * A spill file, which the first write to it creates.
+	 */
+	private static class Segment {
+
+		// Only the I/O operations access the file
+		private Path path;
+		private FileChannel file;
+
+		// The chunks in the file that have not been taken back yet and the bytes up to the end of the furthest write
+		private int numChunks = 0;
+		private long size = 0;
+	}
+
+	/**
+	 * A chunk of spilled candidates in a spill file.
+	 */
+	private static class Chunk {
+
+		private final Segment segment;
+		private final long position;
+		private final int size;
+
+		// The candidates until their write is seen to succeed, so that a failed write loses none of them
+		private long[] candidates;
+		private final CompletableFuture<?> written;
+
+		private Chunk(Segment segment, long position, long[] candidates, int candidateSize, CompletableFuture<?> written) {
+			this.segment = segment;
+			this.position = position;
+			this.size = candidates.length / candidateSize;
+			this.candidates = candidates;
+			this.written = written;
+		}
+	}
+
+	// A breadth-first segment holds the candidates of this many full frontiers before the next segment starts
+	private static final int SEGMENT_SIZE_FACTOR = 8;
+
+	private final int candidateSize;
+	private final int maxSize;
+	private final long segmentSize;
+	private final Policy policy;
+	private final File spillDirectory;
+	private final Executor executor;
+	private final Runnable listener;
+
+	// The candidates that are handed out next and, breadth-first, the newest ones, which wait behind the spilled chunks
+	private final CandidateQueue candidates;
+	private final CandidateQueue tail;
+	private final long[] candidate;
+
+	// The chunks in the spill files, the chunk that is being read back, and the segment and position of the next write
+	private final Deque<Chunk> chunks = new ArrayDeque<>();
+	private Chunk readChunk;
+	private CompletableFuture<long[]> read;
+	private final List<Segment> segments = new ArrayList<>();
+	private Segment writeSegment;
+	private long writePosition = 0;
+	private int numSpilled = 0;
+
+	// The latest I/O operation, after which the next one runs; only the operations access the files and the buffer
+	private CompletableFuture<?> io = CompletableFuture.completedFuture(null);
+	private ByteBuffer buffer;
+
+	private boolean canSpill;
+	private IOException error;
+
+	@Getter private long numSpilledCandidates = 0;
+	@Getter private long numLostCandidates = 0;
+	@Getter private int peakSize = 0;
+	// The total size of the spill files and its maximum so far
+	private long spillBytes = 0;
+	@Getter private long peakSpillBytes = 0;
+
+	/**
+	 * @param candidateSize the words per candidate
+	 * @param maxSize the candidates that are kept in memory
+	 * @param policy the order in which the candidates are handed out
+	 * @param spillDirectory the directory of the spill files, which are created only if needed, or null to keep all
+	 *        candidates in memory
+	 * @param executor the executor that reads and writes the spill files
+	 * @param listener the callback for completed reads and failed operations, which runs on the executor
+	 */
+	public Frontier(int candidateSize, int maxSize, Policy policy, File spillDirectory, Executor executor, Runnable listener) {
+		this.candidateSize = candidateSize;
+		this.maxSize = Math.max(2, maxSize);
+		this.segmentSize = Long.BYTES * (long) candidateSize * this.maxSize * SEGMENT_SIZE_FACTOR;
+		this.policy = policy;
+		this.spillDirectory = spillDirectory;
+		this.executor = executor;
+		this.listener = listener;
+		this.candidates = new CandidateQueue(candidateSize);
+		this.tail = new CandidateQueue(candidateSize);
+		this.candidate = new long[candidateSize];
+		this.canSpill = spillDirectory != null;
+	}
+
+	/**
+	 * @return the candidates in memory and in the spill files
+	 */
+	public int size() {
+		return this.candidates.size() + this.tail.size() + this.numSpilled;
+	}
+
+	public boolean isEmpty() {
+		return this.size() == 0;
+	}
+
+	/**
+	 * @return the candidates that can be polled right away
+	 */
+	public int available() {
+		this.collect();
+		return this.candidates.size();
+	}
+
+	/**
+	 * @return the first I/O error since the last call, or null
+	 */
+	public IOException takeError() {
+		this.collect();
+		IOException error = this.error;
+		this.error = null;
+		return error;
+	}
+
+	/**
+	 * Add a candidate that the policy hands out in its turn.
+	 */
+	public void add(long[] candidates, int offset) {
+		this.collect();
+		if (this.policy == Policy.BREADTH_FIRST && (this.isSpilled() || !this.tail.isEmpty()))
+			this.tail.addLast(candidates, offset);
+		else
+			this.candidates.addLast(candidates, offset);
+		this.spill();
+		this.peakSize = Math.max(this.peakSize, this.size());
+	}
+
+	/**
+	 * Add a candidate that is handed out before all others.
+	 */
+	public void addNext(long[] candidates, int offset) {
+		this.collect();
+		if (this.policy == Policy.BREADTH_FIRST)
+			this.candidates.addFirst(candidates, offset);
+		else
+			this.candidates.addLast(candidates, offset);
+		this.spill();
+		this.peakSize = Math.max(this.peakSize, this.size());
+	}
+
+	/**
+	 * Remove the next candidate and copy it to the given position; there must be an available one.
+	 */
+	public void poll(long[] candidates, int offset) {
+		this.collect();
+		if (this.policy == Policy.BREADTH_FIRST)
+			this.candidates.pollFirst(candidates, offset);
+		else
+			this.candidates.pollLast(candidates, offset);
+		this.collect();
+	}
+
+	/**
+	 * Delete the spill files once the pending operations are done.
+	 *
+	 * @return the completion of the deletion
+	 */
+	public CompletableFuture<?> close() {
+		this.canSpill = false;
+		List<Segment> segments = new ArrayList<>(this.segments);
+		this.segments.clear();
+		this.spillBytes = 0;
+		return this.submit(() -> {
+			IOException error = null;
+			for (Segment segment : segments) {
+				try {
+					if (segment.file != null)
+						segment.file.close();
+				} catch (IOException e) {
+					if (error == null)
+						error = e;
+				}
+			}
+			if (error != null)
+				throw error;
+			return null;
+		});
+	}
+
+	private boolean isSpilled() {
+		return !this.chunks.isEmpty() || this.read != null;
+	}
+
+	/**
+	 * Spill the candidates beyond the bound: breadth-first, the newest ones, which must not overtake the spilled
+	 * chunks; depth-first, the oldest ones, unless a read is pending whose candidates belong below them.
+	 */
+	private void spill() {
+		if (!this.canSpill)
+			return;
+
+		if (this.policy == Policy.BREADTH_FIRST) {
+			if (this.tail.size() >= this.maxSize / 2)
+				this.write(this.tail, this.tail.size(), true);
+			else if (this.candidates.size() > this.maxSize && !this.isSpilled() && this.tail.isEmpty())
+				this.write(this.candidates, this.candidates.size() / 2, false);
+		} else if (this.candidates.size() > this.maxSize && this.read == null) {
+			this.write(this.candidates, this.candidates.size() / 2, true);
+		}
+	}
+
+	/**
+	 * Move candidates to a new chunk at the end of the current segment or, breadth-first, of a new one if the current
+	 * segment is full, keeping their order.
+	 *
+	 * @param oldest whether to take the oldest candidates of the queue or the newest
+	 */
+	private void write(CandidateQueue queue, int numCandidates, boolean oldest) {
+		long[] candidates = new long[numCandidates * this.candidateSize];
+		if (oldest)
+			for (int offset = 0; offset < candidates.length; offset += this.candidateSize)
+				queue.pollFirst(candidates, offset);
+		else
+			for (int offset = candidates.length - this.candidateSize; offset >= 0; offset -= this.candidateSize)
+				queue.pollLast(candidates, offset);
+
+		if (this.writeSegment == null || this.policy == Policy.BREADTH_FIRST && this.writePosition >= this.segmentSize) {
+			this.writeSegment = new Segment();
+			this.segments.add(this.writeSegment);
+			this.writePosition = 0;
+		}
+		Segment segment = this.writeSegment;
+		segment.numChunks++;
+
+		long position = this.writePosition;
+		long end = position + Long.BYTES * (long) candidates.length;
+		if (end > segment.size) {
+			this.spillBytes += end - segment.size;
+			this.peakSpillBytes = Math.max(this.peakSpillBytes, this.spillBytes);
+			segment.size = end;
+		}
+		CompletableFuture<?> written = this.submit(() -> {
+			if (segment.file == null) {
+				segment.path = Files.createTempFile(this.spillDirectory.toPath(), "octopus-frontier-", ".bin");
+				segment.file = FileChannel.open(segment.path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+			}
+			if (this.buffer == null)
+				this.buffer = ByteBuffer.allocateDirect(Math.max(Long.BYTES * this.candidateSize, 1 << 16));
+			for (int i = 0; i < candidates.length; ) {
+				this.buffer.clear();
+				for (; i < candidates.length && this.buffer.remaining() >= Long.BYTES; i++)
+					this.buffer.putLong(candidates[i]);
+				this.buffer.flip();
+				long bufferPosition = position + Long.BYTES * (long) i - this.buffer.limit();
+				while (this.buffer.hasRemaining())
+					bufferPosition += segment.file.write(this.buffer, bufferPosition);
+			}
+			return null;
+		});
+		written.whenComplete((ignored, e) -> {
+			if (e != null)
+				this.listener.run();
+		});
+
+		this.chunks.addLast(new Chunk(segment, position, candidates, this.candidateSize, written));
+		this.writePosition = end;
+		this.numSpilled += numCandidates;
+		this.numSpilledCandidates += numCandidates;
+	}
+
+	/**
+	 * Take in the results of completed operations and read the next chunk back if few candidates are left in memory.
+	 */
+	private void collect() {
+		for (Chunk chunk : this.chunks) {
+			if (chunk.candidates == null || !chunk.written.isDone())
+				continue;
+			try {
+				chunk.written.join();
+				chunk.candidates = null;
+			} catch (CompletionException e) {
+				// The chunk stays in memory, and so do all candidates from now on; only the first failure is reported
+				if (this.canSpill)
+					this.fail(e);
+				this.canSpill = false;
+			}
+		}
+
+		if (this.read != null && this.read.isDone()) {
+			try {
+				this.merge(this.read.join());
+			} catch (CompletionException e) {
+				this.fail(e);
+				this.numLostCandidates += this.readChunk.size;
+			}
+			this.numSpilled -= this.readChunk.size;
+			this.readChunk = null;
+			this.read = null;
+		}
+
+		if (this.read != null || this.candidates.size() > this.maxSize / 4)
+			return;
+
+		if (!this.chunks.isEmpty()) {
+			Chunk chunk = this.policy == Policy.BREADTH_FIRST ? this.chunks.pollFirst() : this.chunks.pollLast();
+			if (this.policy == Policy.DEPTH_FIRST && chunk.segment == this.writeSegment)
+				this.writePosition = chunk.position;
+			if (chunk.candidates != null) {
+				// The chunk's write is pending or failed, so its candidates need no read
+				this.merge(chunk.candidates);
+				this.numSpilled -= chunk.size;
+			} else {
+				this.readChunk = chunk;
+				this.read = this.submit(() -> {
+					ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES * this.candidateSize * chunk.size);
+					while (buffer.hasRemaining())
+						if (chunk.segment.file.read(buffer, chunk.position + buffer.position()) < 0)
+							throw new IOException("Unexpected end of file " + chunk.segment.path);
+					buffer.flip();
+					long[] candidates = new long[this.candidateSize * chunk.size];
+					buffer.asLongBuffer().get(candidates);
+					return candidates;
+				});
+				this.read.whenComplete((candidates, e) -> this.listener.run());
+			}
+			this.release(chunk.segment);
+		} else if (!this.tail.isEmpty()) {
+			while (!this.tail.isEmpty()) {
+				this.tail.pollFirst(this.candidate, 0);
+				this.candidates.addLast(this.candidate, 0);
+			}
+		}
+	}
+
+	/**
+	 * Forget a chunk that has been taken back from the given segment. Once the segment holds no further chunks, the
+	 * next chunks overwrite it from its start if it is the current segment; otherwise, it is deleted after the pending
+	 * read of its last chunk.
+	 */
+	private void release(Segment segment) {
+		if (--segment.numChunks > 0)
+			return;
+
+		if (segment == this.writeSegment) {
+			this.writePosition = 0;
+		} else {
+			this.segments.remove(segment);
+			this.spillBytes -= segment.size;
+			this.submit(() -> {
+				if (segment.file != null)
+					segment.file.close();
+				return null;
+			});
+		}
+	}
+
+	/**
+	 * Put the candidates of a chunk back in memory, behind the others breadth-first and below them depth-first.
+	 */
+	private void merge(long[] candidates) {
+		if (this.policy == Policy.BREADTH_FIRST)
+			for (int offset = 0; offset < candidates.length; offset += this.candidateSize)
+				this.candidates.addLast(candidates, offset);
+		else
+			for (int offset = candidates.length - this.candidateSize; offset >= 0; offset -= this.candidateSize)
+				this.candidates.addFirst(candidates, offset);
+	}
+
+	private void fail(CompletionException e) {
+		if (this.error == null)
+			this.error = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+	}
+
+	/**
+	 * Run an operation on the spill files after the previous one, whether that one failed or not.
+	 */
+	private <T> CompletableFuture<T> submit(Callable<T> operation) {
+		CompletableFuture<T> result = this.io.handle((ignored, e) -> null).thenApplyAsync(ignored -> {
+			try {
+				return operation.call();
+			} catch (Exception e) {
+				throw new CompletionException(e);
+			}
+		}, this.executor);
+		this.io = result;
+		return result;
+	}
+}
@@ -0,0 +1,127 @@
+package de.hpi.octopus.structures;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+
+/**
+ * A memory-bounded cache of the PLIs of column combinations, keyed by the bitmask of their attributes. A missing PLI
+ * is derived from the most refined cached subset, which is intersected with further cached subsets and finally with
+ * single columns. The least recently used PLIs are evicted once the cached PLIs exceed the memory bound.
+ */
+public class PliCache {
+
+	private final Dataset dataset;
+	private final PositionListIndex[] columnPlis;
+	@Getter private long maxBytes;
+
+	// The cached PLIs in the order of their last access
+	private final LinkedHashMap<Long, PositionListIndex> plis = new LinkedHashMap<>(256, 0.75f, true);
+
+	@Getter private long bytes = 0;
+	@Getter private long hits = 0;
+	@Getter private long misses = 0;
+	@Getter private long evictions = 0;
+
+	/**
+	 * @param dataset a dataset with at most 64 attributes
+	 * @param columnPlis the PLIs of the dataset's single columns, which are never evicted
+	 * @param maxBytes the memory bound of the cached PLIs
+	 */
+	public PliCache(Dataset dataset, PositionListIndex[] columnPlis, long maxBytes) {
+		if (dataset.getNumAttributes() > Long.SIZE)
+			throw new IllegalArgumentException("A PLI cache supports at most " + Long.SIZE + " attributes.");
+		this.dataset = dataset;
+		this.columnPlis = columnPlis;
+		this.maxBytes = maxBytes;
+	}
+
+	public int getNumEntries() {
+		return this.plis.size();
+	}
+
+	/**
+	 * Get the PLI of a column combination from the cache or derive and cache it.
+	 *
+	 * @param attributes the bitmask of the combination's attributes
+	 */
+	public PositionListIndex get(long attributes) {
+		if (attributes == 0)
+			return PositionListIndex.ofAllRows(this.dataset.getNumRows());
+		if (Long.bitCount(attributes) == 1)
+			return this.columnPlis[Long.numberOfTrailingZeros(attributes)];
+
+		PositionListIndex pli = this.plis.get(attributes);
+		if (pli != null) {
+			this.hits++;
+			return pli;
+		}
+		this.misses++;
+
+		// Start from the most refined cached subset, which leaves the fewest rows to refine
+		List<Map.Entry<Long, PositionListIndex>> subsets = new ArrayList<>();
+		long covered = Long.lowestOneBit(attributes);
+		pli = this.columnPlis[Long.numberOfTrailingZeros(covered)];
+		for (Map.Entry<Long, PositionListIndex> entry : this.plis.entrySet()) {
+			if ((entry.getKey() & ~attributes) != 0)
+				continue;
+			subsets.add(entry);
+			if (entry.getValue().getNumClusteredRows() < pli.getNumClusteredRows()) {
+				pli = entry.getValue();
+				covered = entry.getKey();
+			}
+		}
+
+		// Add the remaining attributes, preferring cached subsets that cover several of them at once
+		long remaining = attributes & ~covered;
+		while (remaining != 0 && !pli.isUnique()) {
+			Map.Entry<Long, PositionListIndex> bestSubset = null;
+			int bestCover = 1;
+			for (Map.Entry<Long, PositionListIndex> subset : subsets) {
+				int cover = Long.bitCount(subset.getKey() & remaining);
+				if (cover > bestCover) {
+					bestSubset = subset;
+					bestCover = cover;
+				}
+			}
+			if (bestSubset != null) {
+				pli = pli.intersect(bestSubset.getValue(), this.dataset.getNumRows());
+				remaining &= ~bestSubset.getKey();
+			} else {
+				int attribute = Long.numberOfTrailingZeros(remaining);
+				pli = pli.intersect(this.dataset.getColumns()[attribute]);
+				remaining &= remaining - 1;
+			}
+		}
+
+		this.put(attributes, pli);
+		return pli;
+	}
+
+	/**
+	 * Change the memory bound and evict the least recently used PLIs that exceed it.
+	 */
+	public void setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+		this.evict();
+	}
+
+	private void put(long attributes, PositionListIndex pli) {
+		this.plis.put(attributes, pli);
+		this.bytes += pli.getMemorySize();
+		this.evict();
+	}
+
+	private void evict() {
+		Iterator<PositionListIndex> leastRecentlyUsed = this.plis.values().iterator();
+		while (this.bytes > this.maxBytes && leastRecentlyUsed.hasNext()) {
+			this.bytes -= leastRecentlyUsed.next().getMemorySize();
+			leastRecentlyUsed.remove();
+			this.evictions++;
+		}
+	}
+}
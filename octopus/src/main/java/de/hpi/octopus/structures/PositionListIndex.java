@@ -0,0 +1,167 @@
+package de.hpi.octopus.structures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A stripped position list index (PLI) of a column combination: the clusters of rows that agree on all attributes of
+ * the combination. Clusters of a single row are left out, so a combination is unique iff its PLI has no clusters.
+ */
+public class PositionListIndex {
+
+	// A marker in probing tables for rows that lie in no cluster
+	private static final int SINGLETON = -1;
+
+	private final int[][] clusters;
+
+	private final int numClusteredRows;
+
+	private PositionListIndex(int[][] clusters) {
+		this.clusters = clusters;
+		int numClusteredRows = 0;
+		for (int[] cluster : clusters)
+			numClusteredRows += cluster.length;
+		this.numClusteredRows = numClusteredRows;
+	}
+
+	/**
+	 * Build the PLI of a single dictionary-encoded column.
+	 *
+	 * @param codes the codes of the column's values
+	 * @param cardinality the number of distinct codes
+	 */
+	public static PositionListIndex of(int[] codes, int cardinality) {
+		// Count the rows per code and lay the clusters out by a counting sort
+		int[] offsets = new int[cardinality + 1];
+		for (int code : codes)
+			offsets[code + 1]++;
+		int numClusters = 0;
+		for (int code = 0; code < cardinality; code++)
+			if (offsets[code + 1] > 1)
+				numClusters++;
+		for (int code = 0; code < cardinality; code++)
+			offsets[code + 1] += offsets[code];
+
+		int[] rows = new int[codes.length];
+		int[] positions = Arrays.copyOf(offsets, cardinality);
+		for (int row = 0; row < codes.length; row++)
+			rows[positions[codes[row]]++] = row;
+
+		int[][] clusters = new int[numClusters][];
+		for (int code = 0, i = 0; code < cardinality; code++)
+			if (offsets[code + 1] - offsets[code] > 1)
+				clusters[i++] = Arrays.copyOfRange(rows, offsets[code], offsets[code + 1]);
+		return new PositionListIndex(clusters);
+	}
+
+	/**
+	 * @return the PLI of a combination with no attributes, in which all rows agree
+	 */
+	public static PositionListIndex ofAllRows(int numRows) {
+		if (numRows < 2)
+			return new PositionListIndex(new int[0][]);
+		int[] rows = new int[numRows];
+		for (int row = 0; row < numRows; row++)
+			rows[row] = row;
+		return new PositionListIndex(new int[][] {rows});
+	}
+
+	public boolean isUnique() {
+		return this.clusters.length == 0;
+	}
+
+	public int getNumClusters() {
+		return this.clusters.length;
+	}
+
+	/**
+	 * @return the rows of a cluster, which must not be modified
+	 */
+	public int[] getCluster(int index) {
+		return this.clusters[index];
+	}
+
+	/**
+	 * @return the number of rows that share their values with at least one other row
+	 */
+	public int getNumClusteredRows() {
+		return this.numClusteredRows;
+	}
+
+	/**
+	 * @return an estimate of the bytes that this PLI occupies on the heap
+	 */
+	public long getMemorySize() {
+		// The object and its array of clusters plus a header and the rows for each cluster
+		return 32 + 16 + 20L * this.clusters.length + 4L * this.numClusteredRows;
+	}
+
+	/**
+	 * Refine this PLI by a dictionary-encoded column, i.e., build the PLI of this combination plus the column.
+	 *
+	 * @param codes the codes of the column's values
+	 */
+	public PositionListIndex intersect(int[] codes) {
+		return this.refine(codes);
+	}
+
+	/**
+	 * Intersect this PLI with another one, i.e., build the PLI of the union of both combinations.
+	 *
+	 * @param other the other PLI
+	 * @param numRows the number of rows of the relation
+	 */
+	public PositionListIndex intersect(PositionListIndex other, int numRows) {
+		// Probe the larger PLI's clusters with the smaller one
+		if (other.numClusteredRows > this.numClusteredRows)
+			return other.intersect(this, numRows);
+		return this.refine(other.toProbingTable(numRows));
+	}
+
+	/**
+	 * @return for each row the index of its cluster or a marker if it lies in none
+	 */
+	private int[] toProbingTable(int numRows) {
+		int[] probingTable = new int[numRows];
+		Arrays.fill(probingTable, SINGLETON);
+		for (int i = 0; i < this.clusters.length; i++)
+			for (int row : this.clusters[i])
+				probingTable[row] = i;
+		return probingTable;
+	}
+
+	/**
+	 * Split each cluster into groups of rows with the same probe value.
+	 */
+	private PositionListIndex refine(int[] probingTable) {
+		List<int[]> refinedClusters = new ArrayList<>();
+		long[] keys = new long[0];
+		for (int[] cluster : this.clusters) {
+			// Sort the rows of the cluster by their probe value; the row is the low half of each key
+			if (keys.length < cluster.length)
+				keys = new long[cluster.length];
+			int numKeys = 0;
+			for (int row : cluster) {
+				int value = probingTable[row];
+				if (value != SINGLETON)
+					keys[numKeys++] = ((long) value << 32) | row;
+			}
+			Arrays.sort(keys, 0, numKeys);
+
+			// Emit the runs of equal values that have more than one row
+			for (int start = 0, end; start < numKeys; start = end) {
+				int value = (int) (keys[start] >>> 32);
+				for (end = start + 1; end < numKeys && (int) (keys[end] >>> 32) == value; end++) {
+				}
+				if (end - start > 1) {
+					int[] refinedCluster = new int[end - start];
+					for (int i = start; i < end; i++)
+						refinedCluster[i - start] = (int) keys[i];
+					refinedClusters.add(refinedCluster);
+				}
+			}
+		}
+		return new PositionListIndex(refinedClusters.toArray(new int[refinedClusters.size()][]));
+	}
+}
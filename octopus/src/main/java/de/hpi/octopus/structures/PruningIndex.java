@@ -0,0 +1,73 @@
+package de.hpi.octopus.structures;
+
+import lombok.Getter;
+
+/**
+ * The facts about a lattice that decide candidates without validating them: the minimal UCCs found so far and the
+ * column combinations known to be non-unique. All sets are given as bitmask words (see {@link Candidates}).
+ */
+public class PruningIndex {
+
+	private final int numWords;
+
+	private final SetTrie uccs;
+	private final SetTrie nonUccs;
+
+	// The relation's attributes and a buffer for the attributes that a candidate leaves undecided
+	private final long[] allAttributes;
+	private final long[] complement;
+
+	@Getter private int numDecidedCandidates = 0;
+
+	public PruningIndex(int numAttributes) {
+		this.numWords = Candidates.numWordsOf(numAttributes);
+		this.uccs = new SetTrie(numAttributes);
+		this.nonUccs = new SetTrie(numAttributes);
+		this.allAttributes = new long[this.numWords];
+		for (int attribute = 0; attribute < numAttributes; attribute++)
+			Candidates.add(this.allAttributes, 0, attribute);
+		this.complement = new long[this.numWords];
+	}
+
+	public void addUcc(long[] set, int offset) {
+		this.uccs.add(set, offset);
+	}
+
+	/**
+	 * Add a non-unique combination unless a known non-unique superset implies it.
+	 */
+	public void addNonUcc(long[] set, int offset) {
+		if (!this.nonUccs.containsSupersetOf(set, offset))
+			this.nonUccs.add(set, offset);
+	}
+
+	/**
+	 * @return whether the set is or contains a known UCC
+	 */
+	public boolean isSupersetOfUcc(long[] set, int offset) {
+		return this.uccs.containsSubsetOf(set, offset);
+	}
+
+	/**
+	 * Decide a candidate and, hence, its subtree if possible.
+	 *
+	 * @return whether the candidate has been decided
+	 */
+	public boolean isDecided(long[] candidates, int offset) {
+		// A superset of a UCC is not minimal
+		if (this.uccs.containsSubsetOf(candidates, offset)) {
+			this.numDecidedCandidates++;
+			return true;
+		}
+
+		// The largest candidate in the subtree leaves out only y; if even that is not unique, no candidate in the subtree is
+		for (int i = 0; i < this.numWords; i++)
+			this.complement[i] = this.allAttributes[i] & ~candidates[offset + this.numWords + i];
+		if (this.nonUccs.containsSupersetOf(this.complement, 0)) {
+			this.numDecidedCandidates++;
+			return true;
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,128 @@
+package de.hpi.octopus.structures;
+
+import java.util.Random;
+
+import lombok.Getter;
+
+/**
+ * A random sample of a dataset's rows that rejects column combinations cheaply: if two sampled rows agree on all
+ * attributes of a combination, the combination is not unique. A combination without duplicates in the sample may still
+ * have duplicates among the other rows, so it needs the full check.
+ */
+public class RowSample {
+
+	public enum Policy {
+		// Keep the rows that were drawn first
+		FIXED,
+		// Draw new rows after every refresh interval of checks
+		PERIODIC,
+		// Replace random rows by the duplicates that a full check finds for a combination that the sample let pass
+		WITNESSES
+	}
+
+	private final Dataset dataset;
+	private final Policy policy;
+	private final int refreshInterval;
+	private final Random random = new Random();
+
+	// The sampled rows and, per attribute, the codes of their values
+	private final int[] rows;
+	private final int[][] columns;
+
+	@Getter private long numChecks = 0;
+	@Getter private long numRejections = 0;
+	private long numChecksSinceRefresh = 0;
+
+	/**
+	 * @param dataset the dataset to sample
+	 * @param size the sampled rows, at least two and at most all rows of the dataset
+	 * @param policy the way in which the sampled rows change
+	 * @param refreshInterval the checks after which a periodic sample draws new rows
+	 */
+	public RowSample(Dataset dataset, int size, Policy policy, int refreshInterval) {
+		this.dataset = dataset;
+		this.policy = policy;
+		this.refreshInterval = refreshInterval;
+		this.rows = new int[Math.max(2, Math.min(size, dataset.getNumRows()))];
+		this.columns = new int[dataset.getNumAttributes()][this.rows.length];
+		this.draw();
+	}
+
+	public int size() {
+		return this.rows.length;
+	}
+
+	/**
+	 * Check a column combination on the sampled rows.
+	 *
+	 * @param attributes the bitmask words of the combination's attributes
+	 * @return true if the combination has duplicates among the sampled rows and is thus not unique
+	 */
+	public boolean rejects(long[] attributes, int offset) {
+		if (this.policy == Policy.PERIODIC && this.numChecksSinceRefresh >= this.refreshInterval) {
+			this.draw();
+			this.numChecksSinceRefresh = 0;
+		}
+		this.numChecks++;
+		this.numChecksSinceRefresh++;
+
+		int numWords = Candidates.numWordsOf(this.columns.length);
+		PositionListIndex pli = PositionListIndex.ofAllRows(this.rows.length);
+		for (int attribute = Candidates.nextAttribute(attributes, offset, numWords, 0); attribute >= 0 && !pli.isUnique();
+				attribute = Candidates.nextAttribute(attributes, offset, numWords, attribute + 1))
+			pli = pli.intersect(this.columns[attribute]);
+
+		if (pli.isUnique())
+			return false;
+		this.numRejections++;
+		return true;
+	}
+
+	/**
+	 * Learn from a combination that passed the sample but is not unique: with the witnesses policy, two of its duplicate
+	 * rows replace random sampled rows, so that the sample rejects the combination and its subsets from now on.
+	 *
+	 * @param pli the PLI of the combination on all rows, which has at least one cluster
+	 */
+	public void addWitness(PositionListIndex pli) {
+		if (this.policy != Policy.WITNESSES || pli.isUnique())
+			return;
+
+		int[] cluster = pli.getCluster(0);
+		int first = this.indexOf(cluster[0]);
+		if (first < 0) {
+			first = this.random.nextInt(this.rows.length);
+			this.set(first, cluster[0]);
+		}
+		if (this.indexOf(cluster[1]) < 0) {
+			int second;
+			do {
+				second = this.random.nextInt(this.rows.length);
+			} while (second == first);
+			this.set(second, cluster[1]);
+		}
+	}
+
+	/**
+	 * Draw distinct rows uniformly at random by selection sampling, which visits each row of the dataset once.
+	 */
+	private void draw() {
+		int numRows = this.dataset.getNumRows();
+		for (int row = 0, i = 0; i < this.rows.length; row++)
+			if (this.random.nextInt(numRows - row) < this.rows.length - i)
+				this.set(i++, row);
+	}
+
+	private void set(int i, int row) {
+		this.rows[i] = row;
+		for (int attribute = 0; attribute < this.columns.length; attribute++)
+			this.columns[attribute][i] = this.dataset.getColumns()[attribute][row];
+	}
+
+	private int indexOf(int row) {
+		for (int i = 0; i < this.rows.length; i++)
+			if (this.rows[i] == row)
+				return i;
+		return -1;
+	}
+}
@@ -0,0 +1,94 @@
+package de.hpi.octopus.structures;
+
+/**
+ * A prefix tree of attribute sets, each given by its bitmask words (see {@link Candidates}) and inserted in ascending
+ * order of its attributes. It answers whether it holds a subset or a superset of some set by walking only the branches
+ * that the set admits.
+ */
+public class SetTrie {
+
+	private static class Node {
+
+		private Node[] children;
+		private boolean isEnd;
+
+		private Node child(int attribute) {
+			return this.children == null || attribute >= this.children.length ? null : this.children[attribute];
+		}
+	}
+
+	private final int numAttributes;
+	private final int numWords;
+
+	private final Node root = new Node();
+
+	private int size = 0;
+
+	public SetTrie(int numAttributes) {
+		this.numAttributes = numAttributes;
+		this.numWords = Candidates.numWordsOf(numAttributes);
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public void add(long[] set, int offset) {
+		Node node = this.root;
+		for (int attribute = this.next(set, offset, 0); attribute >= 0; attribute = this.next(set, offset, attribute + 1)) {
+			if (node.children == null)
+				node.children = new Node[this.numAttributes];
+			if (node.children[attribute] == null)
+				node.children[attribute] = new Node();
+			node = node.children[attribute];
+		}
+		if (!node.isEnd) {
+			node.isEnd = true;
+			this.size++;
+		}
+	}
+
+	/**
+	 * @return whether the trie holds the set or one of its subsets
+	 */
+	public boolean containsSubsetOf(long[] set, int offset) {
+		return this.containsSubsetOf(this.root, set, offset, 0);
+	}
+
+	private boolean containsSubsetOf(Node node, long[] set, int offset, int from) {
+		if (node.isEnd)
+			return true;
+		for (int attribute = this.next(set, offset, from); attribute >= 0; attribute = this.next(set, offset, attribute + 1)) {
+			Node child = node.child(attribute);
+			if (child != null && this.containsSubsetOf(child, set, offset, attribute + 1))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return whether the trie holds the set or one of its supersets
+	 */
+	public boolean containsSupersetOf(long[] set, int offset) {
+		return this.containsSupersetOf(this.root, set, offset, 0);
+	}
+
+	private boolean containsSupersetOf(Node node, long[] set, int offset, int from) {
+		// Every node lies on the path of some set, so any node that covers all attributes leads to a superset
+		int required = this.next(set, offset, from);
+		if (required < 0)
+			return true;
+		if (node.children == null)
+			return false;
+		for (int attribute = 0; attribute <= required && attribute < node.children.length; attribute++) {
+			Node child = node.children[attribute];
+			if (child != null && this.containsSupersetOf(child, set, offset, attribute == required ? required + 1 : from))
+				return true;
+		}
+		return false;
+	}
+
+	private int next(long[] set, int offset, int from) {
+		return Candidates.nextAttribute(set, offset, this.numWords, from);
+	}
+}
@@ -0,0 +1,64 @@
+package de.hpi.octopus.actors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.testkit.javadsl.TestKit;
+import de.hpi.octopus.actors.DatasetSender.AckMessage;
+import de.hpi.octopus.actors.DatasetSender.StoredMessage;
+import de.hpi.octopus.actors.DatasetStore.ChunkMessage;
+import de.hpi.octopus.actors.DatasetStore.HeaderMessage;
+
+/**
+ * This class contains tests for the {@link DatasetStore}.
+ */
+public class DatasetStoreTest {
+
+	private ActorSystem actorSystem;
+
+	@Test
+	public void shouldDropDatasetsOfEarlierMaster() {
+		this.actorSystem = ActorSystem.create("test", ConfigFactory.parseString(
+				"akka.actor.provider = local\n" +
+				"akka.extensions = []")
+			.withFallback(ConfigFactory.load("octopus")));
+
+		// The double brackets are important! The inner bracket pair declares an anonymous constructor.
+		new TestKit(this.actorSystem) {{
+			ActorRef store = actorSystem.actorOf(DatasetStore.props());
+			LocalDatasets localDatasets = LocalDatasets.get(actorSystem);
+
+			// A restarted master sends another dataset with the same id
+			int[][] columns = {{0, 1, 2}};
+			for (long masterUid = 1; masterUid <= 2; masterUid++) {
+				String name = "dataset" + masterUid;
+				store.tell(new HeaderMessage(masterUid, 0, name, new String[] {"A"}, new int[] {3}, 3), this.getRef());
+				store.tell(new ChunkMessage(0, 0, 0, columns[0]), this.getRef());
+				this.expectMsgEquals(Duration.ofSeconds(3), new AckMessage(0));
+				this.expectMsgEquals(Duration.ofSeconds(3), new StoredMessage(0));
+				assertEquals(name, localDatasets.get(0).getDataset().getName());
+			}
+
+			// The same master's dataset is stored only once
+			store.tell(new HeaderMessage(2, 0, "dataset2", new String[] {"A"}, new int[] {3}, 3), this.getRef());
+			this.expectMsgEquals(Duration.ofSeconds(3), new StoredMessage(0));
+			assertArrayEquals(columns[0], localDatasets.get(0).getDataset().getColumns()[0]);
+		}};
+	}
+
+	@After
+	public void tearDown() {
+		if (this.actorSystem != null)
+			this.actorSystem.terminate();
+	}
+
+}
@@ -0,0 +1,208 @@
+package de.hpi.octopus.actors;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.cluster.Cluster;
+import akka.testkit.javadsl.TestKit;
+import de.hpi.octopus.OctopusMaster;
+
+/**
+ * This class contains tests for the {@link Profiler}, which profiles small tables with local workers and compares the
+ * UCCs in the result files with those that a brute-force search finds.
+ */
+public class ProfilerTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private ActorSystem actorSystem;
+
+	@Test
+	public void shouldFindMinimalUccsOfSingleCandidates() throws IOException {
+		this.shouldFindMinimalUccs(0, "breadth-first");
+	}
+
+	@Test
+	public void shouldFindMinimalUccsOfSubtrees() throws IOException {
+		this.shouldFindMinimalUccs(3, "depth-first");
+	}
+
+	private void shouldFindMinimalUccs(int delegationDepth, String frontierPolicy) throws IOException {
+		File directory = this.temporaryFolder.getRoot();
+		// A tiny frontier spills, and a tiny row sample lets candidates pass that only the full check rejects
+		this.actorSystem = ActorSystem.create("test", ConfigFactory.parseString(
+				"akka.remote.artery.canonical.hostname = \"127.0.0.1\"\n" +
+				"akka.remote.artery.canonical.port = 0\n" +
+				"akka.cluster.roles = [" + OctopusMaster.MASTER_ROLE + "]\n" +
+				"akka.extensions = []\n" +
+				"octopus.metrics-selector = off\n" +
+				"octopus.delegation-depth = " + delegationDepth + "\n" +
+				"octopus.frontier.max-size = 4\n" +
+				"octopus.frontier.policy = " + frontierPolicy + "\n" +
+				"octopus.frontier.spill-directory = \"" + directory.getAbsolutePath() + "\"\n" +
+				"octopus.sample.size = 4\n" +
+				"octopus.results.format = binary\n" +
+				"octopus.results.directory = \"" + directory.getAbsolutePath() + "\"")
+			.withFallback(ConfigFactory.load("octopus")));
+
+		Random random = new Random(42);
+		List<int[][]> tables = new ArrayList<>();
+		for (int i = 0; i < 6; i++)
+			tables.add(randomTable(random, 3 + i, 10 + 15 * i));
+
+		// The double brackets are important! The inner bracket pair declares an anonymous constructor.
+		new TestKit(this.actorSystem) {{
+			// The actors start once the node is up, like on the master
+			Cluster cluster = Cluster.get(actorSystem);
+			ActorRef probe = this.getRef();
+			cluster.registerOnMemberUp(() -> {
+				actorSystem.actorOf(DatasetStore.props(), DatasetStore.DEFAULT_NAME);
+				actorSystem.actorOf(Profiler.props(), Profiler.DEFAULT_NAME);
+				for (int i = 0; i < 3; i++)
+					actorSystem.actorOf(Worker.props(), Worker.DEFAULT_NAME + i);
+				probe.tell("up", ActorRef.noSender());
+			});
+			cluster.join(cluster.selfAddress());
+			this.expectMsgEquals(Duration.ofSeconds(10), "up");
+
+			// The profiler works on all tables at once
+			List<File> results = new ArrayList<>();
+			for (int i = 0; i < tables.size(); i++) {
+				File table = writeTable(directory, "table" + i + ".csv", tables.get(i));
+				actorSystem.actorSelection("/user/" + Profiler.DEFAULT_NAME).tell(new Profiler.TaskMessage(table.getPath(), ',', true), this.getRef());
+				results.add(new File(directory, table.getName() + ".task" + i + ".ucc"));
+			}
+
+			// The result sink counts the UCCs in the header when it closes a file, and every table has at least one UCC
+			for (int i = 0; i < tables.size(); i++) {
+				File result = results.get(i);
+				this.awaitCond(Duration.ofSeconds(20), () -> numUccsOf(result) > 0);
+				assertEquals("table" + i, minimalUccsOf(tables.get(i)), uccsOf(result));
+			}
+		}};
+	}
+
+	/**
+	 * @return the rows of a table with few distinct values per column, but without duplicate rows
+	 */
+	private static int[][] randomTable(Random random, int numAttributes, int numRows) {
+		Set<List<Integer>> rows = new LinkedHashSet<>();
+		while (rows.size() < numRows) {
+			List<Integer> row = new ArrayList<>();
+			for (int attribute = 0; attribute < numAttributes; attribute++)
+				row.add(random.nextInt(2 + attribute % 4));
+			rows.add(row);
+		}
+
+		int[][] table = new int[numRows][];
+		int i = 0;
+		for (List<Integer> row : rows)
+			table[i++] = row.stream().mapToInt(Integer::intValue).toArray();
+		return table;
+	}
+
+	private static File writeTable(File directory, String name, int[][] table) throws IOException {
+		List<String> lines = new ArrayList<>();
+		StringBuilder header = new StringBuilder();
+		for (int attribute = 0; attribute < table[0].length; attribute++)
+			header.append(attribute == 0 ? "" : ",").append("A").append(attribute);
+		lines.add(header.toString());
+		for (int[] row : table) {
+			StringBuilder line = new StringBuilder();
+			for (int attribute = 0; attribute < row.length; attribute++)
+				line.append(attribute == 0 ? "" : ",").append("v").append(row[attribute]);
+			lines.add(line.toString());
+		}
+		File file = new File(directory, name);
+		Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+		return file;
+	}
+
+	/**
+	 * @return the bitmasks of the minimal UCCs by checking every column combination
+	 */
+	private static Set<Long> minimalUccsOf(int[][] table) {
+		int numAttributes = table[0].length;
+		Set<Long> uccs = new HashSet<>();
+		for (long attributes = 1; attributes < 1L << numAttributes; attributes++) {
+			if (!isUnique(table, attributes))
+				continue;
+			boolean isMinimal = true;
+			for (int attribute = 0; attribute < numAttributes; attribute++)
+				if ((attributes & 1L << attribute) != 0 && isUnique(table, attributes & ~(1L << attribute)))
+					isMinimal = false;
+			if (isMinimal)
+				uccs.add(attributes);
+		}
+		return uccs;
+	}
+
+	private static boolean isUnique(int[][] table, long attributes) {
+		Set<List<Integer>> projections = new HashSet<>();
+		for (int[] row : table) {
+			List<Integer> projection = new ArrayList<>();
+			for (int attribute = 0; attribute < row.length; attribute++)
+				if ((attributes & 1L << attribute) != 0)
+					projection.add(row[attribute]);
+			if (!projections.add(projection))
+				return false;
+		}
+		return true;
+	}
+
+	private static long numUccsOf(File result) {
+		try {
+			return result.length() < 24 ? 0 : read(result).getLong(16);
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	private static ByteBuffer read(File result) throws IOException {
+		return ByteBuffer.wrap(Files.readAllBytes(result.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * @return the UCCs of a binary result file of a table with at most 64 attributes
+	 */
+	private static Set<Long> uccsOf(File result) throws IOException {
+		ByteBuffer file = read(result);
+		long numUccs = file.getLong(16);
+		int position = (int) file.getLong(24);
+		Set<Long> uccs = new HashSet<>();
+		for (long i = 0; i < numUccs; i++, position += Long.BYTES)
+			uccs.add(file.getLong(position));
+		assertEquals("duplicate UCCs", numUccs, uccs.size());
+		return uccs;
+	}
+
+	@After
+	public void tearDown() {
+		if (this.actorSystem != null)
+			this.actorSystem.terminate();
+	}
+
+}
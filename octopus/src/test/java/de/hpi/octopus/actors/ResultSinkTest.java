@@ -0,0 +1,129 @@
+package de.hpi.octopus.actors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.typesafe.config.ConfigFactory;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.PoisonPill;
+import akka.testkit.javadsl.TestKit;
+import de.hpi.octopus.structures.Candidates;
+
+/**
+ * This class contains tests for the {@link ResultSink}.
+ */
+public class ResultSinkTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private ActorSystem actorSystem;
+
+	// Attributes in two words, one of whose names needs quotes in CSV
+	private static final int NUM_ATTRIBUTES = 70;
+
+	private static final int[][] UCCS = {{0, 1}, {2}, {5, 64, 69}};
+
+	@Test
+	public void shouldWriteBinaryFiles() throws IOException {
+		String[] attributeNames = attributeNames();
+		this.writeUccs("binary", attributeNames);
+
+		ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(new File(this.temporaryFolder.getRoot(), "test.task7.ucc").toPath()))
+				.order(ByteOrder.LITTLE_ENDIAN);
+		byte[] magic = new byte[8];
+		file.get(magic);
+		assertEquals("OCTOUCC1", new String(magic, StandardCharsets.US_ASCII));
+		assertEquals(NUM_ATTRIBUTES, file.getInt());
+		int numWords = file.getInt();
+		assertEquals(Candidates.numWordsOf(NUM_ATTRIBUTES), numWords);
+		assertEquals(UCCS.length, file.getLong());
+		long uccsPosition = file.getLong();
+		assertEquals(0, uccsPosition % Long.BYTES);
+
+		for (String attributeName : attributeNames) {
+			byte[] name = new byte[file.getInt()];
+			file.get(name);
+			assertEquals(attributeName, new String(name, StandardCharsets.UTF_8));
+		}
+
+		file.position((int) uccsPosition);
+		long[] ucc = new long[numWords];
+		for (int[] expected : UCCS) {
+			for (int i = 0; i < numWords; i++)
+				ucc[i] = file.getLong();
+			assertArrayEquals(expected, Candidates.toAttributes(ucc, 0, numWords));
+		}
+		assertEquals(0, file.remaining());
+	}
+
+	@Test
+	public void shouldWriteCsvFiles() throws IOException {
+		String[] attributeNames = attributeNames();
+		this.writeUccs("csv", attributeNames);
+
+		List<String> lines = Files.readAllLines(new File(this.temporaryFolder.getRoot(), "test.task7.csv").toPath(), StandardCharsets.UTF_8);
+		assertEquals(Arrays.asList("\"a,\"\"b\"\"\",A1", "A2", "A5,A64,A69"), lines);
+	}
+
+	private void writeUccs(String format, String[] attributeNames) {
+		this.actorSystem = ActorSystem.create("test", ConfigFactory.parseString(
+				"akka.actor.provider = local\n" +
+				"akka.extensions = []\n" +
+				"octopus.results.format = " + format + "\n" +
+				"octopus.results.directory = \"" + this.temporaryFolder.getRoot().getAbsolutePath() + "\"")
+			.withFallback(ConfigFactory.load("octopus")));
+
+		// The double brackets are important! The inner bracket pair declares an anonymous constructor.
+		new TestKit(this.actorSystem) {{
+			ActorRef sink = actorSystem.actorOf(ResultSink.props());
+			this.watch(sink);
+
+			// The UCCs arrive in two batches
+			int numWords = Candidates.numWordsOf(NUM_ATTRIBUTES);
+			long[] uccs = new long[UCCS.length * numWords];
+			for (int i = 0; i < UCCS.length; i++)
+				for (int attribute : UCCS[i])
+					Candidates.add(uccs, i * numWords, attribute);
+
+			sink.tell(new ResultSink.OpenMessage(7, "test", attributeNames), this.getRef());
+			sink.tell(new ResultSink.UccsMessage(7, Arrays.copyOf(uccs, numWords)), this.getRef());
+			sink.tell(new ResultSink.UccsMessage(7, Arrays.copyOfRange(uccs, numWords, uccs.length)), this.getRef());
+			sink.tell(new ResultSink.CloseMessage(7), this.getRef());
+			sink.tell(PoisonPill.getInstance(), this.getRef());
+			this.expectTerminated(Duration.ofSeconds(3), sink);
+		}};
+	}
+
+	private static String[] attributeNames() {
+		String[] attributeNames = new String[NUM_ATTRIBUTES];
+		for (int attribute = 0; attribute < NUM_ATTRIBUTES; attribute++)
+			attributeNames[attribute] = "A" + attribute;
+		attributeNames[0] = "a,\"b\"";
+		return attributeNames;
+	}
+
+	@After
+	public void tearDown() {
+		if (this.actorSystem != null)
+			this.actorSystem.terminate();
+	}
+
+}
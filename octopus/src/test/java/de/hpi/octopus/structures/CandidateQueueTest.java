@@ -0,0 +1,94 @@
+package de.hpi.octopus.structures;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * This class contains tests for the {@link CandidateQueue}.
+ */
+public class CandidateQueueTest {
+
+	@Test
+	public void shouldKeepOrderAcrossTheWraparound() {
+		CandidateQueue queue = new CandidateQueue(2);
+		long[] candidate = new long[2];
+
+		// Move the head near the end of the ring, so that the next candidates wrap around
+		for (int i = 0; i < 14; i++)
+			queue.addLast(new long[] {i, -i}, 0);
+		for (int i = 0; i < 14; i++)
+			queue.pollFirst(candidate, 0);
+		for (int i = 0; i < 10; i++)
+			queue.addLast(new long[] {i, -i}, 0);
+		queue.addFirst(new long[] {-1, 1}, 0);
+
+		assertEquals(11, queue.size());
+		long[] expected = new long[22];
+		for (int i = 0; i <= 10; i++) {
+			expected[2 * i] = i - 1;
+			expected[2 * i + 1] = 1 - i;
+		}
+		assertArrayEquals(expected, queue.toArray());
+
+		queue.pollLast(candidate, 0);
+		assertArrayEquals(new long[] {9, -9}, candidate);
+		queue.pollFirst(candidate, 0);
+		assertArrayEquals(new long[] {-1, 1}, candidate);
+	}
+
+	@Test
+	public void shouldGrowLikeADeque() {
+		// Random operations at both ends, which grow the ring while it is wrapped around
+		CandidateQueue queue = new CandidateQueue(3);
+		Deque<Long> expected = new ArrayDeque<>();
+		long[] candidate = new long[3];
+		Random random = new Random(42);
+		for (int i = 0; i < 10_000; i++) {
+			long value = random.nextInt(1_000_000);
+			switch (random.nextInt(expected.isEmpty() ? 2 : 4)) {
+				case 0:
+					queue.addLast(new long[] {value, value + 1, value + 2}, 0);
+					expected.addLast(value);
+					break;
+				case 1:
+					queue.addFirst(new long[] {value, value + 1, value + 2}, 0);
+					expected.addFirst(value);
+					break;
+				case 2:
+					queue.pollFirst(candidate, 0);
+					assertArrayEquals(toCandidate(expected.pollFirst()), candidate);
+					break;
+				default:
+					queue.pollLast(candidate, 0);
+					assertArrayEquals(toCandidate(expected.pollLast()), candidate);
+			}
+			assertEquals(expected.size(), queue.size());
+		}
+
+		long[] candidates = queue.toArray();
+		int offset = 0;
+		for (long value : expected) {
+			assertEquals(value, candidates[offset]);
+			offset += 3;
+		}
+		queue.clear();
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldRejectPollsOfAnEmptyQueue() {
+		new CandidateQueue(1).pollLast(new long[1], 0);
+	}
+
+	private static long[] toCandidate(long value) {
+		return new long[] {value, value + 1, value + 2};
+	}
+
+}
@@ -0,0 +1,42 @@
+package de.hpi.octopus.structures;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * This class contains tests for the bitmask encoding of {@link Candidates}.
+ */
+public class CandidatesTest {
+
+	@Test
+	public void shouldEncodeSetsAcrossWords() {
+		int numWords = Candidates.numWordsOf(130);
+		assertEquals(3, numWords);
+		assertEquals(1, Candidates.numWordsOf(0));
+
+		// The set lies in the second candidate of the array, after a candidate with all attributes
+		long[] words = new long[2 * numWords];
+		for (int attribute = 0; attribute < 130; attribute++)
+			Candidates.add(words, 0, attribute);
+		for (int attribute : new int[] {0, 63, 64, 129})
+			Candidates.add(words, numWords, attribute);
+		Candidates.remove(words, numWords, 0);
+
+		assertEquals(130, Candidates.size(words, 0, numWords));
+		assertEquals(3, Candidates.size(words, numWords, numWords));
+		assertTrue(Candidates.contains(words, numWords, 64));
+		assertFalse(Candidates.contains(words, numWords, 0));
+		assertEquals(63, Candidates.nextAttribute(words, numWords, numWords, 0));
+		assertEquals(129, Candidates.nextAttribute(words, numWords, numWords, 65));
+		assertEquals(-1, Candidates.nextAttribute(words, numWords, numWords, 130));
+		assertArrayEquals(new int[] {63, 64, 129}, Candidates.toAttributes(words, numWords, numWords));
+
+		assertTrue(Candidates.isSubset(words, numWords, words, 0, numWords));
+		assertFalse(Candidates.isSubset(words, 0, words, numWords, numWords));
+	}
+
+}
@@ -0,0 +1,144 @@
+package de.hpi.octopus.structures;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * This class contains tests for the {@link Frontier}.
+ */
+public class FrontierTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private ExecutorService executor;
+
+	// A permit for every notification of the frontier
+	private final Semaphore notifications = new Semaphore(0);
+
+	@Before
+	public void setUp() {
+		this.executor = Executors.newSingleThreadExecutor();
+	}
+
+	@Test
+	public void shouldReadBackBreadthFirst() throws Exception {
+		this.shouldHandOutInOrder(Frontier.Policy.BREADTH_FIRST);
+	}
+
+	@Test
+	public void shouldReadBackDepthFirst() throws Exception {
+		this.shouldHandOutInOrder(Frontier.Policy.DEPTH_FIRST);
+	}
+
+	private void shouldHandOutInOrder(Frontier.Policy policy) throws Exception {
+		// A small bound makes the frontier spill and read back many chunks
+		File directory = this.temporaryFolder.getRoot();
+		Frontier frontier = new Frontier(2, 8, policy, directory, this.executor, this.notifications::release);
+		Deque<Long> expected = new ArrayDeque<>();
+		Random random = new Random(42);
+		long next = 0;
+		for (int i = 0; i < 5_000; i++) {
+			int operation = random.nextInt(10);
+			if (operation < 5 || expected.isEmpty()) {
+				frontier.add(new long[] {next, -next}, 0);
+				expected.addLast(next++);
+			} else if (operation < 6) {
+				frontier.addNext(new long[] {next, -next}, 0);
+				if (policy == Frontier.Policy.BREADTH_FIRST)
+					expected.addFirst(next++);
+				else
+					expected.addLast(next++);
+			} else if (!expected.isEmpty()) {
+				long value = policy == Frontier.Policy.BREADTH_FIRST ? expected.pollFirst() : expected.pollLast();
+				assertArrayEquals(new long[] {value, -value}, this.poll(frontier, 2));
+			}
+			assertEquals(expected.size(), frontier.size());
+		}
+		while (!expected.isEmpty()) {
+			long value = policy == Frontier.Policy.BREADTH_FIRST ? expected.pollFirst() : expected.pollLast();
+			assertArrayEquals(new long[] {value, -value}, this.poll(frontier, 2));
+		}
+
+		assertTrue(frontier.isEmpty());
+		assertTrue(frontier.getNumSpilledCandidates() > 0);
+		assertEquals(0, frontier.getNumLostCandidates());
+		assertNull(frontier.takeError());
+
+		frontier.close().get(3, TimeUnit.SECONDS);
+		assertEquals(0, directory.list().length);
+	}
+
+	@Test
+	public void shouldReclaimReadSpillSpace() throws Exception {
+		// The frontier's size stays the same while many candidates pass through its spill files
+		File directory = this.temporaryFolder.getRoot();
+		Frontier frontier = new Frontier(1, 8, Frontier.Policy.BREADTH_FIRST, directory, this.executor, this.notifications::release);
+		long next = 0;
+		for (; next < 100; next++)
+			frontier.add(new long[] {next}, 0);
+		for (long expected = 0; expected < 20_000; expected++) {
+			assertArrayEquals(new long[] {expected}, this.poll(frontier, 1));
+			frontier.add(new long[] {next++}, 0);
+		}
+
+		// The files hold about the 100 candidates and the unread parts of their segments of 64 candidates each
+		assertTrue(frontier.getNumSpilledCandidates() > 10_000);
+		assertTrue(frontier.getPeakSpillBytes() + " bytes", frontier.getPeakSpillBytes() <= (100 + 2 * 64) * Long.BYTES);
+		assertNull(frontier.takeError());
+		frontier.close().get(3, TimeUnit.SECONDS);
+		assertEquals(0, directory.list().length);
+	}
+
+	@Test
+	public void shouldKeepCandidatesThatCannotBeSpilled() throws Exception {
+		File directory = new File(this.temporaryFolder.getRoot(), "missing");
+		Frontier frontier = new Frontier(1, 4, Frontier.Policy.BREADTH_FIRST, directory, this.executor, this.notifications::release);
+		for (long value = 0; value < 100; value++)
+			frontier.add(new long[] {value}, 0);
+
+		// The failed write notifies the caller, and the frontier keeps all candidates in memory from then on
+		assertTrue(this.notifications.tryAcquire(3, TimeUnit.SECONDS));
+		assertNotNull(frontier.takeError());
+		assertNull(frontier.takeError());
+		for (long value = 0; value < 100; value++)
+			assertArrayEquals(new long[] {value}, this.poll(frontier, 1));
+		assertTrue(frontier.isEmpty());
+		assertEquals(0, frontier.getNumLostCandidates());
+	}
+
+	/**
+	 * Poll the next candidate, waiting for the frontier to read it back if needed.
+	 */
+	private long[] poll(Frontier frontier, int candidateSize) throws InterruptedException {
+		while (frontier.available() == 0)
+			assertTrue(this.notifications.tryAcquire(3, TimeUnit.SECONDS));
+		long[] candidate = new long[candidateSize];
+		frontier.poll(candidate, 0);
+		return candidate;
+	}
+
+	@After
+	public void tearDown() {
+		this.executor.shutdownNow();
+	}
+
+}
@@ -0,0 +1,45 @@
+package de.hpi.octopus.structures;
+
+import static de.hpi.octopus.structures.PositionListIndexTest.clustersOf;
+import static de.hpi.octopus.structures.PositionListIndexTest.groupRows;
+import static de.hpi.octopus.structures.PositionListIndexTest.randomDataset;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * This class contains tests for the {@link PliCache}.
+ */
+public class PliCacheTest {
+
+	@Test
+	public void shouldDeriveCachedPlisLikeGrouping() {
+		Random random = new Random(42);
+		Dataset dataset = randomDataset(random, 6, 200);
+		PositionListIndex[] columnPlis = new PositionListIndex[6];
+		for (int attribute = 0; attribute < 6; attribute++)
+			columnPlis[attribute] = PositionListIndex.of(dataset.getColumns()[attribute], dataset.getCardinalities()[attribute]);
+
+		// A small bound makes the cache evict PLIs, so that later PLIs derive from different subsets
+		PliCache cache = new PliCache(dataset, columnPlis, 8 * 1024);
+		for (int i = 0; i < 500; i++) {
+			int attributes = random.nextInt(1 << 6);
+			PositionListIndex pli = cache.get(attributes);
+			Set<List<Integer>> expected = groupRows(dataset, attributes);
+			// The cache may stop refining once the PLI is unique
+			if (expected.isEmpty())
+				assertTrue(pli.isUnique());
+			else
+				assertEquals(expected, clustersOf(pli));
+		}
+		assertTrue(cache.getHits() > 0);
+		assertTrue(cache.getEvictions() > 0);
+		assertTrue(cache.getBytes() <= cache.getMaxBytes());
+	}
+
+}
@@ -0,0 +1,116 @@
+package de.hpi.octopus.structures;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * This class contains tests for {@link PositionListIndex}es.
+ */
+public class PositionListIndexTest {
+
+	@Test
+	public void shouldStripSingletons() {
+		PositionListIndex pli = PositionListIndex.of(new int[] {0, 1, 0, 2, 1, 0}, 3);
+		assertEquals(clustersOf(new int[] {0, 2, 5}, new int[] {1, 4}), clustersOf(pli));
+		assertEquals(5, pli.getNumClusteredRows());
+
+		assertTrue(PositionListIndex.of(new int[] {2, 0, 1}, 3).isUnique());
+		assertEquals(1, PositionListIndex.ofAllRows(3).getNumClusters());
+		assertTrue(PositionListIndex.ofAllRows(1).isUnique());
+	}
+
+	@Test
+	public void shouldIntersectLikeGrouping() {
+		Random random = new Random(42);
+		for (int round = 0; round < 50; round++) {
+			Dataset dataset = randomDataset(random, 4, 1 + random.nextInt(60));
+			for (int attributes = 1; attributes < 1 << 4; attributes++) {
+				// Once by refining with single columns, once by intersecting the PLIs of two halves
+				PositionListIndex refined = PositionListIndex.ofAllRows(dataset.getNumRows());
+				PositionListIndex lower = PositionListIndex.ofAllRows(dataset.getNumRows());
+				PositionListIndex upper = PositionListIndex.ofAllRows(dataset.getNumRows());
+				for (int attribute = 0; attribute < 4; attribute++) {
+					if ((attributes & 1 << attribute) == 0)
+						continue;
+					refined = refined.intersect(dataset.getColumns()[attribute]);
+					if (attribute < 2)
+						lower = lower.intersect(dataset.getColumns()[attribute]);
+					else
+						upper = upper.intersect(dataset.getColumns()[attribute]);
+				}
+
+				Set<List<Integer>> expected = groupRows(dataset, attributes);
+				assertEquals(expected, clustersOf(refined));
+				assertEquals(expected, clustersOf(lower.intersect(upper, dataset.getNumRows())));
+			}
+		}
+	}
+
+	/**
+	 * @return a dataset whose columns have few distinct values, so that many combinations are not unique
+	 */
+	static Dataset randomDataset(Random random, int numAttributes, int numRows) {
+		int[][] columns = new int[numAttributes][numRows];
+		int[] cardinalities = new int[numAttributes];
+		String[] attributeNames = new String[numAttributes];
+		for (int attribute = 0; attribute < numAttributes; attribute++) {
+			cardinalities[attribute] = 1 + random.nextInt(numRows < 10 ? 3 : 10);
+			attributeNames[attribute] = "A" + attribute;
+			for (int row = 0; row < numRows; row++)
+				columns[attribute][row] = random.nextInt(cardinalities[attribute]);
+		}
+		return new Dataset("random", attributeNames, columns, cardinalities, numRows);
+	}
+
+	/**
+	 * @return the groups of at least two rows that agree on all attributes of the bitmask
+	 */
+	static Set<List<Integer>> groupRows(Dataset dataset, int attributes) {
+		Map<List<Integer>, List<Integer>> groups = new HashMap<>();
+		for (int row = 0; row < dataset.getNumRows(); row++) {
+			List<Integer> values = new ArrayList<>();
+			for (int attribute = 0; attribute < dataset.getNumAttributes(); attribute++)
+				if ((attributes & 1 << attribute) != 0)
+					values.add(dataset.getColumns()[attribute][row]);
+			groups.computeIfAbsent(values, key -> new ArrayList<>()).add(row);
+		}
+
+		Set<List<Integer>> clusters = new HashSet<>();
+		for (List<Integer> group : groups.values())
+			if (group.size() > 1)
+				clusters.add(group);
+		return clusters;
+	}
+
+	static Set<List<Integer>> clustersOf(PositionListIndex pli) {
+		int[][] clusters = new int[pli.getNumClusters()][];
+		for (int i = 0; i < clusters.length; i++)
+			clusters[i] = pli.getCluster(i);
+		return clustersOf(clusters);
+	}
+
+	private static Set<List<Integer>> clustersOf(int[]... clusters) {
+		Set<List<Integer>> sets = new HashSet<>();
+		for (int[] cluster : clusters) {
+			int[] rows = cluster.clone();
+			Arrays.sort(rows);
+			List<Integer> list = new ArrayList<>();
+			for (int row : rows)
+				list.add(row);
+			sets.add(list);
+		}
+		return sets;
+	}
+
+}
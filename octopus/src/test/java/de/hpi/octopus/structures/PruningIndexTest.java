@@ -0,0 +1,32 @@
+package de.hpi.octopus.structures;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * This class contains tests for the {@link PruningIndex}.
+ */
+public class PruningIndexTest {
+
+	@Test
+	public void shouldDecideCandidatesByKnownFacts() {
+		PruningIndex index = new PruningIndex(4);
+		index.addUcc(new long[] {0b0011}, 0);
+		index.addNonUcc(new long[] {0b0101}, 0);
+		index.addNonUcc(new long[] {0b0100}, 0);
+
+		assertTrue(index.isSupersetOfUcc(new long[] {0b1011}, 0));
+		assertFalse(index.isSupersetOfUcc(new long[] {0b0001}, 0));
+
+		// A candidate (x, y) is decided if x contains a UCC or if all attributes but y are not unique
+		assertTrue(index.isDecided(new long[] {0b0011, 0b0000}, 0));
+		assertTrue(index.isDecided(new long[] {0b0001, 0b1010}, 0));
+		assertFalse(index.isDecided(new long[] {0b0001, 0b1000}, 0));
+		assertFalse(index.isDecided(new long[] {0b0100, 0b0010}, 0));
+		assertEquals(2, index.getNumDecidedCandidates());
+	}
+
+}
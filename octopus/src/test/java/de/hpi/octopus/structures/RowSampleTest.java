@@ -0,0 +1,61 @@
+package de.hpi.octopus.structures;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * This class contains tests for the {@link RowSample}.
+ */
+public class RowSampleTest {
+
+	@Test
+	public void shouldRejectOnlyNonUniqueCombinations() {
+		Random random = new Random(42);
+		Dataset dataset = PositionListIndexTest.randomDataset(random, 5, 100);
+		for (RowSample.Policy policy : RowSample.Policy.values()) {
+			RowSample all = new RowSample(dataset, 1_000, policy, 10);
+			RowSample some = new RowSample(dataset, 10, policy, 10);
+			assertEquals(100, all.size());
+			assertEquals(10, some.size());
+
+			for (int i = 0; i < 200; i++) {
+				long[] attributes = {random.nextInt(1 << 5)};
+				boolean isUnique = pliOf(dataset, attributes[0]).isUnique();
+				// A sample of all rows decides every combination, a smaller one never rejects a UCC
+				assertEquals(!isUnique, all.rejects(attributes, 0));
+				if (isUnique)
+					assertFalse(some.rejects(attributes, 0));
+			}
+			assertEquals(200, all.getNumChecks());
+		}
+	}
+
+	@Test
+	public void shouldRejectCombinationsWithWitnesses() {
+		// Two rows agree on the first attribute, which a sample of the other two rows cannot see
+		int[][] columns = {{0, 1, 2, 2}, {0, 1, 2, 3}};
+		Dataset dataset = new Dataset("witnesses", new String[] {"A", "B"}, columns, new int[] {3, 4}, 4);
+		RowSample sample = new RowSample(dataset, 2, RowSample.Policy.WITNESSES, 10);
+		long[] attributes = {1};
+
+		PositionListIndex pli = pliOf(dataset, attributes[0]);
+		sample.rejects(attributes, 0);
+		sample.addWitness(pli);
+		assertTrue(sample.rejects(attributes, 0));
+		assertFalse(sample.rejects(new long[] {3}, 0));
+	}
+
+	private static PositionListIndex pliOf(Dataset dataset, long attributes) {
+		PositionListIndex pli = PositionListIndex.ofAllRows(dataset.getNumRows());
+		for (int attribute = 0; attribute < dataset.getNumAttributes(); attribute++)
+			if ((attributes & 1L << attribute) != 0)
+				pli = pli.intersect(dataset.getColumns()[attribute]);
+		return pli;
+	}
+
+}
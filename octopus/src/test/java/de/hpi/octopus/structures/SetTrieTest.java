@@ -0,0 +1,81 @@
+package de.hpi.octopus.structures;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * This class contains tests for the {@link SetTrie}.
+ */
+public class SetTrieTest {
+
+	@Test
+	public void shouldFindSubsetsAndSupersets() {
+		SetTrie trie = new SetTrie(5);
+		trie.add(setOf(5, 0, 2), 0);
+		trie.add(setOf(5, 1, 3, 4), 0);
+		trie.add(setOf(5, 0, 2), 0);
+		assertEquals(2, trie.size());
+
+		assertTrue(trie.containsSubsetOf(setOf(5, 0, 2), 0));
+		assertTrue(trie.containsSubsetOf(setOf(5, 0, 1, 2), 0));
+		assertFalse(trie.containsSubsetOf(setOf(5, 0, 1, 3), 0));
+		assertFalse(trie.containsSubsetOf(setOf(5), 0));
+
+		assertTrue(trie.containsSupersetOf(setOf(5, 3), 0));
+		assertTrue(trie.containsSupersetOf(setOf(5, 1, 4), 0));
+		assertTrue(trie.containsSupersetOf(setOf(5), 0));
+		assertFalse(trie.containsSupersetOf(setOf(5, 0, 1), 0));
+		assertFalse(trie.containsSupersetOf(setOf(5, 0, 2, 4), 0));
+	}
+
+	@Test
+	public void shouldAgreeWithPairwiseComparisons() {
+		// Sets of more than 64 attributes span several words
+		int numAttributes = 70;
+		int numWords = Candidates.numWordsOf(numAttributes);
+		Random random = new Random(42);
+		for (int round = 0; round < 20; round++) {
+			SetTrie trie = new SetTrie(numAttributes);
+			List<long[]> sets = new ArrayList<>();
+			for (int i = 0; i < 30; i++) {
+				long[] set = randomSet(random, numAttributes, 4);
+				trie.add(set, 0);
+				sets.add(set);
+			}
+
+			for (int i = 0; i < 200; i++) {
+				long[] query = randomSet(random, numAttributes, 1 + random.nextInt(8));
+				boolean hasSubset = false, hasSuperset = false;
+				for (long[] set : sets) {
+					hasSubset |= Candidates.isSubset(set, 0, query, 0, numWords);
+					hasSuperset |= Candidates.isSubset(query, 0, set, 0, numWords);
+				}
+				assertEquals(hasSubset, trie.containsSubsetOf(query, 0));
+				assertEquals(hasSuperset, trie.containsSupersetOf(query, 0));
+			}
+		}
+	}
+
+	private static long[] setOf(int numAttributes, int... attributes) {
+		long[] set = new long[Candidates.numWordsOf(numAttributes)];
+		for (int attribute : attributes)
+			Candidates.add(set, 0, attribute);
+		return set;
+	}
+
+	private static long[] randomSet(Random random, int numAttributes, int maxSize) {
+		// Few distinct attributes make subsets and supersets likely
+		long[] set = new long[Candidates.numWordsOf(numAttributes)];
+		for (int i = random.nextInt(maxSize + 1); i > 0; i--)
+			Candidates.add(set, 0, random.nextBoolean() ? random.nextInt(8) : 62 + random.nextInt(8));
+		return set;
+	}
+
+}